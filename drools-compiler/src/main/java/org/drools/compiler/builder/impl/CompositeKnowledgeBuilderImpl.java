@@ -20,6 +20,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 import org.drools.compiler.lang.descr.CompositePackageDescr;
@@ -32,6 +33,7 @@ import org.kie.api.io.ResourceType;
 import org.kie.api.io.ResourceWithConfiguration;
 import org.kie.internal.builder.ChangeType;
 import org.kie.internal.builder.CompositeKnowledgeBuilder;
+import org.kie.internal.builder.KnowledgeBuilderResult;
 import org.kie.internal.builder.ResourceChange;
 import org.kie.internal.builder.ResourceChangeSet;
 import org.kie.internal.io.ResourceWithConfigurationImpl;
@@ -164,23 +166,62 @@ public class CompositeKnowledgeBuilderImpl implements CompositeKnowledgeBuilder
     }
 
     private Collection<CompositePackageDescr> buildPackageDescr() {
-        Map<String, CompositePackageDescr> packages = new HashMap<>();
-        buildResource(packages, ResourceType.DRL, ResourceToPkgDescrMapper.DRL_TO_PKG_DESCR);
-        buildResource(packages, ResourceType.GDRL,ResourceToPkgDescrMapper. DRL_TO_PKG_DESCR);
-        buildResource(packages, ResourceType.RDRL, ResourceToPkgDescrMapper.DRL_TO_PKG_DESCR);
-        buildResource(packages, ResourceType.DESCR, ResourceToPkgDescrMapper.DRL_TO_PKG_DESCR);
-        buildResource(packages, ResourceType.DSLR, ResourceToPkgDescrMapper.DSLR_TO_PKG_DESCR);
-        buildResource(packages, ResourceType.RDSLR, ResourceToPkgDescrMapper.DSLR_TO_PKG_DESCR);
-        buildResource(packages, ResourceType.XDRL, ResourceToPkgDescrMapper.XML_TO_PKG_DESCR);
-        buildResource(packages, ResourceType.DTABLE, ResourceToPkgDescrMapper.DTABLE_TO_PKG_DESCR);
-        buildResource(packages, ResourceType.TDRL, ResourceToPkgDescrMapper.DRL_TO_PKG_DESCR);
-        buildResource(packages, ResourceType.TEMPLATE, ResourceToPkgDescrMapper.TEMPLATE_TO_PKG_DESCR);
-        buildResource(packages, ResourceType.GDST, ResourceToPkgDescrMapper.GUIDED_DTABLE_TO_PKG_DESCR);
+        List<ParsedResource> parsedResources = new ArrayList<>();
+        collectResources(parsedResources, ResourceType.DRL, ResourceToPkgDescrMapper.DRL_TO_PKG_DESCR);
+        collectResources(parsedResources, ResourceType.GDRL,ResourceToPkgDescrMapper. DRL_TO_PKG_DESCR);
+        collectResources(parsedResources, ResourceType.RDRL, ResourceToPkgDescrMapper.DRL_TO_PKG_DESCR);
+        collectResources(parsedResources, ResourceType.DESCR, ResourceToPkgDescrMapper.DRL_TO_PKG_DESCR);
+        collectResources(parsedResources, ResourceType.DSLR, ResourceToPkgDescrMapper.DSLR_TO_PKG_DESCR);
+        collectResources(parsedResources, ResourceType.RDSLR, ResourceToPkgDescrMapper.DSLR_TO_PKG_DESCR);
+        collectResources(parsedResources, ResourceType.XDRL, ResourceToPkgDescrMapper.XML_TO_PKG_DESCR);
+        collectResources(parsedResources, ResourceType.DTABLE, ResourceToPkgDescrMapper.DTABLE_TO_PKG_DESCR);
+        collectResources(parsedResources, ResourceType.TDRL, ResourceToPkgDescrMapper.DRL_TO_PKG_DESCR);
+        collectResources(parsedResources, ResourceType.TEMPLATE, ResourceToPkgDescrMapper.TEMPLATE_TO_PKG_DESCR);
+        collectResources(parsedResources, ResourceType.GDST, ResourceToPkgDescrMapper.GUIDED_DTABLE_TO_PKG_DESCR);
         this.resourcesByType.remove(ResourceType.DRT); // drt is a template for dtables but doesn't have to be built on its own
 
+        parseResources(parsedResources);
+
+        // merge the parsed resources in the same order in which they have been added, regardless of the order in which
+        // they have been parsed, so that both the packages and the reported errors are the same of a sequential build
+        Map<String, CompositePackageDescr> packages = new HashMap<>();
+        for (ParsedResource parsedResource : parsedResources) {
+            parsedResource.results.forEach(kBuilder::addBuilderResult);
+            if (parsedResource.exception != null) {
+                if (buildException == null) {
+                    buildException = parsedResource.exception;
+                }
+            } else {
+                registerPackageDescr(parsedResource.resourceDescr, packages, parsedResource.resourceDescr.resource, parsedResource.packageDescr);
+            }
+        }
         return packages.values();
     }
 
+    private void collectResources(List<ParsedResource> parsedResources, ResourceType resourceType, ResourceToPkgDescrMapper mapper) {
+        List<ResourceDescr> resourcesByType = this.resourcesByType.remove(resourceType);
+        if (resourcesByType != null) {
+            for (ResourceDescr resourceDescr : resourcesByType) {
+                parsedResources.add(new ParsedResource(resourceDescr, mapper));
+            }
+        }
+    }
+
+    private void parseResources(List<ParsedResource> parsedResources) {
+        int parallelBuildThreshold = kBuilder.getBuilderConfiguration().getParallelRulesBuildThreshold();
+        if (parallelBuildThreshold == -1 || parsedResources.size() < 2) {
+            parsedResources.forEach(parsedResource -> parsedResource.parse(kBuilder));
+            return;
+        }
+        try {
+            KnowledgeBuilderImpl.ForkJoinPoolHolder.COMPILER_POOL.submit(() ->
+                    parsedResources.parallelStream().forEach(parsedResource -> parsedResource.parse(kBuilder))
+            ).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Resources parsing failed or interrupted", e);
+        }
+    }
+
     private void buildAssemblerResourcesBeforeRules() {
         KieAssemblers assemblers = ServiceRegistry.getService(KieAssemblers.class);
         try {
@@ -216,25 +257,6 @@ public class CompositeKnowledgeBuilderImpl implements CompositeKnowledgeBuilder
         }
     }
 
-    private void buildResource(Map<String, CompositePackageDescr> packages, ResourceType resourceType, ResourceToPkgDescrMapper mapper) {
-        List<ResourceDescr> resourcesByType = this.resourcesByType.remove(resourceType);
-        if (resourcesByType != null) {
-            for (ResourceDescr resourceDescr : resourcesByType) {
-                try {
-                    registerPackageDescr(resourceDescr, packages, resourceDescr.resource, mapper.map(kBuilder, resourceDescr));
-                } catch (RuntimeException e) {
-                    if (buildException == null) {
-                        buildException = e;
-                    }
-                } catch (Exception e) {
-                    if (buildException == null) {
-                        buildException = new RuntimeException( e );
-                    }
-                }
-            }
-        }
-    }
-
     private void registerPackageDescr(ResourceDescr resourceDescr, Map<String, CompositePackageDescr> packages, Resource resource, PackageDescr packageDescr) {
         if (packageDescr != null) {
             CompositePackageDescr compositePackageDescr = packages.get(packageDescr.getNamespace());
@@ -306,6 +328,29 @@ public class CompositeKnowledgeBuilderImpl implements CompositeKnowledgeBuilder
         }
     }
 
+    private static class ParsedResource {
+        final ResourceDescr resourceDescr;
+        final ResourceToPkgDescrMapper mapper;
+        final List<KnowledgeBuilderResult> results = new ArrayList<>();
+        PackageDescr packageDescr;
+        RuntimeException exception;
+
+        private ParsedResource(ResourceDescr resourceDescr, ResourceToPkgDescrMapper mapper) {
+            this.resourceDescr = resourceDescr;
+            this.mapper = mapper;
+        }
+
+        void parse(KnowledgeBuilderImpl kBuilder) {
+            try {
+                packageDescr = mapper.map(kBuilder, resourceDescr, results);
+            } catch (RuntimeException e) {
+                exception = e;
+            } catch (Exception e) {
+                exception = new RuntimeException( e );
+            }
+        }
+    }
+
     @FunctionalInterface
     private interface ResourceBuilder {
         void build(KnowledgeBuilderImpl kBuilder, ResourceDescr resourceDescr) throws Exception;
@@ -337,13 +382,13 @@ public class CompositeKnowledgeBuilderImpl implements CompositeKnowledgeBuilder
 
     @FunctionalInterface
     private interface ResourceToPkgDescrMapper {
-        PackageDescr map(KnowledgeBuilderImpl kBuilder, ResourceDescr resourceDescr) throws Exception;
-
-        ResourceToPkgDescrMapper DRL_TO_PKG_DESCR = ( kBuilder, resourceDescr ) -> kBuilder.drlToPackageDescr(resourceDescr.resource);
-        ResourceToPkgDescrMapper TEMPLATE_TO_PKG_DESCR = ( kBuilder, resourceDescr ) -> kBuilder.templateToPackageDescr( resourceDescr.resource);
-        ResourceToPkgDescrMapper DSLR_TO_PKG_DESCR = ( kBuilder, resourceDescr ) -> kBuilder.dslrToPackageDescr(resourceDescr.resource);
-        ResourceToPkgDescrMapper XML_TO_PKG_DESCR = ( kBuilder, resourceDescr ) -> kBuilder.xmlToPackageDescr(resourceDescr.resource);
-        ResourceToPkgDescrMapper DTABLE_TO_PKG_DESCR = ( kBuilder, resourceDescr ) -> kBuilder.decisionTableToPackageDescr(resourceDescr.resource, resourceDescr.configuration);
-        ResourceToPkgDescrMapper GUIDED_DTABLE_TO_PKG_DESCR = ( kBuilder, resourceDescr ) -> kBuilder.guidedDecisionTableToPackageDescr(resourceDescr.resource);
+        PackageDescr map(KnowledgeBuilderImpl kBuilder, ResourceDescr resourceDescr, List<KnowledgeBuilderResult> results) throws Exception;
+
+        ResourceToPkgDescrMapper DRL_TO_PKG_DESCR = ( kBuilder, resourceDescr, results ) -> kBuilder.drlToPackageDescr(resourceDescr.resource, results);
+        ResourceToPkgDescrMapper TEMPLATE_TO_PKG_DESCR = ( kBuilder, resourceDescr, results ) -> kBuilder.templateToPackageDescr( resourceDescr.resource, results);
+        ResourceToPkgDescrMapper DSLR_TO_PKG_DESCR = ( kBuilder, resourceDescr, results ) -> kBuilder.dslrToPackageDescr(resourceDescr.resource, results);
+        ResourceToPkgDescrMapper XML_TO_PKG_DESCR = ( kBuilder, resourceDescr, results ) -> kBuilder.xmlToPackageDescr(resourceDescr.resource);
+        ResourceToPkgDescrMapper DTABLE_TO_PKG_DESCR = ( kBuilder, resourceDescr, results ) -> kBuilder.decisionTableToPackageDescr(resourceDescr.resource, resourceDescr.configuration, results);
+        ResourceToPkgDescrMapper GUIDED_DTABLE_TO_PKG_DESCR = ( kBuilder, resourceDescr, results ) -> kBuilder.guidedDecisionTableToPackageDescr(resourceDescr.resource, results);
     }
 }
@@ -92,6 +92,9 @@ import static org.drools.core.reteoo.KieComponentFactory.createKieComponentFacto
  * drools.evaluator.<ident> = <qualified class>
  * drools.dump.dir = <String>
  * drools.classLoaderCacheEnabled = true|false
+ * drools.streamingXlsxInDTable = true|false
+ * drools.evaluateByAlphaIndex = true|false
+ * drools.declaredTypes.lean = true|false
  * drools.parallelRulesBuildThreshold = <int>
  *
  * default dialect is java.
@@ -114,6 +117,12 @@ public class KnowledgeBuilderConfigurationImpl
 
     public static final String                DEFAULT_PACKAGE = "defaultpkg";
 
+    public static final String                STREAMING_XLSX_IN_DTABLE_PROPERTY = "drools.streamingXlsxInDTable";
+
+    public static final String                EVALUATE_BY_ALPHA_INDEX_PROPERTY = "drools.evaluateByAlphaIndex";
+
+    public static final String                LEAN_DECLARED_TYPES_PROPERTY = "drools.declaredTypes.lean";
+
     private static final int                  DEFAULT_PARALLEL_RULES_BUILD_THRESHOLD = 10;
 
     private final Map<String, DialectConfiguration> dialectConfigurations = new HashMap<>();
@@ -137,6 +146,9 @@ public class KnowledgeBuilderConfigurationImpl
     private boolean                           processStringEscapes                  = true;
     private boolean                           classLoaderCache                      = true;
     private boolean                           trimCellsInDTable                     = true;
+    private boolean                           streamingXlsxInDTable                 = false;
+    private boolean                           evaluateByAlphaIndex                  = false;
+    private boolean                           leanDeclaredTypes                     = false;
     private boolean                           groupDRLsInKieBasesByFolder           = false;
 
     private boolean                           externaliseCanonicalModelLambda       = true;
@@ -228,6 +240,18 @@ public class KnowledgeBuilderConfigurationImpl
                     this.chainedProperties.getProperty(TrimCellsInDTableOption.PROPERTY_NAME,
                                                        "true"));
 
+        setProperty( STREAMING_XLSX_IN_DTABLE_PROPERTY,
+                    this.chainedProperties.getProperty(STREAMING_XLSX_IN_DTABLE_PROPERTY,
+                                                       "false"));
+
+        setProperty( EVALUATE_BY_ALPHA_INDEX_PROPERTY,
+                    this.chainedProperties.getProperty(EVALUATE_BY_ALPHA_INDEX_PROPERTY,
+                                                       "false"));
+
+        setProperty( LEAN_DECLARED_TYPES_PROPERTY,
+                    this.chainedProperties.getProperty(LEAN_DECLARED_TYPES_PROPERTY,
+                                                       "false"));
+
         setProperty( GroupDRLsInKieBasesByFolderOption.PROPERTY_NAME,
                     this.chainedProperties.getProperty(GroupDRLsInKieBasesByFolderOption.PROPERTY_NAME,
                                                        "false"));
@@ -316,6 +340,12 @@ public class KnowledgeBuilderConfigurationImpl
             setClassLoaderCacheEnabled(Boolean.parseBoolean(value));
         } else if (name.equals(TrimCellsInDTableOption.PROPERTY_NAME)) {
             setTrimCellsInDTable(Boolean.parseBoolean(value));
+        } else if (name.equals(STREAMING_XLSX_IN_DTABLE_PROPERTY)) {
+            setStreamingXlsxInDTable(Boolean.parseBoolean(value));
+        } else if (name.equals(EVALUATE_BY_ALPHA_INDEX_PROPERTY)) {
+            setEvaluateByAlphaIndex(Boolean.parseBoolean(value));
+        } else if (name.equals(LEAN_DECLARED_TYPES_PROPERTY)) {
+            setLeanDeclaredTypes(Boolean.parseBoolean(value));
         } else if (name.equals(GroupDRLsInKieBasesByFolderOption.PROPERTY_NAME)) {
             setGroupDRLsInKieBasesByFolder(Boolean.parseBoolean(value));
         } else if (name.startsWith(KBuilderSeverityOption.PROPERTY_NAME)) {
@@ -379,6 +409,12 @@ public class KnowledgeBuilderConfigurationImpl
             return String.valueOf(isClassLoaderCacheEnabled());
         } else if (name.equals(TrimCellsInDTableOption.PROPERTY_NAME)) {
             return String.valueOf(isTrimCellsInDTable());
+        } else if (name.equals(STREAMING_XLSX_IN_DTABLE_PROPERTY)) {
+            return String.valueOf(isStreamingXlsxInDTable());
+        } else if (name.equals(EVALUATE_BY_ALPHA_INDEX_PROPERTY)) {
+            return String.valueOf(isEvaluateByAlphaIndex());
+        } else if (name.equals(LEAN_DECLARED_TYPES_PROPERTY)) {
+            return String.valueOf(isLeanDeclaredTypes());
         } else if (name.equals(GroupDRLsInKieBasesByFolderOption.PROPERTY_NAME)) {
             return String.valueOf(isGroupDRLsInKieBasesByFolder());
         } else if (name.startsWith(KBuilderSeverityOption.PROPERTY_NAME)) {
@@ -683,6 +719,30 @@ public class KnowledgeBuilderConfigurationImpl
         this.trimCellsInDTable = trimCellsInDTable;
     }
 
+    public boolean isStreamingXlsxInDTable() {
+        return streamingXlsxInDTable;
+    }
+
+    public void setStreamingXlsxInDTable( boolean streamingXlsxInDTable ) {
+        this.streamingXlsxInDTable = streamingXlsxInDTable;
+    }
+
+    public boolean isEvaluateByAlphaIndex() {
+        return evaluateByAlphaIndex;
+    }
+
+    public void setEvaluateByAlphaIndex( boolean evaluateByAlphaIndex ) {
+        this.evaluateByAlphaIndex = evaluateByAlphaIndex;
+    }
+
+    public boolean isLeanDeclaredTypes() {
+        return leanDeclaredTypes;
+    }
+
+    public void setLeanDeclaredTypes( boolean leanDeclaredTypes ) {
+        this.leanDeclaredTypes = leanDeclaredTypes;
+    }
+
     public boolean isGroupDRLsInKieBasesByFolder() {
         return groupDRLsInKieBasesByFolder;
     }
@@ -27,12 +27,15 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -43,6 +46,7 @@ import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.Supplier;
 
 import org.drools.compiler.builder.InternalKnowledgeBuilder;
@@ -62,6 +66,7 @@ import org.drools.compiler.compiler.DroolsWarning;
 import org.drools.compiler.compiler.DroolsWarningWrapper;
 import org.drools.compiler.compiler.DuplicateFunction;
 import org.drools.compiler.compiler.DuplicateRule;
+import org.drools.compiler.compiler.GeneratedDrlChunk;
 import org.drools.compiler.compiler.GlobalError;
 import org.drools.compiler.compiler.GuidedDecisionTableFactory;
 import org.drools.compiler.compiler.GuidedDecisionTableProvider;
@@ -113,6 +118,7 @@ import org.drools.compiler.rule.builder.dialect.DialectError;
 import org.drools.core.addon.TypeResolver;
 import org.drools.core.base.ClassFieldAccessorCache;
 import org.drools.core.builder.conf.impl.DecisionTableConfigurationImpl;
+import org.drools.core.builder.conf.impl.XlsxStreamingConfiguration;
 import org.drools.core.definitions.InternalKnowledgePackage;
 import org.drools.core.definitions.impl.KnowledgePackageImpl;
 import org.drools.core.definitions.rule.impl.RuleImpl;
@@ -172,6 +178,8 @@ public class KnowledgeBuilderImpl implements InternalKnowledgeBuilder {
 
     protected static final transient Logger logger = LoggerFactory.getLogger(KnowledgeBuilderImpl.class);
 
+    private static final int DTABLE_RULES_PER_CHUNK = 1000;
+
     private final Map<String, PackageRegistry> pkgRegistryMap = new ConcurrentHashMap<>();
 
     private List<KnowledgeBuilderResult> results;
@@ -402,6 +410,12 @@ public class KnowledgeBuilderImpl implements InternalKnowledgeBuilder {
 
     PackageDescr decisionTableToPackageDescr(Resource resource,
                                              ResourceConfiguration configuration) throws DroolsParserException {
+        return decisionTableToPackageDescr(resource, configuration, this.results);
+    }
+
+    PackageDescr decisionTableToPackageDescr(Resource resource,
+                                             ResourceConfiguration configuration,
+                                             List<KnowledgeBuilderResult> results) throws DroolsParserException {
         DecisionTableConfiguration dtableConfiguration = configuration instanceof DecisionTableConfiguration ?
                 (DecisionTableConfiguration) configuration :
                 new DecisionTableConfigurationImpl();
@@ -409,11 +423,11 @@ public class KnowledgeBuilderImpl implements InternalKnowledgeBuilder {
         if (!dtableConfiguration.getRuleTemplateConfigurations().isEmpty()) {
             List<String> generatedDrls = DecisionTableFactory.loadFromInputStreamWithTemplates(resource, dtableConfiguration);
             if (generatedDrls.size() == 1) {
-                return generatedDrlToPackageDescr(resource, generatedDrls.get(0));
+                return generatedDrlToPackageDescr(resource, generatedDrls.get(0), results);
             }
             CompositePackageDescr compositePackageDescr = null;
             for (String generatedDrl : generatedDrls) {
-                PackageDescr packageDescr = generatedDrlToPackageDescr(resource, generatedDrl);
+                PackageDescr packageDescr = generatedDrlToPackageDescr(resource, generatedDrl, results);
                 if (packageDescr != null) {
                     if (compositePackageDescr == null) {
                         compositePackageDescr = new CompositePackageDescr(resource, packageDescr);
@@ -426,9 +440,74 @@ public class KnowledgeBuilderImpl implements InternalKnowledgeBuilder {
         }
 
         dtableConfiguration.setTrimCell( this.configuration.isTrimCellsInDTable() );
+        if (dtableConfiguration instanceof XlsxStreamingConfiguration) {
+            ((XlsxStreamingConfiguration) dtableConfiguration).setStreamingXlsx( this.configuration.isStreamingXlsxInDTable() );
+        }
+
+        if (this.configuration.getDumpDir() == null) {
+            // the DRL generated from the table is parsed in chunks, so that a huge table doesn't produce a single huge DRL
+            Iterator<GeneratedDrlChunk> chunks = DecisionTableFactory.loadChunksFromResource(resource, dtableConfiguration, DTABLE_RULES_PER_CHUNK);
+            return chunks != null ? generatedDrlChunksToPackageDescr(resource, chunks, results) : generatedDrlToPackageDescr(resource, null, results);
+        }
 
         String generatedDrl = DecisionTableFactory.loadFromResource(resource, dtableConfiguration);
-        return generatedDrlToPackageDescr(resource, generatedDrl);
+        return generatedDrlToPackageDescr(resource, generatedDrl, results);
+    }
+
+    private PackageDescr generatedDrlChunksToPackageDescr(Resource resource, Iterator<GeneratedDrlChunk> chunks, List<KnowledgeBuilderResult> results) throws DroolsParserException {
+        // the first chunk is the header of the package, that also starts the whole DRL
+        PackageDescr pkg = generatedDrlToPackageDescr(resource, chunks.next().getDrl(), results);
+        boolean hasErrors = pkg == null;
+
+        if (parallelRulesBuildThreshold == -1) {
+            while (chunks.hasNext()) {
+                hasErrors |= !addParsedDrlChunk(pkg, new ParsedDrlChunk(resource, chunks.next()), results);
+            }
+        } else {
+            // the chunks are generated only when a worker is available to parse them, and merged in the order of the table
+            Deque<Future<ParsedDrlChunk>> parsingChunks = new ArrayDeque<>();
+            try {
+                while (chunks.hasNext() || !parsingChunks.isEmpty()) {
+                    while (chunks.hasNext() && parsingChunks.size() < ForkJoinPoolHolder.COMPILER_POOL.getParallelism()) {
+                        GeneratedDrlChunk chunk = chunks.next();
+                        parsingChunks.add(ForkJoinPoolHolder.COMPILER_POOL.submit(() -> new ParsedDrlChunk(resource, chunk)));
+                    }
+                    hasErrors |= !addParsedDrlChunk(pkg, parsingChunks.poll().get(), results);
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException("Decision table parsing failed or interrupted", e);
+            }
+        }
+        return hasErrors ? null : pkg;
+    }
+
+    private boolean addParsedDrlChunk(PackageDescr pkg, ParsedDrlChunk parsedChunk, List<KnowledgeBuilderResult> results) {
+        results.addAll(parsedChunk.parser.getErrors());
+        if (parsedChunk.packageDescr == null) {
+            return false;
+        }
+        if (pkg != null) {
+            for (RuleDescr rule : parsedChunk.packageDescr.getRules()) {
+                pkg.addRule(rule);
+                pkg.afterRuleAdded(rule);
+            }
+        }
+        return true;
+    }
+
+    private class ParsedDrlChunk {
+        private final DrlParser parser = new DrlParser(configuration.getLanguageLevel());
+        private final PackageDescr packageDescr;
+
+        private ParsedDrlChunk(Resource resource, GeneratedDrlChunk chunk) {
+            PackageDescr parsed = null;
+            try {
+                parsed = parser.parse(resource, chunk.getDrl(), chunk.getLineOffset());
+            } catch (DroolsParserException e) {
+                // the parser records the reason of the failure among its errors, reported as the ones of the other chunks
+            }
+            this.packageDescr = parser.hasErrors() ? null : parsed;
+        }
     }
 
     public void addPackageFromGuidedDecisionTable(Resource resource) throws DroolsParserException,
@@ -439,16 +518,20 @@ public class KnowledgeBuilderImpl implements InternalKnowledgeBuilder {
     }
 
     PackageDescr guidedDecisionTableToPackageDescr(Resource resource) throws DroolsParserException, IOException {
+        return guidedDecisionTableToPackageDescr(resource, this.results);
+    }
+
+    PackageDescr guidedDecisionTableToPackageDescr(Resource resource, List<KnowledgeBuilderResult> results) throws DroolsParserException, IOException {
         GuidedDecisionTableProvider guidedDecisionTableProvider = GuidedDecisionTableFactory.getGuidedDecisionTableProvider();
         if (guidedDecisionTableProvider == null) {
             throw new MissingImplementationException(resource, "drools-workbench-models-guided-dtable");
         }
         ResourceConversionResult conversionResult = guidedDecisionTableProvider.loadFromInputStream(resource.getInputStream());
-        return conversionResultToPackageDescr(resource, conversionResult);
+        return conversionResultToPackageDescr(resource, conversionResult, results);
     }
 
 
-    private PackageDescr generatedDrlToPackageDescr(Resource resource, String generatedDrl) throws DroolsParserException {
+    private PackageDescr generatedDrlToPackageDescr(Resource resource, String generatedDrl, List<KnowledgeBuilderResult> results) throws DroolsParserException {
         // dump the generated DRL if the dump dir was configured
         if (this.configuration.getDumpDir() != null) {
             dumpDrlGeneratedFromDTable(this.configuration.getDumpDir(), generatedDrl, resource.getSourcePath());
@@ -456,9 +539,9 @@ public class KnowledgeBuilderImpl implements InternalKnowledgeBuilder {
 
         DrlParser parser = new DrlParser(configuration.getLanguageLevel());
         PackageDescr pkg = parser.parse(resource, new StringReader(generatedDrl));
-        this.results.addAll(parser.getErrors());
+        results.addAll(parser.getErrors());
         if (pkg == null) {
-            addBuilderResult(new ParserError(resource, "Parser returned a null Package", 0, 0));
+            results.add(new ParserError(resource, "Parser returned a null Package", 0, 0));
         } else {
             pkg.setResource(resource);
         }
@@ -466,7 +549,7 @@ public class KnowledgeBuilderImpl implements InternalKnowledgeBuilder {
     }
 
     PackageDescr generatedDslrToPackageDescr(Resource resource, String dslr) throws DroolsParserException {
-        return dslrReaderToPackageDescr(resource, new StringReader(dslr));
+        return dslrReaderToPackageDescr(resource, new StringReader(dslr), this.results);
     }
 
     private void dumpDrlGeneratedFromDTable(File dumpDir, String generatedDrl, String srcPath) {
@@ -537,21 +620,26 @@ public class KnowledgeBuilderImpl implements InternalKnowledgeBuilder {
     }
 
     PackageDescr templateToPackageDescr(Resource resource) throws DroolsParserException, IOException {
+        return templateToPackageDescr(resource, this.results);
+    }
+
+    PackageDescr templateToPackageDescr(Resource resource, List<KnowledgeBuilderResult> results) throws DroolsParserException, IOException {
         GuidedRuleTemplateProvider guidedRuleTemplateProvider = GuidedRuleTemplateFactory.getGuidedRuleTemplateProvider();
         if (guidedRuleTemplateProvider == null) {
             throw new MissingImplementationException(resource, "drools-workbench-models-guided-template");
         }
         ResourceConversionResult conversionResult = guidedRuleTemplateProvider.loadFromInputStream(resource.getInputStream());
-        return conversionResultToPackageDescr(resource, conversionResult);
+        return conversionResultToPackageDescr(resource, conversionResult, results);
     }
 
-    private PackageDescr conversionResultToPackageDescr(Resource resource, ResourceConversionResult resourceConversionResult)
+    private PackageDescr conversionResultToPackageDescr(Resource resource, ResourceConversionResult resourceConversionResult,
+                                                        List<KnowledgeBuilderResult> results)
             throws DroolsParserException {
         ResourceType resourceType = resourceConversionResult.getType();
         if (ResourceType.DSLR.equals(resourceType)) {
-            return generatedDslrToPackageDescr(resource, resourceConversionResult.getContent());
+            return dslrReaderToPackageDescr(resource, new StringReader(resourceConversionResult.getContent()), results);
         } else if (ResourceType.DRL.equals(resourceType)) {
-            return generatedDrlToPackageDescr(resource, resourceConversionResult.getContent());
+            return generatedDrlToPackageDescr(resource, resourceConversionResult.getContent(), results);
         } else {
             throw new RuntimeException("Converting generated " + resourceType + " into PackageDescr is not supported!");
         }
@@ -566,6 +654,11 @@ public class KnowledgeBuilderImpl implements InternalKnowledgeBuilder {
 
     PackageDescr drlToPackageDescr(Resource resource) throws DroolsParserException,
             IOException {
+        return drlToPackageDescr(resource, this.results);
+    }
+
+    PackageDescr drlToPackageDescr(Resource resource, List<KnowledgeBuilderResult> results) throws DroolsParserException,
+            IOException {
         PackageDescr pkg;
         boolean hasErrors = false;
         if (resource instanceof DescrResource) {
@@ -573,9 +666,9 @@ public class KnowledgeBuilderImpl implements InternalKnowledgeBuilder {
         } else {
             final DrlParser parser = new DrlParser(configuration.getLanguageLevel());
             pkg = parser.parse(resource);
-            this.results.addAll(parser.getErrors());
+            results.addAll(parser.getErrors());
             if (pkg == null) {
-                addBuilderResult(new ParserError(resource, "Parser returned a null Package", 0, 0));
+                results.add(new ParserError(resource, "Parser returned a null Package", 0, 0));
             }
             hasErrors = parser.hasErrors();
         }
@@ -639,10 +732,15 @@ public class KnowledgeBuilderImpl implements InternalKnowledgeBuilder {
 
     PackageDescr dslrToPackageDescr(Resource resource) throws DroolsParserException,
             IOException {
-        return dslrReaderToPackageDescr(resource, resource.getReader());
+        return dslrToPackageDescr(resource, this.results);
+    }
+
+    PackageDescr dslrToPackageDescr(Resource resource, List<KnowledgeBuilderResult> results) throws DroolsParserException,
+            IOException {
+        return dslrReaderToPackageDescr(resource, resource.getReader(), results);
     }
 
-    private PackageDescr dslrReaderToPackageDescr(Resource resource, Reader dslrReader) throws DroolsParserException {
+    private PackageDescr dslrReaderToPackageDescr(Resource resource, Reader dslrReader, List<KnowledgeBuilderResult> results) throws DroolsParserException {
         boolean hasErrors;
         PackageDescr pkg;
 
@@ -658,12 +756,12 @@ public class KnowledgeBuilderImpl implements InternalKnowledgeBuilder {
                 if (expander.hasErrors()) {
                     for (ExpanderException error : expander.getErrors()) {
                         error.setResource(resource);
-                        addBuilderResult(error);
+                        results.add(error);
                     }
                 }
 
                 pkg = parser.parse(resource, str);
-                this.results.addAll(parser.getErrors());
+                results.addAll(parser.getErrors());
                 hasErrors = parser.hasErrors();
             } finally {
                 if (dslrReader != null) {
@@ -944,18 +1042,22 @@ public class KnowledgeBuilderImpl implements InternalKnowledgeBuilder {
     protected void compileRete(PackageDescr packageDescr) {
         if (!hasErrors() && this.kBase != null) {
             Collection<RuleImpl> rulesToBeAdded = new ArrayList<>();
-            for (RuleDescr ruleDescr : packageDescr.getRules()) {
-                if (filterAccepts(ResourceChange.Type.RULE, ruleDescr.getNamespace(), ruleDescr.getName())) {
-                    InternalKnowledgePackage pkg = pkgRegistryMap.get(ruleDescr.getNamespace()).getPackage();
-                    rulesToBeAdded.add(pkg.getRule(ruleDescr.getName()));
-                }
-            }
+            collectRulesToBeAdded(packageDescr, rulesToBeAdded);
             if (!rulesToBeAdded.isEmpty()) {
                 this.kBase.addRules(rulesToBeAdded);
             }
         }
     }
 
+    private void collectRulesToBeAdded(PackageDescr packageDescr, Collection<RuleImpl> rulesToBeAdded) {
+        for (RuleDescr ruleDescr : packageDescr.getRules()) {
+            if (filterAccepts(ResourceChange.Type.RULE, ruleDescr.getNamespace(), ruleDescr.getName())) {
+                InternalKnowledgePackage pkg = pkgRegistryMap.get(ruleDescr.getNamespace()).getPackage();
+                rulesToBeAdded.add(pkg.getRule(ruleDescr.getName()));
+            }
+        }
+    }
+
     public void addBuilderResult(KnowledgeBuilderResult result) {
         this.results.add(result);
     }
@@ -1119,34 +1221,15 @@ public class KnowledgeBuilderImpl implements InternalKnowledgeBuilder {
     }
 
     private void compileRulesLevel(PackageDescr packageDescr, PackageRegistry pkgRegistry, List<RuleDescr> rules) {
-        boolean parallelRulesBuild = this.kBase == null && parallelRulesBuildThreshold != -1 && rules.size() > parallelRulesBuildThreshold;
+        boolean parallelRulesBuild = parallelRulesBuildThreshold != -1 && rules.size() > parallelRulesBuildThreshold;
         if (parallelRulesBuild) {
-            Map<String, RuleBuildContext> ruleCxts = new ConcurrentHashMap<>();
-            try {
-                ForkJoinPoolHolder.COMPILER_POOL.submit(() ->
-                                                                rules.stream().parallel()
-                                                                        .filter(ruleDescr -> filterAccepts(ResourceChange.Type.RULE, ruleDescr.getNamespace(), ruleDescr.getName()))
-                                                                        .forEach(ruleDescr -> {
-                                                                            initRuleDescr(packageDescr, pkgRegistry, ruleDescr);
-                                                                            RuleBuildContext context = buildRuleBuilderContext(pkgRegistry, ruleDescr);
-                                                                            ruleCxts.put(ruleDescr.getName(), context);
-                                                                            List<? extends KnowledgeBuilderResult> results = addRule(context);
-                                                                            if (!results.isEmpty()) {
-                                                                                synchronized (this.results) {
-                                                                                    this.results.addAll(results);
-                                                                                }
-                                                                            }
-                                                                        })
-                ).get();
-            } catch (InterruptedException | ExecutionException e) {
-                throw new RuntimeException("Rules compilation failed or interrupted", e);
-            }
+            List<RuleToBuild> rulesToBuild = new ArrayList<>();
             for (RuleDescr ruleDescr : rules) {
-                RuleBuildContext context = ruleCxts.get(ruleDescr.getName());
-                if (context != null) {
-                    pkgRegistry.getPackage().addRule(context.getRule());
+                if (filterAccepts(ResourceChange.Type.RULE, ruleDescr.getNamespace(), ruleDescr.getName())) {
+                    rulesToBuild.add(new RuleToBuild(packageDescr, pkgRegistry, ruleDescr));
                 }
             }
+            compileRulesInParallel(rulesToBuild);
         } else {
             for (RuleDescr ruleDescr : rules) {
                 if (filterAccepts(ResourceChange.Type.RULE, ruleDescr.getNamespace(), ruleDescr.getName())) {
@@ -1159,6 +1242,46 @@ public class KnowledgeBuilderImpl implements InternalKnowledgeBuilder {
         }
     }
 
+    /**
+     * Builds the given rules, possibly belonging to different packages, on the compiler pool. During an incremental
+     * compilation the removal of the old rules from the kbase has been already enqueued by preProcessRules, and the rules
+     * only look up the type declarations of the kbase while they are built. The rules are then added to their packages,
+     * and their results to the ones of this builder, in the given order, so that the outcome doesn't depend on the order
+     * in which they have been built.
+     */
+    private void compileRulesInParallel(List<RuleToBuild> rulesToBuild) {
+        try {
+            ForkJoinPoolHolder.COMPILER_POOL.submit(() ->
+                                                            rulesToBuild.stream().parallel()
+                                                                    .forEach(ruleToBuild -> {
+                                                                        initRuleDescr(ruleToBuild.packageDescr, ruleToBuild.pkgRegistry, ruleToBuild.ruleDescr);
+                                                                        ruleToBuild.context = buildRuleBuilderContext(ruleToBuild.pkgRegistry, ruleToBuild.ruleDescr);
+                                                                        ruleToBuild.results = addRule(ruleToBuild.context);
+                                                                    })
+            ).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Rules compilation failed or interrupted", e);
+        }
+        for (RuleToBuild ruleToBuild : rulesToBuild) {
+            this.results.addAll(ruleToBuild.results);
+            ruleToBuild.pkgRegistry.getPackage().addRule(ruleToBuild.context.getRule());
+        }
+    }
+
+    private static class RuleToBuild {
+        final PackageDescr packageDescr;
+        final PackageRegistry pkgRegistry;
+        final RuleDescr ruleDescr;
+        RuleBuildContext context;
+        List<? extends KnowledgeBuilderResult> results;
+
+        RuleToBuild(PackageDescr packageDescr, PackageRegistry pkgRegistry, RuleDescr ruleDescr) {
+            this.packageDescr = packageDescr;
+            this.pkgRegistry = pkgRegistry;
+            this.ruleDescr = ruleDescr;
+        }
+    }
+
     private void initRuleDescr(PackageDescr packageDescr, PackageRegistry pkgRegistry, RuleDescr ruleDescr) {
         if (isEmpty(ruleDescr.getNamespace())) {
             // make sure namespace is set on components
@@ -2457,20 +2580,81 @@ public class KnowledgeBuilderImpl implements InternalKnowledgeBuilder {
     }
 
     protected void buildRules(Collection<CompositePackageDescr> packages) {
-        for (CompositePackageDescr packageDescr : packages) {
-            setAssetFilter(packageDescr.getFilter());
-            PackageRegistry pkgRegistry = getPackageRegistry(packageDescr.getNamespace());
-            compileKnowledgePackages(packageDescr, pkgRegistry);
-            setAssetFilter(null);
+        if (isParallelPackagesBuild(packages)) {
+            compileKnowledgePackagesInParallel(packages);
+        } else {
+            for (CompositePackageDescr packageDescr : packages) {
+                setAssetFilter(packageDescr.getFilter());
+                PackageRegistry pkgRegistry = getPackageRegistry(packageDescr.getNamespace());
+                compileKnowledgePackages(packageDescr, pkgRegistry);
+                setAssetFilter(null);
+            }
         }
 
         wireAllRules();
         processKieBaseTypes();
 
+        // add the rules of all the packages to the kbase at once, so that it is locked only once
+        if (!hasErrors() && this.kBase != null) {
+            Collection<RuleImpl> rulesToBeAdded = new ArrayList<>();
+            for (CompositePackageDescr packageDescr : packages) {
+                setAssetFilter(packageDescr.getFilter());
+                collectRulesToBeAdded(packageDescr, rulesToBeAdded);
+                setAssetFilter(null);
+            }
+            if (!rulesToBeAdded.isEmpty()) {
+                this.kBase.addRules(rulesToBeAdded);
+            }
+        }
+    }
+
+    private boolean isParallelPackagesBuild(Collection<CompositePackageDescr> packages) {
+        if (parallelRulesBuildThreshold == -1 || packages.size() < 2) {
+            return false;
+        }
+        int rulesCount = 0;
+        for (CompositePackageDescr packageDescr : packages) {
+            rulesCount += packageDescr.getRules().size();
+        }
+        return rulesCount > parallelRulesBuildThreshold;
+    }
+
+    /**
+     * Compiles the rules of many packages together, so that a build made of many small packages, none of them reaching
+     * the parallel build threshold on its own, can still be parallelized. The packages are prepared one by one, then
+     * the rules at the same dependency level in all the packages are built in parallel, level after level.
+     */
+    private void compileKnowledgePackagesInParallel(Collection<CompositePackageDescr> packages) {
+        List<List<RuleToBuild>> rulesLevels = new ArrayList<>();
         for (CompositePackageDescr packageDescr : packages) {
             setAssetFilter(packageDescr.getFilter());
-            compileRete( packageDescr );
+            PackageRegistry pkgRegistry = getPackageRegistry(packageDescr.getNamespace());
+            pkgRegistry.setDialect(getPackageDialect(packageDescr));
+            validateUniqueRuleNames(packageDescr);
+            compileFunctions(packageDescr, pkgRegistry);
+            preProcessRules(packageDescr, pkgRegistry);
+
+            SortedRules sortedRules = sortRulesByDependency(packageDescr, pkgRegistry);
+            if (!sortedRules.queries.isEmpty()) {
+                compileAllQueries(packageDescr, pkgRegistry, sortedRules.queries);
+            }
+            for (int i = 0; i < sortedRules.rules.size(); i++) {
+                if (rulesLevels.size() == i) {
+                    rulesLevels.add(new ArrayList<>());
+                }
+                for (RuleDescr ruleDescr : sortedRules.rules.get(i)) {
+                    if (filterAccepts(ResourceChange.Type.RULE, ruleDescr.getNamespace(), ruleDescr.getName())) {
+                        rulesLevels.get(i).add(new RuleToBuild(packageDescr, pkgRegistry, ruleDescr));
+                    }
+                }
+            }
             setAssetFilter(null);
         }
+
+        for (List<RuleToBuild> rulesLevel : rulesLevels) {
+            if (!rulesLevel.isEmpty()) {
+                compileRulesInParallel(rulesLevel);
+            }
+        }
     }
 }
@@ -32,6 +32,7 @@ import org.drools.compiler.lang.descr.PackageDescr;
 import org.drools.compiler.lang.descr.QualifiedName;
 import org.drools.compiler.lang.descr.TypeDeclarationDescr;
 import org.drools.core.definitions.InternalKnowledgePackage;
+import org.drools.core.factmodel.BeanClassBuilder;
 import org.drools.core.factmodel.ClassBuilder;
 import org.drools.core.factmodel.ClassDefinition;
 import org.drools.core.rule.TypeDeclaration;
@@ -268,6 +269,9 @@ public class TypeDeclarationBuilder {
 
             if ( success ) {
                 ClassBuilder classBuilder = kbuilder.getBuilderConfiguration().getClassBuilderFactory().getClassBuilder(type);
+                if ( classBuilder instanceof BeanClassBuilder && kbuilder.getBuilderConfiguration().isLeanDeclaredTypes() ) {
+                    classBuilder = ( (BeanClassBuilder) classBuilder ).lean();
+                }
                 declaredClassBuilder.generateBeanFromDefinition(typeDescr,
                                                                 type,
                                                                 pkgRegistry,
@@ -46,6 +46,12 @@ public class DRLFactory {
         return getDRLLexer(new ANTLRStringStream(text), languageLevel);
     }
 
+    public static DRLLexer buildLexer(String text, int lineOffset, LanguageLevelOption languageLevel) {
+        ANTLRStringStream input = new ANTLRStringStream(text);
+        input.setLine(lineOffset + 1);
+        return getDRLLexer(input, languageLevel);
+    }
+
     public static DRLLexer buildLexer( Reader reader, LanguageLevelOption languageLevel ) {
         try {
             return getDRLLexer(new ANTLRReaderStream(reader), languageLevel);
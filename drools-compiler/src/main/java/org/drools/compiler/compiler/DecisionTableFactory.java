@@ -16,6 +16,7 @@
 package org.drools.compiler.compiler;
 
 import java.io.InputStream;
+import java.util.Iterator;
 import java.util.List;
 
 import org.kie.api.internal.utils.ServiceRegistry;
@@ -35,6 +36,10 @@ public class DecisionTableFactory {
         return getDecisionTableProvider().loadFromResource( resource, configuration );
     }
 
+    public static Iterator<GeneratedDrlChunk> loadChunksFromResource(Resource resource, DecisionTableConfiguration configuration, int rulesPerChunk) {
+        return getDecisionTableProvider().loadChunksFromResource( resource, configuration, rulesPerChunk );
+    }
+
     public static List<String> loadFromInputStreamWithTemplates(Resource resource, DecisionTableConfiguration configuration) {
         return getDecisionTableProvider().loadFromInputStreamWithTemplates( resource, configuration );
     }
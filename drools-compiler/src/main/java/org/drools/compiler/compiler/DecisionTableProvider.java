@@ -19,6 +19,8 @@ import org.kie.api.Service;
 import org.kie.api.io.Resource;
 import org.kie.internal.builder.DecisionTableConfiguration;
 
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 public interface DecisionTableProvider extends Service {
@@ -29,5 +31,18 @@ public interface DecisionTableProvider extends Service {
     List<String> loadFromInputStreamWithTemplates(Resource resource,
                                                   DecisionTableConfiguration configuration);
 
+    /**
+     * Generates the DRL of the decision table split in chunks that can be parsed independently: the first one
+     * contains everything but the rules, while each of the following ones contains at most rulesPerChunk rules.
+     * The chunks are generated while iterating them, so that they don't need to be kept in memory all together.
+     * A provider not supporting it returns the whole DRL as a single chunk.
+     */
+    default Iterator<GeneratedDrlChunk> loadChunksFromResource(Resource resource,
+                                                               DecisionTableConfiguration configuration,
+                                                               int rulesPerChunk) {
+        String drl = loadFromResource( resource, configuration );
+        return drl != null ? Collections.singletonList( new GeneratedDrlChunk( drl, 0 ) ).iterator() : null;
+    }
+
 
 }
@@ -76,6 +76,17 @@ public class DrlParser {
         return compile(isEditor, parser);
     }
 
+    /**
+     * Parse a rule from a text taken from a bigger DRL, so that the lines of the parsed elements and of the errors
+     * refer to the whole DRL
+     */
+    public PackageDescr parse(final Resource resource, final String text, final int lineOffset) throws DroolsParserException {
+        this.resource = resource;
+        lexer = buildLexer(text, lineOffset, languageLevel);
+        DRLParser parser = buildParser(lexer, languageLevel);
+        return compile(false, parser);
+    }
+
     public PackageDescr parse(final boolean isEditor,
                               final Reader reader) throws DroolsParserException {
         lexer = buildLexer(reader, languageLevel);
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.compiler.compiler;
+
+/**
+ * A part of the DRL generated from a decision table that can be parsed independently from the other ones.
+ * The line offset is the number of lines to be added to the ones of the chunk to get the corresponding lines
+ * of the whole generated DRL, so that the parser errors refer to it.
+ */
+public class GeneratedDrlChunk {
+
+    private final String drl;
+    private final int lineOffset;
+
+    public GeneratedDrlChunk( String drl, int lineOffset ) {
+        this.drl = drl;
+        this.lineOffset = lineOffset;
+    }
+
+    public String getDrl() {
+        return drl;
+    }
+
+    public int getLineOffset() {
+        return lineOffset;
+    }
+}
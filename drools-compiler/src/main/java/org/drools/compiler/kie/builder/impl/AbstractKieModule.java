@@ -39,6 +39,7 @@ import org.drools.compiler.kproject.models.KieBaseModelImpl;
 import org.drools.core.RuleBaseConfiguration;
 import org.drools.core.builder.conf.impl.DecisionTableConfigurationImpl;
 import org.drools.core.builder.conf.impl.ResourceConfigurationImpl;
+import org.drools.core.builder.conf.impl.XlsxStreamingConfiguration;
 import org.drools.core.definitions.InternalKnowledgePackage;
 import org.drools.core.definitions.impl.KnowledgePackageImpl;
 import org.drools.core.impl.InternalKnowledgeBase;
@@ -202,6 +203,13 @@ public abstract class AbstractKieModule
     }
 
     public InternalKnowledgeBase createKieBase( KieBaseModelImpl kBaseModel, KieProject kieProject, BuildContext buildContext, KieBaseConfiguration conf ) {
+        if (conf == null && getKnowledgePackagesForKieBase(kBaseModel.getName()) == null) {
+            InternalKnowledgeBase kBase = restoreKieBaseImage( kBaseModel, kieProject );
+            if (kBase != null) {
+                return kBase;
+            }
+        }
+
         KnowledgePackagesBuildResult knowledgePackagesBuildResult = buildKnowledgePackages(kBaseModel, kieProject, buildContext);
         if(knowledgePackagesBuildResult.hasErrors()) {
             return null;
@@ -222,6 +230,23 @@ public abstract class AbstractKieModule
         return kBase;
     }
 
+    private InternalKnowledgeBase restoreKieBaseImage( KieBaseModelImpl kBaseModel, KieProject kieProject ) {
+        if (!isAvailable( KieBaseImage.getKieBaseImagePath( getReleaseId(), kBaseModel.getName() ) )) {
+            return null;
+        }
+        try {
+            byte[] image = CompilationCacheProvider.get().getKieBaseImage( this, kBaseModel.getName() );
+            if (image == null) {
+                log.warn( "Unable to read the image of KieBase " + kBaseModel.getName() + ", building it instead" );
+                return null;
+            }
+            return KieBaseImage.read( image, kieProject.getClassLoader() );
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            log.warn( "Unable to restore the image of KieBase " + kBaseModel.getName() + ", building it instead", e );
+            return null;
+        }
+    }
+
     public static void checkStreamMode( KieBaseModelImpl kBaseModel, KieBaseConfiguration conf, Collection<? extends KiePackage> pkgs ) {
         if ( kBaseModel.getEventProcessingMode() == EventProcessingOption.CLOUD &&
              (conf == null || conf.getOption(EventProcessingOption.class) == EventProcessingOption.CLOUD ) ) {
@@ -233,7 +258,7 @@ public abstract class AbstractKieModule
         }
     }
 
-    private KieBaseConfiguration getKnowledgeBaseConfiguration(KieBaseModelImpl kBaseModel, ClassLoader cl) {
+    static KieBaseConfiguration getKnowledgeBaseConfiguration(KieBaseModelImpl kBaseModel, ClassLoader cl) {
         KieBaseConfiguration kbConf = KnowledgeBaseFactory.newKnowledgeBaseConfiguration(null, cl);
         kbConf.setOption(kBaseModel.getEqualsBehavior());
         kbConf.setOption(kBaseModel.getEventProcessingMode());
@@ -307,10 +332,11 @@ public abstract class AbstractKieModule
         }
     }
 
-    static class DecisionTableConfigurationDelegate implements DecisionTableConfiguration {
+    static class DecisionTableConfigurationDelegate implements DecisionTableConfiguration, XlsxStreamingConfiguration {
 
         private final DecisionTableConfiguration delegate;
         private final String sheetName;
+        private boolean streamingXlsx;
 
         DecisionTableConfigurationDelegate( DecisionTableConfiguration delegate, String sheetName ) {
             this.delegate = delegate;
@@ -358,6 +384,20 @@ public abstract class AbstractKieModule
             delegate.setTrimCell( trimCell );
         }
 
+        @Override
+        public boolean isStreamingXlsx() {
+            return delegate instanceof XlsxStreamingConfiguration ? ( (XlsxStreamingConfiguration) delegate ).isStreamingXlsx() : streamingXlsx;
+        }
+
+        @Override
+        public void setStreamingXlsx( boolean streamingXlsx ) {
+            if ( delegate instanceof XlsxStreamingConfiguration ) {
+                ( (XlsxStreamingConfiguration) delegate ).setStreamingXlsx( streamingXlsx );
+            } else {
+                this.streamingXlsx = streamingXlsx;
+            }
+        }
+
         @Override
         public Properties toProperties() {
             return delegate.toProperties();
@@ -14,8 +14,10 @@
 
 package org.drools.compiler.kie.builder.impl;
 
+import java.io.IOException;
 import java.util.Map;
 
+import org.drools.core.util.KeyStoreHelper;
 import org.kie.memorycompiler.resources.ResourceStore;
 import org.kie.api.internal.utils.ServiceRegistry;
 
@@ -38,6 +40,11 @@ public interface CompilationCacheProvider {
 
     void writeKieModuleMetaInfo(InternalKieModule kModule, ResourceStore trgMfs);
 
+    /**
+     * Returns the image of the given KieBase stored in the kjar, after checking its signature, or null if there isn't any.
+     */
+    byte[] getKieBaseImage( AbstractKieModule kieModule, String kbaseName ) throws IOException, ClassNotFoundException;
+
     enum DefaultCompilationCacheProvider implements CompilationCacheProvider {
         INSTANCE;
 
@@ -50,5 +57,13 @@ public interface CompilationCacheProvider {
         public void writeKieModuleMetaInfo(InternalKieModule kModule, ResourceStore trgMfs) {
             new KieMetaInfoBuilder( kModule ).writeKieModuleMetaInfo( trgMfs );
         }
+
+        @Override
+        public byte[] getKieBaseImage( AbstractKieModule kieModule, String kbaseName ) throws IOException {
+            if ( new KeyStoreHelper().isSigned() ) {
+                throw new IOException( "The signature of the KieBase image can't be checked without the drools-serialization-protobuf module" );
+            }
+            return kieModule.getBytes( KieBaseImage.getKieBaseImagePath( kieModule.getReleaseId(), kbaseName ) );
+        }
     }
 }
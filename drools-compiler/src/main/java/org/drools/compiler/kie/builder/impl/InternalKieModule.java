@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -204,12 +205,24 @@ public interface InternalKieModule extends KieModule, Serializable {
         protected final Map<String, Map<String, List<CompilationCacheEntry>>> compilationCache = new HashMap<String, Map<String, List<CompilationCacheEntry>>>();
 
         public void addEntry(String dialect, String className, byte[] bytecode) {
+            addEntry(dialect, new CompilationCacheEntry(className, bytecode));
+        }
+
+        /**
+         * Adds an entry whose bytecode is only loaded, by the given supplier, when first requested.
+         */
+        public void addEntry(String dialect, String className, Supplier<byte[]> bytecodeLoader) {
+            addEntry(dialect, new CompilationCacheEntry(className, bytecodeLoader));
+        }
+
+        private void addEntry(String dialect, CompilationCacheEntry entry) {
             Map<String, List<CompilationCacheEntry>> resourceEntries = compilationCache.get(dialect);
             if( resourceEntries == null ) {
                 resourceEntries = new HashMap<String, List<CompilationCacheEntry>>();
                 compilationCache.put(dialect, resourceEntries);
             }
 
+            String className = entry.className;
             String key = className.contains("$") ? className.substring(0, className.indexOf('$') ) + ".class" : className;
             List<CompilationCacheEntry> bytes = resourceEntries.get(key);
             if( bytes == null ) {
@@ -217,7 +230,7 @@ public interface InternalKieModule extends KieModule, Serializable {
                 resourceEntries.put(key, bytes);
             }
             //System.out.println(String.format("Adding to in-memory cache: %s %s", key, className ));
-            bytes.add(new CompilationCacheEntry(className, bytecode));
+            bytes.add(entry);
         }
 
         public Map<String, List<CompilationCacheEntry>> getCacheForDialect(String dialect) {
@@ -228,11 +241,28 @@ public interface InternalKieModule extends KieModule, Serializable {
     class CompilationCacheEntry implements Serializable {
         private static final long serialVersionUID = 1423987159014688588L;
         public final String className;
-        public final byte[] bytecode;
+        private final byte[] bytecode;
+        private final transient Supplier<byte[]> bytecodeLoader;
 
         public CompilationCacheEntry( String className, byte[] bytecode) {
             this.className = className;
             this.bytecode = bytecode;
+            this.bytecodeLoader = null;
+        }
+
+        public CompilationCacheEntry( String className, Supplier<byte[]> bytecodeLoader) {
+            this.className = className;
+            this.bytecode = null;
+            this.bytecodeLoader = bytecodeLoader;
+        }
+
+        public byte[] getBytecode() {
+            return bytecodeLoader != null ? bytecodeLoader.get() : bytecode;
+        }
+
+        private Object writeReplace() {
+            // the loader is bound to the cache it has been read from, so its bytecode is serialized in place of it
+            return bytecodeLoader != null ? new CompilationCacheEntry( className, bytecodeLoader.get() ) : this;
         }
     }
 
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.compiler.kie.builder.impl;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.appformer.maven.support.AFReleaseId;
+import org.appformer.maven.support.AFReleaseIdImpl;
+import org.drools.compiler.builder.InternalKnowledgeBuilder;
+import org.drools.compiler.kproject.models.KieBaseModelImpl;
+import org.drools.core.common.DroolsObjectInputStream;
+import org.drools.core.common.DroolsObjectOutputStream;
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.drools.core.impl.KnowledgeBaseFactory;
+import org.drools.core.util.Drools;
+import org.kie.api.builder.model.KieModuleModel;
+import org.kie.api.definition.KiePackage;
+import org.kie.internal.builder.KnowledgeBuilder;
+
+/**
+ * The image of a fully built KieBase, i.e. its packages together with its Rete network, stored in the kjar
+ * next to the compilation cache, so that a container can restore the KieBase instead of building it again.
+ *
+ * The image is written at build time when the kmodule (or the system) defines the property
+ * {@link #KIE_BASE_IMAGE_PROPERTY}. It starts with a magic number and the version of Drools that wrote it,
+ * so that an image built by an incompatible version is ignored, followed by the compressed serialized KieBase.
+ * As the compilation cache, it is stored signed when a key store is configured.
+ *
+ * Note that the KieBase is stored through plain Java serialization, i.e. the {@link DroolsObjectOutputStream} of the
+ * KnowledgeBaseImpl and of all its nodes, and not through a dedicated encoding of the network. This is why the image
+ * is bound to the version of Drools that wrote it, and why its restore time is dominated by the deserialization of
+ * the whole object graph: KieBaseImageBenchmark in drools-model-compiler compares it with building the same KieBase.
+ */
+public class KieBaseImage {
+
+    public static final String KIE_BASE_IMAGE_PROPERTY = "drools.kieBaseImage";
+
+    private static final int MAGIC = 0x4B424931;
+
+    private KieBaseImage() { }
+
+    public static String getKieBaseImagePath( AFReleaseId releaseId, String kbaseName ) {
+        return ( (AFReleaseIdImpl) releaseId ).getCompilationCachePathPrefix() + kbaseName.replace( '.', '/' ) + "/kbase.image";
+    }
+
+    public static boolean isEnabled( KieModuleModel kieModuleModel ) {
+        String value = kieModuleModel.getConfigurationProperties().get( KIE_BASE_IMAGE_PROPERTY );
+        return value != null ? Boolean.parseBoolean( value ) : Boolean.getBoolean( KIE_BASE_IMAGE_PROPERTY );
+    }
+
+    /**
+     * Builds the KieBase defined by the given model out of the packages of its builder and returns its image.
+     */
+    public static byte[] build( KieBaseModelImpl kBaseModel, KnowledgeBuilder kBuilder ) throws IOException {
+        ClassLoader cl = ( (InternalKnowledgeBuilder) kBuilder ).getRootClassLoader();
+        Collection<KiePackage> pkgs = kBuilder.getKnowledgePackages();
+        AbstractKieModule.checkStreamMode( kBaseModel, null, pkgs );
+        InternalKnowledgeBase kBase = KnowledgeBaseFactory.newKnowledgeBase( kBaseModel.getName(),
+                                                                             AbstractKieModule.getKnowledgeBaseConfiguration( kBaseModel, cl ) );
+        kBase.addPackages( pkgs );
+        return write( kBase );
+    }
+
+    /**
+     * Writes the image of the given KieBase: the version header followed by the deflated Java serialization of the KieBase.
+     */
+    public static byte[] write( InternalKnowledgeBase kBase ) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream( bytes );
+        header.writeInt( MAGIC );
+        header.writeInt( Drools.getMajorVersion() );
+        header.writeInt( Drools.getMinorVersion() );
+        header.writeInt( Drools.getRevisionVersion() );
+        header.flush();
+
+        DeflaterOutputStream compressed = new DeflaterOutputStream( bytes, new Deflater( Deflater.BEST_SPEED ) );
+        try (DroolsObjectOutputStream out = new DroolsObjectOutputStream( compressed )) {
+            out.writeObject( kBase );
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Restores the KieBase contained in the given image by deserializing it. If the image can't be used the KieBase
+     * has to be built as usual.
+     */
+    public static InternalKnowledgeBase read( byte[] image, ClassLoader classLoader ) throws IOException, ClassNotFoundException {
+        DataInputStream header = new DataInputStream( new ByteArrayInputStream( image ) );
+        if ( header.readInt() != MAGIC ) {
+            throw new IOException( "Invalid KieBase image" );
+        }
+        if ( !Drools.isCompatible( header.readInt(), header.readInt(), header.readInt() ) ) {
+            throw new IOException( "The KieBase image has been built with an incompatible version. " +
+                                   "You should recompile your project in order to use it with current release." );
+        }
+        try (DroolsObjectInputStream in = new DroolsObjectInputStream( new BufferedInputStream( new InflaterInputStream( header ) ), classLoader )) {
+            return (InternalKnowledgeBase) in.readObject();
+        }
+    }
+}
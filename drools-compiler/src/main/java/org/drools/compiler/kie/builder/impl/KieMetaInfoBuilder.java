@@ -14,6 +14,7 @@
 
 package org.drools.compiler.kie.builder.impl;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -24,6 +25,7 @@ import java.util.Set;
 import org.drools.compiler.builder.InternalKnowledgeBuilder;
 import org.kie.memorycompiler.resources.ResourceStore;
 import org.drools.compiler.compiler.PackageRegistry;
+import org.drools.compiler.kproject.models.KieBaseModelImpl;
 import org.drools.compiler.kproject.models.KieModuleModelImpl;
 import org.drools.core.factmodel.ClassDefinition;
 import org.drools.core.rule.JavaDialectRuntimeData;
@@ -31,16 +33,21 @@ import org.drools.core.rule.KieModuleMetaInfo;
 import org.drools.core.rule.TypeDeclaration;
 import org.drools.core.rule.TypeMetaInfo;
 import org.drools.core.util.IoUtils;
+import org.kie.api.builder.model.KieBaseModel;
 import org.kie.api.builder.model.KieModuleModel;
 import org.kie.api.definition.KiePackage;
 import org.kie.api.definition.rule.Rule;
 import org.kie.api.definition.type.FactType;
 import org.kie.internal.builder.KnowledgeBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import static org.drools.core.util.Drools.hasMvel;
 
 public class KieMetaInfoBuilder {
 
+    private static final Logger log = LoggerFactory.getLogger(KieMetaInfoBuilder.class);
+
     protected final InternalKieModule kModule;
 
     public KieMetaInfoBuilder( InternalKieModule kModule) {
@@ -54,6 +61,45 @@ public class KieMetaInfoBuilder {
                     info.marshallMetaInfos().getBytes( IoUtils.UTF8_CHARSET ),
                     true );
         }
+        writeDialectResources( trgMfs );
+        if (KieBaseImage.isEnabled( kModule.getKieModuleModel() )) {
+            writeKieBaseImages( trgMfs );
+        }
+    }
+
+    private void writeDialectResources(ResourceStore trgMfs) {
+        for ( String kieBaseName : kModule.getKieModuleModel().getKieBaseModels().keySet() ) {
+            KnowledgeBuilder kBuilder = kModule.getKnowledgeBuilderForKieBase( kieBaseName );
+            if ( kBuilder == null || kBuilder.hasErrors() ) {
+                continue;
+            }
+            for ( KiePackage kPkg : kBuilder.getKnowledgePackages() ) {
+                PackageRegistry pkgRegistry = (( InternalKnowledgeBuilder ) kBuilder).getPackageRegistry( kPkg.getName() );
+                pkgRegistry.getDialectRuntimeRegistry().writeKieModuleResources( pkgRegistry.getPackage(), kModule.getReleaseId(), trgMfs );
+            }
+        }
+    }
+
+    private void writeKieBaseImages(ResourceStore trgMfs) {
+        for ( KieBaseModel kieBaseModel : kModule.getKieModuleModel().getKieBaseModels().values() ) {
+            KnowledgeBuilder kBuilder = kModule.getKnowledgeBuilderForKieBase( kieBaseModel.getName() );
+            if ( kBuilder == null || kBuilder.hasErrors() ) {
+                continue;
+            }
+            try {
+                writeKieBaseImage( KieBaseImage.getKieBaseImagePath( kModule.getReleaseId(), kieBaseModel.getName() ),
+                                   KieBaseImage.build( (KieBaseModelImpl) kieBaseModel, kBuilder ),
+                                   trgMfs );
+            } catch (Exception e) {
+                // the KieBase will be built when the container requests it
+                log.warn( "Unable to write the image of KieBase " + kieBaseModel.getName(), e );
+            }
+        }
+    }
+
+    protected void writeKieBaseImage(String path, byte[] image, ResourceStore trgMfs) throws IOException {
+        // without the protobuf marshalling the image can't be signed
+        trgMfs.write( path, image, true );
     }
 
     public KieModuleMetaInfo getKieModuleMetaInfo(){
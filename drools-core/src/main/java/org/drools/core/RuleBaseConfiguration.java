@@ -16,6 +16,7 @@
 
 package org.drools.core;
 
+import java.io.EOFException;
 import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
@@ -112,6 +113,9 @@ import static org.drools.core.util.MemoryUtil.hasPermGen;
  * drools.declarativeAgendaEnabled =  &lt;true|false&gt;
  * drools.permgenThreshold = &lt;1...n&gt;
  * drools.jittingThreshold = &lt;1...n&gt;
+ * drools.jitting.threads = &lt;1...n&gt;
+ * drools.jitting.queueSize = &lt;1...n&gt;
+ * drools.shareAccessors = &lt;true|false&gt;
  * </pre>
  */
 public class RuleBaseConfiguration
@@ -125,6 +129,14 @@ public class RuleBaseConfiguration
 
     public static final String DEFAULT_SIGN_ON_SERIALIZATION = "false";
 
+    public static final String SHARE_ACCESSORS_PROPERTY = "drools.shareAccessors";
+
+    public static final String JITTING_THREADS_PROPERTY = "drools.jitting.threads";
+    public static final String JITTING_QUEUE_SIZE_PROPERTY = "drools.jitting.queueSize";
+
+    public static final int DEFAULT_JITTING_THREADS = 1;
+    public static final int DEFAULT_JITTING_QUEUE_SIZE = 1000;
+
     protected static final transient Logger logger = LoggerFactory.getLogger(RuleBaseConfiguration.class);
 
     private ChainedProperties chainedProperties;
@@ -140,6 +152,8 @@ public class RuleBaseConfiguration
     private boolean         shareBetaNodes;
     private int             permGenThreshold;
     private int             jittingThreshold;
+    private int             jittingThreads;
+    private int             jittingQueueSize;
     private int             alphaNodeHashingThreshold;
     private int             alphaNodeRangeIndexThreshold;
     private boolean         betaNodeRangeIndexEnabled;
@@ -151,6 +165,7 @@ public class RuleBaseConfiguration
     private String          ruleBaseUpdateHandler;
     private boolean         classLoaderCacheEnabled;
     private boolean         mutabilityEnabled;
+    private boolean         shareAccessors;
 
     private boolean declarativeAgenda;
 
@@ -221,6 +236,7 @@ public class RuleBaseConfiguration
         out.writeObject(componentFactory);
         out.writeInt(sessionPoolSize);
         out.writeBoolean(mutabilityEnabled);
+        out.writeBoolean(shareAccessors);
     }
 
     public void readExternal(ObjectInput in) throws IOException,
@@ -255,6 +271,14 @@ public class RuleBaseConfiguration
         componentFactory = (KieComponentFactory) in.readObject();
         sessionPoolSize = in.readInt();
         mutabilityEnabled = in.readBoolean();
+        try {
+            shareAccessors = in.readBoolean();
+        } catch (EOFException e) {
+            // serialized by a version that didn't have this option, that is the last one written
+            shareAccessors = Boolean.parseBoolean( chainedProperties.getProperty( SHARE_ACCESSORS_PROPERTY, "false" ) );
+        }
+        // the jitting pool settings are not part of the serialized form and are taken again from the properties
+        initJittingPool();
     }
 
     /**
@@ -316,6 +340,10 @@ public class RuleBaseConfiguration
             setPermGenThreshold(StringUtils.isEmpty(value) ? PermGenThresholdOption.DEFAULT_VALUE : Integer.parseInt(value));
         } else if ( name.equals( ConstraintJittingThresholdOption.PROPERTY_NAME ) ) {
             setJittingThreshold( StringUtils.isEmpty( value ) ? ConstraintJittingThresholdOption.DEFAULT_VALUE : Integer.parseInt( value ) );
+        } else if ( name.equals( JITTING_THREADS_PROPERTY ) ) {
+            setJittingThreads( StringUtils.isEmpty( value ) ? DEFAULT_JITTING_THREADS : Integer.parseInt( value ) );
+        } else if ( name.equals( JITTING_QUEUE_SIZE_PROPERTY ) ) {
+            setJittingQueueSize( StringUtils.isEmpty( value ) ? DEFAULT_JITTING_QUEUE_SIZE : Integer.parseInt( value ) );
         } else if ( name.equals( AlphaThresholdOption.PROPERTY_NAME ) ) {
             setAlphaNodeHashingThreshold( StringUtils.isEmpty( value ) ? 3 : Integer.parseInt(value));
         } else if ( name.equals( AlphaRangeIndexThresholdOption.PROPERTY_NAME ) ) {
@@ -352,6 +380,8 @@ public class RuleBaseConfiguration
             setClassLoaderCacheEnabled( StringUtils.isEmpty( value ) ? true : Boolean.valueOf(value));
         } else if ( name.equals( KieBaseMutabilityOption.PROPERTY_NAME ) ) {
             setMutabilityEnabled( StringUtils.isEmpty( value ) ? true : KieBaseMutabilityOption.determineMutability(value) == KieBaseMutabilityOption.ALLOWED );
+        } else if ( name.equals( SHARE_ACCESSORS_PROPERTY ) ) {
+            setShareAccessors( StringUtils.isEmpty( value ) ? false : Boolean.valueOf(value));
         }
     }
 
@@ -375,6 +405,10 @@ public class RuleBaseConfiguration
             return Integer.toString( getPermGenThreshold() );
         } else if ( name.equals( ConstraintJittingThresholdOption.PROPERTY_NAME ) ) {
             return Integer.toString( getJittingThreshold() );
+        } else if ( name.equals( JITTING_THREADS_PROPERTY ) ) {
+            return Integer.toString( getJittingThreads() );
+        } else if ( name.equals( JITTING_QUEUE_SIZE_PROPERTY ) ) {
+            return Integer.toString( getJittingQueueSize() );
         } else if ( name.equals( AlphaThresholdOption.PROPERTY_NAME ) ) {
             return Integer.toString( getAlphaNodeHashingThreshold() );
         } else if ( name.equals( AlphaRangeIndexThresholdOption.PROPERTY_NAME ) ) {
@@ -411,6 +445,8 @@ public class RuleBaseConfiguration
             return Boolean.toString( isClassLoaderCacheEnabled() );
         } else if ( name.equals( KieBaseMutabilityOption.PROPERTY_NAME ) ) {
             return isMutabilityEnabled() ? "ALLOWED" : "DISABLED";
+        } else if ( name.equals( SHARE_ACCESSORS_PROPERTY ) ) {
+            return Boolean.toString( isShareAccessors() );
         }
 
         return null;
@@ -459,6 +495,8 @@ public class RuleBaseConfiguration
 
         setJittingThreshold( Integer.parseInt( this.chainedProperties.getProperty( ConstraintJittingThresholdOption.PROPERTY_NAME, "" + ConstraintJittingThresholdOption.DEFAULT_VALUE)));
 
+        initJittingPool();
+
         setAlphaNodeHashingThreshold(Integer.parseInt(this.chainedProperties.getProperty(AlphaThresholdOption.PROPERTY_NAME, "3")));
 
         setAlphaNodeRangeIndexThreshold(Integer.parseInt(this.chainedProperties.getProperty(AlphaRangeIndexThresholdOption.PROPERTY_NAME, "" + AlphaRangeIndexThresholdOption.DEFAULT_VALUE)));
@@ -508,6 +546,8 @@ public class RuleBaseConfiguration
 
         setMutabilityEnabled( KieBaseMutabilityOption.determineMutability(
                 this.chainedProperties.getProperty( KieBaseMutabilityOption.PROPERTY_NAME, "ALLOWED" )) == KieBaseMutabilityOption.ALLOWED );
+
+        setShareAccessors( Boolean.valueOf( this.chainedProperties.getProperty( SHARE_ACCESSORS_PROPERTY, "false" ) ) );
     }
 
     /**
@@ -606,6 +646,35 @@ public class RuleBaseConfiguration
         this.jittingThreshold = jittingThreshold;
     }
 
+    private void initJittingPool() {
+        this.jittingThreads = Integer.parseInt( this.chainedProperties.getProperty( JITTING_THREADS_PROPERTY, "" + DEFAULT_JITTING_THREADS ) );
+        this.jittingQueueSize = Integer.parseInt( this.chainedProperties.getProperty( JITTING_QUEUE_SIZE_PROPERTY, "" + DEFAULT_JITTING_QUEUE_SIZE ) );
+    }
+
+    /**
+     * @return the maximum number of constraints jitted at the same time in background
+     */
+    public int getJittingThreads() {
+        return jittingThreads;
+    }
+
+    public void setJittingThreads( int jittingThreads ) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.jittingThreads = jittingThreads;
+    }
+
+    /**
+     * @return the maximum number of constraints waiting to be jitted, beyond which the jitting requests are rejected
+     */
+    public int getJittingQueueSize() {
+        return jittingQueueSize;
+    }
+
+    public void setJittingQueueSize( int jittingQueueSize ) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.jittingQueueSize = jittingQueueSize;
+    }
+
     public int getAlphaNodeHashingThreshold() {
         return this.alphaNodeHashingThreshold;
     }
@@ -945,6 +1014,20 @@ public class RuleBaseConfiguration
         return mutabilityEnabled;
     }
 
+    /**
+     * Defines if the field accessors generated for the fact classes of this KieBase should be taken from (and
+     * stored into) a JVM-wide cache, so that other KieBases built over the same classes, loaded by the same
+     * ClassLoader, can reuse them instead of generating their own. Default is false.
+     */
+    public void setShareAccessors( boolean shareAccessors ) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.shareAccessors = shareAccessors;
+    }
+
+    public boolean isShareAccessors() {
+        return shareAccessors;
+    }
+
     public static class AssertBehaviour
             implements
             Externalizable {
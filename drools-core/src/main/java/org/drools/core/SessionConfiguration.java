@@ -107,6 +107,15 @@ public abstract class SessionConfiguration implements KieSessionConfiguration, E
 
     public abstract TimerService newTimerService();
 
+    /**
+     * The rules whose memories are eagerly created together with the session, either "all" or a comma separated
+     * list of rule names, so that the first propagations through them don't pay for their creation.
+     */
+    public static final String SEGMENT_WARM_UP_PROPERTY = "drools.segmentWarmUp";
+
+    public abstract String getSegmentWarmUp();
+    public abstract void setSegmentWarmUp(String rules);
+
     public abstract QueryListenerOption getQueryListenerOption();
     public abstract void setQueryListenerOption( QueryListenerOption queryListener );
 
@@ -197,6 +206,8 @@ public abstract class SessionConfiguration implements KieSessionConfiguration, E
             setQueryListenerOption( QueryListenerOption.determineQueryListenerClassOption( property ) );
         } else if ( name.equals( BeliefSystemTypeOption.PROPERTY_NAME ) ) {
             setBeliefSystemType(StringUtils.isEmpty(value) ? BeliefSystemType.SIMPLE : BeliefSystemType.resolveBeliefSystemType(value));
+        } else if ( name.equals( SEGMENT_WARM_UP_PROPERTY ) ) {
+            setSegmentWarmUp(StringUtils.isEmpty(value) ? null : value);
         }
     }
 
@@ -222,6 +233,8 @@ public abstract class SessionConfiguration implements KieSessionConfiguration, E
             return getQueryListenerOption().getAsString();
         } else if ( name.equals( BeliefSystemTypeOption.PROPERTY_NAME ) ) {
             return getBeliefSystemType().getId();
+        } else if ( name.equals( SEGMENT_WARM_UP_PROPERTY ) ) {
+            return getSegmentWarmUp();
         }
         return null;
     }
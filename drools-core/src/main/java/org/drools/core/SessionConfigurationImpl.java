@@ -98,6 +98,8 @@ public class SessionConfigurationImpl extends SessionConfiguration {
     
     private TimerJobFactoryType            timerJobFactoryType;
 
+    private String                         segmentWarmUp;
+
     public void writeExternal(ObjectOutput out) throws IOException {
         out.writeObject( chainedProperties );
         out.writeBoolean(immutable);
@@ -183,6 +185,8 @@ public class SessionConfigurationImpl extends SessionConfiguration {
         setQueryListenerOption( QueryListenerOption.determineQueryListenerClassOption( getPropertyValue( QueryListenerOption.PROPERTY_NAME, QueryListenerOption.STANDARD.getAsString() ) ) );
 
         setTimerJobFactoryType(TimerJobFactoryType.resolveTimerJobFactoryType( getPropertyValue( TimerJobFactoryOption.PROPERTY_NAME, TimerJobFactoryType.THREAD_SAFE_TRACKABLE.getId() ) ));
+
+        setSegmentWarmUp( getPropertyValue( SEGMENT_WARM_UP_PROPERTY, null ) );
     }
 
     public SessionConfigurationImpl addDefaultProperties(Properties properties) {
@@ -300,6 +304,15 @@ public class SessionConfigurationImpl extends SessionConfiguration {
         this.timerJobFactoryType = timerJobFactoryType;
     }
 
+    public String getSegmentWarmUp() {
+        return segmentWarmUp;
+    }
+
+    public void setSegmentWarmUp(String segmentWarmUp) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.segmentWarmUp = segmentWarmUp;
+    }
+
     private void setQueryListenerClass(QueryListenerOption option) {
         checkCanChange();
         this.queryListener = option;
@@ -16,6 +16,7 @@
 
 package org.drools.core.base;
 
+import java.lang.ref.WeakReference;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.Map;
@@ -30,16 +31,36 @@ import static org.drools.core.util.ClassUtils.convertPrimitiveNameToType;
 
 public class ClassFieldAccessorCache {
 
+    /**
+     * JVM-wide accessor cache entries, keyed by the ClassLoader of the fact classes. Values are only weakly
+     * referenced here: each ClassFieldAccessorCache using an entry holds it strongly, so an entry (together with
+     * its generated accessor classes and the ClassLoader they point to) can be collected once no KieBase uses it anymore.
+     */
+    private static final Map<ClassLoader, WeakReference<CacheEntry>> SHARED_CACHE_BY_CLASSLOADER = new WeakHashMap<>();
+
     private Map<ClassLoader, CacheEntry> cacheByClassLoader;
 
+    private Map<ClassLoader, CacheEntry> sharedCacheByClassLoader;
+
     private ClassLoader                  classLoader;
 
     public ClassFieldAccessorCache(ClassLoader classLoader) {
+        this( classLoader, false );
+    }
+
+    public ClassFieldAccessorCache(ClassLoader classLoader, boolean shareAccessors) {
         //        lookup = new HashMap<AccessorKey, LookupEntry>();
         cacheByClassLoader = new WeakHashMap<ClassLoader, CacheEntry>();
+        if ( shareAccessors ) {
+            sharedCacheByClassLoader = new WeakHashMap<ClassLoader, CacheEntry>();
+        }
         this.classLoader = classLoader;
     }
 
+    public boolean isShareAccessors() {
+        return sharedCacheByClassLoader != null;
+    }
+
     public ClassLoader getClassLoader() {
         return this.classLoader;
     }
@@ -47,7 +68,8 @@ public class ClassFieldAccessorCache {
     public ClassObjectType getClassObjectType(ClassObjectType objectType, boolean lookupClass) {
         // lookup the class when the ClassObjectType might refer to the class from another ClassLoader
         Class cls = lookupClass ? getClass( objectType.getClassName() ) : objectType.getClassType();
-        CacheEntry cache = getCacheEntry( cls );
+        // ClassObjectTypes are never shared with other KieBases
+        CacheEntry cache = getLocalCacheEntry( cls );
         return cache.getClassObjectType( cls, objectType );
     }
 
@@ -136,6 +158,56 @@ public class ClassFieldAccessorCache {
     }
 
     public CacheEntry getCacheEntry(Class cls) {
+        if ( sharedCacheByClassLoader != null && cls.getClassLoader() != null ) {
+            CacheEntry cache = getSharedCacheEntry( cls.getClassLoader() );
+            if ( cache != null ) {
+                return cache;
+            }
+        }
+        return getLocalCacheEntry( cls );
+    }
+
+    private CacheEntry getSharedCacheEntry(ClassLoader cl) {
+        synchronized (sharedCacheByClassLoader) {
+            CacheEntry cache = sharedCacheByClassLoader.get( cl );
+            if ( cache == null ) {
+                cache = lookupSharedCacheEntry( cl );
+                if ( cache != null ) {
+                    // keeps the JVM-wide entry alive at least as long as this cache
+                    sharedCacheByClassLoader.put( cl, cache );
+                }
+            }
+            return cache;
+        }
+    }
+
+    private static CacheEntry lookupSharedCacheEntry(ClassLoader cl) {
+        synchronized (SHARED_CACHE_BY_CLASSLOADER) {
+            WeakReference<CacheEntry> ref = SHARED_CACHE_BY_CLASSLOADER.get( cl );
+            CacheEntry cache = ref != null ? ref.get() : null;
+            if ( cache == null ) {
+                if ( !canGenerateAccessorsIn( cl ) ) {
+                    return null;
+                }
+                // the generated accessors are defined under the ClassLoader of the fact class itself, so they
+                // don't depend on (and don't retain) the ClassLoader of the KieBase that first requested them
+                cache = new CacheEntry( cl );
+                SHARED_CACHE_BY_CLASSLOADER.put( cl, new WeakReference<>( cache ) );
+            }
+            return cache;
+        }
+    }
+
+    private static boolean canGenerateAccessorsIn(ClassLoader cl) {
+        // the generated accessors extend the drools-core base readers and writers, that must be visible from the fact ClassLoader
+        try {
+            return cl.loadClass( BaseClassFieldReader.class.getName() ) == BaseClassFieldReader.class;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private CacheEntry getLocalCacheEntry(Class cls) {
         // System classloader classes return null on some JVMs
         ClassLoader cl = cls.getClassLoader() != null ? cls.getClassLoader() : this.classLoader;
 
@@ -30,7 +30,7 @@ import org.kie.internal.builder.RuleTemplateConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class DecisionTableConfigurationImpl extends ResourceConfigurationImpl implements DecisionTableConfiguration {
+public class DecisionTableConfigurationImpl extends ResourceConfigurationImpl implements DecisionTableConfiguration, XlsxStreamingConfiguration {
     public static final String DROOLS_DT_TYPE = "drools.dt.type";
     public static final String DROOLS_DT_WORKSHEET = "drools.dt.worksheet";
 
@@ -44,6 +44,8 @@ public class DecisionTableConfigurationImpl extends ResourceConfigurationImpl im
 
     private boolean trimCell = true;
 
+    private boolean streamingXlsx = false;
+
     public DecisionTableConfigurationImpl() {
     }
 
@@ -57,6 +59,16 @@ public class DecisionTableConfigurationImpl extends ResourceConfigurationImpl im
         this.trimCell = trimCell;
     }
 
+    @Override
+    public boolean isStreamingXlsx() {
+        return streamingXlsx;
+    }
+
+    @Override
+    public void setStreamingXlsx( boolean streamingXlsx ) {
+        this.streamingXlsx = streamingXlsx;
+    }
+
     public void setInputType(DecisionTableInputType inputType) {
         this.inputType = inputType;
     }
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.core.builder.conf.impl;
+
+/**
+ * A decision table configuration telling if its xlsx workbooks have to be read as a stream
+ */
+public interface XlsxStreamingConfiguration {
+
+    /**
+     * When true the xlsx workbooks are read as a stream, in constant memory, using the values of the
+     * formulas cached in the file instead of evaluating them
+     */
+    boolean isStreamingXlsx();
+
+    void setStreamingXlsx( boolean streamingXlsx );
+}
@@ -17,4 +17,11 @@
 package org.drools.core.factmodel;
 
 public interface BeanClassBuilder extends ClassBuilder {
+
+    /**
+     * @return a builder generating the declared types in their lean form, when supported, or this builder otherwise
+     */
+    default BeanClassBuilder lean() {
+        return this;
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.core.factmodel;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Locale;
+
+/**
+ * Estimates the shallow size of the instances of a fact class, i.e. the memory taken by the object
+ * itself without the objects referenced by its fields, assuming a 64 bit HotSpot JVM with
+ * compressed oops: a 12 bytes header, 4 bytes references and a size rounded up to 8 bytes.
+ */
+public final class FactFootprint {
+
+    public static final int HEADER_SIZE = 12;
+    public static final int REFERENCE_SIZE = 4;
+    public static final int ALIGNMENT = 8;
+
+    private static final int INSTANCES = 1_000_000;
+
+    private FactFootprint() { }
+
+    public static long shallowSizeOf(Class<?> factClass) {
+        long size = HEADER_SIZE;
+        for (Class<?> c = factClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if ( !Modifier.isStatic( field.getModifiers() ) ) {
+                    size += sizeOf( field.getType() );
+                }
+            }
+        }
+        return align( size );
+    }
+
+    public static long align(long size) {
+        return ( size + ALIGNMENT - 1 ) / ALIGNMENT * ALIGNMENT;
+    }
+
+    public static long sizeOfInstances(Class<?> factClass, long instances) {
+        return shallowSizeOf( factClass ) * instances;
+    }
+
+    /**
+     * @return a line per class reporting the bytes taken by each instance and by a million of instances
+     */
+    public static String report(Class<?>... factClasses) {
+        StringBuilder sb = new StringBuilder();
+        for (Class<?> factClass : factClasses) {
+            long size = shallowSizeOf( factClass );
+            sb.append( String.format( Locale.ROOT, "%s: %d bytes per instance, %.1f MB per million instances%n",
+                                      factClass.getName(), size, ( size * INSTANCES ) / ( 1024.0 * 1024.0 ) ) );
+        }
+        return sb.toString();
+    }
+
+    private static int sizeOf(Class<?> type) {
+        return type.isPrimitive() ? sizeOf( type.getName() ) : REFERENCE_SIZE;
+    }
+
+    /**
+     * @return the bytes taken by a field of the type with the given name
+     */
+    public static int sizeOf(String typeName) {
+        switch ( typeName ) {
+            case "long":
+            case "double":
+                return 8;
+            case "int":
+            case "float":
+                return 4;
+            case "short":
+            case "char":
+                return 2;
+            case "byte":
+            case "boolean":
+                return 1;
+            default:
+                return REFERENCE_SIZE;
+        }
+    }
+}
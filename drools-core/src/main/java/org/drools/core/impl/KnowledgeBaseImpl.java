@@ -209,7 +209,7 @@ public class KnowledgeBaseImpl
         this.processes = new HashMap<>();
         this.globals = new HashMap<>();
 
-        this.classFieldAccessorCache = new ClassFieldAccessorCache(this.rootClassLoader);
+        this.classFieldAccessorCache = new ClassFieldAccessorCache(this.rootClassLoader, this.config.isShareAccessors());
         kieComponentFactory = getConfiguration().getComponentFactory();
 
         this.factHandleFactory = kieComponentFactory.getFactHandleFactoryService();
@@ -448,11 +448,11 @@ public class KnowledgeBaseImpl
         droolsStream.setClassLoader(this.rootClassLoader);
         droolsStream.setKnowledgeBase(this);
 
-        this.classFieldAccessorCache = new ClassFieldAccessorCache(this.rootClassLoader);
-
         this.config = (RuleBaseConfiguration) droolsStream.readObject();
         this.config.setClassLoader(droolsStream.getParentClassLoader());
 
+        this.classFieldAccessorCache = new ClassFieldAccessorCache(this.rootClassLoader, this.config.isShareAccessors());
+
         this.sessionConfiguration = new SessionConfigurationImpl( null, config.getClassLoader(), config.getChainedProperties() );
 
         kieComponentFactory = getConfiguration().getComponentFactory();
@@ -1513,13 +1513,18 @@ public class KnowledgeBaseImpl
     }
 
     private void internalAddRules( Collection<? extends Rule> rules ) {
-        for (Rule r : rules) {
-            RuleImpl rule = (RuleImpl) r;
-            checkMultithreadedEvaluation( rule );
-            this.hasMultipleAgendaGroups |= !rule.isMainAgendaGroup();
-            this.eventSupport.fireBeforeRuleAdded( rule );
-            this.reteooBuilder.addRule(rule);
-            this.eventSupport.fireAfterRuleAdded( rule );
+        this.reteooBuilder.startRuleAdditionsBatch();
+        try {
+            for (Rule r : rules) {
+                RuleImpl rule = (RuleImpl) r;
+                checkMultithreadedEvaluation( rule );
+                this.hasMultipleAgendaGroups |= !rule.isMainAgendaGroup();
+                this.eventSupport.fireBeforeRuleAdded( rule );
+                this.reteooBuilder.addRule(rule);
+                this.eventSupport.fireAfterRuleAdded( rule );
+            }
+        } finally {
+            this.reteooBuilder.endRuleAdditionsBatch();
         }
     }
 
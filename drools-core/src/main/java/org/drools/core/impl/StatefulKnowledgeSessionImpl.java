@@ -96,6 +96,7 @@ import org.drools.core.reteoo.PathMemory;
 import org.drools.core.reteoo.QueryTerminalNode;
 import org.drools.core.reteoo.RuleTerminalNode;
 import org.drools.core.reteoo.SegmentMemory;
+import org.drools.core.reteoo.SegmentMemoryInitializer;
 import org.drools.core.reteoo.TerminalNode;
 import org.drools.core.rule.Declaration;
 import org.drools.core.rule.EntryPointId;
@@ -404,6 +405,9 @@ public class StatefulKnowledgeSessionImpl extends AbstractRuntime
         updateEntryPointsCache();
         if (initInitFactHandle) {
             this.initialFactHandle = initInitialFact(kBase, null);
+            if (config.getSegmentWarmUp() != null) {
+                SegmentMemoryInitializer.warmUp(this, config.getSegmentWarmUp());
+            }
         }
     }
 
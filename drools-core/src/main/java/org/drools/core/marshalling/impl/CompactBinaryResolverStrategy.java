@@ -0,0 +1,477 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.core.marshalling.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.drools.core.base.ClassFieldAccessor;
+import org.drools.core.base.ClassFieldAccessorCache;
+import org.drools.core.base.ClassFieldAccessorStore;
+import org.drools.core.base.ClassFieldInspector;
+import org.kie.api.marshalling.ObjectMarshallingStrategy;
+
+/**
+ * A strategy writing the objects of a set of registered classes field by field in a compact binary format,
+ * without any class descriptor and without requiring them to be Serializable. Each registered class must have
+ * a no-arg constructor and its state must be exposed through getters and setters, that are accessed with
+ * the same accessors used by the constraints.
+ *
+ * The classes are identified by their registration order, so the strategy unmarshalling a session must
+ * register the same classes in the same order of the one that marshalled it. The first object of each class
+ * written in a stream is preceded by the fingerprint of the schema of its class, i.e. of its name and of the
+ * names and types of its properties, which is checked while reading, so that a stream written with different
+ * registrations or with a different version of a class is rejected instead of being silently misread. The values of the fields whose
+ * type is neither a primitive, a String, a number, a Date, an enum nor a registered class are written with
+ * java serialization. The objects of the registered classes referenced more than once by the marshalled
+ * object are written only the first time, and then as back references, so that the shared references and the
+ * cycles among them are preserved.
+ *
+ * A registered class whose properties are not all readable and writable is rejected, since their values
+ * couldn't be restored.
+ */
+public class CompactBinaryResolverStrategy implements ObjectMarshallingStrategy {
+
+    private static final byte NULL = 0;
+    private static final byte BOOLEAN = 1;
+    private static final byte BYTE = 2;
+    private static final byte SHORT = 3;
+    private static final byte CHAR = 4;
+    private static final byte INT = 5;
+    private static final byte LONG = 6;
+    private static final byte FLOAT = 7;
+    private static final byte DOUBLE = 8;
+    private static final byte STRING = 9;
+    private static final byte BIG_DECIMAL = 10;
+    private static final byte BIG_INTEGER = 11;
+    private static final byte DATE = 12;
+    private static final byte ENUM = 13;
+    private static final byte REGISTERED = 14;
+    private static final byte SERIALIZED = 15;
+    private static final byte BACK_REFERENCE = 16;
+
+    private final List<Class<?>> classes = new ArrayList<>();
+    private final Map<Class<?>, Integer> classIds = new HashMap<>();
+    private final boolean compress;
+
+    private final Map<Class<?>, ClassSchema> schemas = new ConcurrentHashMap<>();
+
+    public CompactBinaryResolverStrategy( Class<?>... registeredClasses ) {
+        this( false, registeredClasses );
+    }
+
+    public CompactBinaryResolverStrategy( boolean compress, Class<?>... registeredClasses ) {
+        this.compress = compress;
+        for (Class<?> registeredClass : registeredClasses) {
+            classIds.put( registeredClass, classes.size() );
+            classes.add( registeredClass );
+        }
+    }
+
+    public boolean accept( Object object ) {
+        return classIds.containsKey( object.getClass() );
+    }
+
+    public void write( ObjectOutputStream os, Object object ) throws IOException {
+        byte[] bytes = marshal( null, os, object );
+        os.writeInt( bytes.length );
+        os.write( bytes );
+    }
+
+    public Object read( ObjectInputStream os ) throws IOException, ClassNotFoundException {
+        byte[] bytes = new byte[os.readInt()];
+        os.readFully( bytes );
+        return unmarshal( null, os, bytes, Thread.currentThread().getContextClassLoader() );
+    }
+
+    public byte[] marshal( Context context, ObjectOutputStream os, Object object ) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write( compress ? 1 : 0 );
+        OutputStream target = compress ? new DeflaterOutputStream( bytes ) : bytes;
+        try (DataOutputStream out = new DataOutputStream( target )) {
+            writeObject( out, object, new IdentityHashMap<>(), new BitSet() );
+        }
+        return bytes.toByteArray();
+    }
+
+    public Object unmarshal( Context context, ObjectInputStream is, byte[] object, ClassLoader classloader ) throws IOException, ClassNotFoundException {
+        InputStream source = new ByteArrayInputStream( object, 1, object.length - 1 );
+        if ( object[0] == 1 ) {
+            source = new InflaterInputStream( source );
+        }
+        try (DataInputStream in = new DataInputStream( source )) {
+            return readObject( in, classloader, new ArrayList<>(), new BitSet() );
+        }
+    }
+
+    public Context createContext() {
+        // no need for context
+        return null;
+    }
+
+    /**
+     * Writes the given registered object, numbering it in the given identity table before its fields,
+     * so that they can refer back to it. The schema fingerprint of its class is written only the first time
+     * the class is met in the stream.
+     */
+    private void writeObject( DataOutputStream out, Object object, Map<Object, Integer> written, BitSet described ) throws IOException {
+        int classId = classIds.get( object.getClass() );
+        writeVarInt( out, classId );
+        ClassSchema schema = getSchema( object.getClass() );
+        if ( !described.get( classId ) ) {
+            out.writeInt( schema.fingerprint );
+            described.set( classId );
+        }
+        written.put( object, written.size() );
+        for ( ClassFieldAccessor accessor : schema.accessors ) {
+            writeField( out, accessor, object, written, described );
+        }
+    }
+
+    private Object readObject( DataInputStream in, ClassLoader classLoader, List<Object> read, BitSet described ) throws IOException, ClassNotFoundException {
+        int classId = readVarInt( in );
+        if ( classId < 0 || classId >= classes.size() ) {
+            throw new InvalidClassException( "Unknown registered class id " + classId );
+        }
+        Class<?> clazz = classes.get( classId );
+        ClassSchema schema = getSchema( clazz );
+        if ( !described.get( classId ) ) {
+            int fingerprint = in.readInt();
+            if ( fingerprint != schema.fingerprint ) {
+                throw new InvalidClassException( clazz.getName(), "the marshalled schema doesn't match the one of the registered class, " +
+                                                                  "check that the same classes are registered in the same order and that they didn't change" );
+            }
+            described.set( classId );
+        }
+        Object object = schema.newInstance();
+        // registered before its fields are read, in the same order used while writing
+        read.add( object );
+        for ( ClassFieldAccessor accessor : schema.accessors ) {
+            readField( in, accessor, object, classLoader, read, described );
+        }
+        return object;
+    }
+
+    private void writeField( DataOutputStream out, ClassFieldAccessor accessor, Object object, Map<Object, Integer> written, BitSet described ) throws IOException {
+        Class<?> type = accessor.getFieldType();
+        if ( type == int.class ) {
+            writeVarInt( out, accessor.getIntValue( object ) );
+        } else if ( type == long.class ) {
+            out.writeLong( accessor.getLongValue( object ) );
+        } else if ( type == double.class ) {
+            out.writeDouble( accessor.getDoubleValue( object ) );
+        } else if ( type == boolean.class ) {
+            out.writeBoolean( accessor.getBooleanValue( object ) );
+        } else if ( type == float.class ) {
+            out.writeFloat( accessor.getFloatValue( object ) );
+        } else if ( type == short.class ) {
+            out.writeShort( accessor.getShortValue( object ) );
+        } else if ( type == byte.class ) {
+            out.writeByte( accessor.getByteValue( object ) );
+        } else if ( type == char.class ) {
+            out.writeChar( accessor.getCharValue( object ) );
+        } else {
+            writeValue( out, accessor.getValue( object ), written, described );
+        }
+    }
+
+    private void readField( DataInputStream in, ClassFieldAccessor accessor, Object object, ClassLoader classLoader, List<Object> read, BitSet described ) throws IOException, ClassNotFoundException {
+        Class<?> type = accessor.getFieldType();
+        if ( type == int.class ) {
+            accessor.setIntValue( object, readVarInt( in ) );
+        } else if ( type == long.class ) {
+            accessor.setLongValue( object, in.readLong() );
+        } else if ( type == double.class ) {
+            accessor.setDoubleValue( object, in.readDouble() );
+        } else if ( type == boolean.class ) {
+            accessor.setBooleanValue( object, in.readBoolean() );
+        } else if ( type == float.class ) {
+            accessor.setFloatValue( object, in.readFloat() );
+        } else if ( type == short.class ) {
+            accessor.setShortValue( object, in.readShort() );
+        } else if ( type == byte.class ) {
+            accessor.setByteValue( object, in.readByte() );
+        } else if ( type == char.class ) {
+            accessor.setCharValue( object, in.readChar() );
+        } else {
+            accessor.setValue( object, readValue( in, classLoader, read, described ) );
+        }
+    }
+
+    private void writeValue( DataOutputStream out, Object value, Map<Object, Integer> written, BitSet described ) throws IOException {
+        if ( value == null ) {
+            out.writeByte( NULL );
+        } else if ( value instanceof String ) {
+            out.writeByte( STRING );
+            writeString( out, (String) value );
+        } else if ( value instanceof Integer ) {
+            out.writeByte( INT );
+            writeVarInt( out, (Integer) value );
+        } else if ( value instanceof Long ) {
+            out.writeByte( LONG );
+            out.writeLong( (Long) value );
+        } else if ( value instanceof Double ) {
+            out.writeByte( DOUBLE );
+            out.writeDouble( (Double) value );
+        } else if ( value instanceof Boolean ) {
+            out.writeByte( BOOLEAN );
+            out.writeBoolean( (Boolean) value );
+        } else if ( value instanceof Float ) {
+            out.writeByte( FLOAT );
+            out.writeFloat( (Float) value );
+        } else if ( value instanceof Short ) {
+            out.writeByte( SHORT );
+            out.writeShort( (Short) value );
+        } else if ( value instanceof Byte ) {
+            out.writeByte( BYTE );
+            out.writeByte( (Byte) value );
+        } else if ( value instanceof Character ) {
+            out.writeByte( CHAR );
+            out.writeChar( (Character) value );
+        } else if ( value instanceof BigDecimal ) {
+            out.writeByte( BIG_DECIMAL );
+            writeString( out, value.toString() );
+        } else if ( value instanceof BigInteger ) {
+            out.writeByte( BIG_INTEGER );
+            writeString( out, value.toString() );
+        } else if ( value.getClass() == Date.class ) {
+            out.writeByte( DATE );
+            out.writeLong( ((Date) value).getTime() );
+        } else if ( value instanceof Enum ) {
+            out.writeByte( ENUM );
+            writeString( out, ((Enum<?>) value).getDeclaringClass().getName() );
+            writeString( out, ((Enum<?>) value).name() );
+        } else if ( classIds.containsKey( value.getClass() ) ) {
+            Integer reference = written.get( value );
+            if ( reference != null ) {
+                out.writeByte( BACK_REFERENCE );
+                writeVarInt( out, reference );
+            } else {
+                out.writeByte( REGISTERED );
+                writeObject( out, value, written, described );
+            }
+        } else {
+            out.writeByte( SERIALIZED );
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream os = new ObjectOutputStream( bytes )) {
+                os.writeObject( value );
+            }
+            writeVarInt( out, bytes.size() );
+            bytes.writeTo( out );
+        }
+    }
+
+    private Object readValue( DataInputStream in, ClassLoader classLoader, List<Object> read, BitSet described ) throws IOException, ClassNotFoundException {
+        byte tag = in.readByte();
+        switch ( tag ) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString( in );
+            case INT:
+                return readVarInt( in );
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case BOOLEAN:
+                return in.readBoolean();
+            case FLOAT:
+                return in.readFloat();
+            case SHORT:
+                return in.readShort();
+            case BYTE:
+                return in.readByte();
+            case CHAR:
+                return in.readChar();
+            case BIG_DECIMAL:
+                return new BigDecimal( readString( in ) );
+            case BIG_INTEGER:
+                return new BigInteger( readString( in ) );
+            case DATE:
+                return new Date( in.readLong() );
+            case ENUM:
+                Class enumClass = Class.forName( readString( in ), true, classLoader );
+                return Enum.valueOf( enumClass, readString( in ) );
+            case REGISTERED:
+                return readObject( in, classLoader, read, described );
+            case BACK_REFERENCE:
+                int reference = readVarInt( in );
+                if ( reference < 0 || reference >= read.size() ) {
+                    throw new IOException( "Invalid back reference " + reference );
+                }
+                return read.get( reference );
+            case SERIALIZED:
+                byte[] bytes = new byte[readVarInt( in )];
+                in.readFully( bytes );
+                try (ObjectInputStream is = new ObjectInputStream( new ByteArrayInputStream( bytes ) ) {
+                    @Override
+                    protected Class<?> resolveClass( ObjectStreamClass desc ) throws ClassNotFoundException {
+                        return Class.forName( desc.getName(), true, classLoader );
+                    }
+                }) {
+                    return is.readObject();
+                }
+            default:
+                throw new IOException( "Unknown value type " + tag );
+        }
+    }
+
+    private static void writeString( DataOutputStream out, String value ) throws IOException {
+        byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+        writeVarInt( out, bytes.length );
+        out.write( bytes );
+    }
+
+    private static String readString( DataInputStream in ) throws IOException {
+        byte[] bytes = new byte[readVarInt( in )];
+        in.readFully( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+    private static void writeVarInt( DataOutputStream out, int value ) throws IOException {
+        // zig-zag encoding, so that small negative numbers also take a single byte
+        int v = (value << 1) ^ (value >> 31);
+        while ( (v & ~0x7F) != 0 ) {
+            out.writeByte( (v & 0x7F) | 0x80 );
+            v >>>= 7;
+        }
+        out.writeByte( v );
+    }
+
+    private static int readVarInt( DataInputStream in ) throws IOException {
+        int v = 0;
+        for ( int shift = 0; shift < 32; shift += 7 ) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ( (b & 0x80) == 0 ) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new IOException( "Malformed variable length int" );
+    }
+
+    private ClassSchema getSchema( Class<?> clazz ) {
+        return schemas.computeIfAbsent( clazz, ClassSchema::new );
+    }
+
+    private static class ClassSchema {
+        private final Constructor<?> constructor;
+        private final ClassFieldAccessor[] accessors;
+        private final int fingerprint;
+
+        private ClassSchema( Class<?> clazz ) {
+            try {
+                constructor = clazz.getDeclaredConstructor();
+                constructor.setAccessible( true );
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException( "Class " + clazz.getName() + " must have a no-arg constructor to be marshalled with " +
+                                                    CompactBinaryResolverStrategy.class.getSimpleName() );
+            }
+
+            ClassLoader classLoader = clazz.getClassLoader() != null ? clazz.getClassLoader() : Thread.currentThread().getContextClassLoader();
+            ClassFieldAccessorCache cache = new ClassFieldAccessorCache( classLoader );
+            ClassFieldAccessorStore store = new ClassFieldAccessorStore();
+            store.setClassFieldAccessorCache( cache );
+            store.setEagerWire( true );
+
+            ClassFieldInspector inspector;
+            try {
+                inspector = ClassFieldAccessorStore.getClassFieldInspector( clazz, cache.getCacheEntry( clazz ) );
+            } catch (IOException e) {
+                throw new RuntimeException( e );
+            }
+
+            // the fields are sorted by name, so the schema doesn't depend on the order of the methods of the class
+            Set<String> properties = new TreeSet<>( inspector.getSetterMethods().keySet() );
+            for ( String fieldName : inspector.getGetterMethods().keySet() ) {
+                if ( !inspector.isNonGetter( fieldName ) && !"class".equals( fieldName ) ) {
+                    properties.add( fieldName );
+                }
+            }
+
+            List<ClassFieldAccessor> fieldAccessors = new ArrayList<>();
+            List<String> unsupported = new ArrayList<>();
+            StringBuilder schema = new StringBuilder( clazz.getName() );
+            for ( String fieldName : properties ) {
+                if ( inspector.getGetterMethods().containsKey( fieldName ) && inspector.getSetterMethods().containsKey( fieldName ) ) {
+                    ClassFieldAccessor accessor = store.getAccessor( clazz, fieldName );
+                    fieldAccessors.add( accessor );
+                    schema.append( ';' ).append( fieldName ).append( ':' ).append( accessor.getFieldType().getName() );
+                } else {
+                    unsupported.add( fieldName );
+                }
+            }
+            if ( !unsupported.isEmpty() ) {
+                throw new IllegalArgumentException( "Class " + clazz.getName() + " can't be marshalled with " +
+                                                    CompactBinaryResolverStrategy.class.getSimpleName() +
+                                                    " because the properties " + unsupported + " don't have both a getter and a setter" );
+            }
+            accessors = fieldAccessors.toArray( new ClassFieldAccessor[fieldAccessors.size()] );
+            fingerprint = fingerprint( schema.toString() );
+        }
+
+        private static int fingerprint( String schema ) {
+            // 32 bits FNV-1a hash of the schema, that unlike String.hashCode spreads also the short schemas
+            int hash = 0x811C9DC5;
+            for ( byte b : schema.getBytes( StandardCharsets.UTF_8 ) ) {
+                hash ^= b & 0xFF;
+                hash *= 0x01000193;
+            }
+            return hash;
+        }
+
+        private Object newInstance() throws IOException {
+            try {
+                return constructor.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IOException( "Unable to instance " + constructor.getDeclaringClass().getName(), e );
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CompactBinaryResolverStrategy{" +
+                "classes=" + classes +
+                ", compress=" + compress +
+                '}';
+    }
+}
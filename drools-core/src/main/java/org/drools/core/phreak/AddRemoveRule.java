@@ -24,6 +24,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 import org.drools.core.common.EventFactHandle;
 import org.drools.core.common.InternalAgenda;
@@ -71,15 +76,21 @@ import org.drools.core.spi.Tuple;
 import org.drools.core.util.FastIterator;
 import org.drools.core.util.LinkedList;
 import org.kie.api.definition.rule.Rule;
+import org.kie.internal.concurrent.ExecutorProviderFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static java.util.concurrent.CompletableFuture.runAsync;
 import static org.drools.core.phreak.SegmentUtilities.isRootNode;
 
 public class AddRemoveRule {
 
     private static final Logger log = LoggerFactory.getLogger(AddRemoveRule.class);
 
+    public static final String PARALLEL_SESSIONS_UPDATE_THRESHOLD_PROPERTY = "drools.parallelSessionsUpdateThreshold";
+
+    private static final int DEFAULT_PARALLEL_SESSIONS_UPDATE_THRESHOLD = 16;
+
     /**
      * This method is called after the rule nodes have been added to the network
      * For add tuples are processed after the segments and pmems have been adjusted
@@ -100,42 +111,64 @@ public class AddRemoveRule {
         LeftTupleNode firstSplit = getNetworkSplitPoint(tn);
         PathEndNodes pathEndNodes = getPathEndNodes(kBase, firstSplit, tn, rule, hasProtos, hasWms);
 
+        if (hasWms) {
+            // the path memory specs only depend on the network, so they are calculated once for all the sessions
+            resetPathMemSpecs(pathEndNodes, null);
+
+            RuleAdditionsBatch batch = kBase.getReteooBuilder().getRuleAdditionsBatch();
+            if (batch != null) {
+                LeftInputAdapterNode lian = getLeftInputAdapterNode(firstSplit);
+                if (isAddedWithNoSharing(firstSplit) || batch.isPending(lian)) {
+                    // the new paths don't split any segment already created in the sessions,
+                    // so the facts are inserted in them at the end of the batch
+                    batch.add(lian, collectBetaNodes(pathEndNodes));
+                    return;
+                }
+            }
+        }
+
         // Insert the facts for the new paths. This will iterate each new path from EndNode to the splitStart - but will not process the splitStart itself (as tha already exist).
         // It does not matter that the prior segments have not yet been processed for splitting, as this will only apply for branches of paths that did not exist before
 
-        for (InternalWorkingMemory wm : wms) {
-            wm.flushPropagations();
+        forEachWorkingMemory(wms, wm -> addRuleToWorkingMemory(tn, firstSplit, pathEndNodes, wm));
 
-            if (NodeTypeEnums.LeftInputAdapterNode == firstSplit.getType() && firstSplit.getAssociationsSize() == 1) {
-                // rule added with no sharing
-                insertLiaFacts(firstSplit, wm);
-            } else {
-                PathEndNodeMemories tnms = getPathEndMemories(wm, pathEndNodes);
+        if (hasWms) {
+            insertFacts( pathEndNodes, wms );
+        } else {
+            for (PathEndNode node : pathEndNodes.otherEndNodes) {
+                node.resetPathMemSpec(null);
+            }
+        }
+    }
 
-                if (tnms.subjectPmem == null) {
-                    // If the existing PathMemories are not yet initialized there are no Segments or tuples to process
-                    continue;
-                }
+    private static boolean isAddedWithNoSharing(LeftTupleNode firstSplit) {
+        return NodeTypeEnums.LeftInputAdapterNode == firstSplit.getType() && firstSplit.getAssociationsSize() == 1;
+    }
+
+    private static void addRuleToWorkingMemory(TerminalNode tn, LeftTupleNode firstSplit, PathEndNodes pathEndNodes, InternalWorkingMemory wm) {
+        wm.flushPropagations();
+
+        if (isAddedWithNoSharing(firstSplit)) {
+            // rule added with no sharing
+            insertLiaFacts(firstSplit, wm);
+        } else {
+            PathEndNodeMemories tnms = getPathEndMemories(wm, pathEndNodes);
 
-                Map<PathMemory, SegmentMemory[]> prevSmemsLookup = reInitPathMemories(tnms.otherPmems, null);
+            if (tnms.subjectPmem == null) {
+                // If the existing PathMemories are not yet initialized there are no Segments or tuples to process
+                return;
+            }
 
-                // must collect all visited SegmentMemories, for link notification
-                Set<SegmentMemory> smemsToNotify = handleExistingPaths(tn, prevSmemsLookup, tnms.otherPmems, wm, ExistingPathStrategy.ADD_STRATEGY);
+            Map<PathMemory, SegmentMemory[]> prevSmemsLookup = reInitPathMemories(tnms.otherPmems);
 
-                addNewPaths(wm, smemsToNotify, tnms.subjectPmems);
+            // must collect all visited SegmentMemories, for link notification
+            Set<SegmentMemory> smemsToNotify = handleExistingPaths(tn, prevSmemsLookup, tnms.otherPmems, wm, ExistingPathStrategy.ADD_STRATEGY);
 
-                processLeftTuples(firstSplit, wm, true, rule);
+            addNewPaths(wm, smemsToNotify, tnms.subjectPmems);
 
-                notifySegments(smemsToNotify, wm);
-            }
-        }
+            processLeftTuples(firstSplit, wm, true, tn.getRule());
 
-        if (hasWms) {
-            insertFacts( pathEndNodes, wms );
-        } else {
-            for (PathEndNode node : pathEndNodes.otherEndNodes) {
-                node.resetPathMemSpec(null);
-            }
+            notifySegments(smemsToNotify, wm);
         }
     }
 
@@ -159,46 +192,114 @@ public class AddRemoveRule {
         LeftTupleNode firstSplit = getNetworkSplitPoint(tn);
         PathEndNodes pathEndNodes = getPathEndNodes(kBase, firstSplit, tn, rule, hasProtos, hasWms);
 
-        for (InternalWorkingMemory wm : wms) {
-            wm.flushPropagations();
+        // the tuples of the removed paths are flushed in all the sessions before changing the path memory specs,
+        // that only depend on the network and then are calculated once for all the sessions
+        List<InternalWorkingMemory> wmList = new ArrayList<>(wms);
+        PathEndNodeMemories[] wmsTnms = new PathEndNodeMemories[wmList.size()];
+        forEachWorkingMemory(wmList.size(), i -> wmsTnms[i] = removePaths(tn, firstSplit, pathEndNodes, wmList.get(i)));
 
-            PathEndNodeMemories tnms = getPathEndMemories(wm, pathEndNodes);
+        if (hasWms) {
+            resetPathMemSpecs(pathEndNodes, tn);
+            forEachWorkingMemory(wmList.size(), i -> removeFromExistingPaths(tn, firstSplit, wmsTnms[i], wmList.get(i)));
+        } else {
+            for (PathEndNode node : pathEndNodes.otherEndNodes) {
+                node.resetPathMemSpec(null);
+            }
+        }
+    }
 
-            if ( !tnms.subjectPmems.isEmpty() ) {
-                if (NodeTypeEnums.LeftInputAdapterNode == firstSplit.getType() && firstSplit.getAssociationsSize() == 1) {
-                    if (tnms.subjectPmem != null) {
-                        flushStagedTuples(firstSplit, tnms.subjectPmem, wm);
-                    }
+    private static PathEndNodeMemories removePaths(TerminalNode tn, LeftTupleNode firstSplit, PathEndNodes pathEndNodes, InternalWorkingMemory wm) {
+        wm.flushPropagations();
 
-                    processLeftTuples(firstSplit, wm, false, tn.getRule());
+        PathEndNodeMemories tnms = getPathEndMemories(wm, pathEndNodes);
 
-                    removeNewPaths(wm, tnms.subjectPmems);
-                } else {
-                    flushStagedTuples(tn, tnms.subjectPmem, pathEndNodes, wm);
+        if ( !tnms.subjectPmems.isEmpty() ) {
+            if (NodeTypeEnums.LeftInputAdapterNode == firstSplit.getType() && firstSplit.getAssociationsSize() == 1) {
+                if (tnms.subjectPmem != null) {
+                    flushStagedTuples(firstSplit, tnms.subjectPmem, wm);
+                }
+            } else {
+                flushStagedTuples(tn, tnms.subjectPmem, pathEndNodes, wm);
+            }
 
-                    processLeftTuples(firstSplit, wm, false, tn.getRule());
+            processLeftTuples(firstSplit, wm, false, tn.getRule());
 
-                    removeNewPaths(wm, tnms.subjectPmems);
+            removeNewPaths(wm, tnms.subjectPmems);
+        }
+        return tnms;
+    }
 
-                    Map<PathMemory, SegmentMemory[]> prevSmemsLookup = reInitPathMemories(tnms.otherPmems, tn);
+    private static void removeFromExistingPaths(TerminalNode tn, LeftTupleNode firstSplit, PathEndNodeMemories tnms, InternalWorkingMemory wm) {
+        if ( !tnms.subjectPmems.isEmpty() && !(NodeTypeEnums.LeftInputAdapterNode == firstSplit.getType() && firstSplit.getAssociationsSize() == 1) ) {
+            Map<PathMemory, SegmentMemory[]> prevSmemsLookup = reInitPathMemories(tnms.otherPmems);
 
-                    // must collect all visited SegmentMemories, for link notification
-                    Set<SegmentMemory> smemsToNotify = handleExistingPaths(tn, prevSmemsLookup, tnms.otherPmems, wm, ExistingPathStrategy.REMOVE_STRATEGY);
+            // must collect all visited SegmentMemories, for link notification
+            Set<SegmentMemory> smemsToNotify = handleExistingPaths(tn, prevSmemsLookup, tnms.otherPmems, wm, ExistingPathStrategy.REMOVE_STRATEGY);
 
-                    notifySegments(smemsToNotify, wm);
-                }
-            }
+            notifySegments(smemsToNotify, wm);
+        }
 
-            if (tnms.subjectPmem != null && tnms.subjectPmem.isInitialized() && tnms.subjectPmem.getRuleAgendaItem().isQueued()) {
-                // SubjectPmem can be null, if it was never initialized
-                tnms.subjectPmem.getRuleAgendaItem().dequeue();
+        if (tnms.subjectPmem != null && tnms.subjectPmem.isInitialized() && tnms.subjectPmem.getRuleAgendaItem().isQueued()) {
+            // SubjectPmem can be null, if it was never initialized
+            tnms.subjectPmem.getRuleAgendaItem().dequeue();
+        }
+    }
+
+    /**
+     * Applies the given change to each working memory. The memories of the sessions are disjoint, so when there are
+     * enough sessions they are patched in parallel, provided that the changes to the network itself have been
+     * already done.
+     */
+    static void forEachWorkingMemory(Collection<InternalWorkingMemory> wms, Consumer<InternalWorkingMemory> change) {
+        List<InternalWorkingMemory> wmList = wms instanceof List ? (List<InternalWorkingMemory>) wms : new ArrayList<>(wms);
+        forEachWorkingMemory(wmList.size(), i -> change.accept(wmList.get(i)));
+    }
+
+    private static void forEachWorkingMemory(int wmsCount, IntConsumer change) {
+        int threshold = Integer.getInteger(PARALLEL_SESSIONS_UPDATE_THRESHOLD_PROPERTY, DEFAULT_PARALLEL_SESSIONS_UPDATE_THRESHOLD);
+        if (threshold < 0 || wmsCount < threshold) {
+            for (int i = 0; i < wmsCount; i++) {
+                change.accept(i);
             }
+            return;
         }
 
-        if (!hasWms) {
-            for (PathEndNode node : pathEndNodes.otherEndNodes) {
-                node.resetPathMemSpec(null);
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        CompletableFuture<?>[] results = new CompletableFuture<?>[wmsCount];
+        for (int i = 0; i < wmsCount; i++) {
+            int wmIndex = i;
+            results[i] = runAsync(() -> {
+                ClassLoader workerClassLoader = Thread.currentThread().getContextClassLoader();
+                Thread.currentThread().setContextClassLoader(contextClassLoader);
+                try {
+                    change.accept(wmIndex);
+                } finally {
+                    Thread.currentThread().setContextClassLoader(workerClassLoader);
+                }
+            }, SessionsUpdateExecutorHolder.EXECUTOR);
+        }
+        try {
+            CompletableFuture.allOf(results).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw e;
+        }
+    }
+
+    private static class SessionsUpdateExecutorHolder {
+        private static final ExecutorService EXECUTOR = ExecutorProviderFactory.getExecutorProvider().getExecutor();
+    }
+
+    private static void resetPathMemSpecs(PathEndNodes pathEndNodes, TerminalNode removingTN) {
+        for (PathEndNode node : pathEndNodes.otherEndNodes) {
+            node.resetPathMemSpec(removingTN);
+            node.getPathMemSpec();
+        }
+        for (PathEndNode node : pathEndNodes.subjectEndNodes) {
+            // initializes the lazily calculated spec, so that the sessions only read it
+            node.getPathMemSpec();
         }
     }
 
@@ -706,19 +807,12 @@ public class AddRemoveRule {
     }
 
 
-    private static Map<PathMemory, SegmentMemory[]> reInitPathMemories(List<PathMemory> pathMems, TerminalNode removingTN) {
+    private static Map<PathMemory, SegmentMemory[]> reInitPathMemories(List<PathMemory> pathMems) {
         Map<PathMemory, SegmentMemory[]> previousSmems = new HashMap<PathMemory, SegmentMemory[]>();
         for (PathMemory pmem : pathMems) {
-            // Re initialise all the PathMemories
+            // Re initialise all the PathMemories, their specs have been already reset by resetPathMemSpecs
             previousSmems.put(pmem, pmem.getSegmentMemories());
-            LeftTupleSource startRianLts = null;
-            if (!NodeTypeEnums.isTerminalNode(pmem.getPathEndNode())) {
-                RightInputAdapterNode rian = (RightInputAdapterNode) pmem.getPathEndNode();
-                startRianLts = rian.getStartTupleSource();
-            }
-            PathEndNode pathEndNode = pmem.getPathEndNode();
-            pathEndNode.resetPathMemSpec(removingTN); // re-initialise the PathMemory
-            AbstractTerminalNode.initPathMemory(pathEndNode, pmem);
+            AbstractTerminalNode.initPathMemory(pmem.getPathEndNode(), pmem);
         }
         return previousSmems;
     }
@@ -774,7 +868,25 @@ public class AddRemoveRule {
     }
 
     private static void insertFacts(PathEndNodes endNodes, Collection<InternalWorkingMemory> wms) {
+        List<BetaNode> betaNodes = collectBetaNodes(endNodes);
+
+        if (!betaNodes.isEmpty()) {
+            forEachWorkingMemory(wms, wm -> {
+                PropagationContextFactory pctxFactory = wm.getKnowledgeBase().getConfiguration().getComponentFactory().getPropagationContextFactory();
+                for (BetaNode bn : betaNodes) {
+                    final PropagationContext pctx = pctxFactory.createPropagationContext(wm.getNextPropagationIdCounter(), PropagationContext.Type.RULE_ADDITION, null, null, null);
+                    bn.getRightInput().updateSink(bn, pctx, wm);
+                }
+            });
+        }
+    }
+
+    /**
+     * Collects the beta nodes of the new paths whose right input has to be populated with the facts already inserted
+     */
+    private static List<BetaNode> collectBetaNodes(PathEndNodes endNodes) {
         Set<LeftTupleNode> visited = new HashSet<LeftTupleNode>();
+        List<BetaNode> betaNodes = new ArrayList<BetaNode>();
 
         for ( PathEndNode endNode : endNodes.subjectEndNodes ) {
             LeftTupleNode[]  nodes = endNode.getPathNodes();
@@ -787,15 +899,12 @@ public class AddRemoveRule {
                     BetaNode bn = (BetaNode) node;
 
                     if (!bn.isRightInputIsRiaNode()) {
-                        for ( InternalWorkingMemory wm : wms ) {
-                            PropagationContextFactory pctxFactory = wm.getKnowledgeBase().getConfiguration().getComponentFactory().getPropagationContextFactory();
-                            final PropagationContext pctx = pctxFactory.createPropagationContext(wm.getNextPropagationIdCounter(), PropagationContext.Type.RULE_ADDITION, null, null, null);
-                            bn.getRightInput().updateSink(bn, pctx, wm);
-                        }
+                        betaNodes.add(bn);
                     }
                 }
             }
         }
+        return betaNodes;
     }
 
     private static void deleteRightInputData(LeftTupleSink node, InternalWorkingMemory wm) {
@@ -1196,6 +1305,13 @@ public class AddRemoveRule {
         }
     }
 
+    private static LeftInputAdapterNode getLeftInputAdapterNode(LeftTupleNode node) {
+        while (node.getType() != NodeTypeEnums.LeftInputAdapterNode) {
+            node = node.getLeftTupleSource();
+        }
+        return (LeftInputAdapterNode) node;
+    }
+
     private static LeftTupleNode getNetworkSplitPoint(LeftTupleNode node) {
         while (node.getType() != NodeTypeEnums.LeftInputAdapterNode && node.getAssociationsSize() == 1) {
             node = node.getLeftTupleSource();
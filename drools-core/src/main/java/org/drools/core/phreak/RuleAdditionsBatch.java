@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.core.phreak;
+
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.drools.core.common.InternalFactHandle;
+import org.drools.core.common.InternalWorkingMemory;
+import org.drools.core.common.PropagationContextFactory;
+import org.drools.core.common.RuleBasePartitionId;
+import org.drools.core.reteoo.AlphaNode;
+import org.drools.core.reteoo.BetaNode;
+import org.drools.core.reteoo.LeftInputAdapterNode;
+import org.drools.core.reteoo.LeftInputAdapterNode.RightTupleSinkAdapter;
+import org.drools.core.reteoo.ModifyPreviousTuples;
+import org.drools.core.reteoo.NodeTypeEnums;
+import org.drools.core.reteoo.ObjectSink;
+import org.drools.core.reteoo.ObjectSource;
+import org.drools.core.spi.AlphaNodeFieldConstraint;
+import org.drools.core.spi.PropagationContext;
+import org.kie.api.definition.rule.Rule;
+
+/**
+ * Collects the rules, added to the network in the same batch, whose left input adapter is not shared with the rules
+ * already populated in the sessions. Their paths don't split any existing segment, but only need to be populated with
+ * the facts already inserted in the sessions, so this is deferred to the end of the batch where, for each session,
+ * the alpha network of each object type is visited once for all of them, instead of once for each rule.
+ *
+ * A rule of the batch can share the nodes of the former ones, since no session has created any memory for them yet:
+ * the segments are created while inserting the facts, as for a rule base built before creating the sessions.
+ */
+public class RuleAdditionsBatch {
+
+    public static final String BATCH_RULE_ADDITIONS_PROPERTY = "drools.batchRuleAdditions";
+
+    private final Set<LeftInputAdapterNode> lians = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<ObjectSource, FanOutSink> sinks = new IdentityHashMap<>();
+    private final List<ObjectSource> roots = new ArrayList<>();
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty(BATCH_RULE_ADDITIONS_PROPERTY, "true"));
+    }
+
+    boolean isPending(LeftInputAdapterNode lian) {
+        return lians.contains(lian);
+    }
+
+    void add(LeftInputAdapterNode lian, List<BetaNode> betaNodes) {
+        if (lians.add(lian)) {
+            addSink(lian.getObjectSource(), new RightTupleSinkAdapter(lian));
+        }
+        for (BetaNode bn : betaNodes) {
+            addSink(bn.getRightInput(), bn);
+        }
+    }
+
+    private void addSink(ObjectSource source, ObjectSink sink) {
+        FanOutSink fanOut = sinks.get(source);
+        if (fanOut == null) {
+            fanOut = new FanOutSink();
+            sinks.put(source, fanOut);
+            if (source.getType() == NodeTypeEnums.AlphaNode) {
+                // the alpha constraints are evaluated while visiting the facts of their parent, as AlphaNode.updateSink does
+                AlphaNode alphaNode = (AlphaNode) source;
+                addSink(alphaNode.getParentObjectSource(), new ConstraintSink(alphaNode.getConstraint(), fanOut));
+            } else {
+                roots.add(source);
+            }
+        }
+        fanOut.add(sink);
+    }
+
+    /**
+     * Inserts the facts of the sessions in the paths of the pending rules
+     */
+    public void apply(Collection<InternalWorkingMemory> wms) {
+        if (roots.isEmpty()) {
+            return;
+        }
+        AddRemoveRule.forEachWorkingMemory(wms, this::apply);
+        lians.clear();
+        sinks.clear();
+        roots.clear();
+    }
+
+    private void apply(InternalWorkingMemory wm) {
+        wm.flushPropagations();
+
+        PropagationContextFactory pctxFactory = wm.getKnowledgeBase().getConfiguration().getComponentFactory().getPropagationContextFactory();
+        PropagationContext pctx = pctxFactory.createPropagationContext(wm.getNextPropagationIdCounter(), PropagationContext.Type.RULE_ADDITION, null, null, null);
+        for (ObjectSource root : roots) {
+            root.updateSink(sinks.get(root), pctx, wm);
+        }
+    }
+
+    /**
+     * A short living sink, used only while populating the new paths, so it isn't part of the network
+     */
+    private abstract static class UpdateSink implements ObjectSink {
+
+        public void modifyObject(InternalFactHandle factHandle, ModifyPreviousTuples modifyPreviousTuples,
+                                 PropagationContext context, InternalWorkingMemory workingMemory) {
+            throw new UnsupportedOperationException("This sink only supports assertObject method calls");
+        }
+
+        public void byPassModifyToBetaNode(InternalFactHandle factHandle, ModifyPreviousTuples modifyPreviousTuples,
+                                           PropagationContext context, InternalWorkingMemory workingMemory) {
+            throw new UnsupportedOperationException("This sink only supports assertObject method calls");
+        }
+
+        public int getId() {
+            return 0;
+        }
+
+        public short getType() {
+            // as the adapters used by AlphaNode.updateSink, these sinks only forward the facts of the alpha network
+            return NodeTypeEnums.AlphaNode;
+        }
+
+        public RuleBasePartitionId getPartitionId() {
+            return RuleBasePartitionId.MAIN_PARTITION;
+        }
+
+        public int getAssociationsSize() {
+            return 0;
+        }
+
+        public int getAssociatedRuleSize() {
+            return 0;
+        }
+
+        public int getAssociationsSize(Rule rule) {
+            return 0;
+        }
+
+        public Rule[] getAssociatedRules() {
+            return new Rule[0];
+        }
+
+        public boolean isAssociatedWith(Rule rule) {
+            return false;
+        }
+
+        public void writeExternal(ObjectOutput out) {
+            // this is a short living adapter class, so no need for serialization
+        }
+
+        public void readExternal(ObjectInput in) {
+            // this is a short living adapter class, so no need for serialization
+        }
+    }
+
+    private static class FanOutSink extends UpdateSink {
+
+        private final List<ObjectSink> sinks = new ArrayList<>();
+
+        private void add(ObjectSink sink) {
+            sinks.add(sink);
+        }
+
+        public void assertObject(InternalFactHandle factHandle, PropagationContext context, InternalWorkingMemory workingMemory) {
+            for (ObjectSink sink : sinks) {
+                sink.assertObject(factHandle, context, workingMemory);
+            }
+        }
+    }
+
+    private static class ConstraintSink extends UpdateSink {
+
+        private final AlphaNodeFieldConstraint constraint;
+        private final ObjectSink sink;
+
+        private ConstraintSink(AlphaNodeFieldConstraint constraint, ObjectSink sink) {
+            this.constraint = constraint;
+            this.sink = sink;
+        }
+
+        public void assertObject(InternalFactHandle factHandle, PropagationContext context, InternalWorkingMemory workingMemory) {
+            try {
+                if (constraint.isAllowed(factHandle, workingMemory)) {
+                    sink.assertObject(factHandle, context, workingMemory);
+                }
+            } catch (RuntimeException e) {
+                // as in AlphaNode.updateSink a ClassCastException means that an old fact is no longer compatible
+                // with the updated constraint, so its propagation can be skipped
+                if (!(e.getCause() instanceof ClassCastException)) {
+                    throw e;
+                }
+            }
+        }
+    }
+}
@@ -41,6 +41,7 @@ import org.drools.core.common.NetworkNode;
 import org.drools.core.definitions.rule.impl.RuleImpl;
 import org.drools.core.impl.InternalKnowledgeBase;
 import org.drools.core.phreak.AddRemoveRule;
+import org.drools.core.phreak.RuleAdditionsBatch;
 import org.drools.core.rule.InvalidPatternException;
 import org.drools.core.rule.WindowDeclaration;
 import org.kie.api.definition.rule.Rule;
@@ -72,6 +73,8 @@ public class ReteooBuilder
 
     private IdGenerator                 idGenerator;
 
+    private transient RuleAdditionsBatch ruleAdditionsBatch;
+
     // ------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------
@@ -116,6 +119,28 @@ public class ReteooBuilder
         }
     }
 
+    /**
+     * Starts a batch of rules additions: until it is ended the facts already inserted in the sessions are propagated
+     * together to the rules that don't share any node with the others.
+     */
+    public synchronized void startRuleAdditionsBatch() {
+        if ( RuleAdditionsBatch.isEnabled() ) {
+            this.ruleAdditionsBatch = new RuleAdditionsBatch();
+        }
+    }
+
+    public synchronized void endRuleAdditionsBatch() {
+        RuleAdditionsBatch batch = this.ruleAdditionsBatch;
+        this.ruleAdditionsBatch = null;
+        if ( batch != null ) {
+            batch.apply( this.kBase.getWorkingMemories() );
+        }
+    }
+
+    public synchronized RuleAdditionsBatch getRuleAdditionsBatch() {
+        return this.ruleAdditionsBatch;
+    }
+
     public void addEntryPoint( String id ) {
         this.ruleBuilder.addEntryPoint( id,
                                         this.kBase );
@@ -16,15 +16,23 @@
 
 package org.drools.core.reteoo;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.drools.core.common.BaseNode;
 import org.drools.core.common.InternalWorkingMemory;
 import org.drools.core.common.Memory;
 import org.drools.core.common.MemoryFactory;
 import org.drools.core.impl.InternalKnowledgeBase;
+import org.drools.core.phreak.SegmentUtilities;
 import org.kie.api.KieBase;
 
 public class SegmentMemoryInitializer {
 
+    public static final String ALL_RULES = "all";
+
     public static void createAllSegmentPrototypes(KieBase kieBase) {
         InternalWorkingMemory wm = ( InternalWorkingMemory ) kieBase.newKieSession();
         Rete rete = (( InternalKnowledgeBase ) kieBase).getRete();
@@ -33,6 +41,45 @@ public class SegmentMemoryInitializer {
         }
     }
 
+    /**
+     * Eagerly creates the segment, path and node memories of the given rules in the given session, so that
+     * they aren't created when the session first propagates through them. The rules are either {@link #ALL_RULES}
+     * or a comma separated list of rule names, optionally qualified by their package.
+     */
+    public static void warmUp(InternalWorkingMemory wm, String rules) {
+        if ( ALL_RULES.equals( rules.trim() ) ) {
+            for (EntryPointNode entryPointNode : wm.getKnowledgeBase().getRete().getEntryPointNodes().values()) {
+                visitNode( wm, entryPointNode );
+            }
+            return;
+        }
+
+        Set<String> ruleNames = new HashSet<>();
+        for (String ruleName : rules.split( "," )) {
+            if ( !ruleName.trim().isEmpty() ) {
+                ruleNames.add( ruleName.trim() );
+            }
+        }
+        for (TerminalNode[] terminalNodes : wm.getKnowledgeBase().getReteooBuilder().getTerminalNodes().values()) {
+            for (TerminalNode terminalNode : terminalNodes) {
+                if ( ruleNames.contains( terminalNode.getRule().getFullyQualifiedName() ) || ruleNames.contains( terminalNode.getRule().getName() ) ) {
+                    warmUpPath( wm, terminalNode );
+                }
+            }
+        }
+    }
+
+    private static void warmUpPath(InternalWorkingMemory wm, TerminalNode terminalNode) {
+        // segments are created from the root of the path, as it happens when they are lazily created by a propagation
+        Deque<LeftTupleSource> path = new ArrayDeque<>();
+        for (LeftTupleSource node = terminalNode.getLeftTupleSource(); node != null; node = node.getLeftTupleSource()) {
+            path.push( node );
+        }
+        for (LeftTupleSource node : path) {
+            SegmentUtilities.createSegmentMemory( node, wm );
+        }
+    }
+
     private static void visitNode(InternalWorkingMemory wm, BaseNode node) {
         Sink[] sinks = node.getSinks();
         if (sinks != null) {
@@ -16,9 +16,12 @@
 
 package org.drools.core.rule;
 
+import org.drools.core.definitions.InternalKnowledgePackage;
 import org.drools.core.definitions.impl.KnowledgePackageImpl;
 import org.drools.core.definitions.rule.impl.RuleImpl;
 import org.drools.core.spi.InternalReadAccessor;
+import org.kie.api.builder.ReleaseId;
+import org.kie.memorycompiler.resources.ResourceStore;
 
 public interface DialectRuntimeData extends Cloneable {
     void removeRule( KnowledgePackageImpl pkg, RuleImpl rule );
@@ -50,4 +53,10 @@ public interface DialectRuntimeData extends Cloneable {
     default void compile(InternalReadAccessor reader) {
         throw new UnsupportedOperationException();
     }
+
+    /**
+     * Writes the resources of the given package that this dialect needs at runtime among the ones of the kjar
+     * with the given ReleaseId. Invoked by the KieBuilder once the package has been built.
+     */
+    default void writeKieModuleResources( InternalKnowledgePackage pkg, ReleaseId releaseId, ResourceStore trgMfs ) { }
 }
@@ -25,8 +25,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.drools.core.definitions.InternalKnowledgePackage;
 import org.drools.core.definitions.impl.KnowledgePackageImpl;
 import org.drools.core.definitions.rule.impl.RuleImpl;
+import org.kie.api.builder.ReleaseId;
+import org.kie.memorycompiler.resources.ResourceStore;
 
 public class DialectRuntimeRegistry
     implements
@@ -82,6 +85,12 @@ public class DialectRuntimeRegistry
         return this.dialects.get( dialect );
     }
 
+    public void writeKieModuleResources(InternalKnowledgePackage pkg, ReleaseId releaseId, ResourceStore trgMfs) {
+        for (DialectRuntimeData data : this.dialects.values()) {
+            data.writeKieModuleResources( pkg, releaseId, trgMfs );
+        }
+    }
+
     public void removeRule(KnowledgePackageImpl pkg,
                                          RuleImpl rule) {
         DialectRuntimeData dialect = this.dialects.get( rule.getDialect() );
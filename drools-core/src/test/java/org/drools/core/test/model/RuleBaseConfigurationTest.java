@@ -21,7 +21,18 @@ import org.drools.core.RuleBaseConfiguration.AssertBehaviour;
 import org.drools.core.RuleBaseConfiguration.SequentialAgenda;
 import org.drools.core.common.PriorityQueueAgendaGroupFactory;
 import org.junit.Test;
+import org.kie.api.conf.SessionsPoolOption;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import static org.junit.Assert.*;
@@ -102,4 +113,54 @@ public class RuleBaseConfigurationTest {
         assertEquals( SequentialAgenda.DYNAMIC, cfg.getSequentialAgenda() );
         assertTrue( cfg.getAgendaGroupFactory() instanceof PriorityQueueAgendaGroupFactory );
     }
+
+    /**
+     * Writes itself as the versions that didn't have the shareAccessors option, i.e. without the last written field.
+     */
+    public static class BaselineRuleBaseConfiguration extends RuleBaseConfiguration {
+
+        public BaselineRuleBaseConfiguration() { }
+
+        public BaselineRuleBaseConfiguration( Properties properties ) {
+            super( properties );
+        }
+
+        @Override
+        public void writeExternal( ObjectOutput out ) throws IOException {
+            List<Object[]> writes = new ArrayList<>();
+            super.writeExternal( (ObjectOutput) Proxy.newProxyInstance( getClass().getClassLoader(), new Class[] { ObjectOutput.class }, ( proxy, method, args ) -> {
+                writes.add( new Object[] { method, args } );
+                return null;
+            } ) );
+            try {
+                for ( Object[] write : writes.subList( 0, writes.size() - 1 ) ) {
+                    ( (Method) write[0] ).invoke( out, (Object[]) write[1] );
+                }
+            } catch ( ReflectiveOperationException e ) {
+                throw new IOException( e );
+            }
+        }
+    }
+
+    @Test
+    public void testReadConfigurationSerializedWithoutShareAccessors() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty( RuleBaseConfiguration.SHARE_ACCESSORS_PROPERTY, "true" );
+        properties.setProperty( SessionsPoolOption.PROPERTY_NAME, "5" );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try ( ObjectOutputStream out = new ObjectOutputStream( bytes ) ) {
+            out.writeObject( new BaselineRuleBaseConfiguration( properties ) );
+            out.writeObject( "next" );
+        }
+
+        try ( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) ) {
+            RuleBaseConfiguration cfg = (RuleBaseConfiguration) in.readObject();
+            assertEquals( 5, cfg.getSessionPoolSize() );
+            // the missing option is taken again from the properties
+            assertTrue( cfg.isShareAccessors() );
+            // the objects following the configuration are still readable
+            assertEquals( "next", in.readObject() );
+        }
+    }
 }
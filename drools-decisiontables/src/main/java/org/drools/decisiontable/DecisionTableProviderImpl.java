@@ -19,10 +19,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import org.drools.compiler.compiler.DecisionTableProvider;
+import org.drools.compiler.compiler.GeneratedDrlChunk;
+import org.drools.core.builder.conf.impl.XlsxStreamingConfiguration;
 import org.drools.core.util.StringUtils;
+import org.drools.decisiontable.parser.RuleSheetListener;
 import org.kie.api.io.Resource;
 import org.kie.internal.builder.DecisionTableConfiguration;
 import org.kie.internal.builder.RuleTemplateConfiguration;
@@ -63,23 +67,48 @@ public class DecisionTableProviderImpl
         return drls;
     }
 
+    @Override
+    public Iterator<GeneratedDrlChunk> loadChunksFromResource(Resource resource,
+                                                              DecisionTableConfiguration configuration,
+                                                              int rulesPerChunk) {
+        try {
+            SpreadsheetCompiler compiler = createCompiler(configuration);
+            RuleSheetListener listener = parseResource( compiler, resource, configuration );
+            return listener != null ? compiler.listenerToChunks( listener, rulesPerChunk ) : null;
+        } catch (IOException e) {
+            throw new RuntimeException( e );
+        }
+    }
+
     private String compileResource(Resource resource,
                                    DecisionTableConfiguration configuration) throws IOException {
-        SpreadsheetCompiler compiler = new SpreadsheetCompiler(configuration.isTrimCell());
+        SpreadsheetCompiler compiler = createCompiler(configuration);
+        RuleSheetListener listener = parseResource( compiler, resource, configuration );
+        return listener != null ? compiler.listenerToString( listener ) : null;
+    }
+
+    private SpreadsheetCompiler createCompiler(DecisionTableConfiguration configuration) {
+        boolean streamingXlsx = configuration instanceof XlsxStreamingConfiguration &&
+                ((XlsxStreamingConfiguration) configuration).isStreamingXlsx();
+        return new SpreadsheetCompiler(configuration.isTrimCell(), streamingXlsx);
+    }
 
+    private RuleSheetListener parseResource(SpreadsheetCompiler compiler,
+                                            Resource resource,
+                                            DecisionTableConfiguration configuration) throws IOException {
         switch ( configuration.getInputType() ) {
             case XLS :
             case XLSX :
                 if ( StringUtils.isEmpty( configuration.getWorksheetName() ) ) {
-                    return compiler.compile( resource,
-                                             InputType.XLS );
+                    return compiler.parse( resource,
+                                           InputType.XLS );
                 } else {
-                    return compiler.compile( resource.getInputStream(),
-                                             configuration.getWorksheetName() );
+                    return compiler.parse( resource.getInputStream(),
+                                           configuration.getWorksheetName() );
                 }
             case CSV : {
-                return compiler.compile( resource.getInputStream(),
-                                         InputType.CSV );
+                return compiler.parse( resource.getInputStream(),
+                                       InputType.CSV );
             }
         }
 
@@ -19,10 +19,14 @@ package org.drools.decisiontable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
+import org.drools.compiler.compiler.GeneratedDrlChunk;
 import org.drools.core.io.impl.FileSystemResource;
 import org.drools.decisiontable.parser.DecisionTableParser;
 import org.drools.decisiontable.parser.DefaultRuleSheetListener;
@@ -30,6 +34,7 @@ import org.drools.decisiontable.parser.RuleSheetListener;
 import org.drools.decisiontable.parser.xls.ExcelParser;
 import org.drools.template.model.DRLOutput;
 import org.drools.template.model.Package;
+import org.drools.template.model.Rule;
 import org.drools.template.parser.DataListener;
 import org.kie.api.io.Resource;
 import org.kie.internal.io.ResourceFactory;
@@ -46,13 +51,24 @@ public class SpreadsheetCompiler {
     protected static final transient Logger logger = LoggerFactory.getLogger(SpreadsheetCompiler.class);
 
     private final boolean trimCell;
+    private final boolean streamingXlsx;
 
     public SpreadsheetCompiler() {
         this(true);
     }
 
     public SpreadsheetCompiler(boolean trimCell) {
+        this(trimCell, false);
+    }
+
+    /**
+     * @param streamingXlsx
+     *            tells it to read the xlsx workbooks as a stream, in constant memory, using the values
+     *            of the formulas cached in the file instead of evaluating them.
+     */
+    public SpreadsheetCompiler(boolean trimCell, boolean streamingXlsx) {
         this.trimCell = trimCell;
+        this.streamingXlsx = streamingXlsx;
     }
 
     /**
@@ -110,14 +126,14 @@ public class SpreadsheetCompiler {
     public String compile(final InputStream xlsStream,
                           final InputType type,
                           final RuleSheetListener listener) {
-        type.createParser( listener ).parseFile( xlsStream );
+        createParser( type, listener ).parseFile( xlsStream );
         return listenerToString( listener );
     }
 
     public String compile(final Resource resource,
                           final InputType type,
                           final RuleSheetListener listener) {
-        parseResource( type.createParser( listener ), resource );
+        parseResource( createParser( type, listener ), resource );
         return listenerToString( listener );
     }
 
@@ -128,6 +144,99 @@ public class SpreadsheetCompiler {
         return out.getDRL();
     }
 
+    /**
+     * Generates the DRL of the decision table read by the given listener split in chunks that can be parsed
+     * independently: the first one contains everything but the rules, while each of the following ones contains
+     * at most rulesPerChunk rules. Each chunk is generated only when requested to the returned iterator.
+     *
+     * The rules are still rendered as DRL and parsed again: the condition and action cells contain DRL and Java
+     * fragments, so building the descrs directly from the sheet would require a parser for them anyway. Likewise
+     * the rows are not folded into a single parameterized rule, each of them still producing a rule of its own.
+     */
+    public Iterator<GeneratedDrlChunk> listenerToChunks( RuleSheetListener listener, int rulesPerChunk ) {
+        final Package rulePackage = listener.getRuleSet();
+        // the package declaration preceding the rules of each chunk isn't part of the whole DRL
+        final int declarationLines = countLines( renderRules( rulePackage, Collections.<Rule>emptyList() ) );
+
+        return new Iterator<GeneratedDrlChunk>() {
+            private final Iterator<Rule> rules = rulePackage.getRules().iterator();
+            private boolean headerRendered;
+            private int renderedLines;
+
+            @Override
+            public boolean hasNext() {
+                return !headerRendered || rules.hasNext();
+            }
+
+            @Override
+            public GeneratedDrlChunk next() {
+                if ( !headerRendered ) {
+                    headerRendered = true;
+                    DRLOutput out = new DRLOutput();
+                    rulePackage.renderHeaderDRL( out );
+                    String drl = out.getDRL();
+                    renderedLines = countLines( drl );
+                    return new GeneratedDrlChunk( drl, 0 );
+                }
+                if ( !rules.hasNext() ) {
+                    throw new NoSuchElementException();
+                }
+                List<Rule> chunkRules = new ArrayList<Rule>( rulesPerChunk );
+                while ( rules.hasNext() && chunkRules.size() < rulesPerChunk ) {
+                    chunkRules.add( rules.next() );
+                }
+                String drl = renderRules( rulePackage, chunkRules );
+                GeneratedDrlChunk chunk = new GeneratedDrlChunk( drl, renderedLines - declarationLines );
+                renderedLines += countLines( drl ) - declarationLines;
+                return chunk;
+            }
+        };
+    }
+
+    private static String renderRules( Package rulePackage, List<Rule> rules ) {
+        DRLOutput out = new DRLOutput();
+        rulePackage.renderRulesDRL( rules, out );
+        return out.getDRL();
+    }
+
+    private static int countLines( String drl ) {
+        int lines = 0;
+        for ( int i = 0; i < drl.length(); i++ ) {
+            if ( drl.charAt( i ) == '\n' ) {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Parses the given decision table without generating its DRL.
+     */
+    public RuleSheetListener parse( final Resource resource,
+                                    final InputType type ) {
+        final RuleSheetListener listener = new DefaultRuleSheetListener( true, trimCell );
+        parseResource( createParser( type, listener ), resource );
+        return listener;
+    }
+
+    /**
+     * Parses the given decision table without generating its DRL.
+     */
+    public RuleSheetListener parse( final InputStream stream,
+                                    final InputType type ) {
+        final RuleSheetListener listener = new DefaultRuleSheetListener( true, trimCell );
+        createParser( type, listener ).parseFile( stream );
+        return listener;
+    }
+
+    /**
+     * Parses the given worksheet of the decision table without generating its DRL.
+     */
+    public RuleSheetListener parse( final InputStream stream,
+                                    final String worksheetName ) {
+        return getRuleSheetListener( ResourceFactory.newInputStreamResource( stream ), worksheetName );
+    }
+
     private void parseResource( DecisionTableParser parser, Resource resource ) {
         if (resource instanceof FileSystemResource) {
             parser.parseFile( ( (FileSystemResource) resource ).getFile() );
@@ -192,10 +301,20 @@ public class SpreadsheetCompiler {
         final List<DataListener> listeners = new ArrayList<DataListener>();
         listeners.add(listener);
         sheetListeners.put( worksheetName, listeners );
-        parseResource( new ExcelParser( sheetListeners ), resource );
+        ExcelParser parser = new ExcelParser( sheetListeners );
+        parser.setStreaming( streamingXlsx );
+        parseResource( parser, resource );
         return listener;
     }
 
+    private DecisionTableParser createParser( InputType type, RuleSheetListener listener ) {
+        DecisionTableParser parser = type.createParser( listener );
+        if ( parser instanceof ExcelParser ) {
+            ( (ExcelParser) parser ).setStreaming( streamingXlsx );
+        }
+        return parser;
+    }
+
     private void closeStream(final InputStream stream) {
         try {
             stream.close();
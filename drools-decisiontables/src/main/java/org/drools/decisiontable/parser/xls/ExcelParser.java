@@ -19,13 +19,19 @@ package org.drools.decisiontable.parser.xls;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.openxml4j.util.ZipSecureFile;
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.CellType;
@@ -70,8 +76,10 @@ public class ExcelParser
     }
 
     public static final String DEFAULT_RULESHEET_NAME = "Decision Tables";
+
     private Map<String, List<DataListener>> _listeners = new HashMap<String, List<DataListener>>();
     private boolean _useFirstSheet;
+    private boolean _streaming;
 
     /**
      * Define a map of sheet name to listener handlers.
@@ -98,10 +106,29 @@ public class ExcelParser
         initMinInflateRatio();
     }
 
+    /**
+     * When set to true xlsx workbooks are read as a stream, in constant memory, using the values of the
+     * formulas cached in the file instead of evaluating them
+     */
+    public void setStreaming( boolean streaming ) {
+        this._streaming = streaming;
+    }
+
+    public boolean isStreaming() {
+        return _streaming;
+    }
+
     public void parseFile( InputStream inStream ) {
         try {
+            if ( _streaming ) {
+                inStream = FileMagic.prepareToCheckMagic( inStream );
+                if ( FileMagic.valueOf( inStream ) == FileMagic.OOXML ) {
+                    parseSpooledPackage( inStream );
+                    return;
+                }
+            }
             parseWorkbook( WorkbookFactory.create( inStream ) );
-        } catch ( IOException e ) {
+        } catch ( IOException | InvalidFormatException e ) {
             throw new DecisionTableParseException( "Failed to open Excel stream, " + "please check that the content is xls97 format.",
                                                    e );
         }
@@ -109,13 +136,52 @@ public class ExcelParser
 
     public void parseFile( File file ) {
         try {
+            if ( _streaming && FileMagic.valueOf( file ) == FileMagic.OOXML ) {
+                parsePackage( OPCPackage.open( file, PackageAccess.READ ) );
+                return;
+            }
             parseWorkbook( WorkbookFactory.create( file, (String)null, true ) );
-        } catch ( IOException e ) {
+        } catch ( IOException | InvalidFormatException e ) {
             throw new DecisionTableParseException( "Failed to open Excel stream, " + "please check that the content is xls97 format.",
                                                    e );
         }
     }
 
+    /**
+     * An OPCPackage opened from a stream keeps all its parts in memory, so the stream is copied
+     * in a temporary file and the package is read from it.
+     */
+    private void parseSpooledPackage( InputStream inStream ) throws IOException, InvalidFormatException {
+        File spool = File.createTempFile( "drools-dtable", ".xlsx" );
+        try {
+            Files.copy( inStream, spool.toPath(), StandardCopyOption.REPLACE_EXISTING );
+            parsePackage( OPCPackage.open( spool, PackageAccess.READ ) );
+        } finally {
+            if ( !spool.delete() ) {
+                spool.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Parses an xlsx workbook reading its sheets as a stream of xml events instead of loading them in memory.
+     */
+    public void parsePackage( OPCPackage pkg ) {
+        try {
+            StreamingExcelReader reader = new StreamingExcelReader( this, pkg );
+            if ( _useFirstSheet ) {
+                reader.parseFirstSheet( _listeners.get( DEFAULT_RULESHEET_NAME ) );
+            } else {
+                for ( String sheetName : _listeners.keySet() ) {
+                    reader.parseSheet( sheetName, _listeners.get( sheetName ) );
+                }
+            }
+        } finally {
+            // the package is only read, so it is closed without saving it
+            pkg.revert();
+        }
+    }
+
     public void parseWorkbook( Workbook workbook ) {
         try {
             try {
@@ -307,13 +373,13 @@ public class ExcelParser
         return null;
     }
 
-    private void finishSheet( List<? extends DataListener> listeners ) {
+    void finishSheet( List<? extends DataListener> listeners ) {
         for ( DataListener listener : listeners ) {
             listener.finishSheet();
         }
     }
 
-    private void newRow( List<? extends DataListener> listeners,
+    void newRow( List<? extends DataListener> listeners,
                          int row,
                          int cols ) {
         for ( DataListener listener : listeners ) {
@@ -335,7 +401,7 @@ public class ExcelParser
         }
     }
 
-    private boolean isNumericDisabled( List<? extends DataListener> listeners ) {
+    boolean isNumericDisabled( List<? extends DataListener> listeners ) {
         for ( DataListener listener : listeners ) {
             if (listener instanceof DefaultRuleSheetListener) {
                 return ((DefaultRuleSheetListener)listener).isNumericDisabled();
@@ -344,7 +410,7 @@ public class ExcelParser
         return false;
     }
 
-    private boolean doesIgnoreNumericFormat( List<? extends DataListener> listeners ) {
+    boolean doesIgnoreNumericFormat( List<? extends DataListener> listeners ) {
         for ( DataListener listener : listeners ) {
             if (listener instanceof DefaultRuleSheetListener) {
                 return ((DefaultRuleSheetListener)listener).doesIgnoreNumericFormat();
@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.decisiontable.parser.xls;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.ExcelNumberFormat;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.drools.template.parser.DataListener;
+import org.drools.template.parser.DecisionTableParseException;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Reads the sheets of an xlsx workbook with a SAX parser, without loading the whole workbook in memory, pushing the
+ * content of its cells into the listeners of an {@link ExcelParser} in the same way it does with the usermodel API.
+ *
+ * Since the workbook is never evaluated, the value of a formula is the one cached in the file when it has been saved.
+ * Only the cells of the row being read and the values of the top left cells of the merged regions spanning it are kept
+ * in memory.
+ */
+class StreamingExcelReader {
+
+    private final ExcelParser parser;
+    private final OPCPackage pkg;
+    private final DataFormatter formatter = new DataFormatter( Locale.ENGLISH );
+
+    private XSSFReader reader;
+    private ReadOnlySharedStringsTable sharedStrings;
+    private StylesTable styles;
+
+    StreamingExcelReader( ExcelParser parser, OPCPackage pkg ) {
+        this.parser = parser;
+        this.pkg = pkg;
+    }
+
+    void parseFirstSheet( List<? extends DataListener> listeners ) {
+        parseSheet( null, listeners );
+    }
+
+    void parseSheet( String sheetName, List<? extends DataListener> listeners ) {
+        try {
+            init();
+            List<CellRangeAddress> mergedRanges = new ArrayList<>();
+            try (InputStream sheet = openSheet( sheetName )) {
+                parse( sheet, new MergedCellsHandler( mergedRanges ) );
+            }
+            try (InputStream sheet = openSheet( sheetName )) {
+                parse( sheet, new SheetHandler( listeners, new MergedRanges( mergedRanges ) ) );
+            }
+            parser.finishSheet( listeners );
+        } catch (IOException | OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new DecisionTableParseException( "Failed to read the xlsx workbook", e );
+        }
+    }
+
+    private void init() throws IOException, OpenXML4JException, SAXException {
+        if ( reader == null ) {
+            reader = new XSSFReader( pkg );
+            sharedStrings = new ReadOnlySharedStringsTable( pkg );
+            styles = reader.getStylesTable();
+        }
+    }
+
+    private InputStream openSheet( String sheetName ) throws IOException, OpenXML4JException {
+        XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+        while ( sheets.hasNext() ) {
+            InputStream sheet = sheets.next();
+            if ( sheetName == null || sheetName.equals( sheets.getSheetName() ) ) {
+                return sheet;
+            }
+            sheet.close();
+        }
+        if ( sheetName == null ) {
+            throw new IllegalStateException( "The workbook doesn't contain any sheet" );
+        }
+        throw new IllegalStateException( "Could not find the sheetName (" + sheetName + ") in the workbook sheetNames." );
+    }
+
+    private static void parse( InputStream sheet, DefaultHandler handler ) throws IOException, SAXException, ParserConfigurationException {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware( true );
+        factory.setFeature( XMLConstants.FEATURE_SECURE_PROCESSING, true );
+        factory.setFeature( "http://apache.org/xml/features/disallow-doctype-decl", true );
+        XMLReader xmlReader = factory.newSAXParser().getXMLReader();
+        xmlReader.setContentHandler( handler );
+        xmlReader.parse( new InputSource( sheet ) );
+    }
+
+    private static class MergedCellsHandler extends DefaultHandler {
+
+        private final List<CellRangeAddress> mergedRanges;
+
+        private MergedCellsHandler( List<CellRangeAddress> mergedRanges ) {
+            this.mergedRanges = mergedRanges;
+        }
+
+        @Override
+        public void startElement( String uri, String localName, String qName, Attributes attributes ) {
+            if ( "mergeCell".equals( localName ) ) {
+                mergedRanges.add( CellRangeAddress.valueOf( attributes.getValue( "ref" ) ) );
+            }
+        }
+    }
+
+    /**
+     * The merged ranges of a sheet, read row by row. The ranges are sorted by their first row, and only the ones
+     * spanning the current row are kept indexed by their first column, together with the value of their top
+     * left cell, until the current row goes past their last row.
+     */
+    static class MergedRanges {
+
+        private final List<CellRangeAddress> pending;
+        private int nextPending;
+
+        private final TreeMap<Integer, CellRangeAddress> active = new TreeMap<>();
+        private final PriorityQueue<CellRangeAddress> activeByLastRow = new PriorityQueue<>( Comparator.comparingInt( CellRangeAddress::getLastRow ) );
+        private final Map<CellRangeAddress, String> values = new HashMap<>();
+
+        MergedRanges( List<CellRangeAddress> ranges ) {
+            this.pending = new ArrayList<>( ranges );
+            this.pending.sort( Comparator.comparingInt( CellRangeAddress::getFirstRow ) );
+        }
+
+        /**
+         * Moves to the given row, that can't be lower than the one of the former invocation
+         */
+        void moveTo( int row ) {
+            while ( !activeByLastRow.isEmpty() && activeByLastRow.peek().getLastRow() < row ) {
+                CellRangeAddress passed = activeByLastRow.poll();
+                active.remove( passed.getFirstColumn(), passed );
+                values.remove( passed );
+            }
+            while ( nextPending < pending.size() && pending.get( nextPending ).getFirstRow() <= row ) {
+                CellRangeAddress range = pending.set( nextPending++, null );
+                if ( range.getLastRow() >= row ) {
+                    active.put( range.getFirstColumn(), range );
+                    activeByLastRow.add( range );
+                }
+            }
+        }
+
+        /**
+         * @return the merged range containing the given column of the current row, or null if the cell isn't merged
+         */
+        CellRangeAddress get( int column ) {
+            Map.Entry<Integer, CellRangeAddress> candidate = active.floorEntry( column );
+            return candidate != null && candidate.getValue().getLastColumn() >= column ? candidate.getValue() : null;
+        }
+
+        String getValue( CellRangeAddress range ) {
+            return values.get( range );
+        }
+
+        void setValue( CellRangeAddress range, String value ) {
+            values.put( range, value );
+        }
+
+        int size() {
+            return active.size();
+        }
+    }
+
+    private class SheetHandler extends DefaultHandler {
+
+        private final List<? extends DataListener> listeners;
+        private final MergedRanges mergedRanges;
+
+        private final List<String> rowValues = new ArrayList<>();
+        private final List<Integer> rowColumns = new ArrayList<>();
+        private int lastRow = -1;
+        private int currentRow;
+        private int currentColumn;
+
+        private String cellType;
+        private int cellStyle;
+        private boolean hasFormula;
+        private boolean inValue;
+        private boolean inInlineText;
+        private boolean inPhonetic;
+        private final StringBuilder value = new StringBuilder();
+
+        private SheetHandler( List<? extends DataListener> listeners, MergedRanges mergedRanges ) {
+            this.listeners = listeners;
+            this.mergedRanges = mergedRanges;
+        }
+
+        @Override
+        public void startElement( String uri, String localName, String qName, Attributes attributes ) {
+            switch ( localName ) {
+                case "row":
+                    String rowRef = attributes.getValue( "r" );
+                    currentRow = rowRef != null ? Integer.parseInt( rowRef ) - 1 : lastRow + 1;
+                    currentColumn = -1;
+                    mergedRanges.moveTo( currentRow );
+                    rowValues.clear();
+                    rowColumns.clear();
+                    break;
+                case "c":
+                    String cellRef = attributes.getValue( "r" );
+                    currentColumn = cellRef != null ? new CellReference( cellRef ).getCol() : currentColumn + 1;
+                    cellType = attributes.getValue( "t" );
+                    String style = attributes.getValue( "s" );
+                    cellStyle = style != null ? Integer.parseInt( style ) : 0;
+                    hasFormula = false;
+                    value.setLength( 0 );
+                    break;
+                case "f":
+                    hasFormula = true;
+                    break;
+                case "v":
+                    inValue = true;
+                    break;
+                case "rPh":
+                    inPhonetic = true;
+                    break;
+                case "t":
+                    inInlineText = !inPhonetic;
+                    break;
+            }
+        }
+
+        @Override
+        public void characters( char[] ch, int start, int length ) {
+            if ( inValue || inInlineText ) {
+                value.append( ch, start, length );
+            }
+        }
+
+        @Override
+        public void endElement( String uri, String localName, String qName ) {
+            switch ( localName ) {
+                case "v":
+                    inValue = false;
+                    break;
+                case "t":
+                    inInlineText = false;
+                    break;
+                case "rPh":
+                    inPhonetic = false;
+                    break;
+                case "c":
+                    rowColumns.add( currentColumn );
+                    rowValues.add( getCellValue( currentColumn ) );
+                    break;
+                case "row":
+                    endRow();
+                    break;
+            }
+        }
+
+        private String getCellValue( int column ) {
+            CellRangeAddress merged = mergedRanges.get( column );
+            if ( merged == null ) {
+                return formatValue();
+            }
+            if ( merged.getFirstRow() == currentRow && merged.getFirstColumn() == column ) {
+                String mergedValue = formatValue();
+                mergedRanges.setValue( merged, mergedValue );
+                return mergedValue;
+            }
+            String mergedValue = mergedRanges.getValue( merged );
+            return mergedValue != null ? mergedValue : formatValue();
+        }
+
+        private void endRow() {
+            // rows missing in the file are notified as empty ones, like the usermodel based parser does
+            for ( int i = lastRow + 1; i < currentRow; i++ ) {
+                parser.newRow( listeners, i, 0 );
+            }
+            lastRow = currentRow;
+
+            int lastCellNum = rowColumns.isEmpty() ? -1 : rowColumns.get( rowColumns.size() - 1 ) + 1;
+            parser.newRow( listeners, currentRow, lastCellNum );
+            for ( int i = 0; i < rowColumns.size(); i++ ) {
+                int column = rowColumns.get( i );
+                CellRangeAddress merged = mergedRanges.get( column );
+                parser.newCell( listeners, currentRow, column, rowValues.get( i ),
+                                merged != null ? merged.getFirstColumn() : DataListener.NON_MERGED );
+            }
+        }
+
+        private String formatValue() {
+            String text = value.toString();
+            if ( cellType == null || cellType.equals( "n" ) ) {
+                return text.isEmpty() ? "" : formatNumber( Double.parseDouble( text ) );
+            }
+            switch ( cellType ) {
+                case "s":
+                    return text.isEmpty() ? "" : sharedStrings.getItemAt( Integer.parseInt( text ) ).getString();
+                case "b":
+                    return "1".equals( text ) ? "true" : "false";
+                default:
+                    // inline strings, errors and the string results of formulas
+                    return text;
+            }
+        }
+
+        private String formatNumber( double num ) {
+            CellStyle style = styles != null && cellStyle < styles.getNumCellStyles() ? styles.getStyleAt( cellStyle ) : null;
+            if ( !hasFormula && !parser.isNumericDisabled( listeners ) ) {
+                if ( parser.doesIgnoreNumericFormat( listeners ) && !isGeneralFormat( style ) ) {
+                    // If it's not GENERAL format (e.g. Percent, Currency), we don't rely on formatter
+                    return String.valueOf( num );
+                }
+                if ( num - Math.round( num ) != 0 ) {
+                    return String.valueOf( num );
+                }
+            }
+            String format = style != null ? style.getDataFormatString() : null;
+            return format != null ?
+                    formatter.formatRawCellContents( num, style.getDataFormat(), format ) :
+                    formatter.formatRawCellContents( num, 0, "General" );
+        }
+
+        private boolean isGeneralFormat( CellStyle style ) {
+            return style == null || ExcelNumberFormat.from( style ).getFormat().equalsIgnoreCase( "General" );
+        }
+    }
+}
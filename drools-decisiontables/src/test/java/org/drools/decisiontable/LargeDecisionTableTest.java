@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.decisiontable;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.drools.compiler.compiler.GeneratedDrlChunk;
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.drools.core.impl.KnowledgeBaseFactory;
+import org.drools.decisiontable.parser.RuleSheetListener;
+import org.junit.Test;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.builder.DecisionTableConfiguration;
+import org.kie.internal.builder.DecisionTableInputType;
+import org.kie.internal.builder.KnowledgeBuilder;
+import org.kie.internal.builder.KnowledgeBuilderFactory;
+import org.kie.internal.io.ResourceFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LargeDecisionTableTest {
+
+    private static final int RULES = 2500;
+
+    @Test
+    public void testChunks() {
+        SpreadsheetCompiler compiler = new SpreadsheetCompiler();
+        RuleSheetListener listener = compiler.parse( new ByteArrayInputStream( createTable( 5 ).getBytes() ), InputType.CSV );
+        List<GeneratedDrlChunk> chunks = new ArrayList<>();
+        compiler.listenerToChunks( listener, 2 ).forEachRemaining( chunks::add );
+
+        assertEquals( 4, chunks.size() );
+        assertTrue( chunks.get( 0 ).getDrl().contains( "global java.util.List list;" ) );
+        assertFalse( chunks.get( 0 ).getDrl().contains( "rule " ) );
+        assertEquals( 0, chunks.get( 0 ).getLineOffset() );
+        for (GeneratedDrlChunk chunk : chunks.subList( 1, chunks.size() )) {
+            assertTrue( chunk.getDrl().startsWith( "package org.drools.decisiontable;" ) );
+            assertFalse( chunk.getDrl().contains( "global " ) );
+        }
+        assertTrue( chunks.get( 3 ).getDrl().contains( "\"Age_4\"" ) );
+
+        // each line of the rules of a chunk is the same of the whole DRL, once shifted by the offset of the chunk
+        String[] drlLines = compiler.listenerToString( listener ).split( "\n", -1 );
+        int lines = chunks.get( 0 ).getDrl().split( "\n", -1 ).length - 1;
+        for (GeneratedDrlChunk chunk : chunks.subList( 1, chunks.size() )) {
+            // the first line is the package declaration and the last one is empty
+            String[] chunkLines = chunk.getDrl().split( "\n", -1 );
+            for (int i = 1; i < chunkLines.length - 1; i++) {
+                assertEquals( drlLines[i + chunk.getLineOffset()], chunkLines[i] );
+            }
+            lines += chunkLines.length - 2;
+        }
+        assertEquals( drlLines.length - 1, lines );
+    }
+
+    @Test
+    public void testParserErrorsReferToTheWholeDrl() {
+        String table = createTable( RULES ).replace( "\"Age_2300\",\"2300\"", "\"Age_2300\",\"2300 +\"" );
+
+        DecisionTableConfiguration dtconf = KnowledgeBuilderFactory.newDecisionTableConfiguration();
+        dtconf.setInputType( DecisionTableInputType.CSV );
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newByteArrayResource( table.getBytes() ), ResourceType.DTABLE, dtconf );
+        assertTrue( kbuilder.hasErrors() );
+
+        String[] drlLines = new SpreadsheetCompiler().compile( new ByteArrayInputStream( table.getBytes() ), InputType.CSV ).split( "\n" );
+        int expectedLine = 0;
+        for (int i = 0; i < drlLines.length; i++) {
+            if ( drlLines[i].contains( "age == 2300 +" ) ) {
+                expectedLine = i + 1;
+            }
+        }
+        final int errorLine = expectedLine;
+        assertTrue( kbuilder.getErrors().toString(),
+                    kbuilder.getErrors().stream().anyMatch( error -> error.getLines().length > 0 && error.getLines()[0] == errorLine ) );
+    }
+
+    @Test
+    public void testBuildLargeTableInChunks() {
+        DecisionTableConfiguration dtconf = KnowledgeBuilderFactory.newDecisionTableConfiguration();
+        dtconf.setInputType( DecisionTableInputType.CSV );
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+        kbuilder.add( ResourceFactory.newByteArrayResource( createTable( RULES ).getBytes() ), ResourceType.DTABLE, dtconf );
+        assertFalse( kbuilder.getErrors().toString(), kbuilder.hasErrors() );
+
+        InternalKnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+        kbase.addPackages( kbuilder.getKnowledgePackages() );
+        assertEquals( RULES, kbase.getPackage( "org.drools.decisiontable" ).getRules().size() );
+
+        KieSession ksession = kbase.newKieSession();
+        List<Object> list = new ArrayList<>();
+        ksession.setGlobal( "list", list );
+        Person person = new Person( "Mario" );
+        person.setAge( RULES - 1 );
+        ksession.insert( person );
+        assertEquals( 1, ksession.fireAllRules() );
+        assertEquals( RULES - 1, list.get( 0 ) );
+        ksession.dispose();
+    }
+
+    private static String createTable( int rules ) {
+        StringBuilder sb = new StringBuilder();
+        sb.append( "\"RuleSet\",\"org.drools.decisiontable\"\n" );
+        sb.append( "\"Import\",\"org.drools.decisiontable.Person\"\n" );
+        sb.append( "\"Variables\",\"java.util.List list\"\n" );
+        sb.append( ",,\n" );
+        sb.append( "\"RuleTable Age\",,\n" );
+        sb.append( "\"NAME\",\"CONDITION\",\"ACTION\"\n" );
+        sb.append( ",\"Person\",\n" );
+        sb.append( ",\"age == $param\",\"list.add($param);\"\n" );
+        sb.append( "\"name\",\"age\",\"add\"\n" );
+        for (int i = 0; i < rules; i++) {
+            sb.append( "\"Age_" ).append( i ).append( "\",\"" ).append( i ).append( "\",\"" ).append( i ).append( "\"\n" );
+        }
+        return sb.toString();
+    }
+}
@@ -887,4 +887,16 @@ public class SpreadsheetCompilerUnitTest {
             System.clearProperty( "drools.excelParser.minInflateRatio" );
         }
     }
+
+    @Test
+    public void testStreamingXlsx() {
+        System.setProperty( "drools.excelParser.minInflateRatio", "0.001" );
+        try {
+            final String drl = new SpreadsheetCompiler().compile( "/data/Sample2.xlsx", InputType.XLS );
+            final String streamedDrl = new SpreadsheetCompiler( true, true ).compile( "/data/Sample2.xlsx", InputType.XLS );
+            assertEquals( drl, streamedDrl );
+        } finally {
+            System.clearProperty( "drools.excelParser.minInflateRatio" );
+        }
+    }
 }
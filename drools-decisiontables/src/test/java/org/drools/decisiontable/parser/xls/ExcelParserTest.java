@@ -18,11 +18,17 @@ package org.drools.decisiontable.parser.xls;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddress;
@@ -70,4 +76,87 @@ public class ExcelParserTest {
         assertEquals(FIRST_CELL_CONTENT, sheet.getRow(rangeIfMerged.getFirstRow()).getCell(rangeIfMerged.getFirstColumn()).getStringCellValue());
     }
 
+    @Test
+    public void testStreamingParserProducesSameEvents() throws Exception {
+        Workbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet( ExcelParser.DEFAULT_RULESHEET_NAME );
+        Row row = sheet.createRow( 0 );
+        row.createCell( 0 ).setCellValue( FIRST_CELL_CONTENT );
+        row.createCell( 1 ).setCellValue( 42 );
+        row.createCell( 2 ).setCellValue( 4.2 );
+        row.createCell( 3 ).setCellValue( true );
+        row.createCell( 4 ).setCellFormula( "B1*2" );
+        row = sheet.createRow( 3 );
+        row.createCell( 1 ).setCellValue( "merged" );
+        row.createCell( 2 );
+        row.createCell( 3 ).setCellValue( LAST_CELL_VALUE );
+        sheet.addMergedRegion( new CellRangeAddress( 3, 4, 1, 2 ) );
+        sheet.createRow( 4 ).createCell( 2 );
+        workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        workbook.write( out );
+        workbook.close();
+
+        List<String> events = parse( out.toByteArray(), false );
+        assertEquals( events, parse( out.toByteArray(), true ) );
+        assertTrue( events.contains( "cell 0,4 = 84" ) );
+        assertTrue( events.contains( "cell 4,2 = merged (1)" ) );
+    }
+
+    @Test
+    public void testMergedRangesAreEvictedOncePassed() {
+        CellRangeAddress first = new CellRangeAddress( 0, 1, 0, 2 );
+        CellRangeAddress second = new CellRangeAddress( 1, 3, 4, 4 );
+        CellRangeAddress third = new CellRangeAddress( 5, 5, 1, 3 );
+        StreamingExcelReader.MergedRanges ranges = new StreamingExcelReader.MergedRanges( Arrays.asList( third, second, first ) );
+
+        ranges.moveTo( 0 );
+        assertEquals( first, ranges.get( 2 ) );
+        assertNull( ranges.get( 3 ) );
+        assertNull( ranges.get( 4 ) );
+        ranges.setValue( first, FIRST_CELL_CONTENT );
+
+        ranges.moveTo( 1 );
+        assertEquals( first, ranges.get( 0 ) );
+        assertEquals( second, ranges.get( 4 ) );
+        assertEquals( FIRST_CELL_CONTENT, ranges.getValue( first ) );
+
+        ranges.moveTo( 2 );
+        assertNull( ranges.get( 0 ) );
+        assertNull( ranges.getValue( first ) );
+        assertEquals( second, ranges.get( 4 ) );
+        assertEquals( 1, ranges.size() );
+
+        ranges.moveTo( 5 );
+        assertNull( ranges.get( 4 ) );
+        assertEquals( third, ranges.get( 3 ) );
+        assertEquals( 1, ranges.size() );
+    }
+
+    private static List<String> parse( byte[] workbook, boolean streaming ) {
+        List<String> events = new ArrayList<>();
+        ExcelParser parser = new ExcelParser( new DataListener() {
+            @Override
+            public void startSheet( String name ) { }
+
+            @Override
+            public void finishSheet() {
+                events.add( "finish" );
+            }
+
+            @Override
+            public void newRow( int rowNumber, int columns ) {
+                events.add( "row " + rowNumber + " (" + columns + ")" );
+            }
+
+            @Override
+            public void newCell( int row, int column, String value, int mergedColStart ) {
+                events.add( "cell " + row + "," + column + " = " + value + ( mergedColStart != NON_MERGED ? " (" + mergedColStart + ")" : "" ) );
+            }
+        } );
+        parser.setStreaming( streaming );
+        parser.parseFile( new ByteArrayInputStream( workbook ) );
+        return events;
+    }
 }
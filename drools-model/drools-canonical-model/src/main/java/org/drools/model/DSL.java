@@ -73,6 +73,7 @@ import org.drools.model.impl.From2Impl;
 import org.drools.model.impl.From3Impl;
 import org.drools.model.impl.From4Impl;
 import org.drools.model.impl.GlobalImpl;
+import org.drools.model.impl.PrototypeFieldExtractor;
 import org.drools.model.impl.PrototypeImpl;
 import org.drools.model.impl.PrototypeVariableImpl;
 import org.drools.model.impl.TypeMetaDataImpl;
@@ -149,6 +150,10 @@ public class DSL {
         return new PrototypeVariableImpl( prototype );
     }
 
+    public static <T> Function1<PrototypeFact, T> prototypeField( Prototype prototype, String fieldName ) {
+        return new PrototypeFieldExtractor<>( prototype, fieldName );
+    }
+
     // -- Variable --
 
     public static <T> Variable<T> any(Class<T> type) {
@@ -58,6 +58,7 @@ import org.drools.model.functions.Predicate6;
 import org.drools.model.functions.Predicate7;
 import org.drools.model.functions.Predicate8;
 import org.drools.model.functions.Predicate9;
+import org.drools.model.functions.PredicateInformation;
 import org.drools.model.functions.temporal.TemporalPredicate;
 import org.drools.model.impl.DeclarationImpl;
 import org.drools.model.impl.Exchange;
@@ -75,6 +76,7 @@ import org.drools.model.impl.Query9DefImpl;
 import org.drools.model.impl.RuleBuilder;
 import org.drools.model.impl.ViewBuilder;
 import org.drools.model.index.AlphaIndexImpl;
+import org.drools.model.index.AlphaIndexPredicate;
 import org.drools.model.index.BetaIndex2Impl;
 import org.drools.model.index.BetaIndex3Impl;
 import org.drools.model.index.BetaIndex4Impl;
@@ -147,6 +149,10 @@ public class PatternDSL extends DSL {
 
         PatternDef<T> expr( String exprId, Predicate1<T> predicate, AlphaIndex<T, ?> index, ReactOn reactOn );
 
+        PatternDef<T> expr( String exprId, AlphaIndex<T, ?> index, PredicateInformation predicateInformation );
+
+        PatternDef<T> expr( String exprId, AlphaIndex<T, ?> index, PredicateInformation predicateInformation, ReactOn reactOn );
+
         <U> PatternDef<T> expr( Variable<U> var2, Predicate2<T, U> predicate );
 
         <U> PatternDef<T> expr( String exprId, Variable<U> var2, Predicate2<T, U> predicate );
@@ -347,6 +353,17 @@ public class PatternDSL extends DSL {
             return this;
         }
 
+        @Override
+        public PatternDef<T> expr( String exprId, AlphaIndex<T, ?> index, PredicateInformation predicateInformation ) {
+            return expr( exprId, index, predicateInformation, null );
+        }
+
+        @Override
+        public PatternDef<T> expr( String exprId, AlphaIndex<T, ?> index, PredicateInformation predicateInformation, ReactOn reactOn ) {
+            items.add( new PatternExpr1<>( exprId, new Predicate1.Impl<>( new AlphaIndexPredicate<>( index, predicateInformation ) ), index, reactOn ) );
+            return this;
+        }
+
         @Override
         public <U> PatternDef<T> expr( Variable<U> var2, Predicate2<T, U> predicate ) {
             items.add( new PatternExpr2<>( var2, new Predicate2.Impl<>( predicate ), null, null ) );
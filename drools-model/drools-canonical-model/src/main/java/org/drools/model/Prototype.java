@@ -21,6 +21,12 @@ public interface Prototype extends NamedModelItem {
 
     Field[] getFields();
 
+    /**
+     * @return the position of the field with the given name in the slots of the facts of this prototype,
+     * or -1 if this prototype has no such field
+     */
+    int getFieldIndex(String name);
+
     interface Field {
         String getName();
         Class<?> getType();
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.model.impl;
+
+import java.util.Objects;
+
+import org.drools.model.Prototype;
+import org.drools.model.PrototypeFact;
+import org.drools.model.functions.Function1;
+
+/**
+ * Reads a field of a prototype fact through its slot, resolved once when the model is built, instead of
+ * looking it up by name for each evaluation. Two extractors of the same field of the same prototype are
+ * equal, so the constraints and indexes using them can be shared and hashed like the ones on class fields.
+ */
+public class PrototypeFieldExtractor<T> implements Function1<PrototypeFact, T> {
+
+    private final String prototypeName;
+    private final String fieldName;
+    private final int index;
+
+    public PrototypeFieldExtractor( Prototype prototype, String fieldName ) {
+        this.prototypeName = prototype.getFullName();
+        this.fieldName = fieldName;
+        this.index = prototype.getFieldIndex( fieldName );
+        if (index < 0) {
+            throw new IllegalArgumentException( "Unknown field " + fieldName + " in prototype " + prototypeName );
+        }
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public T apply( PrototypeFact fact ) {
+        return (T) fact.get( index );
+    }
+
+    @Override
+    public boolean equals( Object o ) {
+        if ( this == o ) return true;
+        if ( o == null || getClass() != o.getClass() ) return false;
+        PrototypeFieldExtractor<?> that = ( PrototypeFieldExtractor<?> ) o;
+        return index == that.index && prototypeName.equals( that.prototypeName );
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash( prototypeName, index );
+    }
+
+    @Override
+    public String toString() {
+        return prototypeName + "." + fieldName;
+    }
+}
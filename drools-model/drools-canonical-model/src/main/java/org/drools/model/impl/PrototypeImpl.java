@@ -16,6 +16,9 @@
 
 package org.drools.model.impl;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.drools.model.Prototype;
 
 public class PrototypeImpl implements Prototype {
@@ -23,11 +26,16 @@ public class PrototypeImpl implements Prototype {
     private final String pkg;
     private final String name;
     private final Field[] fields;
+    private final Map<String, Integer> fieldIndexes;
 
     public PrototypeImpl( String pkg, String name, Field[] fields ) {
         this.pkg = pkg;
         this.name = name;
         this.fields = fields;
+        this.fieldIndexes = new HashMap<>();
+        for (int i = 0; i < fields.length; i++) {
+            fieldIndexes.put( fields[i].getName(), i );
+        }
     }
 
     @Override
@@ -35,6 +43,12 @@ public class PrototypeImpl implements Prototype {
         return fields;
     }
 
+    @Override
+    public int getFieldIndex( String name ) {
+        Integer index = fieldIndexes.get( name );
+        return index != null ? index : -1;
+    }
+
     @Override
     public String getPackage() {
         return pkg;
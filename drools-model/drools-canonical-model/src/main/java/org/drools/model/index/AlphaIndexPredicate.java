@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.model.index;
+
+import java.util.Objects;
+
+import org.drools.model.AlphaIndex;
+import org.drools.model.Index;
+import org.drools.model.functions.Function1;
+import org.drools.model.functions.HashedExpression;
+import org.drools.model.functions.Predicate1;
+import org.drools.model.functions.PredicateInformation;
+
+/**
+ * A predicate evaluating an equality constraint against a literal only through the extractor and the right value
+ * of its alpha index. The rules of a family, like the ones generated from the rows of a decision table, that differ
+ * only by the literals they compare with share in this way the same extractor, while their literals end up in the
+ * hashed lookup table of the alpha network, instead of requiring a different predicate class for each rule.
+ */
+public class AlphaIndexPredicate<A> implements Predicate1<A>, HashedExpression {
+
+    private final Function1<A, ?> leftOperandExtractor;
+    private final Object rightValue;
+    private final boolean equal;
+    private final PredicateInformation predicateInformation;
+
+    private String expressionHash;
+
+    public AlphaIndexPredicate( AlphaIndex<A, ?> index, PredicateInformation predicateInformation ) {
+        if ( !isSupported( index ) ) {
+            throw new IllegalArgumentException( "Cannot evaluate " + index + " without a predicate" );
+        }
+        // the constraint type of the index is captured now, since negating the constraint also negates its index
+        this.leftOperandExtractor = index.getLeftOperandExtractor();
+        this.rightValue = index.getRightValue();
+        this.equal = index.getConstraintType() == Index.ConstraintType.EQUAL;
+        // there is no materialized predicate carrying the rule and the expression of the constraint for the error messages
+        this.predicateInformation = predicateInformation != null ? predicateInformation : PredicateInformation.EMPTY_PREDICATE_INFORMATION;
+    }
+
+    public static boolean isSupported( AlphaIndex<?, ?> index ) {
+        return index.getConstraintType() == Index.ConstraintType.EQUAL || index.getConstraintType() == Index.ConstraintType.NOT_EQUAL;
+    }
+
+    @Override
+    public boolean test( A a ) {
+        return Objects.equals( leftOperandExtractor.apply( a ), rightValue ) == equal;
+    }
+
+    @Override
+    public PredicateInformation predicateInformation() {
+        return predicateInformation;
+    }
+
+    @Override
+    public String getExpressionHash() {
+        if ( expressionHash == null ) {
+            expressionHash = ( equal ? "==" : "!=" ) + "(" + new Function1.Impl<>( leftOperandExtractor ) + ", " +
+                    ( rightValue != null ? rightValue.getClass().getName() + ":" + rightValue : "null" ) + ")";
+        }
+        return expressionHash;
+    }
+
+    @Override
+    public String toString() {
+        return getExpressionHash();
+    }
+}
@@ -82,12 +82,16 @@ public class CanonicalModelKieProject extends KieModuleKieProject {
         ModelWriter modelWriter = new ModelWriter();
         Collection<String> modelFiles = new HashSet<>();
         Collection<String> sourceFiles = new HashSet<>();
+        Collection<String> sharedSourceFiles = new HashSet<>();
+        List<List<String>> packageSourceFiles = new ArrayList<>();
 
         Map<String, List<String>> modelsByKBase = new HashMap<>();
         for (Map.Entry<String, ModelBuilderImpl> modelBuilder : modelBuilders.entrySet()) {
             ModelWriter.Result result = modelWriter.writeModel( srcMfs, modelBuilder.getValue().getPackageSources() );
             modelFiles.addAll( result.getModelFiles() );
             sourceFiles.addAll( result.getSourceFiles() );
+            sharedSourceFiles.addAll( result.getSharedSourceFiles() );
+            packageSourceFiles.addAll( result.getPackageSourceFiles() );
 
             List<String> modelFilesForKieBase = new ArrayList<>();
             modelFilesForKieBase.addAll( result.getModelFiles() );
@@ -105,7 +109,7 @@ public class CanonicalModelKieProject extends KieModuleKieProject {
 
         String[] sources = sourceFiles.toArray(new String[sourceFiles.size()]);
         if (sources.length != 0) {
-            CompilationResult res = getCompiler().compile(sources, srcMfs, trgMfs, getClassLoader());
+            CompilationResult res = compile(sourceFiles, sharedSourceFiles, packageSourceFiles, srcMfs, trgMfs);
 
             Stream.of(res.getErrors()).collect(groupingBy( CompilationProblem::getFileName))
                     .forEach( (name, errors) -> {
@@ -132,6 +136,18 @@ public class CanonicalModelKieProject extends KieModuleKieProject {
         modelWriter.writeModelFile(modelFiles, trgMfs, getInternalKieModule().getReleaseId());
     }
 
+    private CompilationResult compile(Collection<String> sourceFiles, Collection<String> sharedSourceFiles, List<List<String>> packageSourceFiles,
+                                      MemoryFileSystem srcMfs, MemoryFileSystem trgMfs) {
+        if (packageSourceFiles.size() > 1 && ShardedModelCompiler.isEnabled()) {
+            CompilationResult res = ShardedModelCompiler.compile(sourceFiles, sharedSourceFiles, packageSourceFiles, srcMfs, trgMfs, getClassLoader());
+            if (res != null) {
+                return res;
+            }
+        }
+        String[] sources = sourceFiles.toArray(new String[sourceFiles.size()]);
+        return getCompiler().compile(sources, srcMfs, trgMfs, getClassLoader());
+    }
+
     @Override
     protected boolean compileIncludedKieBases() {
         return false;
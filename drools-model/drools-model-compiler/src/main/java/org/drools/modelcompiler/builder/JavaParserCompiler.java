@@ -50,9 +50,7 @@ public class JavaParserCompiler {
 
     private static final Logger logger = LoggerFactory.getLogger(JavaParserCompiler.class);
 
-    private static final JavaCompiler JAVA_COMPILER = isJboss() ?
-                                                      JavaDialectConfiguration.createEclipseCompiler() :
-                                                      JavaDialectConfiguration.createDefaultCompiler();
+    private static final JavaCompiler JAVA_COMPILER = createCompiler();
 
     private static final PrettyPrinter PRETTY_PRINTER = createPrettyPrinter();
 
@@ -60,6 +58,12 @@ public class JavaParserCompiler {
         return JAVA_COMPILER;
     }
 
+    public static JavaCompiler createCompiler() {
+        return isJboss() ?
+               JavaDialectConfiguration.createEclipseCompiler() :
+               JavaDialectConfiguration.createDefaultCompiler();
+    }
+
     private static PrettyPrinter createPrettyPrinter() {
         PrettyPrinterConfiguration config = new PrettyPrinterConfiguration();
         config.setColumnAlignParameters( true );
@@ -19,6 +19,7 @@ package org.drools.modelcompiler.builder;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -59,7 +60,23 @@ public class ModelWriter {
             srcMfs.write(path, generatedFile.getData());
         }
 
-        return new Result(sourceFiles, modelFiles);
+        List<String> sharedSourceFiles = new ArrayList<>();
+        List<List<String>> packageSourceFiles = new ArrayList<>();
+        for (PackageSources pkgSources : packageSources) {
+            List<GeneratedFile> sharedFiles = new ArrayList<>();
+            pkgSources.collectSharedFiles( sharedFiles );
+            sharedSourceFiles.addAll( toPaths( sharedFiles ) );
+
+            List<GeneratedFile> packageFiles = new ArrayList<>();
+            pkgSources.collectPackageFiles( packageFiles );
+            packageSourceFiles.add( toPaths( packageFiles ) );
+        }
+
+        return new Result(sourceFiles, modelFiles, sharedSourceFiles, packageSourceFiles);
+    }
+
+    private List<String> toPaths(List<GeneratedFile> generatedFiles) {
+        return generatedFiles.stream().map( generatedFile -> basePath + "/" + generatedFile.getPath() ).collect( Collectors.toList() );
     }
 
     private String pojoName(String folderName, String nameAsString) {
@@ -94,10 +111,18 @@ public class ModelWriter {
 
         private final List<String> sourceFiles;
         private final List<String> modelFiles;
+        private final List<String> sharedSourceFiles;
+        private final List<List<String>> packageSourceFiles;
 
         public Result(List<String> sourceFiles, List<String> modelFiles) {
+            this(sourceFiles, modelFiles, Collections.emptyList(), Collections.emptyList());
+        }
+
+        public Result(List<String> sourceFiles, List<String> modelFiles, List<String> sharedSourceFiles, List<List<String>> packageSourceFiles) {
             this.sourceFiles = sourceFiles;
             this.modelFiles = modelFiles;
+            this.sharedSourceFiles = sharedSourceFiles;
+            this.packageSourceFiles = packageSourceFiles;
         }
 
         public List<String> getSourceFiles() {
@@ -107,5 +132,19 @@ public class ModelWriter {
         public List<String> getModelFiles() {
             return modelFiles;
         }
+
+        /**
+         * The source files that can be referenced by the ones of other packages
+         */
+        public List<String> getSharedSourceFiles() {
+            return sharedSourceFiles;
+        }
+
+        /**
+         * The source files of each package only referenced inside that package
+         */
+        public List<List<String>> getPackageSourceFiles() {
+            return packageSourceFiles;
+        }
     }
 }
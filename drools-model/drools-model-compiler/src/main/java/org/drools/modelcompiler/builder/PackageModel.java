@@ -156,6 +156,8 @@ public class PackageModel {
     private final Map<String, TypedExpression> dateFields = new ConcurrentHashMap<>();
 
     private final Map<String, CreatedClass> lambdaClasses = new ConcurrentHashMap<>();
+    private final Map<String, CreatedClass> canonicalLambdaClasses = new ConcurrentHashMap<>();
+    private final Map<String, PredicateInformation> canonicalPredicateInformation = new ConcurrentHashMap<>();
 
     private boolean oneClassPerRule;
 
@@ -180,6 +182,20 @@ public class PackageModel {
         return lambdaClasses;
     }
 
+    /**
+     * The materialized lambdas shared by all the rules of this package, indexed by the name of their canonical class
+     */
+    public Map<String, CreatedClass> getCanonicalLambdaClasses() {
+        return canonicalLambdaClasses;
+    }
+
+    /**
+     * The information of all the constraints folded into a shared materialized predicate, indexed by the name of its canonical class
+     */
+    public Map<String, PredicateInformation> getCanonicalPredicateInformation() {
+        return canonicalPredicateInformation;
+    }
+
     public boolean isOneClassPerRule() {
         return oneClassPerRule;
     }
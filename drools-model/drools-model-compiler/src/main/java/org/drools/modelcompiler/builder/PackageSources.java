@@ -95,4 +95,23 @@ public class PackageSources {
         generatedFiles.add( domainClassSource );
         generatedFiles.addAll(lambdaClasses );
     }
+
+    /**
+     * Collects the generated files that can be referenced by the ones of other packages, i.e. the declared types,
+     * the accumulate functions and the domain classes metadata.
+     */
+    public void collectSharedFiles( List<GeneratedFile> generatedFiles ) {
+        generatedFiles.addAll( pojoSources );
+        generatedFiles.addAll( accumulateSources );
+        generatedFiles.add( domainClassSource );
+    }
+
+    /**
+     * Collects the generated files only referenced inside this package, i.e. the rules and their lambdas.
+     */
+    public void collectPackageFiles( List<GeneratedFile> generatedFiles ) {
+        generatedFiles.add( mainSource );
+        generatedFiles.addAll( ruleSources );
+        generatedFiles.addAll( lambdaClasses );
+    }
 }
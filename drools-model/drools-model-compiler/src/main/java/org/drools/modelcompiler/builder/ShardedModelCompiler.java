@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.modelcompiler.builder;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.drools.compiler.builder.impl.KnowledgeBuilderImpl;
+import org.drools.compiler.compiler.io.memory.MemoryFileSystem;
+import org.drools.core.util.ClassUtils;
+import org.kie.memorycompiler.CompilationProblem;
+import org.kie.memorycompiler.CompilationResult;
+import org.kie.memorycompiler.StoreClassLoader;
+import org.kie.memorycompiler.resources.ResourceStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compiles the sources generated for the executable model in shards, using a different compiler instance for each
+ * of them, instead of with a single invocation of the java compiler. The sources that can be referenced by other
+ * packages (declared types, accumulate functions and domain classes metadata) are compiled first, then the sources of
+ * each package are compiled in parallel against them, and finally the remaining ones, like the project class,
+ * against all the others.
+ *
+ * If the shard of a package doesn't compile, for instance because it references the rules of another package, its
+ * sources are compiled again together with the remaining ones, against the classes of all the shards that compiled,
+ * so that only the packages with cross-package references lose the parallel compilation. If the remaining sources
+ * still don't compile, the sharded compilation is abandoned, so that the sources are compiled all together and the
+ * errors are reported as usual.
+ */
+public class ShardedModelCompiler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedModelCompiler.class);
+
+    public static final String SHARDED_COMPILATION_PROPERTY = "drools.shardedModelCompilation";
+
+    private ShardedModelCompiler() { }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty(SHARDED_COMPILATION_PROPERTY, "true"));
+    }
+
+    /**
+     * Compiles the given sources, writing the resulting classes in the target file system.
+     * Returns null if the sources can't be compiled in shards, in which case nothing is written.
+     */
+    public static CompilationResult compile(Collection<String> sources, Collection<String> sharedSources, Collection<? extends Collection<String>> packageSources,
+                                            MemoryFileSystem srcMfs, MemoryFileSystem trgMfs, ClassLoader classLoader) {
+        Set<String> assigned = new LinkedHashSet<>();
+        List<String> shared = assign(sharedSources, sources, assigned);
+        List<List<String>> shards = new ArrayList<>();
+        for (Collection<String> pkgSources : packageSources) {
+            List<String> shard = assign(pkgSources, sources, assigned);
+            if (!shard.isEmpty()) {
+                shards.add(shard);
+            }
+        }
+        List<String> unassigned = sources.stream().filter(source -> !assigned.contains(source)).collect(Collectors.toList());
+
+        Map<String, byte[]> compiled = new HashMap<>();
+        List<CompilationProblem> warnings = new ArrayList<>();
+
+        if (!compileShard(shared, srcMfs, compiled, classLoader, compiled, warnings)) {
+            logger.info("Unable to compile the executable model in shards, compiling it at once");
+            return null;
+        }
+
+        List<Map<String, byte[]>> shardsOutput = new ArrayList<>();
+        List<List<CompilationProblem>> shardsWarnings = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            shardsOutput.add(new HashMap<>());
+            shardsWarnings.add(new ArrayList<>());
+        }
+        boolean[] shardsCompiled = new boolean[shards.size()];
+        try {
+            KnowledgeBuilderImpl.ForkJoinPoolHolder.COMPILER_POOL.submit(() ->
+                    IntStream.range(0, shards.size()).parallel()
+                            .forEach(i -> shardsCompiled[i] = compileShard(shards.get(i), srcMfs, compiled, classLoader, shardsOutput.get(i), shardsWarnings.get(i)))
+            ).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Executable model compilation failed or interrupted", e);
+        }
+
+        // the packages whose shard didn't compile are compiled again with the remaining sources, against all the other shards
+        List<String> remaining = new ArrayList<>();
+        int failedShards = 0;
+        for (int i = 0; i < shards.size(); i++) {
+            if (shardsCompiled[i]) {
+                compiled.putAll(shardsOutput.get(i));
+                warnings.addAll(shardsWarnings.get(i));
+            } else {
+                remaining.addAll(shards.get(i));
+                failedShards++;
+            }
+        }
+        if (failedShards > 0) {
+            logger.info(failedShards + " of " + shards.size() + " packages of the executable model can't be compiled in parallel, " +
+                        "likely because of cross-package references, compiling them after the others");
+        }
+        remaining.addAll(unassigned);
+
+        if (!compileShard(remaining, srcMfs, compiled, classLoader, compiled, warnings)) {
+            logger.info("Unable to compile the executable model in shards, compiling it at once");
+            return null;
+        }
+
+        compiled.forEach(trgMfs::write);
+        return new CompilationResult(warnings.toArray(new CompilationProblem[warnings.size()]));
+    }
+
+    private static List<String> assign(Collection<String> candidates, Collection<String> sources, Set<String> assigned) {
+        List<String> result = new ArrayList<>();
+        for (String candidate : candidates) {
+            if (sources.contains(candidate) && assigned.add(candidate)) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    private static boolean compileShard(List<String> shard, MemoryFileSystem srcMfs, Map<String, byte[]> compiled, ClassLoader classLoader,
+                                        Map<String, byte[]> output, List<CompilationProblem> warnings) {
+        if (shard.isEmpty()) {
+            return true;
+        }
+        CompilationResult result = JavaParserCompiler.createCompiler().compile(shard.toArray(new String[shard.size()]),
+                                                                              srcMfs,
+                                                                              new ShardResourceStore(output, compiled),
+                                                                              new CompiledClassLoader(classLoader, compiled));
+        if (result.getErrors().length > 0) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Unable to compile the shard " + shard + ": " + result.getErrors()[0]);
+            }
+            return false;
+        }
+        Collections.addAll(warnings, result.getWarnings());
+        return true;
+    }
+
+    private static class ShardResourceStore implements ResourceStore {
+
+        private final Map<String, byte[]> output;
+        private final Map<String, byte[]> compiled;
+
+        private ShardResourceStore(Map<String, byte[]> output, Map<String, byte[]> compiled) {
+            this.output = output;
+            this.compiled = compiled;
+        }
+
+        @Override
+        public void write(String pResourceName, byte[] pResourceData) {
+            output.put(pResourceName, pResourceData);
+        }
+
+        @Override
+        public void write(String pResourceName, byte[] pResourceData, boolean createFolder) {
+            write(pResourceName, pResourceData);
+        }
+
+        @Override
+        public byte[] read(String pResourceName) {
+            byte[] bytes = output.get(pResourceName);
+            return bytes != null ? bytes : compiled.get(pResourceName);
+        }
+
+        @Override
+        public void remove(String pResourceName) {
+            output.remove(pResourceName);
+        }
+    }
+
+    /**
+     * Makes the classes compiled by the former shards visible to the compiler of the next ones.
+     */
+    private static class CompiledClassLoader extends ClassLoader implements StoreClassLoader {
+
+        private final Map<String, byte[]> compiled;
+        private Map<String, byte[]> store;
+
+        private CompiledClassLoader(ClassLoader parent, Map<String, byte[]> compiled) {
+            super(parent);
+            this.compiled = compiled;
+        }
+
+        @Override
+        public synchronized Map<String, byte[]> getStore() {
+            if (store == null) {
+                store = new HashMap<>();
+                if (getParent() instanceof StoreClassLoader && ((StoreClassLoader) getParent()).getStore() != null) {
+                    store.putAll(((StoreClassLoader) getParent()).getStore());
+                }
+                store.putAll(compiled);
+            }
+            return store;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = compiled.get(ClassUtils.convertClassToResourcePath(name));
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+        @Override
+        public InputStream getResourceAsStream(String name) {
+            byte[] bytes = compiled.get(name);
+            return bytes != null ? new ByteArrayInputStream(bytes) : super.getResourceAsStream(name);
+        }
+    }
+}
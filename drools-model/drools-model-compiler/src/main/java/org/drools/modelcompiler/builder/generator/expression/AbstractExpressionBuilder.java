@@ -390,17 +390,18 @@ public abstract class AbstractExpressionBuilder {
         String exprId = drlxParseResult.getExprId(context.getPackageModel().getExprIdGenerator());
 
         String stringConstraint = drlxParseResult.getOriginalDrlConstraint();
-        String ruleName = context.getRuleName();
-        String ruleFileName = Optional.ofNullable(context.getRuleDescr())
-                                      .map(RuleDescr::getResource)
-                                      .map(Resource::getSourcePath)
-                                      .orElse("");
-
-        context.getPackageModel().indexConstraint(exprId, stringConstraint, ruleName, ruleFileName);
+        context.getPackageModel().indexConstraint(exprId, stringConstraint, context.getRuleName(), getRuleFileName());
 
         return exprId;
     }
 
+    protected String getRuleFileName() {
+        return Optional.ofNullable(context.getRuleDescr())
+                       .map(RuleDescr::getResource)
+                       .map(Resource::getSourcePath)
+                       .orElse("");
+    }
+
     protected void sortUsedDeclarations(SingleDrlxParseSuccess drlxParseResult) {
         // Binding parameters have to be sorted as when they're sorted lexicographically when invoked
         // See Accumulate.initInnerDeclarationCache()
@@ -20,17 +20,23 @@ package org.drools.modelcompiler.builder.generator.expression;
 import java.util.Collection;
 import java.util.Optional;
 
+import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.body.Parameter;
 import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.BooleanLiteralExpr;
 import com.github.javaparser.ast.expr.ClassExpr;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.IntegerLiteralExpr;
 import com.github.javaparser.ast.expr.LambdaExpr;
 import com.github.javaparser.ast.expr.LiteralExpr;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
 import com.github.javaparser.ast.expr.StringLiteralExpr;
 import com.github.javaparser.ast.stmt.ExpressionStmt;
+import org.drools.model.Index;
+import org.drools.model.functions.PredicateInformation;
 import org.drools.modelcompiler.builder.generator.RuleContext;
 import org.drools.modelcompiler.builder.generator.TypedExpression;
 import org.drools.modelcompiler.builder.generator.drlxparse.DrlxParseSuccess;
@@ -38,6 +44,7 @@ import org.drools.modelcompiler.builder.generator.drlxparse.MultipleDrlxParseSuc
 import org.drools.modelcompiler.builder.generator.drlxparse.SingleDrlxParseSuccess;
 
 import static java.util.Optional.of;
+import static org.drools.model.functions.PredicateInformation.defaultToEmptyString;
 import static org.drools.modelcompiler.builder.generator.DrlxParseUtil.THIS_PLACEHOLDER;
 import static org.drools.modelcompiler.builder.generator.DrlxParseUtil.findLastMethodInChain;
 import static org.drools.modelcompiler.builder.generator.DrlxParseUtil.toClassOrInterfaceType;
@@ -107,11 +114,66 @@ public class PatternExpressionBuilder extends AbstractExpressionBuilder {
 
         exprDSL = buildExpression(drlxParseResult, exprDSL);
         MethodCallExpr finalExprDSL = exprDSL;
-        buildIndexedBy(drlxParseResult).ifPresent(finalExprDSL::addArgument);
+        Optional<MethodCallExpr> indexedBy = buildIndexedBy(drlxParseResult);
+        boolean evaluatedByAlphaIndex = indexedBy.isPresent() && isEvaluatedByAlphaIndex(drlxParseResult, exprDSL);
+        if (evaluatedByAlphaIndex) {
+            // the predicate is replaced by the alpha index, so that the rules differing only by this literal share the same classes
+            exprDSL.getArgument(1).remove();
+        }
+        indexedBy.ifPresent(finalExprDSL::addArgument);
+        if (evaluatedByAlphaIndex) {
+            finalExprDSL.addArgument(buildPredicateInformation(drlxParseResult));
+        }
         buildReactOn(drlxParseResult).ifPresent(finalExprDSL::addArgument);
         return exprDSL;
     }
 
+    /**
+     * An equality between a property of the pattern and a literal can be evaluated only through its alpha index,
+     * when the equality of the boxed values has the same semantic of the generated predicate.
+     */
+    private boolean isEvaluatedByAlphaIndex(SingleDrlxParseSuccess drlxParseResult, MethodCallExpr exprDSL) {
+        if (!isEvaluateByAlphaIndexEnabled() || drlxParseResult.isBetaConstraint() || drlxParseResult.isUnification() || drlxParseResult.getExprBinding() != null) {
+            return false;
+        }
+        // only the exprId and the predicate, i.e. no other variable or oopath is involved
+        if (exprDSL.getScope().isPresent() || exprDSL.getArguments().size() != 2 || !exprDSL.getArgument(1).isLambdaExpr()) {
+            return false;
+        }
+        Index.ConstraintType constraintType = drlxParseResult.getDecodeConstraintType();
+        if (constraintType != Index.ConstraintType.EQUAL && constraintType != Index.ConstraintType.NOT_EQUAL) {
+            return false;
+        }
+        Expression left = drlxParseResult.getLeft().getExpression();
+        if (!(left instanceof MethodCallExpr) || !((MethodCallExpr) left).getArguments().isEmpty() ||
+                !((MethodCallExpr) left).getScope().map(scope -> scope.toString().equals(THIS_PLACEHOLDER)).orElse(false)) {
+            return false;
+        }
+        Class<?> leftType = drlxParseResult.getLeft().getRawClass();
+        Expression right = drlxParseResult.getRight().getExpression();
+        if (right instanceof StringLiteralExpr) {
+            return leftType == String.class;
+        }
+        if (right instanceof IntegerLiteralExpr) {
+            return leftType == int.class || leftType == Integer.class;
+        }
+        if (right instanceof BooleanLiteralExpr) {
+            return leftType == boolean.class || leftType == Boolean.class;
+        }
+        return false;
+    }
+
+    private boolean isEvaluateByAlphaIndexEnabled() {
+        return context.getKbuilder() != null && context.getKbuilder().getBuilderConfiguration().isEvaluateByAlphaIndex();
+    }
+
+    private ObjectCreationExpr buildPredicateInformation(SingleDrlxParseSuccess drlxParseResult) {
+        return new ObjectCreationExpr(null, toClassOrInterfaceType(PredicateInformation.class),
+                                      NodeList.nodeList(new StringLiteralExpr().setString(defaultToEmptyString(drlxParseResult.getOriginalDrlConstraint())),
+                                                        new StringLiteralExpr().setString(defaultToEmptyString(context.getRuleName())),
+                                                        new StringLiteralExpr().setString(getRuleFileName())));
+    }
+
     private MethodCallExpr buildExpression(SingleDrlxParseSuccess drlxParseResult, MethodCallExpr exprDSL) {
         if (drlxParseResult.isTemporal()) {
             return buildTemporalExpression(drlxParseResult, exprDSL);
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.modelcompiler.facttemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.drools.core.facttemplates.Fact;
+import org.drools.core.facttemplates.FactTemplate;
+import org.drools.model.PrototypeFact;
+
+/**
+ * A prototype fact storing its values in an array with a slot for each field of its template,
+ * so that the access by index done by the constraints costs a single array read.
+ */
+public class ArrayFactImpl implements Fact, PrototypeFact {
+
+    private static AtomicLong staticFactId = new AtomicLong();
+
+    private final FactTemplate factTemplate;
+    private final long factId;
+
+    private final Object[] values;
+
+    public ArrayFactImpl( FactTemplate factTemplate ) {
+        this.factId = staticFactId.addAndGet(1);
+        this.factTemplate = factTemplate;
+        this.values = new Object[factTemplate.getNumberOfFields()];
+    }
+
+    @Override
+    public long getFactId() {
+        return factId;
+    }
+
+    @Override
+    public FactTemplate getFactTemplate() {
+        return factTemplate;
+    }
+
+    @Override
+    public Object getFieldValue(int index) {
+        return values[index];
+    }
+
+    @Override
+    public Object getFieldValue(String key) {
+        int index = factTemplate.getFieldTemplateIndex(key);
+        return index >= 0 ? values[index] : null;
+    }
+
+    @Override
+    public void setFieldValue(int index, Object value) {
+        values[index] = value;
+    }
+
+    @Override
+    public void setFieldValue(String key, Object value) {
+        int index = factTemplate.getFieldTemplateIndex(key);
+        if (index < 0) {
+            throw new IllegalArgumentException( "Unknown field " + key + " in fact template " + factTemplate.getName() );
+        }
+        values[index] = value;
+    }
+
+    @Override
+    public Object get( int index ) {
+        return getFieldValue( index );
+    }
+
+    @Override
+    public Object get( String name ) {
+        return getFieldValue( name );
+    }
+
+    @Override
+    public void set( String name, Object value ) {
+        setFieldValue( name, value );
+    }
+
+    @Override
+    public void set( int index, Object value ) {
+        setFieldValue( index, value );
+    }
+}
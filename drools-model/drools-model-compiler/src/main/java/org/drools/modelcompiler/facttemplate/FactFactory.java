@@ -34,6 +34,14 @@ public class FactFactory {
         return new HashMapFactImpl( prototypeToFactTemplate( prototype, new KnowledgePackageImpl( prototype.getPackage() ) ) );
     }
 
+    public static Fact createArrayBasedFact(FactTemplate factTemplate) {
+        return new ArrayFactImpl( factTemplate );
+    }
+
+    public static Fact createArrayBasedFact(Prototype prototype) {
+        return new ArrayFactImpl( prototypeToFactTemplate( prototype, new KnowledgePackageImpl( prototype.getPackage() ) ) );
+    }
+
     public static FactTemplate prototypeToFactTemplate( Prototype prototype, KnowledgePackageImpl pkg ) {
         FieldTemplate[] fieldTemplates = new FieldTemplate[prototype.getFields().length];
         for (int i = 0; i < prototype.getFields().length; i++) {
@@ -21,6 +21,7 @@ import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -32,6 +33,7 @@ import java.util.stream.Stream;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
 import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.expr.AssignExpr;
 import com.github.javaparser.ast.expr.Expression;
@@ -72,6 +74,8 @@ public class ExecModelLambdaPostProcessor {
     Logger logger = LoggerFactory.getLogger(ExecModelLambdaPostProcessor.class.getCanonicalName());
 
     private final Map<String, CreatedClass> lambdaClasses;
+    private final Map<String, CreatedClass> canonicalLambdaClasses;
+    private final Map<String, PredicateInformation> canonicalPredicateInformation;
     private final String packageName;
     private final String ruleClassName;
     private final Collection<String> imports;
@@ -82,6 +86,7 @@ public class ExecModelLambdaPostProcessor {
     private final boolean isParallel;
 
     private final List<Runnable> toBeReplacedLambdas = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, CreatedClass> equivalentLambdaClasses = new ConcurrentHashMap<>();
 
     private static final PrettyPrinterConfiguration configuration = new PrettyPrinterConfiguration();
 
@@ -91,9 +96,13 @@ public class ExecModelLambdaPostProcessor {
 
     public static final PrettyPrinter MATERIALIZED_LAMBDA_PRETTY_PRINTER = new PrettyPrinter(configuration);
 
+    private static final String CANONICAL_PARAMETER_PREFIX = "_p";
+
     public ExecModelLambdaPostProcessor(PackageModel pkgModel,
                                         CompilationUnit cu) {
         this.lambdaClasses = pkgModel.getLambdaClasses();
+        this.canonicalLambdaClasses = pkgModel.getCanonicalLambdaClasses();
+        this.canonicalPredicateInformation = pkgModel.getCanonicalPredicateInformation();
         this.packageName = pkgModel.getName();
         this.ruleClassName = pkgModel.getRulesFileNameWithPackage();
         this.imports = pkgModel.getImports();
@@ -113,6 +122,8 @@ public class ExecModelLambdaPostProcessor {
                                         CompilationUnit cu,
                                         boolean isParallel) {
         this.lambdaClasses = new ConcurrentHashMap<>();
+        this.canonicalLambdaClasses = new ConcurrentHashMap<>();
+        this.canonicalPredicateInformation = new ConcurrentHashMap<>();
         this.packageName = packageName;
         this.ruleClassName = ruleClassName;
         this.imports = imports;
@@ -387,13 +398,67 @@ public class ExecModelLambdaPostProcessor {
 
     private void replaceLambda(LambdaExpr lambdaExpr, Function<Optional<String>, MaterializedLambda> lambdaExtractor, Optional<String> exprId) {
         try {
-            CreatedClass aClass = lambdaExtractor.apply(exprId).create(lambdaExpr.clone(), imports, staticImports);
-            lambdaClasses.put(aClass.getClassNameWithPackage(), aClass);
-            ClassOrInterfaceType type = toClassOrInterfaceType(aClass.getClassNameWithPackage());
-            FieldAccessExpr lambdaInstance = lambdaInstance(type);
-            toBeReplacedLambdas.add( () -> lambdaExpr.replace(lambdaInstance) );
+            MaterializedLambda materializedLambda = lambdaExtractor.apply(exprId);
+            CreatedClass aClass = materializedLambda.create(lambdaExpr.clone(), imports, staticImports);
+            // lambdas differing only by the names of their parameters share the same canonical class name,
+            // which is computed without the predicate information as it's merged below from all the folded constraints
+            String canonicalName = lambdaExtractor.apply(Optional.empty()).create(canonicalLambda(lambdaExpr), imports, staticImports).getClassNameWithPackage();
+            equivalentLambdaClasses.merge(canonicalName, aClass, ExecModelLambdaPostProcessor::firstByName);
+            toBeReplacedLambdas.add( () -> {
+                CreatedClass sharedClass = canonicalLambdaClasses.computeIfAbsent(canonicalName, equivalentLambdaClasses::get);
+                if (materializedLambda instanceof MaterializedLambdaPredicate) {
+                    PredicateInformation mergedInfo = canonicalPredicateInformation.merge(canonicalName, getPredicateInformation(exprId),
+                                                                                          MaterializedLambdaPredicate::mergePredicateInformation);
+                    MaterializedLambdaPredicate.replacePredicateInformation(sharedClass, mergedInfo);
+                }
+                lambdaClasses.put(sharedClass.getClassNameWithPackage(), sharedClass);
+                lambdaExpr.replace(lambdaInstance(toClassOrInterfaceType(sharedClass.getClassNameWithPackage())));
+            } );
         } catch (DoNotConvertLambdaException e) {
             logger.debug("Cannot externalize lambdas {}", e.getMessage());
         }
     }
+
+    Map<String, CreatedClass> getLambdaClasses() {
+        return lambdaClasses;
+    }
+
+    private static CreatedClass firstByName(CreatedClass c1, CreatedClass c2) {
+        return c1.getClassNameWithPackage().compareTo(c2.getClassNameWithPackage()) <= 0 ? c1 : c2;
+    }
+
+    /*
+        Renames the parameters of the lambda after their position, so that the same lambda written with different
+        binding names in different rules is materialized only once. The lambda is left unchanged if its body declares
+        or references a name that could clash with the renamed parameters.
+     */
+    static LambdaExpr canonicalLambda(LambdaExpr lambdaExpr) {
+        LambdaExpr canonical = lambdaExpr.clone();
+        Map<String, String> renamed = new HashMap<>();
+        NodeList<Parameter> parameters = canonical.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            renamed.put(parameters.get(i).getNameAsString(), CANONICAL_PARAMETER_PREFIX + i);
+        }
+
+        Statement body = canonical.getBody();
+        boolean clashing = body.findAll(VariableDeclarator.class).stream().anyMatch(vd -> isClashing(vd.getNameAsString(), renamed)) ||
+                body.findAll(Parameter.class).stream().anyMatch(p -> isClashing(p.getNameAsString(), renamed)) ||
+                body.findAll(NameExpr.class).stream().anyMatch(n -> renamed.containsValue(n.getNameAsString()));
+        if (clashing) {
+            return lambdaExpr.clone();
+        }
+
+        parameters.forEach(p -> p.setName(renamed.get(p.getNameAsString())));
+        body.findAll(NameExpr.class).forEach(n -> {
+            String newName = renamed.get(n.getNameAsString());
+            if (newName != null) {
+                n.setName(newName);
+            }
+        });
+        return canonical;
+    }
+
+    private static boolean isClashing(String name, Map<String, String> renamed) {
+        return renamed.containsKey(name) || renamed.containsValue(name);
+    }
 }
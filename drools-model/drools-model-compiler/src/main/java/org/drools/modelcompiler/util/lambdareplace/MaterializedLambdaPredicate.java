@@ -22,8 +22,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import com.github.javaparser.ast.Modifier;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.body.EnumDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
@@ -63,10 +65,36 @@ public class MaterializedLambdaPredicate extends MaterializedLambda {
     void createMethodsDeclaration(EnumDeclaration classDeclaration) {
         createTestMethod(classDeclaration);
         if (!predicateInformation.isEmpty()) {
-            createPredicateInformationMethod(classDeclaration);
+            createPredicateInformationMethod(classDeclaration, predicateInformation);
         }
     }
 
+    /*
+        Several constraints can be folded into the same shared predicate, so its predicateInformation method has to
+        report the rules of all of them and not only the ones of the constraint that generated the class
+     */
+    static void replacePredicateInformation(CreatedClass createdClass, PredicateInformation predicateInformation) {
+        EnumDeclaration classDeclaration = createdClass.getCompilationUnit().findFirst(EnumDeclaration.class)
+                .orElseThrow(() -> new IllegalStateException("Missing class declaration in " + createdClass.getClassNameWithPackage()));
+        classDeclaration.getMethodsByName("predicateInformation").forEach(Node::remove);
+        if (!predicateInformation.isEmpty()) {
+            createPredicateInformationMethod(classDeclaration, predicateInformation);
+        }
+    }
+
+    static PredicateInformation mergePredicateInformation(PredicateInformation info1, PredicateInformation info2) {
+        if (info1.isEmpty() || info1.equals(info2)) {
+            return info2;
+        }
+        if (info2.isEmpty()) {
+            return info1;
+        }
+        PredicateInformation merged = new PredicateInformation(info1.getStringConstraint());
+        Stream.of(info1, info2).forEach(info -> info.getRuleNameMap().forEach((ruleFileName, ruleNames) ->
+                ruleNames.forEach(ruleName -> merged.addRuleName(ruleName, ruleFileName))));
+        return merged;
+    }
+
     private void createTestMethod(EnumDeclaration classDeclaration) {
         MethodDeclaration methodDeclaration = classDeclaration.addMethod("test", Modifier.Keyword.PUBLIC);
         methodDeclaration.setThrownExceptions(NodeList.nodeList(toClassOrInterfaceType(java.lang.Exception.class)));
@@ -79,7 +107,7 @@ public class MaterializedLambdaPredicate extends MaterializedLambda {
         methodDeclaration.setBody(new BlockStmt(NodeList.nodeList(new ReturnStmt(clone.getExpression()))));
     }
 
-    private void createPredicateInformationMethod(EnumDeclaration classDeclaration) {
+    private static void createPredicateInformationMethod(EnumDeclaration classDeclaration, PredicateInformation predicateInformation) {
         MethodDeclaration methodDeclaration = classDeclaration.addMethod("predicateInformation", Modifier.Keyword.PUBLIC);
         methodDeclaration.addAnnotation("Override");
         ClassOrInterfaceType predicateInformationType = (ClassOrInterfaceType) toJPType(PredicateInformation.class);
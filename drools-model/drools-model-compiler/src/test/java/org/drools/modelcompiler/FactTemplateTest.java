@@ -26,9 +26,11 @@ import org.drools.core.reteoo.ObjectTypeNode;
 import org.drools.model.Index;
 import org.drools.model.Model;
 import org.drools.model.Prototype;
+import org.drools.model.PrototypeFact;
 import org.drools.model.PrototypeVariable;
 import org.drools.model.Rule;
 import org.drools.model.Variable;
+import org.drools.model.functions.Function1;
 import org.drools.model.impl.ModelImpl;
 import org.drools.modelcompiler.builder.KieBaseBuilder;
 import org.drools.modelcompiler.domain.Person;
@@ -40,6 +42,7 @@ import org.kie.api.runtime.rule.FactHandle;
 
 import static org.drools.model.DSL.field;
 import static org.drools.model.DSL.prototype;
+import static org.drools.model.DSL.prototypeField;
 import static org.drools.model.PatternDSL.alphaIndexedBy;
 import static org.drools.model.PatternDSL.betaIndexedBy;
 import static org.drools.model.PatternDSL.declarationOf;
@@ -48,6 +51,7 @@ import static org.drools.model.PatternDSL.pattern;
 import static org.drools.model.PatternDSL.reactOn;
 import static org.drools.model.PatternDSL.rule;
 import static org.drools.modelcompiler.BaseModelTest.getObjectsIntoList;
+import static org.drools.modelcompiler.facttemplate.FactFactory.createArrayBasedFact;
 import static org.drools.modelcompiler.facttemplate.FactFactory.createMapBasedFact;
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.junit.Assert.assertEquals;
@@ -202,6 +206,71 @@ public class FactTemplateTest {
         assertThat(results, hasItem(new Result("Mario is older than Mark")));
     }
 
+    @Test
+    public void testBetaWithArrayBasedFactsAndSlotExtractors() {
+        Result result = new Result();
+
+        Prototype personFact = prototype( "org.drools", "Person", field("name", String.class), field("age", Integer.class) );
+        Function1<PrototypeFact, String> name = prototypeField( personFact, "name" );
+        Function1<PrototypeFact, Integer> age = prototypeField( personFact, "age" );
+
+        assertEquals( name, prototypeField( personFact, "name" ) );
+
+        PrototypeVariable markV = declarationOf( personFact );
+        PrototypeVariable olderV = declarationOf( personFact );
+
+        Rule rule = rule( "beta" )
+                .build(
+                        pattern(markV)
+                                .expr("exprA", p -> name.apply( p ).equals( "Mark" ),
+                                        alphaIndexedBy( String.class, Index.ConstraintType.EQUAL, 0, name, "Mark" ),
+                                        reactOn( "name", "age" )),
+                        pattern(olderV)
+                                .expr("exprB", p -> !name.apply( p ).equals("Mark"),
+                                        alphaIndexedBy( String.class, Index.ConstraintType.NOT_EQUAL, 0, name, "Mark" ),
+                                        reactOn( "name" ))
+                                .expr("exprC", markV, (p1, p2) -> age.apply( p1 ) > age.apply( p2 ),
+                                        betaIndexedBy( Integer.class, Index.ConstraintType.GREATER_THAN, 1, age, age ),
+                                        reactOn( "age" )),
+                        on(olderV, markV).execute((p1, p2) -> result.setValue( p1.get( "name" ) + " is older than " + p2.get( "name" )))
+                );
+
+        Model model = new ModelImpl().addRule( rule );
+        KieBase kieBase = KieBaseBuilder.createKieBaseFromModel( model );
+
+        KieSession ksession = kieBase.newKieSession();
+
+        Fact mark = createArrayBasedFact( personFact );
+        mark.setFieldValue( "name", "Mark" );
+        mark.setFieldValue( "age", 37 );
+
+        Fact edson = createArrayBasedFact( personFact );
+        edson.setFieldValue( "name", "Edson" );
+        edson.setFieldValue( "age", 35 );
+
+        Fact mario = createArrayBasedFact( personFact );
+        mario.setFieldValue( "name", "Mario" );
+        mario.setFieldValue( "age", 40 );
+
+        FactHandle markFH = ksession.insert(mark);
+        ksession.insert(edson);
+        FactHandle marioFH = ksession.insert(mario);
+
+        ksession.fireAllRules();
+        assertEquals("Mario is older than Mark", result.getValue());
+
+        result.setValue( null );
+        ksession.delete( marioFH );
+        ksession.fireAllRules();
+        assertNull(result.getValue());
+
+        mark.setFieldValue( "age", 34 );
+        ksession.update( markFH, mark );
+
+        ksession.fireAllRules();
+        assertEquals("Edson is older than Mark", result.getValue());
+    }
+
     private boolean hasFactTemplateObjectType( KieSession ksession, String name ) {
         EntryPointNode epn = (( InternalKnowledgeBase ) ksession.getKieBase()).getRete().getEntryPointNodes().values().iterator().next();
         for (ObjectTypeNode otn : epn.getObjectTypeNodes().values()) {
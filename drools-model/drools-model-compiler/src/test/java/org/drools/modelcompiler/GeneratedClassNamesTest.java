@@ -19,6 +19,7 @@ package org.drools.modelcompiler;
 import java.util.Set;
 import java.util.UUID;
 
+import org.drools.compiler.builder.impl.KnowledgeBuilderConfigurationImpl;
 import org.drools.compiler.compiler.io.memory.MemoryFileSystem;
 import org.drools.compiler.kie.builder.impl.InternalKieModule;
 import org.drools.compiler.kie.builder.impl.KieContainerImpl;
@@ -44,6 +45,7 @@ import org.kie.api.runtime.KieSession;
 import org.kie.internal.io.ResourceFactory;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -104,6 +106,43 @@ public class GeneratedClassNamesTest extends BaseModelTest {
         assertEquals(1, fired);
     }
 
+    @Test
+    public void testGeneratedClassNamesEvaluatedByAlphaIndex() {
+        String str =
+                "import " + Person.class.getCanonicalName() + ";" +
+                     "rule R1 when\n" +
+                     "  $p : Person(name == \"Mario\")\n" +
+                     "then\n" +
+                     "  System.out.println(\"hello Mario\");\n" +
+                     "end\n" +
+                     "rule R2 when\n" +
+                     "  $p : Person(name == \"Luca\")\n" +
+                     "then\n" +
+                     "  System.out.println(\"hello Luca\");\n" +
+                     "end";
+
+        KieServices ks = KieServices.get();
+        ReleaseId releaseId = ks.newReleaseId("org.kie", "kjar-test-" + UUID.randomUUID(), "1.0");
+        KieModuleModel model = ks.newKieModuleModel();
+        model.setConfigurationProperty(KnowledgeBuilderConfigurationImpl.EVALUATE_BY_ALPHA_INDEX_PROPERTY, "true");
+
+        createKieBuilder(ks, model, releaseId, toKieFiles(new String[]{str}));
+        KieContainer kcontainer = ks.newKieContainer(releaseId);
+
+        KieModule kieModule = ((KieContainerImpl) kcontainer).getKieModuleForKBase("defaultKieBase");
+        Set<String> generatedClassNames = ((CanonicalKieModule) kieModule).getGeneratedClassNames();
+
+        // the literals are compared through the alpha index, so both the rules only need the extractor of the name
+        assertTrue(generatedClassNames.stream().anyMatch(name -> name.contains("LambdaExtractor")));
+        assertFalse(generatedClassNames.toString(), generatedClassNames.stream().anyMatch(name -> name.contains("LambdaPredicate")));
+
+        KieSession ksession = kcontainer.newKieSession();
+        ksession.insert(new Person("Mario", 40));
+        ksession.insert(new Person("Mark", 37));
+
+        assertEquals(1, ksession.fireAllRules());
+    }
+
     private void assertGeneratedClassNames(Set<String> generatedClassNames) {
         assertNotNull(generatedClassNames);
         String[] nameFragments = new String[]{"Rules", "LambdaConsequence", "LambdaPredicate", "LambdaExtractor", "DomainClassesMetadata", "ProjectModel", "$"};
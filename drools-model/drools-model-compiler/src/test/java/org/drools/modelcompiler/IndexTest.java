@@ -16,12 +16,16 @@
 
 package org.drools.modelcompiler;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import org.drools.compiler.builder.impl.KnowledgeBuilderConfigurationImpl;
 import org.drools.core.base.ClassObjectType;
 import org.drools.core.impl.InternalKnowledgeBase;
 import org.drools.core.reteoo.AlphaNode;
 import org.drools.core.reteoo.BetaNode;
+import org.drools.core.reteoo.CompositeObjectSinkAdapter;
 import org.drools.core.reteoo.EntryPointNode;
 import org.drools.core.reteoo.ObjectSink;
 import org.drools.core.reteoo.ObjectTypeNode;
@@ -29,12 +33,20 @@ import org.drools.core.rule.IndexableConstraint;
 import org.drools.core.util.DateUtils;
 import org.drools.core.util.index.IndexUtil;
 import org.drools.core.util.index.IndexUtil.ConstraintType;
+import org.drools.model.functions.Predicate1;
+import org.drools.model.functions.PredicateInformation;
+import org.drools.model.index.AlphaIndexPredicate;
+import org.drools.modelcompiler.constraints.LambdaConstraint;
 import org.drools.modelcompiler.domain.Person;
 import org.junit.Test;
 import org.kie.api.KieBase;
+import org.kie.api.KieServices;
+import org.kie.api.builder.model.KieModuleModel;
 import org.kie.api.definition.rule.Rule;
 import org.kie.api.runtime.KieSession;
+import org.kie.internal.builder.conf.AlphaNetworkCompilerOption;
 
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -368,4 +380,57 @@ public class IndexTest extends BaseModelTest {
 
         assertEquals( 1, ksession.fireAllRules() );
     }
+
+    @Test
+    public void testRuleFamilyEvaluatedByAlphaIndex() {
+        StringBuilder sb = new StringBuilder();
+        sb.append( "import " ).append( Person.class.getCanonicalName() ).append( ";\n" );
+        sb.append( "global java.util.List list;\n" );
+        for (int i = 0; i < 5; i++) {
+            sb.append( "rule R" ).append( i ).append( " when\n" );
+            sb.append( "  Person( name == \"N" ).append( i ).append( "\", age != " ).append( i ).append( " )\n" );
+            sb.append( "then\n" );
+            sb.append( "  list.add(\"R" ).append( i ).append( "\");\n" );
+            sb.append( "end\n" );
+        }
+
+        KieModuleModel model = KieServices.get().newKieModuleModel();
+        model.setConfigurationProperty( KnowledgeBuilderConfigurationImpl.EVALUATE_BY_ALPHA_INDEX_PROPERTY, "true" );
+        if (testRunType.isAlphaNetworkCompiler()) {
+            model.setConfigurationProperty( AlphaNetworkCompilerOption.PROPERTY_NAME, AlphaNetworkCompilerOption.INMEMORY.toString() );
+        }
+
+        KieSession ksession = getKieSession( model, sb.toString() );
+        List<String> list = new ArrayList<>();
+        ksession.setGlobal( "list", list );
+
+        if (!testRunType.isAlphaNetworkCompiler()) {
+            // the rules share the same network path, their literals being in the hashed lookup table of the alpha network
+            ObjectTypeNode otn = getObjectTypeNodeForClass( ksession, Person.class );
+            CompositeObjectSinkAdapter sinkAdapter = (CompositeObjectSinkAdapter) otn.getObjectSinkPropagator();
+            assertEquals( 5, sinkAdapter.getHashedSinkMap().size() );
+            if (testRunType.isExecutableModel()) {
+                for (AlphaNode alpha : sinkAdapter.getHashedSinkMap().values()) {
+                    LambdaConstraint constraint = ( LambdaConstraint ) alpha.getConstraint();
+                    Predicate1.Impl predicate = (Predicate1.Impl) constraint.getEvaluator().getConstraint().getPredicate1();
+                    assertTrue( predicate.getLambda() instanceof AlphaIndexPredicate );
+
+                    // the errors evaluating the constraint still refer its rule and expression
+                    String name = (String) constraint.getField().getValue();
+                    String ruleName = "R" + name.substring( 1 );
+                    PredicateInformation info = constraint.getPredicateInformation();
+                    assertEquals( "name == \"" + name + "\"", info.getStringConstraint() );
+                    assertEquals( Collections.singleton( ruleName ), info.getRuleNameMap().get( "src/main/resources/r0.drl" ) );
+                }
+            }
+        }
+
+        ksession.insert( new Person("N1", 2) );
+        ksession.insert( new Person("N2", 2) );
+        ksession.insert( new Person("N3", 4) );
+        ksession.insert( new Person(null, 4) );
+
+        assertEquals( 2, ksession.fireAllRules() );
+        assertTrue( list.containsAll( asList( "R1", "R3" ) ) );
+    }
 }
@@ -16,6 +16,7 @@ package org.drools.modelcompiler;
 
 import java.util.Arrays;
 
+import org.drools.modelcompiler.builder.ShardedModelCompiler;
 import org.junit.Test;
 import org.kie.api.runtime.KieSession;
 
@@ -77,6 +78,26 @@ public class PackagesIsolationTest extends BaseModelTest {
         check( str2 );
     }
 
+    @Test
+    public void testUnshardedCompilation() {
+        String str2 =
+                "package mypkg2\n" +
+                "import mypkg1.MyPojo;\n" +
+                "global java.util.List list\n" +
+                "rule R2 when\n" +
+                "  MyPojo(abc == \"test\")\n" +
+                "then\n" +
+                "  list.add(\"R2\");\n" +
+                "end";
+
+        System.setProperty( ShardedModelCompiler.SHARDED_COMPILATION_PROPERTY, "false" );
+        try {
+            check( str2 );
+        } finally {
+            System.clearProperty( ShardedModelCompiler.SHARDED_COMPILATION_PROPERTY );
+        }
+    }
+
     private void check( String str2 ) {
         String str1 =
                 "package mypkg1\n" +
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.modelcompiler.benchmark;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.core.marshalling.impl.ClassObjectMarshallingStrategyAcceptor;
+import org.drools.core.marshalling.impl.CompactBinaryResolverStrategy;
+import org.drools.core.marshalling.impl.JavaSerializableResolverStrategy;
+import org.kie.api.marshalling.ObjectMarshallingStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the round trip of a fact through the {@link CompactBinaryResolverStrategy} with the one
+ * through java serialization.
+ */
+@Fork(1)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CompactBinaryResolverStrategyBenchmark {
+
+    public static class Point implements Serializable {
+        private int x;
+        private int y;
+        private String label;
+
+        public Point() { }
+
+        public Point( int x, int y, String label ) {
+            this.x = x;
+            this.y = y;
+            this.label = label;
+        }
+
+        public int getX() { return x; }
+        public void setX( int x ) { this.x = x; }
+        public int getY() { return y; }
+        public void setY( int y ) { this.y = y; }
+        public String getLabel() { return label; }
+        public void setLabel( String label ) { this.label = label; }
+    }
+
+    private ObjectMarshallingStrategy compact;
+    private ObjectMarshallingStrategy java;
+    private ClassLoader classLoader;
+    private Point point;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        compact = new CompactBinaryResolverStrategy( Point.class );
+        java = new JavaSerializableResolverStrategy( ClassObjectMarshallingStrategyAcceptor.DEFAULT );
+        classLoader = getClass().getClassLoader();
+        point = new Point( -3, 42, "p" );
+        System.out.println( "Point marshalled in " + compact.marshal( null, null, point ).length + " bytes by the compact strategy, " +
+                            java.marshal( null, null, point ).length + " bytes by java serialization" );
+    }
+
+    @Benchmark
+    public Object compactRoundTrip() throws IOException, ClassNotFoundException {
+        return compact.unmarshal( null, null, compact.marshal( null, null, point ), classLoader );
+    }
+
+    @Benchmark
+    public Object javaSerializationRoundTrip() throws IOException, ClassNotFoundException {
+        return java.unmarshal( null, null, java.marshal( null, null, point ), classLoader );
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.modelcompiler.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.compiler.kie.builder.impl.KieBaseImage;
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.drools.modelcompiler.domain.Person;
+import org.kie.api.KieBase;
+import org.kie.api.io.ResourceType;
+import org.kie.internal.utils.KieHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares building a KieBase out of its DRL with restoring it from its {@link KieBaseImage}.
+ */
+@Fork(1)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 10, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class KieBaseImageBenchmark {
+
+    @Param({"100", "1000"})
+    private int numberOfRules;
+
+    private String drl;
+    private byte[] image;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder rulesBuilder = new StringBuilder();
+        rulesBuilder.append("package org.drools.modelcompiler.benchmarks;\n");
+        rulesBuilder.append("import " + Person.class.getCanonicalName() + ";\n");
+        for (int i = 1; i <= numberOfRules; i++) {
+            rulesBuilder.append("rule R_" + i + " when\n");
+            rulesBuilder.append("  $p1 : Person(name == \"Mark_" + i + "\")\n");
+            rulesBuilder.append("  $p2 : Person(name != \"Mark_" + i + "\", age > $p1.age)\n");
+            rulesBuilder.append("then\n");
+            rulesBuilder.append("  System.out.println($p2.getName() + \" is older than \" + $p1.getName());\n");
+            rulesBuilder.append("end\n");
+        }
+        drl = rulesBuilder.toString();
+        image = KieBaseImage.write( (InternalKnowledgeBase) buildFromDrl() );
+        System.out.println( "KieBase image of " + numberOfRules + " rules: " + image.length + " bytes" );
+    }
+
+    @Benchmark
+    public KieBase buildFromDrl() {
+        return new KieHelper().addContent( drl, ResourceType.DRL ).build();
+    }
+
+    @Benchmark
+    public KieBase restoreFromImage() throws IOException, ClassNotFoundException {
+        return KieBaseImage.read( image, getClass().getClassLoader() );
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.modelcompiler.builder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.drools.compiler.compiler.io.memory.MemoryFileSystem;
+import org.junit.Test;
+import org.kie.memorycompiler.CompilationResult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ShardedModelCompilerTest {
+
+    private static final String A = "src/main/java/pkga/A.java";
+    private static final String B = "src/main/java/pkgb/B.java";
+    private static final String C = "src/main/java/pkgc/C.java";
+
+    @Test
+    public void testCrossPackageReferenceFallsBackOnlyForItsShard() {
+        MemoryFileSystem srcMfs = new MemoryFileSystem();
+        srcMfs.write( A, "package pkga; public class A { public String name() { return new pkgb.B().name(); } }".getBytes() );
+        srcMfs.write( B, "package pkgb; public class B { public String name() { return \"B\"; } }".getBytes() );
+        srcMfs.write( C, "package pkgc; public class C { }".getBytes() );
+
+        MemoryFileSystem trgMfs = new MemoryFileSystem();
+        List<String> sources = Arrays.asList( A, B, C );
+        CompilationResult result = ShardedModelCompiler.compile( sources, Collections.emptyList(),
+                                                                 Arrays.asList( Collections.singletonList( A ), Collections.singletonList( B ), Collections.singletonList( C ) ),
+                                                                 srcMfs, trgMfs, getClass().getClassLoader() );
+
+        // the shard of pkga can't be compiled alone, but it is compiled again after the one of pkgb
+        assertNotNull( result );
+        assertEquals( 0, result.getErrors().length );
+        assertNotNull( trgMfs.read( "pkga/A.class" ) );
+        assertNotNull( trgMfs.read( "pkgb/B.class" ) );
+        assertNotNull( trgMfs.read( "pkgc/C.class" ) );
+    }
+
+    @Test
+    public void testUncompilableSourcesAreLeftToTheWholeCompilation() {
+        MemoryFileSystem srcMfs = new MemoryFileSystem();
+        srcMfs.write( A, "package pkga; public class A { public String name() { return new pkgb.Missing().name(); } }".getBytes() );
+        srcMfs.write( B, "package pkgb; public class B { }".getBytes() );
+
+        MemoryFileSystem trgMfs = new MemoryFileSystem();
+        CompilationResult result = ShardedModelCompiler.compile( Arrays.asList( A, B ), Collections.emptyList(),
+                                                                 Arrays.asList( Collections.singletonList( A ), Collections.singletonList( B ) ),
+                                                                 srcMfs, trgMfs, getClass().getClassLoader() );
+
+        assertNull( result );
+        assertNull( trgMfs.read( "pkgb/B.class" ) );
+    }
+}
@@ -18,15 +18,25 @@ package org.drools.modelcompiler.util.lambdareplace;
 
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import org.drools.model.functions.PredicateInformation;
 import org.junit.Before;
 import org.junit.Test;
 
 import static com.github.javaparser.StaticJavaParser.parseResource;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.drools.modelcompiler.util.lambdareplace.MaterializedLambdaTestUtils.verifyCreatedClass;
 
 public class ExecModelLambdaPostProcessorTest {
@@ -51,6 +61,68 @@ public class ExecModelLambdaPostProcessorTest {
         verifyCreatedClass(expectedResult, actual);
     }
 
+    @Test
+    public void shareLambdasDifferingOnlyByParameterNames() {
+        CompilationUnit cu = StaticJavaParser.parse(
+                "class Rules {\n" +
+                "    public void rules() {\n" +
+                "        pattern(olderV).expr(\"exprA\", (Person p) -> p.getAge() > 18);\n" +
+                "        pattern(youngerV).expr(\"exprB\", (Person $young) -> $young.getAge() > 18);\n" +
+                "        pattern(markV).expr(\"exprC\", (Person p) -> p.getAge() > 30);\n" +
+                "    }\n" +
+                "}");
+
+        new ExecModelLambdaPostProcessor("mypackage", "rulename", new ArrayList<>(), new ArrayList<>(), new HashMap<>(), new HashMap<>(), cu, true).convertLambdas();
+
+        List<MethodCallExpr> exprs = cu.findAll(MethodCallExpr.class, mc -> mc.getNameAsString().equals("expr"));
+        assertEquals(3, exprs.size());
+        assertEquals(exprs.get(0).getArgument(1), exprs.get(1).getArgument(1));
+        assertNotEquals(exprs.get(0).getArgument(1), exprs.get(2).getArgument(1));
+    }
+
+    @Test
+    public void sharedPredicateReportsTheRulesOfAllItsConstraints() {
+        CompilationUnit cu = StaticJavaParser.parse(
+                "class Rules {\n" +
+                "    public void rules() {\n" +
+                "        pattern(olderV).expr(\"exprA\", (Person p) -> p.getAge() > 18);\n" +
+                "        pattern(youngerV).expr(\"exprB\", (Person $young) -> $young.getAge() > 18);\n" +
+                "    }\n" +
+                "}");
+
+        Map<String, PredicateInformation> predicateInformation = new HashMap<>();
+        predicateInformation.put("exprA", new PredicateInformation("age > 18", "Older", "older.drl"));
+        predicateInformation.put("exprB", new PredicateInformation("age > 18", "Younger", "younger.drl"));
+
+        ExecModelLambdaPostProcessor postProcessor = new ExecModelLambdaPostProcessor("mypackage", "rulename", new ArrayList<>(), new ArrayList<>(),
+                                                                                      new HashMap<>(), predicateInformation, cu, false);
+        postProcessor.convertLambdas();
+
+        List<MethodCallExpr> exprs = cu.findAll(MethodCallExpr.class, mc -> mc.getNameAsString().equals("expr"));
+        assertEquals(exprs.get(0).getArgument(1), exprs.get(1).getArgument(1));
+
+        Collection<CreatedClass> lambdaClasses = postProcessor.getLambdaClasses().values();
+        assertEquals(1, lambdaClasses.size());
+        MethodDeclaration predicateInformationMethod = lambdaClasses.iterator().next().getCompilationUnit()
+                .findFirst(MethodDeclaration.class, m -> m.getNameAsString().equals("predicateInformation"))
+                .orElseThrow(RuntimeException::new);
+        List<String> reportedRules = predicateInformationMethod.findAll(MethodCallExpr.class, mc -> mc.getNameAsString().equals("addRuleName"))
+                .stream()
+                .map(mc -> mc.getArgument(1).asStringLiteralExpr().getValue() + ":" + mc.getArgument(0).asStringLiteralExpr().getValue())
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList("older.drl:Older", "younger.drl:Younger"), reportedRules);
+    }
+
+    @Test
+    public void doNotRenameClashingParameters() {
+        LambdaExpr lambda = StaticJavaParser.parseExpression("(Person p, Person _p0) -> p.getAge() > _p0.getAge()").asLambdaExpr();
+        assertEquals(lambda, ExecModelLambdaPostProcessor.canonicalLambda(lambda));
+
+        LambdaExpr other = StaticJavaParser.parseExpression("(Person a, Person b) -> a.getAge() > b.getAge()").asLambdaExpr();
+        assertEquals(StaticJavaParser.parseExpression("(Person _p0, Person _p1) -> _p0.getAge() > _p1.getAge()"),
+                     ExecModelLambdaPostProcessor.canonicalLambda(other));
+    }
+
     private MethodDeclaration getMethodChangingName(CompilationUnit inputCU, String className, String methodName) {
         return inputCU.getClassByName(className)
                 .map(c -> c.getMethodsByName(methodName))
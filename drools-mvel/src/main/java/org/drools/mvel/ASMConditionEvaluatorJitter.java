@@ -26,6 +26,7 @@ import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -117,6 +118,16 @@ public class ASMConditionEvaluatorJitter {
                                                    EvaluatorWrapper[] operators,
                                                    ClassLoader classLoader,
                                                    Tuple tuple) {
+        return jitEvaluator( expression, condition, declarations, operators, classLoader, tuple, null );
+    }
+
+    public static ConditionEvaluator jitEvaluator( String expression,
+                                                   Condition condition,
+                                                   Declaration[] declarations,
+                                                   EvaluatorWrapper[] operators,
+                                                   ClassLoader classLoader,
+                                                   Tuple tuple,
+                                                   BiConsumer<String, byte[]> bytecodeListener) {
         ClassGenerator generator = new ClassGenerator(getUniqueClassName(), classLoader)
                 .setInterfaces(ConditionEvaluator.class)
                 .addStaticField(ACC_PRIVATE | ACC_FINAL, "EXPRESSION", String.class, expression)
@@ -135,7 +146,9 @@ public class ASMConditionEvaluatorJitter {
                 }
             }, Declaration[].class);
 
-            return generator.newInstance(Declaration[].class, declarations);
+            ConditionEvaluator evaluator = generator.newInstance(Declaration[].class, declarations);
+            notifyBytecode(generator, bytecodeListener);
+            return evaluator;
         }
 
         generator.addField(ACC_PRIVATE | ACC_FINAL, "operators", EvaluatorWrapper[].class);
@@ -148,7 +161,19 @@ public class ASMConditionEvaluatorJitter {
             }
         }, Declaration[].class, EvaluatorWrapper[].class);
 
-        return generator.newInstance(Declaration[].class, declarations, EvaluatorWrapper[].class, operators);
+        ConditionEvaluator evaluator = generator.newInstance(Declaration[].class, declarations, EvaluatorWrapper[].class, operators);
+        notifyBytecode(generator, bytecodeListener);
+        return evaluator;
+    }
+
+    /**
+     * Notifies the bytecode of the class just defined by the given generator, that is the same byte[] it has been
+     * defined from, so that recording an evaluator doesn't generate its class twice.
+     */
+    private static void notifyBytecode(ClassGenerator generator, BiConsumer<String, byte[]> bytecodeListener) {
+        if (bytecodeListener != null) {
+            bytecodeListener.accept(generator.getClassName(), generator.getBytecode());
+        }
     }
 
     private static String getUniqueClassName() {
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.mvel;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
+
+import org.drools.core.RuleBaseConfiguration;
+import org.kie.internal.concurrent.ExecutorProviderFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.drools.core.util.Drools.isJmxAvailable;
+
+/**
+ * The background compiler used to jit the MVEL constraints that crossed the jitting threshold.
+ * The jittings run on the executor provided by the ExecutorProviderFactory, so they use the threads
+ * managed by the container when available, but at most a few of them at the same time and with a
+ * bounded queue, so jitting never runs on (nor saturates the threads of) the sessions evaluating
+ * the constraints. When the queue is full the jitting request is rejected and the constraint keeps
+ * being interpreted until it crosses the threshold again.
+ *
+ * The number of concurrent jittings and the size of the queue are taken from the KieBase configuration:
+ * <pre>
+ * drools.jitting.threads = &lt;1...n&gt;
+ * drools.jitting.queueSize = &lt;1...n&gt;
+ * </pre>
+ * and the KieBases with the same settings share the same executor.
+ */
+public class ConstraintJittingExecutor implements ConstraintJittingExecutorMXBean {
+
+    public static final String JITTING_THREADS_PROPERTY = RuleBaseConfiguration.JITTING_THREADS_PROPERTY;
+    public static final String JITTING_QUEUE_SIZE_PROPERTY = RuleBaseConfiguration.JITTING_QUEUE_SIZE_PROPERTY;
+
+    public static final String MBEAN_NAME = "org.kie:type=ConstraintJitting";
+
+    private static final Logger logger = LoggerFactory.getLogger(ConstraintJittingExecutor.class);
+
+    private static final Map<String, ConstraintJittingExecutor> executors = new ConcurrentHashMap<>();
+
+    public static ConstraintJittingExecutor get() {
+        return get( RuleBaseConfiguration.getDefaultInstance() );
+    }
+
+    public static ConstraintJittingExecutor get(RuleBaseConfiguration conf) {
+        return get( conf.getJittingThreads(), conf.getJittingQueueSize() );
+    }
+
+    private static ConstraintJittingExecutor get(int threads, int queueSize) {
+        return executors.computeIfAbsent( threads + "/" + queueSize,
+                                          k -> new ConstraintJittingExecutor( threads, queueSize ).registerMBean() );
+    }
+
+    private final Executor executor;
+    private final int maxThreads;
+    private final int queueSize;
+    private final BlockingQueue<Runnable> queue;
+    private final AtomicInteger workers = new AtomicInteger();
+    private final AtomicInteger activeJittings = new AtomicInteger();
+
+    private final AtomicLong jittedCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalJittingTime = new AtomicLong();
+    private final AtomicLong maxJittingTime = new AtomicLong();
+
+    ConstraintJittingExecutor(int threads, int queueSize) {
+        this( ExecutorProviderFactory.getExecutorProvider().getExecutor(), threads, queueSize );
+    }
+
+    ConstraintJittingExecutor(Executor executor, int threads, int queueSize) {
+        this.executor = executor;
+        this.maxThreads = threads;
+        this.queueSize = queueSize;
+        this.queue = new ArrayBlockingQueue<>( queueSize );
+    }
+
+    /**
+     * Enqueues the given jitting task.
+     *
+     * @return false if the task has been rejected because the jitting queue is full
+     */
+    public boolean submit(Runnable jittingTask) {
+        if ( !queue.offer( jittingTask ) ) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+        startWorker();
+        return true;
+    }
+
+    private void startWorker() {
+        for (int current = workers.get(); current < maxThreads; current = workers.get()) {
+            if ( workers.compareAndSet( current, current + 1 ) ) {
+                try {
+                    executor.execute( this::drain );
+                } catch (RejectedExecutionException e) {
+                    // the queued tasks will be run by the worker started with the next submission
+                    workers.decrementAndGet();
+                    logger.debug( "Unable to start a constraint jitting worker", e );
+                }
+                return;
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            for (Runnable task = queue.poll(); task != null; task = queue.poll()) {
+                activeJittings.incrementAndGet();
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    logger.warn( "Unexpected error while jitting a constraint", t );
+                } finally {
+                    activeJittings.decrementAndGet();
+                }
+            }
+        } finally {
+            workers.decrementAndGet();
+        }
+        // a task could have been enqueued after the last poll while this worker was still counted
+        if ( !queue.isEmpty() ) {
+            startWorker();
+        }
+    }
+
+    void jittingSucceeded(long elapsedNanos) {
+        jittedCount.incrementAndGet();
+        recordJittingTime( elapsedNanos );
+    }
+
+    void jittingFailed(long elapsedNanos) {
+        failureCount.incrementAndGet();
+        recordJittingTime( elapsedNanos );
+    }
+
+    private void recordJittingTime(long elapsedNanos) {
+        totalJittingTime.addAndGet( elapsedNanos );
+        maxJittingTime.accumulateAndGet( elapsedNanos, Math::max );
+    }
+
+    @Override
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @Override
+    public int getActiveJittings() {
+        return activeJittings.get();
+    }
+
+    @Override
+    public long getJittedConstraints() {
+        return jittedCount.get();
+    }
+
+    @Override
+    public long getFailedJittings() {
+        return failureCount.get();
+    }
+
+    @Override
+    public long getRejectedJittings() {
+        return rejectedCount.get();
+    }
+
+    @Override
+    public double getAverageJittingTimeMillis() {
+        long count = jittedCount.get() + failureCount.get();
+        return count == 0 ? 0 : ( totalJittingTime.get() / (double) count ) / 1_000_000;
+    }
+
+    @Override
+    public double getMaxJittingTimeMillis() {
+        return maxJittingTime.get() / 1_000_000.0;
+    }
+
+    @Override
+    public void reset() {
+        jittedCount.set( 0 );
+        failureCount.set( 0 );
+        rejectedCount.set( 0 );
+        totalJittingTime.set( 0 );
+        maxJittingTime.set( 0 );
+    }
+
+    private ConstraintJittingExecutor registerMBean() {
+        if ( isJmxAvailable() ) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean( this, new ObjectName( MBEAN_NAME + ",threads=" + maxThreads + ",queueSize=" + queueSize ) );
+            } catch (Exception e) {
+                logger.debug( "Unable to register the constraint jitting MBean", e );
+            }
+        }
+        return this;
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.mvel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.drools.core.base.EvaluatorWrapper;
+import org.drools.core.definitions.InternalKnowledgePackage;
+import org.drools.core.definitions.rule.impl.RuleImpl;
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.drools.core.rule.Declaration;
+import org.drools.core.rule.Pattern;
+import org.drools.core.rule.RuleConditionElement;
+import org.drools.core.rule.constraint.ConditionEvaluator;
+import org.drools.core.spi.Constraint;
+import org.drools.core.util.Drools;
+import org.kie.api.KieBase;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.definition.KiePackage;
+import org.kie.api.definition.rule.Rule;
+import org.kie.memorycompiler.WritableClassLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The bytecode of the jitted evaluators of the MVEL constraints of a package.
+ *
+ * When recording is enabled (drools.jitting.cache.record = true) every constraint jitted at runtime stores
+ * its bytecode in the cache of its package, and the caches of a whole KieBase can be dumped with
+ * {@link #writeTo(KieBase, File)}. The jitting needs the facts the constraints are evaluated against, so
+ * the bytecode can't be generated from the rules alone: the recorded META-INF/&lt;package&gt;/constraints.jit
+ * resources are instead put among the resources of the project, and the KieBuilder replaces each of them
+ * with the cache built by {@link #buildKieModuleCache(byte[], InternalKnowledgePackage, ReleaseId)}.
+ * This allows the constraints of the following runs to start directly with their jitted evaluators,
+ * skipping both the interpreted phase and the class generation.
+ *
+ * An evaluator is identified by the constraint expression, the class it is evaluated against and the
+ * positions in the tuple of the declarations it uses, so a cache is meaningful only for the kjar it has
+ * been built for: it is stamped with the ReleaseId of that kjar and ignored by any other KieBase.
+ */
+public class JittedConstraintCache {
+
+    public static final String RECORD_PROPERTY = "drools.jitting.cache.record";
+
+    public static final String CACHE_FILE_NAME = "constraints.jit";
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final Logger logger = LoggerFactory.getLogger(JittedConstraintCache.class);
+
+    private final Map<String, JittedEvaluator> evaluators = new ConcurrentHashMap<>();
+
+    private final String releaseId;
+
+    public JittedConstraintCache() {
+        this( "" );
+    }
+
+    public JittedConstraintCache(ReleaseId releaseId) {
+        this.releaseId = toExternalForm( releaseId );
+    }
+
+    private JittedConstraintCache(String releaseId) {
+        this.releaseId = releaseId;
+    }
+
+    public static boolean isRecording() {
+        return Boolean.getBoolean( RECORD_PROPERTY );
+    }
+
+    public static String getResourcePath(String packageName) {
+        return "META-INF/" + packageName.replace( '.', '/' ) + "/" + CACHE_FILE_NAME;
+    }
+
+    public boolean isEmpty() {
+        return evaluators.isEmpty();
+    }
+
+    public int size() {
+        return evaluators.size();
+    }
+
+    /**
+     * @return the external form of the ReleaseId of the kjar this cache has been built for, or an empty string
+     * if it has been recorded from a KieBase not created from a kjar
+     */
+    public String getReleaseId() {
+        return releaseId;
+    }
+
+    public boolean isBuiltFor(ReleaseId releaseId) {
+        return this.releaseId.equals( toExternalForm( releaseId ) );
+    }
+
+    public void record(String key, String className, byte[] bytecode) {
+        evaluators.put( key, new JittedEvaluator( className, bytecode ) );
+    }
+
+    public ConditionEvaluator newEvaluator(String key, ClassLoader classLoader, Declaration[] declarations, EvaluatorWrapper[] operators) {
+        JittedEvaluator jittedEvaluator = evaluators.get( key );
+        if (jittedEvaluator == null) {
+            return null;
+        }
+        try {
+            Class<?> evaluatorClass = jittedEvaluator.getEvaluatorClass( classLoader );
+            return operators.length == 0 ?
+                    (ConditionEvaluator) evaluatorClass.getConstructor( Declaration[].class ).newInstance( (Object) declarations ) :
+                    (ConditionEvaluator) evaluatorClass.getConstructor( Declaration[].class, EvaluatorWrapper[].class ).newInstance( declarations, operators );
+        } catch (Exception | LinkageError e) {
+            // never try again with this class, the constraint will be interpreted and jitted as usual
+            evaluators.remove( key );
+            logger.warn( "Unable to load precompiled evaluator for: {}. The constraint will be jitted at runtime", key );
+            return null;
+        }
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream( out );
+        data.writeInt( FORMAT_VERSION );
+        data.writeInt( Drools.getMajorVersion() );
+        data.writeInt( Drools.getMinorVersion() );
+        data.writeInt( Drools.getRevisionVersion() );
+        writeString( data, releaseId );
+        Map<String, JittedEvaluator> snapshot = new TreeMap<>( evaluators );
+        data.writeInt( snapshot.size() );
+        for (Map.Entry<String, JittedEvaluator> entry : snapshot.entrySet()) {
+            writeString( data, entry.getKey() );
+            writeString( data, entry.getValue().className );
+            writeBytes( data, entry.getValue().bytecode );
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads a cache regardless of the kjar it has been built for. An empty cache is returned if it has been
+     * written by an incompatible version.
+     */
+    public static JittedConstraintCache readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream( in );
+        int formatVersion = data.readInt();
+        int major = data.readInt();
+        int minor = data.readInt();
+        int revision = data.readInt();
+        if (formatVersion != FORMAT_VERSION || !Drools.isCompatible( major, minor, revision )) {
+            logger.warn( "The jitted constraints cache has been built with an incompatible version and will be ignored." );
+            return new JittedConstraintCache();
+        }
+        JittedConstraintCache cache = new JittedConstraintCache( readString( data ) );
+        int size = data.readInt();
+        for (int i = 0; i < size; i++) {
+            String key = readString( data );
+            String className = readString( data );
+            cache.record( key, className, readBytes( data ) );
+        }
+        return cache;
+    }
+
+    /**
+     * Reads a cache, returning an empty one stamped with the given ReleaseId if it has been built for another kjar.
+     */
+    public static JittedConstraintCache readFrom(InputStream in, ReleaseId releaseId) throws IOException {
+        JittedConstraintCache cache = readFrom( in );
+        if (cache.isBuiltFor( releaseId )) {
+            return cache;
+        }
+        String expected = toExternalForm( releaseId );
+        if (!cache.isEmpty()) {
+            logger.warn( "The jitted constraints cache has been built for {} instead of {} and will be ignored.",
+                         cache.releaseId.isEmpty() ? "a KieBase not created from a kjar" : cache.releaseId,
+                         expected.isEmpty() ? "a KieBase not created from a kjar" : expected );
+        }
+        return new JittedConstraintCache( expected );
+    }
+
+    public static JittedConstraintCache load(ClassLoader classLoader, String packageName, ReleaseId releaseId) {
+        if (classLoader != null) {
+            try (InputStream in = classLoader.getResourceAsStream( getResourcePath( packageName ) )) {
+                if (in != null) {
+                    return readFrom( in, releaseId );
+                }
+            } catch (IOException e) {
+                logger.error( "Unable to load jitted constraints cache for package " + packageName, e );
+            }
+        }
+        return new JittedConstraintCache( releaseId );
+    }
+
+    /**
+     * Builds the cache of a package to be packaged in the kjar with the given ReleaseId, out of the one recorded
+     * from a former version of it. Only the evaluators of the MVEL constraints still present in the rules of the
+     * package are kept.
+     *
+     * @return the bytes of the cache, or null if none of the recorded evaluators belongs to the package
+     */
+    public static byte[] buildKieModuleCache(byte[] recorded, InternalKnowledgePackage pkg, ReleaseId releaseId) {
+        JittedConstraintCache recordedCache;
+        try {
+            recordedCache = readFrom( new ByteArrayInputStream( recorded ) );
+        } catch (IOException e) {
+            logger.warn( "Unable to read the jitted constraints recorded for package " + pkg.getName() + ". They won't be packaged in the kjar", e );
+            return null;
+        }
+        List<String> keyPrefixes = new ArrayList<>();
+        for (Rule rule : pkg.getRules()) {
+            collectJittingKeyPrefixes( (( RuleImpl ) rule).getLhs(), keyPrefixes );
+        }
+
+        JittedConstraintCache cache = new JittedConstraintCache( releaseId );
+        for (Map.Entry<String, JittedEvaluator> entry : recordedCache.evaluators.entrySet()) {
+            if (keyPrefixes.stream().anyMatch( entry.getKey()::startsWith )) {
+                cache.evaluators.put( entry.getKey(), entry.getValue() );
+            }
+        }
+        if (cache.size() < recordedCache.size()) {
+            logger.warn( "{} of the {} jitted evaluators recorded for package {} don't match any constraint and have been discarded",
+                         recordedCache.size() - cache.size(), recordedCache.size(), pkg.getName() );
+        }
+        if (cache.isEmpty()) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            cache.writeTo( out );
+        } catch (IOException e) {
+            // never happens writing in memory
+            throw new UncheckedIOException( e );
+        }
+        return out.toByteArray();
+    }
+
+    private static void collectJittingKeyPrefixes(RuleConditionElement element, List<String> keyPrefixes) {
+        if (element instanceof Pattern) {
+            for (Constraint constraint : (( Pattern ) element).getConstraints()) {
+                if (constraint instanceof MVELConstraint) {
+                    keyPrefixes.add( (( MVELConstraint ) constraint).getJittingKeyPrefix() );
+                }
+            }
+        }
+        for (RuleConditionElement nested : element.getNestedElements()) {
+            collectJittingKeyPrefixes( nested, keyPrefixes );
+        }
+    }
+
+    /**
+     * Writes the jitted constraints recorded for all the packages of the given KieBase under the given directory,
+     * in the locations where they will be looked up when packaged in a kjar.
+     *
+     * @return the number of written jitted evaluators
+     */
+    public static int writeTo(KieBase kieBase, File targetDir) throws IOException {
+        int written = 0;
+        for (KiePackage kiePackage : kieBase.getKiePackages()) {
+            InternalKnowledgePackage pkg = ((InternalKnowledgeBase) kieBase).getPackage( kiePackage.getName() );
+            MVELDialectRuntimeData data = (MVELDialectRuntimeData) pkg.getDialectRuntimeRegistry().getDialectData( "mvel" );
+            JittedConstraintCache cache = data != null ? data.getJittedConstraintCache( pkg.getName(), ((InternalKnowledgeBase) kieBase).getResolvedReleaseId() ) : null;
+            if (cache == null || cache.isEmpty()) {
+                continue;
+            }
+            File file = new File( targetDir, getResourcePath( pkg.getName() ) );
+            file.getParentFile().mkdirs();
+            try (OutputStream out = new FileOutputStream( file )) {
+                cache.writeTo( out );
+            }
+            written += cache.size();
+        }
+        return written;
+    }
+
+    private static String toExternalForm(ReleaseId releaseId) {
+        return releaseId != null ? releaseId.toExternalForm() : "";
+    }
+
+    private static void writeString(DataOutputStream data, String s) throws IOException {
+        writeBytes( data, s.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        return new String( readBytes( data ), StandardCharsets.UTF_8 );
+    }
+
+    private static void writeBytes(DataOutputStream data, byte[] bytes) throws IOException {
+        data.writeInt( bytes.length );
+        data.write( bytes );
+    }
+
+    private static byte[] readBytes(DataInputStream data) throws IOException {
+        byte[] bytes = new byte[data.readInt()];
+        data.readFully( bytes );
+        return bytes;
+    }
+
+    private static class JittedEvaluator {
+        private final String className;
+        private final byte[] bytecode;
+
+        private JittedEvaluator(String className, byte[] bytecode) {
+            this.className = className;
+            this.bytecode = bytecode;
+        }
+
+        private synchronized Class<?> getEvaluatorClass(ClassLoader classLoader) {
+            try {
+                return classLoader.loadClass( className );
+            } catch (ClassNotFoundException e) {
+                return WritableClassLoader.asWritableClassLoader( classLoader ).writeClass( className, bytecode );
+            }
+        }
+    }
+}
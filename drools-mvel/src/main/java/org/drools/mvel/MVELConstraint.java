@@ -28,8 +28,8 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 import org.drools.core.RuleBaseConfiguration;
 import org.drools.core.base.ClassFieldReader;
@@ -71,7 +71,6 @@ import org.drools.mvel.expr.MVELCompilationUnit;
 import org.drools.mvel.extractors.MVELObjectClassFieldReader;
 import org.drools.reflective.classloader.ProjectClassLoader;
 import org.kie.api.runtime.rule.Variable;
-import org.kie.internal.concurrent.ExecutorProviderFactory;
 import org.mvel2.ParserConfiguration;
 import org.mvel2.compiler.CompiledExpression;
 import org.mvel2.compiler.ExecutableStatement;
@@ -265,7 +264,11 @@ public class MVELConstraint extends MutableTypeConstraint implements IndexableCo
         if (!jitted) {
             int jittingThreshold = TEST_JITTING ? 0 : workingMemory.getKnowledgeBase().getConfiguration().getJittingThreshold();
             if (conditionEvaluator == null) {
-                if (jittingThreshold == 0 && !isDynamic) { // Only for test purposes or when jitting is enforced at first evaluation
+                ConditionEvaluator precompiledEvaluator = isDynamic ? null : loadJittedEvaluator(workingMemory, tuple);
+                if (precompiledEvaluator != null) {
+                    conditionEvaluator = precompiledEvaluator;
+                    jitted = true;
+                } else if (jittingThreshold == 0 && !isDynamic) { // Only for test purposes or when jitting is enforced at first evaluation
                     synchronized (this) {
                         if (conditionEvaluator == null) {
                             conditionEvaluator = forceJitEvaluator(handle, workingMemory, tuple);
@@ -276,7 +279,7 @@ public class MVELConstraint extends MutableTypeConstraint implements IndexableCo
                 }
             }
 
-            if (jittingThreshold != 0 && !isDynamic && invocationCounter.getAndIncrement() == jittingThreshold) {
+            if (!jitted && jittingThreshold != 0 && !isDynamic && invocationCounter.getAndIncrement() == jittingThreshold) {
                 jitEvaluator(handle, workingMemory, tuple);
             }
         }
@@ -313,7 +316,11 @@ public class MVELConstraint extends MutableTypeConstraint implements IndexableCo
 
     protected void jitEvaluator(InternalFactHandle handle, InternalWorkingMemory workingMemory, Tuple tuple) {
         jitted = true;
-        ExecutorHolder.executor.execute(new ConditionJitter(this, handle, workingMemory, tuple));
+        if (!ConstraintJittingExecutor.get(workingMemory.getKnowledgeBase().getConfiguration()).submit(new ConditionJitter(this, handle, workingMemory, tuple))) {
+            // the jitting queue is full: keep interpreting and retry when the threshold is reached again
+            invocationCounter.set(1);
+            jitted = false;
+        }
     }
 
     private static class ConditionJitter implements Runnable {
@@ -330,6 +337,7 @@ public class MVELConstraint extends MutableTypeConstraint implements IndexableCo
         }
 
         public void run() {
+            // the interpreted evaluator keeps being used until it is atomically replaced by the jitted one
             mvelConstraint.conditionEvaluator = mvelConstraint.executeJitting(rightHandle, workingMemory, tuple, mvelConstraint.conditionEvaluator);
             mvelConstraint = null;
             rightHandle = null;
@@ -338,25 +346,24 @@ public class MVELConstraint extends MutableTypeConstraint implements IndexableCo
         }
     }
 
-    private static class ExecutorHolder {
-        private static final Executor executor = ExecutorProviderFactory.getExecutorProvider().getExecutor();
-    }
-
     private ConditionEvaluator executeJitting(InternalFactHandle handle, InternalWorkingMemory workingMemory, Tuple tuple, ConditionEvaluator mvelEvaluator) {
         InternalKnowledgeBase kBase = workingMemory.getKnowledgeBase();
         if (!isJmxAvailable() && MemoryUtil.permGenStats.isUsageThresholdExceeded(kBase.getConfiguration().getPermGenThreshold())) {
             return mvelEvaluator;
         }
 
+        ConstraintJittingExecutor jittingExecutor = ConstraintJittingExecutor.get(kBase.getConfiguration());
+        long start = System.nanoTime();
         try {
             if (analyzedCondition == null) {
                 analyzedCondition = (( MVELConditionEvaluator ) mvelEvaluator).getAnalyzedCondition(handle, workingMemory, tuple);
             }
-            ClassLoader jitClassLoader = kBase.getRootClassLoader() instanceof ProjectClassLoader ?
-                    ((ProjectClassLoader) kBase.getRootClassLoader()).getTypesClassLoader() :
-                    kBase.getRootClassLoader();
-            return ASMConditionEvaluatorJitter.jitEvaluator(expression, analyzedCondition, declarations, operators, jitClassLoader, tuple);
+            ConditionEvaluator jittedEvaluator = ASMConditionEvaluatorJitter.jitEvaluator(expression, analyzedCondition, declarations, operators,
+                                                                                          getJitClassLoader(kBase), tuple, getJittingRecorder(kBase, tuple));
+            jittingExecutor.jittingSucceeded(System.nanoTime() - start);
+            return jittedEvaluator;
         } catch (Throwable t) {
+            jittingExecutor.jittingFailed(System.nanoTime() - start);
             if (TEST_JITTING) {
                 if (analyzedCondition == null) {
                     logger.error("Unable to analize condition for expression: " + expression, t);
@@ -372,6 +379,51 @@ public class MVELConstraint extends MutableTypeConstraint implements IndexableCo
         return mvelEvaluator;
     }
 
+    private static ClassLoader getJitClassLoader(InternalKnowledgeBase kBase) {
+        return kBase.getRootClassLoader() instanceof ProjectClassLoader ?
+                ((ProjectClassLoader) kBase.getRootClassLoader()).getTypesClassLoader() :
+                kBase.getRootClassLoader();
+    }
+
+    private ConditionEvaluator loadJittedEvaluator(InternalWorkingMemory workingMemory, Tuple tuple) {
+        InternalKnowledgeBase kBase = workingMemory.getKnowledgeBase();
+        JittedConstraintCache cache = getJittedConstraintCache(kBase);
+        return cache == null || cache.isEmpty() ? null : cache.newEvaluator(getJittingKey(tuple), getJitClassLoader(kBase), declarations, operators);
+    }
+
+    private BiConsumer<String, byte[]> getJittingRecorder(InternalKnowledgeBase kBase, Tuple tuple) {
+        if (!JittedConstraintCache.isRecording()) {
+            return null;
+        }
+        JittedConstraintCache cache = getJittedConstraintCache(kBase);
+        return cache == null ? null : (className, bytecode) -> cache.record(getJittingKey(tuple), className, bytecode);
+    }
+
+    private JittedConstraintCache getJittedConstraintCache(InternalKnowledgeBase kBase) {
+        for (String packageName : packageNames) {
+            InternalKnowledgePackage pkg = kBase.getPackage(packageName);
+            if (pkg != null) {
+                MVELDialectRuntimeData data = (MVELDialectRuntimeData) pkg.getDialectRuntimeRegistry().getDialectData("mvel");
+                return data != null ? data.getJittedConstraintCache(packageName, kBase.getResolvedReleaseId()) : null;
+            }
+        }
+        return null;
+    }
+
+    String getJittingKeyPrefix() {
+        return getAccessedClass() + "|" + expression + "|";
+    }
+
+    private String getJittingKey(Tuple tuple) {
+        // the jitted bytecode depends on the evaluated class and on how the declarations are reached from the tuple
+        StringBuilder key = new StringBuilder(getJittingKeyPrefix())
+                .append(tuple == null ? -1 : tuple.getIndex());
+        for (Declaration declaration : declarations) {
+            key.append('|').append(declaration.getIdentifier()).append('@').append(declaration.getTupleIndex());
+        }
+        return key.toString();
+    }
+
     public ContextEntry createContextEntry() {
         if (declarations.length == 0) return null;
         ContextEntry contextEntry = new MvelContextEntry(declarations);
@@ -31,6 +31,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.drools.core.definitions.InternalKnowledgePackage;
 import org.drools.core.definitions.impl.KnowledgePackageImpl;
 import org.drools.core.definitions.rule.impl.RuleImpl;
 import org.drools.core.rule.DialectRuntimeData;
@@ -39,6 +40,8 @@ import org.drools.core.rule.JavaDialectRuntimeData;
 import org.drools.core.spi.InternalReadAccessor;
 import org.drools.core.spi.Wireable;
 import org.drools.mvel.expr.MVELCompileable;
+import org.kie.api.builder.ReleaseId;
+import org.kie.memorycompiler.resources.ResourceStore;
 import org.mvel2.ParserConfiguration;
 import org.mvel2.integration.VariableResolver;
 import org.mvel2.integration.impl.MapVariableResolverFactory;
@@ -66,6 +69,8 @@ public class MVELDialectRuntimeData
 
     private boolean                          dirty;
 
+    private transient volatile JittedConstraintCache jittedConstraintCache;
+
     public void writeExternal(ObjectOutput out) throws IOException {
         for ( Entry<String, Object> entry : this.imports.entrySet() ) {
             // Field and Method are not serializable, so tokenise them
@@ -158,6 +163,7 @@ public class MVELDialectRuntimeData
                       ClassLoader rootClassLoader) {
         this.rootClassLoader = rootClassLoader;
         this.registry = registry;
+        this.jittedConstraintCache = null;
     }
 
     public void onRemove() {
@@ -359,6 +365,36 @@ public class MVELDialectRuntimeData
         invokerLookups.computeIfAbsent( wireable, k -> new ArrayList<MVELCompileable>() ).add( compilable );
     }
 
+    public JittedConstraintCache getJittedConstraintCache(String packageName, ReleaseId releaseId) {
+        JittedConstraintCache cache = jittedConstraintCache;
+        if ( cache == null || !cache.isBuiltFor( releaseId ) ) {
+            synchronized (this) {
+                cache = jittedConstraintCache;
+                if ( cache == null || !cache.isBuiltFor( releaseId ) ) {
+                    // not loaded yet, or loaded before the KieBase has been updated to another kjar
+                    cache = JittedConstraintCache.load( rootClassLoader, packageName, releaseId );
+                    jittedConstraintCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    @Override
+    public void writeKieModuleResources( InternalKnowledgePackage pkg, ReleaseId releaseId, ResourceStore trgMfs ) {
+        String path = JittedConstraintCache.getResourcePath( pkg.getName() );
+        byte[] recorded = trgMfs.read( path );
+        if ( recorded == null ) {
+            return;
+        }
+        byte[] cache = JittedConstraintCache.buildKieModuleCache( recorded, pkg, releaseId );
+        if ( cache != null ) {
+            trgMfs.write( path, cache, true );
+        } else {
+            trgMfs.remove( path );
+        }
+    }
+
     public ClassLoader getRootClassLoader() {
         return rootClassLoader;
     }
@@ -314,6 +314,16 @@ public class ClassGenerator {
         return className;
     }
 
+    /**
+     * Returns the bytecode already generated for this class, i.e. the one it has been defined from
+     */
+    public byte[] getBytecode() {
+        if (bytecode == null) {
+            throw new IllegalStateException("The bytecode of " + className + " has not been generated yet");
+        }
+        return bytecode;
+    }
+
     private String[] toInteralNames(Class<?>[] classes) {
         if (classes == null) return null;
         String[] internals = new String[classes.length];
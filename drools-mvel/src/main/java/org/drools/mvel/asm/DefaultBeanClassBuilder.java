@@ -30,6 +30,7 @@ import org.drools.core.factmodel.BeanClassBuilder;
 import org.drools.core.factmodel.BuildUtils;
 import org.drools.core.factmodel.ClassDefinition;
 import org.drools.core.factmodel.FieldDefinition;
+import org.drools.core.factmodel.FactFootprint;
 import org.drools.core.factmodel.GeneratedFact;
 import org.drools.core.factmodel.traits.Thing;
 import org.drools.core.factmodel.traits.TraitFieldTMS;
@@ -50,10 +51,29 @@ import static org.drools.mvel.asm.ClassGenerator.createClassWriter;
 
 /**
  * A builder to dynamically build simple Javabean(TM) classes
+ *
+ * When the lean mode is enabled (drools.declaredTypes.lean = true in the KnowledgeBuilder configuration) the
+ * boolean fields of the non traitable and non reactive types, declared by the type itself and without annotations,
+ * are stored as the bits of a single int field instead of a byte each, when there are enough of them to make the
+ * instances smaller. Their getters and setters are unchanged, and all the generated methods access them through
+ * the accessors. Moreover the hashCode of the types whose keys are all primitives, boxed primitives or Strings is
+ * computed only once and cached in a transient field, reset by the setters of the key fields, but only when that
+ * field fits in the padding of the instances, so that they don't get any larger.
  */
 public class DefaultBeanClassBuilder implements Opcodes, BeanClassBuilder, Serializable {
+
+    public static final String FLAGS_FIELD = "__$$flags";
+
+    public static final String KEY_HASH_FIELD = "__$$keyHash";
+
+    // with less than 5 booleans, taking a byte each, the int storing them wouldn't be any smaller
+    private static final int MIN_PACKED_FLAGS = 5;
+    private static final int MAX_PACKED_FLAGS = 32;
+
     protected boolean     debug  = false;
 
+    protected boolean     lean   = false;
+
     public DefaultBeanClassBuilder() {
         this( "true".equalsIgnoreCase( System.getProperty( "org.drools.classbuilder.debug" ) ) );
     }
@@ -62,6 +82,90 @@ public class DefaultBeanClassBuilder implements Opcodes, BeanClassBuilder, Seria
         this.debug = debug;
     }
 
+    public DefaultBeanClassBuilder(final boolean debug, final boolean lean) {
+        this.debug = debug;
+        this.lean = lean;
+    }
+
+    public boolean isLean() {
+        return lean;
+    }
+
+    @Override
+    public BeanClassBuilder lean() {
+        return lean ? this : new DefaultBeanClassBuilder( debug, true );
+    }
+
+    /**
+     * Returns the bit of the flags field storing the value of the given field, or -1 if the field
+     * is stored in a field of its own.
+     */
+    protected int getFlagBit( ClassDefinition classDef, FieldDefinition fieldDef ) {
+        if ( !lean || classDef.isTraitable() || classDef.isReactive() || !isPackable( fieldDef ) ) {
+            return -1;
+        }
+        int bit = -1;
+        int packable = 0;
+        for ( FieldDefinition field : classDef.getFieldsDefinitions() ) {
+            if ( isPackable( field ) ) {
+                if ( field == fieldDef ) {
+                    bit = packable;
+                }
+                packable++;
+            }
+        }
+        return packable >= MIN_PACKED_FLAGS && bit < MAX_PACKED_FLAGS ? bit : -1;
+    }
+
+    protected boolean hasFlagsField( ClassDefinition classDef ) {
+        for ( FieldDefinition field : classDef.getFieldsDefinitions() ) {
+            if ( getFlagBit( classDef, field ) >= 0 ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the hashCode of the instances of the class with the given definition can be cached.
+     * This requires all the key fields to be declared by the class itself, so all the setters able to
+     * change the hash are generated here, and to be immutable values, so the hash cannot change
+     * without passing through a setter. The hash is cached only if the instances have at least
+     * 4 bytes of padding, since otherwise the cache would make them larger.
+     */
+    protected boolean isKeyHashCached( ClassDefinition classDef ) {
+        if ( !lean || classDef.isTraitable() || classDef.isReactive() || !"java.lang.Object".equals( classDef.getSuperClass() ) ) {
+            return false;
+        }
+        boolean hasKey = false;
+        long size = FactFootprint.HEADER_SIZE;
+        for ( FieldDefinition field : classDef.getFieldsDefinitions() ) {
+            if ( field.isKey() ) {
+                if ( field.isInherited() || field.hasOverride() || !isImmutableKeyType( field.getTypeName() ) ) {
+                    return false;
+                }
+                hasKey = true;
+            }
+            if ( !field.isInherited() && getFlagBit( classDef, field ) < 0 ) {
+                size += FactFootprint.sizeOf( field.getTypeName() );
+            }
+        }
+        if ( hasFlagsField( classDef ) ) {
+            size += FactFootprint.sizeOf( "int" );
+        }
+        return hasKey && FactFootprint.align( size ) - size >= FactFootprint.sizeOf( "int" );
+    }
+
+    private static boolean isImmutableKeyType( String type ) {
+        return BuildUtils.isPrimitive( type ) || BuildUtils.isBoxed( type ) || "java.lang.String".equals( type );
+    }
+
+    private static boolean isPackable( FieldDefinition field ) {
+        // the annotations of a field couldn't be kept once it is packed
+        return "boolean".equals( field.getTypeName() ) && !field.isInherited() && !field.hasOverride() &&
+               ( field.getAnnotations() == null || field.getAnnotations().isEmpty() );
+    }
+
 
     /**
      * Dynamically builds, defines and loads a class based on the given class definition
@@ -296,9 +400,19 @@ public class DefaultBeanClassBuilder implements Opcodes, BeanClassBuilder, Seria
     protected void buildFields(ClassWriter cw, ClassDefinition classDef) {
         // Building fields
         for ( FieldDefinition fieldDef : classDef.getFieldsDefinitions() ) {
-            if (! fieldDef.isInherited())
+            if (! fieldDef.isInherited() && getFlagBit( classDef, fieldDef ) < 0)
                 this.buildField( cw, fieldDef );
         }
+
+        if ( hasFlagsField( classDef ) ) {
+            FieldVisitor fv = cw.visitField( ACC_PRIVATE, FLAGS_FIELD, "I", null, null );
+            fv.visitEnd();
+        }
+
+        if ( isKeyHashCached( classDef ) ) {
+            FieldVisitor fv = cw.visitField( ACC_PRIVATE + ACC_TRANSIENT, KEY_HASH_FIELD, "I", null, null );
+            fv.visitEnd();
+        }
     }
 
     private void implementReactivity(ClassWriter cw, ClassDefinition classDef) {
@@ -1033,7 +1147,7 @@ public class DefaultBeanClassBuilder implements Opcodes, BeanClassBuilder, Seria
 
 
         if ( val != null ) {
-            if (! field.isInherited()) {
+            if (! field.isInherited() && getFlagBit( classDef, field ) < 0) {
                 mv.visitFieldInsn( Opcodes.PUTFIELD,
                                    BuildUtils.getInternalType( classDef.getClassName() ),
                                    field.getName(),
@@ -1196,7 +1310,7 @@ public class DefaultBeanClassBuilder implements Opcodes, BeanClassBuilder, Seria
                 index++;
             }
 
-            if (! field.isInherited()) {
+            if (! field.isInherited() && getFlagBit( classDef, field ) < 0) {
                 mv.visitFieldInsn( Opcodes.PUTFIELD,
                                    BuildUtils.getInternalType( classDef.getClassName() ),
                                    field.getName(),
@@ -1255,26 +1369,31 @@ public class DefaultBeanClassBuilder implements Opcodes, BeanClassBuilder, Seria
                 l0 = new Label();
                 mv.visitLabel( l0 );
             }
-            mv.visitVarInsn( Opcodes.ALOAD, 0 );
-
-            if ( classDef.isTraitable() && classDef.isFullTraiting() ) {
-                updateTraitableField( mv, classDef, fieldDef );
+            int flagBit = getFlagBit( classDef, fieldDef );
+            if ( flagBit >= 0 ) {
+                setFlag( mv, classDef, flagBit );
             } else {
-                mv.visitVarInsn( Type.getType( BuildUtils.getTypeDescriptor( fieldDef.getTypeName() ) ).getOpcode( Opcodes.ILOAD ), 1 );
-            }
+                mv.visitVarInsn( Opcodes.ALOAD, 0 );
 
-            if ( ! fieldDef.hasOverride() ) {
-                mv.visitFieldInsn( Opcodes.PUTFIELD,
-                                   BuildUtils.getInternalType( classDef.getClassName() ),
-                                   fieldDef.getName(),
-                                   BuildUtils.getTypeDescriptor( fieldDef.getTypeName() ) );
-            } else {
-                mv.visitMethodInsn( INVOKESPECIAL,
-                                    BuildUtils.getInternalType( classDef.getSuperClass() ),
-                                    BuildUtils.setterName( fieldDef.getName()),
-                                    Type.getMethodDescriptor( Type.VOID_TYPE,
-                                                              new Type[]{Type.getType( BuildUtils.getTypeDescriptor( fieldDef.getOverriding()) )} ),
-                                    false );
+                if ( classDef.isTraitable() && classDef.isFullTraiting() ) {
+                    updateTraitableField( mv, classDef, fieldDef );
+                } else {
+                    mv.visitVarInsn( Type.getType( BuildUtils.getTypeDescriptor( fieldDef.getTypeName() ) ).getOpcode( Opcodes.ILOAD ), 1 );
+                }
+
+                if ( ! fieldDef.hasOverride() ) {
+                    mv.visitFieldInsn( Opcodes.PUTFIELD,
+                                       BuildUtils.getInternalType( classDef.getClassName() ),
+                                       fieldDef.getName(),
+                                       BuildUtils.getTypeDescriptor( fieldDef.getTypeName() ) );
+                } else {
+                    mv.visitMethodInsn( INVOKESPECIAL,
+                                        BuildUtils.getInternalType( classDef.getSuperClass() ),
+                                        BuildUtils.setterName( fieldDef.getName()),
+                                        Type.getMethodDescriptor( Type.VOID_TYPE,
+                                                                  new Type[]{Type.getType( BuildUtils.getTypeDescriptor( fieldDef.getOverriding()) )} ),
+                                        false );
+                }
             }
 
             if (classDef.isReactive()) {
@@ -1282,6 +1401,13 @@ public class DefaultBeanClassBuilder implements Opcodes, BeanClassBuilder, Seria
                 mv.visitMethodInsn( INVOKEVIRTUAL, BuildUtils.getInternalType( classDef.getClassName() ), "notifyModification", "()V", false );
             }
 
+            if ( fieldDef.isKey() && isKeyHashCached( classDef ) ) {
+                // this.__$$keyHash = 0;
+                mv.visitVarInsn( ALOAD, 0 );
+                mv.visitInsn( ICONST_0 );
+                mv.visitFieldInsn( PUTFIELD, BuildUtils.getInternalType( classDef.getClassName() ), KEY_HASH_FIELD, "I" );
+            }
+
             mv.visitInsn( Opcodes.RETURN );
             Label l1 = null;
             if ( this.debug ) {
@@ -1325,7 +1451,16 @@ public class DefaultBeanClassBuilder implements Opcodes, BeanClassBuilder, Seria
             }
             mv.visitVarInsn( Opcodes.ALOAD,
                              0 );
-            if ( ! fieldDef.hasOverride() ) {
+            int flagBit = getFlagBit( classDef, fieldDef );
+            if ( flagBit >= 0 ) {
+                // return (this.__$$flags >>> bit & 1) != 0;
+                mv.visitFieldInsn( Opcodes.GETFIELD, BuildUtils.getInternalType( classDef.getClassName() ), FLAGS_FIELD, "I" );
+                mv.visitLdcInsn( flagBit );
+                mv.visitInsn( Opcodes.IUSHR );
+                mv.visitInsn( Opcodes.ICONST_1 );
+                mv.visitInsn( Opcodes.IAND );
+                mv.visitInsn( Opcodes.IRETURN );
+            } else if ( ! fieldDef.hasOverride() ) {
                 mv.visitFieldInsn( Opcodes.GETFIELD,
                                    BuildUtils.getInternalType( classDef.getClassName() ),
                                    fieldDef.getName(),
@@ -1603,6 +1738,19 @@ public class DefaultBeanClassBuilder implements Opcodes, BeanClassBuilder, Seria
                 mv.visitLabel( l0 );
             }
 
+            boolean cached = isKeyHashCached( classDef );
+            if ( cached ) {
+                // if (this.__$$keyHash != 0) return this.__$$keyHash;
+                Label compute = new Label();
+                mv.visitVarInsn( Opcodes.ALOAD, 0 );
+                mv.visitFieldInsn( Opcodes.GETFIELD, BuildUtils.getInternalType( classDef.getClassName() ), KEY_HASH_FIELD, "I" );
+                mv.visitJumpInsn( Opcodes.IFEQ, compute );
+                mv.visitVarInsn( Opcodes.ALOAD, 0 );
+                mv.visitFieldInsn( Opcodes.GETFIELD, BuildUtils.getInternalType( classDef.getClassName() ), KEY_HASH_FIELD, "I" );
+                mv.visitInsn( Opcodes.IRETURN );
+                mv.visitLabel( compute );
+            }
+
             // int result = 1;
             mv.visitInsn( Opcodes.ICONST_1 );
             mv.visitVarInsn( Opcodes.ISTORE,
@@ -1705,6 +1853,12 @@ public class DefaultBeanClassBuilder implements Opcodes, BeanClassBuilder, Seria
                                      1 );
                 }
             }
+            if ( cached ) {
+                // this.__$$keyHash = result;
+                mv.visitVarInsn( Opcodes.ALOAD, 0 );
+                mv.visitVarInsn( Opcodes.ILOAD, 1 );
+                mv.visitFieldInsn( Opcodes.PUTFIELD, BuildUtils.getInternalType( classDef.getClassName() ), KEY_HASH_FIELD, "I" );
+            }
             mv.visitVarInsn( Opcodes.ILOAD,
                              1 );
             mv.visitInsn( Opcodes.IRETURN );
@@ -1949,7 +2103,7 @@ public class DefaultBeanClassBuilder implements Opcodes, BeanClassBuilder, Seria
 
 
     protected void visitFieldOrGetter(MethodVisitor mv, ClassDefinition classDef, FieldDefinition field) {
-        if (! field.isInherited()) {
+        if (! field.isInherited() && getFlagBit( classDef, field ) < 0) {
             mv.visitFieldInsn( Opcodes.GETFIELD,
                                BuildUtils.getInternalType( classDef.getClassName() ),
                                field.getName(),
@@ -1965,6 +2119,35 @@ public class DefaultBeanClassBuilder implements Opcodes, BeanClassBuilder, Seria
     }
 
 
+    /**
+     * Stores the boolean argument of a setter in the given bit of the flags field
+     */
+    private void setFlag( MethodVisitor mv, ClassDefinition classDef, int flagBit ) {
+        String internalType = BuildUtils.getInternalType( classDef.getClassName() );
+        int mask = 1 << flagBit;
+        Label clear = new Label();
+        Label end = new Label();
+
+        // if (value) this.__$$flags |= mask; else this.__$$flags &= ~mask;
+        mv.visitVarInsn( Opcodes.ILOAD, 1 );
+        mv.visitJumpInsn( Opcodes.IFEQ, clear );
+        mv.visitVarInsn( Opcodes.ALOAD, 0 );
+        mv.visitVarInsn( Opcodes.ALOAD, 0 );
+        mv.visitFieldInsn( Opcodes.GETFIELD, internalType, FLAGS_FIELD, "I" );
+        mv.visitLdcInsn( mask );
+        mv.visitInsn( Opcodes.IOR );
+        mv.visitFieldInsn( Opcodes.PUTFIELD, internalType, FLAGS_FIELD, "I" );
+        mv.visitJumpInsn( Opcodes.GOTO, end );
+        mv.visitLabel( clear );
+        mv.visitVarInsn( Opcodes.ALOAD, 0 );
+        mv.visitVarInsn( Opcodes.ALOAD, 0 );
+        mv.visitFieldInsn( Opcodes.GETFIELD, internalType, FLAGS_FIELD, "I" );
+        mv.visitLdcInsn( ~mask );
+        mv.visitInsn( Opcodes.IAND );
+        mv.visitFieldInsn( Opcodes.PUTFIELD, internalType, FLAGS_FIELD, "I" );
+        mv.visitLabel( end );
+    }
+
     protected  void updateTraitableField( MethodVisitor mv, ClassDefinition classDef, FieldDefinition fieldDef ) {
         String fieldType = fieldDef.getTypeName();
 
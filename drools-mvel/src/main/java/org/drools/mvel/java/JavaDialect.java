@@ -635,7 +635,7 @@ public class JavaDialect
                 if (bytecodes != null) {
                     for (CompilationCacheEntry entry : bytecodes) {
                         //System.out.println("Found in cache = "+entry.className);
-                        this.packageStoreWrapper.write(entry.className, entry.bytecode);
+                        this.packageStoreWrapper.write(entry.className, entry.getBytecode());
                     }
                     found = true;
                 }
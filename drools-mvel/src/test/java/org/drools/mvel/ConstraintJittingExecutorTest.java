@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.mvel;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.drools.core.RuleBaseConfiguration;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConstraintJittingExecutorTest {
+
+    @Test(timeout = 10000)
+    public void testRejectWhenQueueIsFull() throws Exception {
+        ConstraintJittingExecutor executor = new ConstraintJittingExecutor( 1, 1 );
+
+        CountDownLatch started = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+        CountDownLatch done = new CountDownLatch( 2 );
+
+        Runnable blocking = () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        };
+
+        assertThat( executor.submit( blocking ) ).isTrue();
+        started.await();
+
+        assertThat( executor.submit( done::countDown ) ).isTrue();
+        assertThat( executor.getQueueSize() ).isEqualTo( 1 );
+
+        assertThat( executor.submit( done::countDown ) ).isFalse();
+        assertThat( executor.getRejectedJittings() ).isEqualTo( 1 );
+
+        release.countDown();
+        assertThat( done.await( 5, TimeUnit.SECONDS ) ).isTrue();
+    }
+
+    @Test(timeout = 10000)
+    public void testAtMostTheConfiguredThreadsAreUsed() throws Exception {
+        ExecutorService threads = Executors.newCachedThreadPool();
+        try {
+            ConstraintJittingExecutor executor = new ConstraintJittingExecutor( threads, 2, 10 );
+
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch( 6 );
+            for (int i = 0; i < 6; i++) {
+                assertThat( executor.submit( () -> {
+                    maxRunning.accumulateAndGet( running.incrementAndGet(), Math::max );
+                    try {
+                        Thread.sleep( 20 );
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    done.countDown();
+                } ) ).isTrue();
+            }
+
+            assertThat( done.await( 5, TimeUnit.SECONDS ) ).isTrue();
+            assertThat( maxRunning.get() ).isLessThanOrEqualTo( 2 );
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSettingsFromKieBaseConfiguration() {
+        RuleBaseConfiguration conf = new RuleBaseConfiguration();
+        conf.setProperty( RuleBaseConfiguration.JITTING_THREADS_PROPERTY, "3" );
+        conf.setProperty( RuleBaseConfiguration.JITTING_QUEUE_SIZE_PROPERTY, "50" );
+        assertThat( conf.getJittingThreads() ).isEqualTo( 3 );
+        assertThat( conf.getJittingQueueSize() ).isEqualTo( 50 );
+
+        RuleBaseConfiguration sameConf = new RuleBaseConfiguration();
+        sameConf.setJittingThreads( 3 );
+        sameConf.setJittingQueueSize( 50 );
+
+        // the KieBases with the same settings share the same executor
+        assertThat( ConstraintJittingExecutor.get( conf ) ).isSameAs( ConstraintJittingExecutor.get( sameConf ) );
+        assertThat( ConstraintJittingExecutor.get( conf ) ).isNotSameAs( ConstraintJittingExecutor.get() );
+    }
+
+    @Test
+    public void testJittingStats() {
+        ConstraintJittingExecutor executor = new ConstraintJittingExecutor( 1, 1 );
+
+        executor.jittingSucceeded( TimeUnit.MILLISECONDS.toNanos( 2 ) );
+        executor.jittingSucceeded( TimeUnit.MILLISECONDS.toNanos( 6 ) );
+        executor.jittingFailed( TimeUnit.MILLISECONDS.toNanos( 4 ) );
+
+        assertThat( executor.getJittedConstraints() ).isEqualTo( 2 );
+        assertThat( executor.getFailedJittings() ).isEqualTo( 1 );
+        assertThat( executor.getAverageJittingTimeMillis() ).isEqualTo( 4.0 );
+        assertThat( executor.getMaxJittingTimeMillis() ).isEqualTo( 6.0 );
+
+        executor.reset();
+        assertThat( executor.getJittedConstraints() ).isZero();
+        assertThat( executor.getMaxJittingTimeMillis() ).isZero();
+    }
+}
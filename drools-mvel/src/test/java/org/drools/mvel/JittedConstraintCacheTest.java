@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.mvel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import org.drools.compiler.kie.builder.impl.InternalKieModule;
+import org.drools.core.base.ClassObjectType;
+import org.drools.core.base.EvaluatorWrapper;
+import org.drools.core.common.InternalFactHandle;
+import org.drools.core.common.InternalWorkingMemory;
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.drools.core.reteoo.AlphaNode;
+import org.drools.core.reteoo.ObjectTypeNode;
+import org.drools.core.rule.Declaration;
+import org.drools.core.rule.EntryPointId;
+import org.drools.core.rule.constraint.ConditionEvaluator;
+import org.drools.core.spi.Tuple;
+import org.drools.core.util.IoUtils;
+import org.drools.mvel.compiler.Person;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kie.api.KieBase;
+import org.kie.api.KieBaseConfiguration;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieBuilder;
+import org.kie.api.builder.KieFileSystem;
+import org.kie.api.builder.Message;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.conf.ConstraintJittingThresholdOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JittedConstraintCacheTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    public static class AlwaysTrueEvaluator implements ConditionEvaluator {
+        private final Declaration[] declarations;
+
+        public AlwaysTrueEvaluator(Declaration[] declarations) {
+            this.declarations = declarations;
+        }
+
+        @Override
+        public boolean evaluate(InternalFactHandle handle, InternalWorkingMemory workingMemory, Tuple tuple) {
+            return declarations.length == 0;
+        }
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        JittedConstraintCache cache = new JittedConstraintCache();
+        cache.record( "org.Person|age > 18|-1", AlwaysTrueEvaluator.class.getName(), getBytecode( AlwaysTrueEvaluator.class ) );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.writeTo( out );
+
+        JittedConstraintCache read = JittedConstraintCache.readFrom( new ByteArrayInputStream( out.toByteArray() ) );
+        assertThat( read.size() ).isEqualTo( 1 );
+
+        ConditionEvaluator evaluator = read.newEvaluator( "org.Person|age > 18|-1", getClass().getClassLoader(), new Declaration[0], new EvaluatorWrapper[0] );
+        assertThat( evaluator ).isInstanceOf( AlwaysTrueEvaluator.class );
+        assertThat( evaluator.evaluate( null, null, null ) ).isTrue();
+
+        assertThat( read.newEvaluator( "org.Person|age > 21|-1", getClass().getClassLoader(), new Declaration[0], new EvaluatorWrapper[0] ) ).isNull();
+    }
+
+    @Test
+    public void testInvalidEntryIsDiscarded() {
+        JittedConstraintCache cache = new JittedConstraintCache();
+        cache.record( "key", "org.drools.mvel.DoesNotExist", new byte[] { 1, 2, 3 } );
+
+        assertThat( cache.newEvaluator( "key", getClass().getClassLoader(), new Declaration[0], new EvaluatorWrapper[0] ) ).isNull();
+        assertThat( cache.isEmpty() ).isTrue();
+    }
+
+    @Test
+    public void testMissingResource() {
+        assertThat( JittedConstraintCache.load( getClass().getClassLoader(), "org.drools.mvel.nocache", null ).isEmpty() ).isTrue();
+    }
+
+    @Test
+    public void testCacheOfAnotherKjarIsIgnored() throws Exception {
+        KieServices ks = KieServices.Factory.get();
+        JittedConstraintCache cache = new JittedConstraintCache( ks.newReleaseId( "org.drools.mvel", "jit-cache", "1.0" ) );
+        cache.record( "org.Person|age > 18|-1", AlwaysTrueEvaluator.class.getName(), getBytecode( AlwaysTrueEvaluator.class ) );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.writeTo( out );
+
+        ReleaseId otherReleaseId = ks.newReleaseId( "org.drools.mvel", "jit-cache", "2.0" );
+        JittedConstraintCache read = JittedConstraintCache.readFrom( new ByteArrayInputStream( out.toByteArray() ), otherReleaseId );
+        assertThat( read.isEmpty() ).isTrue();
+        assertThat( read.isBuiltFor( otherReleaseId ) ).isTrue();
+
+        read = JittedConstraintCache.readFrom( new ByteArrayInputStream( out.toByteArray() ), ks.newReleaseId( "org.drools.mvel", "jit-cache", "1.0" ) );
+        assertThat( read.size() ).isEqualTo( 1 );
+    }
+
+    @Test
+    public void testKieModuleCacheServesTheConstraintsOfTheKieBase() throws Exception {
+        String drl =
+                "package org.drools.mvel.jit\n" +
+                "import " + Person.class.getCanonicalName() + "\n" +
+                "rule R when\n" +
+                "  Person( age > 18 )\n" +
+                "then end\n";
+
+        KieServices ks = KieServices.Factory.get();
+        ReleaseId releaseId1 = ks.newReleaseId( "org.drools.mvel", "jit-cache", "1.0" );
+        KieFileSystem kfs = ks.newKieFileSystem().generateAndWritePomXML( releaseId1 ).write( "src/main/resources/r0.drl", drl );
+        assertThat( ks.newKieBuilder( kfs ).buildAll().getResults().hasMessages( Message.Level.ERROR ) ).isFalse();
+
+        // record the constraints jitted at their first evaluation
+        KieBaseConfiguration conf = ks.newKieBaseConfiguration();
+        conf.setOption( ConstraintJittingThresholdOption.get( 0 ) );
+        KieBase recordedKieBase = ks.newKieContainer( releaseId1 ).newKieBase( conf );
+        System.setProperty( JittedConstraintCache.RECORD_PROPERTY, "true" );
+        try {
+            fire( recordedKieBase );
+        } finally {
+            System.clearProperty( JittedConstraintCache.RECORD_PROPERTY );
+        }
+        String jittedClassName = getAlphaConstraint( recordedKieBase ).conditionEvaluator.getClass().getName();
+
+        File recordDir = temp.newFolder();
+        assertThat( JittedConstraintCache.writeTo( recordedKieBase, recordDir ) ).isEqualTo( 1 );
+        String resourcePath = JittedConstraintCache.getResourcePath( "org.drools.mvel.jit" );
+        byte[] recorded = Files.readAllBytes( new File( recordDir, resourcePath ).toPath() );
+
+        // build the next version of the kjar with the recording among its resources
+        ReleaseId releaseId2 = ks.newReleaseId( "org.drools.mvel", "jit-cache", "2.0" );
+        kfs = ks.newKieFileSystem().generateAndWritePomXML( releaseId2 )
+                .write( "src/main/resources/r0.drl", drl )
+                .write( "src/main/resources/" + resourcePath, recorded );
+        KieBuilder kieBuilder = ks.newKieBuilder( kfs ).buildAll();
+        assertThat( kieBuilder.getResults().hasMessages( Message.Level.ERROR ) ).isFalse();
+
+        byte[] packaged = (( InternalKieModule ) kieBuilder.getKieModule() ).getBytes( resourcePath );
+        assertThat( JittedConstraintCache.readFrom( new ByteArrayInputStream( packaged ) ).isBuiltFor( releaseId2 ) ).isTrue();
+
+        // with the default threshold the constraint would be interpreted, but it starts with the packaged evaluator
+        KieBase kieBase = ks.newKieContainer( releaseId2 ).getKieBase();
+        fire( kieBase );
+        MVELConstraint constraint = getAlphaConstraint( kieBase );
+        assertThat( constraint.jitted ).isTrue();
+        assertThat( constraint.conditionEvaluator.getClass().getName() ).isEqualTo( jittedClassName );
+    }
+
+    @Test
+    public void testKieModuleCacheDiscardsTheRemovedConstraints() throws Exception {
+        KieServices ks = KieServices.Factory.get();
+        JittedConstraintCache cache = new JittedConstraintCache();
+        cache.record( Person.class.getName() + "|age > 18|-1", AlwaysTrueEvaluator.class.getName(), getBytecode( AlwaysTrueEvaluator.class ) );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.writeTo( out );
+
+        String drl =
+                "package org.drools.mvel.jit\n" +
+                "import " + Person.class.getCanonicalName() + "\n" +
+                "rule R when\n" +
+                "  Person( age > 21 )\n" +
+                "then end\n";
+
+        String resourcePath = JittedConstraintCache.getResourcePath( "org.drools.mvel.jit" );
+        KieFileSystem kfs = ks.newKieFileSystem().generateAndWritePomXML( ks.newReleaseId( "org.drools.mvel", "jit-cache-removed", "1.0" ) )
+                .write( "src/main/resources/r0.drl", drl )
+                .write( "src/main/resources/" + resourcePath, out.toByteArray() );
+        KieBuilder kieBuilder = ks.newKieBuilder( kfs ).buildAll();
+        assertThat( kieBuilder.getResults().hasMessages( Message.Level.ERROR ) ).isFalse();
+        assertThat( (( InternalKieModule ) kieBuilder.getKieModule() ).getBytes( resourcePath ) ).isNull();
+    }
+
+    private static void fire(KieBase kieBase) {
+        KieSession ksession = kieBase.newKieSession();
+        try {
+            ksession.insert( new Person( "Mario", 40 ) );
+            assertThat( ksession.fireAllRules() ).isEqualTo( 1 );
+        } finally {
+            ksession.dispose();
+        }
+    }
+
+    private static MVELConstraint getAlphaConstraint(KieBase kieBase) {
+        ObjectTypeNode otn = (( InternalKnowledgeBase ) kieBase).getRete().getObjectTypeNodes( EntryPointId.DEFAULT ).get( new ClassObjectType( Person.class ) );
+        return (MVELConstraint) (( AlphaNode ) otn.getObjectSinkPropagator().getSinks()[0] ).getConstraint();
+    }
+
+    private static byte[] getBytecode(Class<?> cls) throws Exception {
+        try (InputStream in = cls.getClassLoader().getResourceAsStream( cls.getName().replace( '.', '/' ) + ".class" )) {
+            return IoUtils.readBytesFromInputStream( in );
+        }
+    }
+}
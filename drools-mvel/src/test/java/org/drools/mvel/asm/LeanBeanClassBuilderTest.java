@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.mvel.asm;
+
+import java.lang.reflect.Field;
+
+import org.drools.compiler.builder.impl.KnowledgeBuilderConfigurationImpl;
+import org.drools.core.factmodel.ClassDefinition;
+import org.drools.core.factmodel.FactFootprint;
+import org.drools.core.factmodel.FieldDefinition;
+import org.junit.Test;
+import org.kie.api.definition.type.FactType;
+import org.kie.api.io.ResourceType;
+import org.kie.internal.builder.KnowledgeBuilder;
+import org.kie.internal.builder.KnowledgeBuilderConfiguration;
+import org.kie.internal.builder.KnowledgeBuilderFactory;
+import org.kie.internal.io.ResourceFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LeanBeanClassBuilderTest {
+
+    private static final String[] FLAGS = { "active", "visible", "enabled", "locked", "hidden", "archived", "shared", "pinned", "starred" };
+
+    private static class TestClassLoader extends ClassLoader {
+        private TestClassLoader() {
+            super( LeanBeanClassBuilderTest.class.getClassLoader() );
+        }
+
+        private Class<?> define( String name, byte[] bytecode ) {
+            return defineClass( name, bytecode, 0, bytecode.length );
+        }
+    }
+
+    private Class<?> build( boolean lean, String className, FieldDefinition... fields ) throws Exception {
+        ClassDefinition classDef = new ClassDefinition( className );
+        for (FieldDefinition field : fields) {
+            classDef.addField( field );
+        }
+        TestClassLoader classLoader = new TestClassLoader();
+        byte[] bytecode = new DefaultBeanClassBuilder( false, lean ).buildClass( classDef, classLoader );
+        return classLoader.define( className, bytecode );
+    }
+
+    private Class<?> buildFlagged( boolean lean, int flagsCount ) throws Exception {
+        FieldDefinition[] fields = new FieldDefinition[flagsCount + 1];
+        fields[0] = new FieldDefinition( "id", "int", true );
+        for (int i = 0; i < flagsCount; i++) {
+            fields[i + 1] = new FieldDefinition( FLAGS[i], "boolean" );
+        }
+        return build( lean, "org.drools.test.Flagged", fields );
+    }
+
+    @Test
+    public void testLeanFootprintIsSmaller() throws Exception {
+        Class<?> defaultClass = buildFlagged( false, FLAGS.length );
+        Class<?> leanClass = buildFlagged( true, FLAGS.length );
+
+        // 12 header + 4 int + 9 booleans = 25, aligned to 32
+        assertThat( FactFootprint.shallowSizeOf( defaultClass ) ).isEqualTo( 32 );
+        // 12 header + 4 int + 4 flags = 20, aligned to 24
+        assertThat( FactFootprint.shallowSizeOf( leanClass ) ).isEqualTo( 24 );
+        assertThat( FactFootprint.shallowSizeOf( leanClass ) ).isLessThan( FactFootprint.shallowSizeOf( defaultClass ) );
+
+        Field flags = leanClass.getDeclaredField( DefaultBeanClassBuilder.FLAGS_FIELD );
+        assertThat( flags.getType() ).isEqualTo( int.class );
+        assertThat( hasField( leanClass, "active" ) ).isFalse();
+    }
+
+    @Test
+    public void testPackedFlagsBehaveAsFields() throws Exception {
+        Class<?> defaultClass = buildFlagged( false, FLAGS.length );
+        Class<?> leanClass = buildFlagged( true, FLAGS.length );
+
+        Object defaultBean = defaultClass.newInstance();
+        Object leanBean = leanClass.newInstance();
+        Object otherLeanBean = leanClass.newInstance();
+        for (int i = 0; i < FLAGS.length; i++) {
+            // every other flag set, so that each bit is checked in isolation from its neighbours
+            boolean value = i % 2 == 0;
+            set( defaultBean, FLAGS[i], value );
+            set( leanBean, FLAGS[i], value );
+            set( otherLeanBean, FLAGS[i], value );
+        }
+        set( leanBean, "visible", true );
+        set( leanBean, "visible", false );
+
+        for (int i = 0; i < FLAGS.length; i++) {
+            assertThat( get( leanBean, FLAGS[i] ) ).as( FLAGS[i] ).isEqualTo( i % 2 == 0 );
+        }
+        assertThat( leanBean.toString().replace( leanClass.getName(), "" ) )
+                .isEqualTo( defaultBean.toString().replace( defaultClass.getName(), "" ) );
+
+        // the id is the only key
+        set( otherLeanBean, "starred", false );
+        assertThat( leanBean ).isEqualTo( otherLeanBean );
+        assertThat( leanBean.hashCode() ).isEqualTo( defaultBean.hashCode() );
+    }
+
+    @Test
+    public void testFewFlagsAreNotPacked() throws Exception {
+        Class<?> cls = buildFlagged( true, 4 );
+        assertThat( hasField( cls, DefaultBeanClassBuilder.FLAGS_FIELD ) ).isFalse();
+        assertThat( hasField( cls, "active" ) ).isTrue();
+    }
+
+    @Test
+    public void testDefaultModeIsNotPacked() throws Exception {
+        Class<?> cls = buildFlagged( false, FLAGS.length );
+        assertThat( hasField( cls, DefaultBeanClassBuilder.FLAGS_FIELD ) ).isFalse();
+        assertThat( hasField( cls, DefaultBeanClassBuilder.KEY_HASH_FIELD ) ).isFalse();
+    }
+
+    @Test
+    public void testKeyHashIsCachedInThePadding() throws Exception {
+        Class<?> defaultClass = build( false, "org.drools.test.Keyed", new FieldDefinition( "code", "java.lang.String", true ), new FieldDefinition( "age", "int" ) );
+        Class<?> leanClass = build( true, "org.drools.test.Keyed", new FieldDefinition( "code", "java.lang.String", true ), new FieldDefinition( "age", "int" ) );
+
+        // 12 header + 4 reference + 4 int = 20, so the cached hash fits in the 4 bytes of padding
+        assertThat( hasField( leanClass, DefaultBeanClassBuilder.KEY_HASH_FIELD ) ).isTrue();
+        assertThat( FactFootprint.shallowSizeOf( leanClass ) ).isEqualTo( FactFootprint.shallowSizeOf( defaultClass ) );
+
+        Object defaultBean = defaultClass.newInstance();
+        Object leanBean = leanClass.newInstance();
+        defaultClass.getMethod( "setCode", String.class ).invoke( defaultBean, "abc" );
+        leanClass.getMethod( "setCode", String.class ).invoke( leanBean, "abc" );
+        assertThat( leanBean.hashCode() ).isEqualTo( defaultBean.hashCode() );
+
+        // the setter of a key resets the cached hash
+        defaultClass.getMethod( "setCode", String.class ).invoke( defaultBean, "xyz" );
+        leanClass.getMethod( "setCode", String.class ).invoke( leanBean, "xyz" );
+        assertThat( leanBean.hashCode() ).isEqualTo( defaultBean.hashCode() );
+    }
+
+    @Test
+    public void testKeyHashIsNotCachedWithoutPadding() throws Exception {
+        // 12 header + 4 int = 16, with no padding left
+        Class<?> cls = build( true, "org.drools.test.Keyed", new FieldDefinition( "id", "int", true ) );
+        assertThat( hasField( cls, DefaultBeanClassBuilder.KEY_HASH_FIELD ) ).isFalse();
+    }
+
+    @Test
+    public void testFootprintReport() throws Exception {
+        Class<?> defaultClass = buildFlagged( false, FLAGS.length );
+        Class<?> leanClass = buildFlagged( true, FLAGS.length );
+
+        String report = FactFootprint.report( defaultClass, leanClass );
+        assertThat( report ).contains( "32 bytes per instance, 30.5 MB per million instances" )
+                            .contains( "24 bytes per instance, 22.9 MB per million instances" );
+        assertThat( FactFootprint.sizeOfInstances( leanClass, 1_000_000 ) ).isEqualTo( 24_000_000 );
+    }
+
+    @Test
+    public void testLeanModeFromBuilderConfiguration() throws Exception {
+        StringBuilder drl = new StringBuilder( "package org.drools.test;\n" +
+                                               "declare Flagged\n" +
+                                               "    id : int @key\n" );
+        for (String flag : FLAGS) {
+            drl.append( "    " ).append( flag ).append( " : boolean\n" );
+        }
+        drl.append( "end\n" );
+
+        KnowledgeBuilderConfiguration conf = KnowledgeBuilderFactory.newKnowledgeBuilderConfiguration();
+        conf.setProperty( KnowledgeBuilderConfigurationImpl.LEAN_DECLARED_TYPES_PROPERTY, "true" );
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder( conf );
+        kbuilder.add( ResourceFactory.newByteArrayResource( drl.toString().getBytes() ), ResourceType.DRL );
+        assertThat( kbuilder.hasErrors() ).as( kbuilder.getErrors().toString() ).isFalse();
+
+        FactType factType = kbuilder.newKieBase().getFactType( "org.drools.test", "Flagged" );
+        assertThat( hasField( factType.getFactClass(), DefaultBeanClassBuilder.FLAGS_FIELD ) ).isTrue();
+    }
+
+    private static void set( Object bean, String flag, boolean value ) throws Exception {
+        bean.getClass().getMethod( "set" + Character.toUpperCase( flag.charAt( 0 ) ) + flag.substring( 1 ), boolean.class ).invoke( bean, value );
+    }
+
+    private static boolean get( Object bean, String flag ) throws Exception {
+        return (Boolean) bean.getClass().getMethod( "is" + Character.toUpperCase( flag.charAt( 0 ) ) + flag.substring( 1 ) ).invoke( bean );
+    }
+
+    private static boolean hasField( Class<?> cls, String name ) {
+        for (Field field : cls.getDeclaredFields()) {
+            if ( field.getName().equals( name ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
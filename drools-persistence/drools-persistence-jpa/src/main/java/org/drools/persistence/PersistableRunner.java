@@ -50,6 +50,7 @@ import org.drools.persistence.api.TransactionManagerHelper;
 import org.drools.persistence.info.SessionInfo;
 import org.drools.persistence.jpa.JpaPersistenceContextManager;
 import org.drools.persistence.jpa.processinstance.JPAWorkItemManager;
+import org.drools.persistence.map.MapPersistenceContextManager;
 import org.kie.api.KieBase;
 import org.kie.api.marshalling.ObjectMarshallingStrategy;
 import org.kie.api.runtime.Environment;
@@ -294,6 +295,11 @@ public class PersistableRunner implements SingleSessionCommandService {
              env.get( EnvironmentName.TRANSACTION_MANAGER ) != null ) {
             this.txm = (TransactionManager) tm;
             this.jpm = (PersistenceContextManager) env.get( EnvironmentName.PERSISTENCE_CONTEXT_MANAGER );
+            if ( this.jpm instanceof MapPersistenceContextManager && TRUE.equals( env.get( EnvironmentName.USE_PESSIMISTIC_LOCKING ) ) ) {
+                // rejected here, instead of failing the first command requiring a lock in the middle of its transaction
+                throw new IllegalArgumentException( "Map based persistence does not support pessimistic locking, " +
+                                                    EnvironmentName.USE_PESSIMISTIC_LOCKING + " must not be enabled." );
+            }
         } else {
             if ( tm != null && isSpringTransactionManager(tm.getClass()) ) {
                 try {
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.persistence.info;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Splits a session snapshot into content defined chunks, so that a local change of the snapshot only changes
+ * the chunks around it even when it shifts all the following bytes. Each chunk is stored compressed under the
+ * hash of its content, while the snapshot is replaced by a manifest listing the hashes of its chunks in order.
+ */
+public final class SessionChunks {
+
+    private static final int MANIFEST_MAGIC = 0x43484B31;
+
+    private static final int MIN_CHUNK_SIZE = 16 * 1024;
+    private static final int MAX_CHUNK_SIZE = 256 * 1024;
+    // a cut point every 64K on average
+    private static final long CUT_MASK = 0xFFFFL;
+
+    private static final int HASH_LENGTH = 16;
+
+    private static final long[] GEAR = new long[256];
+    static {
+        // a fixed seed, since the chunk boundaries must not change between different JVMs
+        Random random = new Random( 0x5EED );
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private SessionChunks() { }
+
+    public static boolean isManifest( byte[] data ) {
+        return data != null && data.length >= 4 &&
+               ( (data[0] & 0xFF) << 24 | (data[1] & 0xFF) << 16 | (data[2] & 0xFF) << 8 | (data[3] & 0xFF) ) == MANIFEST_MAGIC;
+    }
+
+    /**
+     * Replaces the content of the given chunks with the ones of the given snapshot, keeping the entries of
+     * the chunks that didn't change, and returns the manifest of the snapshot.
+     */
+    public static byte[] split( byte[] snapshot, Map<String, byte[]> chunks ) {
+        List<String> hashes = new ArrayList<>();
+        int start = 0;
+        while ( start < snapshot.length ) {
+            int end = nextCut( snapshot, start );
+            String hash = hash( snapshot, start, end );
+            if ( !chunks.containsKey( hash ) ) {
+                chunks.put( hash, compress( snapshot, start, end ) );
+            }
+            hashes.add( hash );
+            start = end;
+        }
+        chunks.keySet().retainAll( new HashSet<>( hashes ) );
+        return writeManifest( snapshot.length, hashes );
+    }
+
+    public static byte[] join( byte[] manifest, Map<String, byte[]> chunks ) {
+        try {
+            DataInputStream in = new DataInputStream( new ByteArrayInputStream( manifest ) );
+            in.readInt();
+            byte[] snapshot = new byte[in.readInt()];
+            int offset = 0;
+            for (String hash : readHashes( in )) {
+                byte[] chunk = chunks.get( hash );
+                if ( chunk == null ) {
+                    throw new IllegalStateException( "Missing chunk " + hash + " of session snapshot" );
+                }
+                offset += decompress( chunk, snapshot, offset );
+            }
+            return snapshot;
+        } catch (IOException e) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * Removes from the given chunks the ones not listed in the given manifest.
+     */
+    public static void retain( byte[] manifest, Map<String, byte[]> chunks ) {
+        try {
+            DataInputStream in = new DataInputStream( new ByteArrayInputStream( manifest ) );
+            in.readInt();
+            in.readInt();
+            chunks.keySet().retainAll( new HashSet<>( readHashes( in ) ) );
+        } catch (IOException e) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    private static List<String> readHashes( DataInputStream in ) throws IOException {
+        int count = in.readInt();
+        List<String> hashes = new ArrayList<>( count );
+        for (int i = 0; i < count; i++) {
+            hashes.add( in.readUTF() );
+        }
+        return hashes;
+    }
+
+    private static int nextCut( byte[] data, int start ) {
+        int limit = Math.min( data.length, start + MAX_CHUNK_SIZE );
+        int i = Math.min( limit, start + MIN_CHUNK_SIZE );
+        long fingerprint = 0;
+        for (; i < limit; i++) {
+            fingerprint = (fingerprint << 1) + GEAR[data[i] & 0xFF];
+            if ( (fingerprint & CUT_MASK) == 0 ) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+
+    private static String hash( byte[] data, int start, int end ) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance( "SHA-256" );
+            digest.update( data, start, end - start );
+            byte[] hash = Arrays.copyOf( digest.digest(), HASH_LENGTH );
+            StringBuilder sb = new StringBuilder( HASH_LENGTH * 2 );
+            for (byte b : hash) {
+                sb.append( Character.forDigit( (b >> 4) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static byte[] compress( byte[] data, int start, int end ) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream( bytes )) {
+            out.write( data, start, end - start );
+        } catch (IOException e) {
+            throw new UncheckedIOException( e );
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int decompress( byte[] chunk, byte[] target, int offset ) throws IOException {
+        int read = 0;
+        try (InflaterInputStream in = new InflaterInputStream( new ByteArrayInputStream( chunk ) )) {
+            int n;
+            while ( (n = in.read( target, offset + read, target.length - offset - read )) > 0 ) {
+                read += n;
+            }
+        }
+        return read;
+    }
+
+    private static byte[] writeManifest( int length, List<String> hashes ) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream( bytes )) {
+            out.writeInt( MANIFEST_MAGIC );
+            out.writeInt( length );
+            out.writeInt( hashes.size() );
+            for (String hash : hashes) {
+                out.writeUTF( hash );
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException( e );
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -16,13 +16,20 @@
 package org.drools.persistence.info;
 
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
+import javax.persistence.CollectionTable;
 import javax.persistence.Column;
+import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.JoinColumn;
 import javax.persistence.Lob;
+import javax.persistence.MapKeyColumn;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Transient;
 import javax.persistence.Version;
@@ -34,6 +41,13 @@ import org.drools.persistence.api.Transformable;
 @Entity
 @SequenceGenerator(name="sessionInfoIdSeq", sequenceName="SESSIONINFO_ID_SEQ")
 public class SessionInfo implements PersistentSession {
+
+    /**
+     * When set to true the sessions are stored as a list of compressed chunks, and only the chunks
+     * changed by a command are written when it completes, instead of rewriting the whole snapshot.
+     * The chunks are stored in the SessionInfoChunk table, which must exist even when this property is off.
+     */
+    public static final String CHUNKED_STORAGE_PROPERTY = "drools.persistence.session.chunked";
     
     private @Id
     @GeneratedValue(strategy = GenerationType.AUTO, generator="sessionInfoIdSeq")
@@ -50,6 +64,19 @@ public class SessionInfo implements PersistentSession {
     @Column(length=2147483647)
     private byte[]             rulesByteArray;
 
+    // the compressed chunks of the snapshot by hash, when it is stored in chunks. The SessionInfoChunk table is
+    // mapped regardless of the storage mode, so it has to be created when upgrading an existing database:
+    // see db/ddl-scripts/<database>/drools-session-chunks.sql
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "SessionInfoChunk", joinColumns = @JoinColumn(name = "sessionId"))
+    @MapKeyColumn(name = "chunkHash", length = 32)
+    @Lob
+    @Column(name = "chunkData", length=2147483647)
+    private Map<String, byte[]> chunks = new HashMap<>();
+
+    @Transient
+    private boolean            chunkedStorage = Boolean.getBoolean( CHUNKED_STORAGE_PROPERTY );
+
     @Transient
     SessionMarshallingHelper helper;
     
@@ -78,8 +105,39 @@ public class SessionInfo implements PersistentSession {
     }
     
     public byte[] getData() {
+        // the snapshot can have been stored in chunks regardless of the current storage mode
+        if ( SessionChunks.isManifest( this.rulesByteArray ) ) {
+            return SessionChunks.join( this.rulesByteArray, this.chunks );
+        }
         return this.rulesByteArray;
     }
+
+    public boolean isChunkedStorage() {
+        return chunkedStorage;
+    }
+
+    public void setChunkedStorage( boolean chunkedStorage ) {
+        this.chunkedStorage = chunkedStorage;
+    }
+
+    /**
+     * Stores the given snapshot, splitting it in chunks when the chunked storage is enabled.
+     */
+    public void setSnapshot( byte[] snapshot ) {
+        if ( chunkedStorage ) {
+            this.rulesByteArray = SessionChunks.split( snapshot, this.chunks );
+        } else {
+            // the lazy chunks collection is loaded only when the former snapshot was actually stored in chunks
+            if ( SessionChunks.isManifest( this.rulesByteArray ) ) {
+                this.chunks.clear();
+            }
+            this.rulesByteArray = snapshot;
+        }
+    }
+
+    Map<String, byte[]> getChunks() {
+        return chunks;
+    }
     
     public Date getStartDate() {
         return this.startDate;
@@ -95,7 +153,7 @@ public class SessionInfo implements PersistentSession {
 
     @Override
     public void transform() {
-        this.rulesByteArray  = this.helper.getSnapshot();
+        setSnapshot( this.helper.getSnapshot() );
     }
 
     public void setId(Long ksessionId) {
@@ -83,6 +83,18 @@ public class WorkItemInfo implements PersistentWorkItem {
         this.env = env;
     }
 
+    /**
+     * Recreates a work item info from its stored state, for the storages not based on JPA.
+     */
+    public WorkItemInfo(Long workItemId, String name, Date creationDate, long processInstanceId, long state, byte[] workItemByteArray) {
+        this.workItemId = workItemId;
+        this.name = name;
+        this.creationDate = creationDate;
+        this.processInstanceId = processInstanceId;
+        this.state = state;
+        this.workItemByteArray = workItemByteArray;
+    }
+
     public Long getId() {
         return workItemId;
     }
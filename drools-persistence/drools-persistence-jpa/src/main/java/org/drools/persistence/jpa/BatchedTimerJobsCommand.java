@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.persistence.jpa;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.kie.api.command.ExecutableCommand;
+import org.kie.api.runtime.Context;
+
+/**
+ * Executes a batch of timer jobs in the order in which they fired, in the same command and then in the same
+ * transaction. The failure of a job rolls back the whole batch, whose jobs are then executed again one by one
+ * by the {@link TimerJobBatcher}.
+ */
+public class BatchedTimerJobsCommand
+    implements
+    ExecutableCommand<Void> {
+
+    private static final long   serialVersionUID = 1L;
+
+    private final List<Callable<Void>> jobs;
+
+    public BatchedTimerJobsCommand(List<Callable<Void>> jobs) {
+        this.jobs = jobs;
+    }
+
+    public Void execute(Context context) {
+        for ( Callable<Void> job : jobs ) {
+            try {
+                job.call();
+            } catch ( RuntimeException e ) {
+                throw e;
+            } catch ( Exception e ) {
+                throw new RuntimeException(e);
+            }
+        }
+        return null;
+    }
+
+}
@@ -15,6 +15,8 @@
 
 package org.drools.persistence.jpa;
 
+import java.util.Collections;
+
 import org.kie.api.runtime.ExecutableRunner;
 import org.drools.core.time.InternalSchedulerService;
 import org.drools.core.time.Job;
@@ -32,6 +34,9 @@ public class JpaTimeJobFactoryManager
 
     private ExecutableRunner runner;
 
+    private long coalescingWindow = TimerJobBatcher.getDefaultCoalescingWindow();
+    private TimerJobBatcher batcher;
+
     public void setRunner(ExecutableRunner runner ) {
         this.runner = runner;
     }
@@ -40,6 +45,39 @@ public class JpaTimeJobFactoryManager
         return runner;
     }
 
+    /**
+     * Sets the length in milliseconds of the window in which the fired timer jobs are coalesced and persisted
+     * in a single transaction. When 0 each timer job is executed in its own transaction as soon as it fires.
+     */
+    public void setCoalescingWindow(long coalescingWindow) {
+        TimerJobBatcher previous;
+        synchronized ( this ) {
+            this.coalescingWindow = coalescingWindow;
+            previous = this.batcher;
+            this.batcher = null;
+        }
+        if ( previous != null ) {
+            // the jobs already submitted to the former batcher must not wait for, or be lost with, its window
+            previous.flush();
+        }
+    }
+
+    public synchronized long getCoalescingWindow() {
+        return coalescingWindow;
+    }
+
+    synchronized TimerJobBatcher getTimerJobBatcher() {
+        if ( coalescingWindow <= 0 ) {
+            return null;
+        }
+        if ( batcher == null ) {
+            batcher = new TimerJobBatcher( coalescingWindow,
+                                           jobs -> getRunner().execute( new BatchedTimerJobsCommand( jobs ) ),
+                                           job -> getRunner().execute( new BatchedTimerJobsCommand( Collections.singletonList( job ) ) ) );
+        }
+        return batcher;
+    }
+
     public TimerJobInstance createTimerJobInstance(Job job,
                                                    JobContext ctx,
                                                    Trigger trigger,
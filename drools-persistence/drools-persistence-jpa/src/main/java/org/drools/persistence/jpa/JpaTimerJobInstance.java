@@ -24,10 +24,11 @@ import org.drools.core.time.TimerService;
 import org.drools.core.time.Trigger;
 import org.drools.core.time.impl.CommandServiceTimerJobFactoryManager;
 import org.drools.core.time.impl.DefaultTimerJobInstance;
+import org.drools.core.time.impl.TimerJobFactoryManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class JpaTimerJobInstance extends DefaultTimerJobInstance {       
+public class JpaTimerJobInstance extends DefaultTimerJobInstance implements TimerJobBatcher.BatchedJob {
 
     private static Logger logger = LoggerFactory.getLogger( JpaTimerJobInstance.class );
     
@@ -45,8 +46,15 @@ public class JpaTimerJobInstance extends DefaultTimerJobInstance {
 
     public Void call() throws Exception {
         try { 
+            TimerJobFactoryManager manager = ( (TimerService) scheduler ).getTimerJobFactoryManager();
+            TimerJobBatcher batcher = manager instanceof JpaTimeJobFactoryManager ? ( (JpaTimeJobFactoryManager) manager ).getTimerJobBatcher() : null;
+            if ( batcher != null ) {
+                // executed and persisted later together with the other jobs firing in the same window
+                batcher.submit( getTrigger().hasNextFireTime(), this );
+                return null;
+            }
             JDKCallableJobCommand command = new JDKCallableJobCommand( this );
-            ExecutableRunner runner = ( (CommandServiceTimerJobFactoryManager) ( (TimerService) scheduler ).getTimerJobFactoryManager() ).getRunner();
+            ExecutableRunner runner = ( (CommandServiceTimerJobFactoryManager) manager ).getRunner();
             runner.execute( command );
             return null;
         } catch( Exception e ) { 
@@ -58,4 +66,30 @@ public class JpaTimerJobInstance extends DefaultTimerJobInstance {
     Void internalCall() throws Exception {
         return super.call();
     }
+
+    @Override
+    public void beforeExecution() {
+        getTrigger().initialize( getJobContext().getInternalKnowledgeRuntime().orElse( null ) );
+        getTrigger().nextFireTime(); // need to pop
+    }
+
+    @Override
+    public void execute() {
+        if ( getJobHandle().isCancel() ) {
+            return;
+        }
+        getJob().execute( getJobContext() );
+        if ( !getJobHandle().isCancel() && getTrigger().hasNextFireTime() != null && scheduler instanceof TimerService ) {
+            // the job removed itself from the timers of the session, so it is tracked again in order to be persisted
+            // with the session, while it is actually rescheduled only after the transaction
+            ( (TimerService) scheduler ).getTimerJobFactoryManager().addTimerJobInstance( this );
+        }
+    }
+
+    @Override
+    public void afterExecution() {
+        if ( !getJobHandle().isCancel() && getTrigger().hasNextFireTime() != null ) {
+            scheduler.internalSchedule( this );
+        }
+    }
 }
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.persistence.jpa;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces the timer jobs of a session firing within a window of time, so that they are executed as a single
+ * command, and then persisted in a single transaction, instead of one each. The first job submitted after a
+ * flush opens the window, and all the jobs submitted until it closes are executed in the order of their firing
+ * time. When a batch fails, its transaction is rolled back and each of its jobs is executed again in its own one,
+ * so that a failing job doesn't prevent the others from being persisted.
+ *
+ * The rollback doesn't undo the changes of the triggers of the jobs, so each trigger is advanced before the batch
+ * and each job rescheduled after it, only once, while only the execution of the jobs is retried.
+ */
+public class TimerJobBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger( TimerJobBatcher.class );
+
+    /**
+     * The length in milliseconds of the window coalescing the timer jobs of a persisted session. Disabled when 0.
+     */
+    public static final String COALESCING_WINDOW_PROPERTY = "drools.timer.coalescingWindow";
+
+    // shared by all the sessions, it only schedules the flushes, while the jobs are executed by the sessions runners
+    private static final ScheduledExecutorService FLUSH_SCHEDULER = createFlushScheduler();
+
+    private static ScheduledExecutorService createFlushScheduler() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor( 1, r -> {
+            Thread thread = new Thread( r, "drools-timer-batcher" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        executor.setRemoveOnCancelPolicy( true );
+        return executor;
+    }
+
+    /**
+     * A timer job split in the parts executed only once, outside of the transaction persisting it, and the one
+     * executed again in a new transaction when the batch containing it fails.
+     */
+    public interface BatchedJob {
+
+        /**
+         * Advances the trigger of the job, before its batch is executed
+         */
+        default void beforeExecution() { }
+
+        /**
+         * Executes the job in the transaction of its batch, or in its own one when the batch failed
+         */
+        void execute() throws Exception;
+
+        /**
+         * Reschedules the job, once its execution has been committed
+         */
+        default void afterExecution() { }
+    }
+
+    private final long windowMillis;
+    private final Consumer<List<Callable<Void>>> batchExecutor;
+    private final Consumer<Callable<Void>> jobExecutor;
+
+    private List<PendingJob> pending = new ArrayList<>();
+    private boolean flushScheduled;
+
+    private final Object executionLock = new Object();
+
+    /**
+     * @param batchExecutor executes a batch of jobs in a single transaction
+     * @param jobExecutor executes a single job in its own transaction, when the batch containing it failed
+     */
+    public TimerJobBatcher( long windowMillis, Consumer<List<Callable<Void>>> batchExecutor, Consumer<Callable<Void>> jobExecutor ) {
+        this.windowMillis = windowMillis;
+        this.batchExecutor = batchExecutor;
+        this.jobExecutor = jobExecutor;
+    }
+
+    public static long getDefaultCoalescingWindow() {
+        return Long.getLong( COALESCING_WINDOW_PROPERTY, 0L );
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public synchronized void submit( Date fireTime, BatchedJob job ) {
+        pending.add( new PendingJob( pending.size(), fireTime, job ) );
+        if ( !flushScheduled ) {
+            flushScheduled = true;
+            FLUSH_SCHEDULER.schedule( this::flush, windowMillis, TimeUnit.MILLISECONDS );
+        }
+    }
+
+    /**
+     * Executes the jobs submitted so far without waiting for the end of the current window
+     */
+    public void flush() {
+        // a batch can't start before the previous one completed, so the jobs of different batches are never reordered
+        synchronized ( executionLock ) {
+            List<PendingJob> submitted;
+            synchronized ( this ) {
+                submitted = pending;
+                pending = new ArrayList<>();
+                flushScheduled = false;
+            }
+            if ( submitted.isEmpty() ) {
+                // already flushed before the end of the window
+                return;
+            }
+            List<BatchedJob> jobs = new ArrayList<>();
+            for ( PendingJob p : submitted.stream().sorted( PendingJob.FIRING_ORDER ).collect( Collectors.toList() ) ) {
+                try {
+                    p.job.beforeExecution();
+                    jobs.add( p.job );
+                } catch (Exception e) {
+                    logger.error( "Unable to execute timer job!", e );
+                }
+            }
+            if ( jobs.isEmpty() ) {
+                return;
+            }
+            try {
+                batchExecutor.accept( jobs.stream().map( TimerJobBatcher::toCallable ).collect( Collectors.toList() ) );
+            } catch (Exception e) {
+                logger.warn( "Unable to execute a batch of " + jobs.size() + " timer jobs, executing them one by one", e );
+                executeOneByOne( jobs );
+                return;
+            }
+            jobs.forEach( TimerJobBatcher::afterExecution );
+        }
+    }
+
+    private void executeOneByOne( List<BatchedJob> jobs ) {
+        for ( BatchedJob job : jobs ) {
+            try {
+                jobExecutor.accept( toCallable( job ) );
+            } catch (Exception e) {
+                // as for a job executed on its own, a failed execution isn't rescheduled
+                logger.error( "Unable to execute timer job!", e );
+                continue;
+            }
+            afterExecution( job );
+        }
+    }
+
+    private static Callable<Void> toCallable( BatchedJob job ) {
+        return () -> {
+            job.execute();
+            return null;
+        };
+    }
+
+    private static void afterExecution( BatchedJob job ) {
+        try {
+            job.afterExecution();
+        } catch (Exception e) {
+            logger.error( "Unable to reschedule timer job!", e );
+        }
+    }
+
+    private static class PendingJob {
+
+        // the jobs without a firing time are executed last, while those firing together keep the submission order
+        private static final Comparator<PendingJob> FIRING_ORDER = Comparator
+                .comparing( ( PendingJob p ) -> p.fireTime, Comparator.nullsLast( Comparator.naturalOrder() ) )
+                .thenComparingInt( p -> p.sequence );
+
+        private final int sequence;
+        private final Date fireTime;
+        private final BatchedJob job;
+
+        private PendingJob( int sequence, Date fireTime, BatchedJob job ) {
+            this.sequence = sequence;
+            this.fireTime = fireTime;
+            this.job = job;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.persistence.map;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * A file of length prefixed and checksummed records, memory mapped in regions of a fixed size and only written
+ * at its end. Each record is made durable by {@link #sync(long)}, that forces the mapped region to disk once for
+ * all the records appended by the threads waiting for it (group commit).
+ *
+ * A record is written as its length, the CRC32 of its content and the content itself. As the file is extended
+ * with zeros when a new region is mapped, a zero length marks the end of the journal, while a record with a
+ * wrong checksum is the result of a write torn by a crash and is discarded with everything after it.
+ */
+class AppendOnlyJournal implements Closeable {
+
+    static final int DEFAULT_REGION_SIZE = 16 * 1024 * 1024;
+
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int regionSize;
+
+    private MappedByteBuffer region;
+
+    // the end of the last appended record, and the position up to which the journal is durable
+    private long position;
+    private volatile long syncedPosition;
+
+    private final Object syncLock = new Object();
+
+    private AppendOnlyJournal( File path, int regionSize ) throws IOException {
+        this.file = new RandomAccessFile( path, "rw" );
+        this.channel = file.getChannel();
+        this.regionSize = regionSize;
+    }
+
+    /**
+     * Opens the given journal, passing the content of all its valid records to the given consumer,
+     * and positions it after the last of them.
+     */
+    static AppendOnlyJournal open( File path, int regionSize, Consumer<byte[]> recordConsumer ) throws IOException {
+        AppendOnlyJournal journal = new AppendOnlyJournal( path, regionSize );
+        journal.replay( recordConsumer );
+        return journal;
+    }
+
+    private void replay( Consumer<byte[]> recordConsumer ) throws IOException {
+        long size = channel.size();
+        long pos = 0;
+        CRC32 crc = new CRC32();
+        while ( pos + RECORD_HEADER_SIZE <= size ) {
+            file.seek( pos );
+            int length = file.readInt();
+            int checksum = file.readInt();
+            if ( length <= 0 || pos + RECORD_HEADER_SIZE + length > size ) {
+                break;
+            }
+            byte[] content = new byte[length];
+            file.readFully( content );
+            crc.reset();
+            crc.update( content, 0, length );
+            if ( (int) crc.getValue() != checksum ) {
+                break;
+            }
+            recordConsumer.accept( content );
+            pos += RECORD_HEADER_SIZE + length;
+        }
+        position = pos;
+        syncedPosition = pos;
+        boolean tornWrite = false;
+        if ( pos + RECORD_HEADER_SIZE <= size ) {
+            file.seek( pos );
+            tornWrite = file.readLong() != 0;
+        }
+        map( pos );
+        if ( tornWrite ) {
+            // clean the remains of a torn write, so they can't be mistaken for records later
+            for (int i = 0; i < region.limit(); i++) {
+                region.put( i, (byte) 0 );
+            }
+        }
+    }
+
+    /**
+     * Appends a record, that is not durable until {@link #sync(long)} is invoked with the returned position.
+     */
+    synchronized long append( byte[] content ) throws IOException {
+        int recordSize = RECORD_HEADER_SIZE + content.length;
+        if ( region.remaining() < recordSize ) {
+            // the previous region must be durable before being released
+            region.force();
+            map( position );
+            if ( region.remaining() < recordSize ) {
+                // a record bigger than a region gets a region of its own size
+                map( position, recordSize );
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update( content, 0, content.length );
+        region.putInt( content.length );
+        region.putInt( (int) crc.getValue() );
+        region.put( content );
+        position += recordSize;
+        return position;
+    }
+
+    /**
+     * Makes durable all the records up to the given position. A thread finding that a concurrent one already
+     * forced the journal past its position returns without doing any I/O.
+     */
+    void sync( long upTo ) {
+        synchronized ( syncLock ) {
+            if ( syncedPosition >= upTo ) {
+                return;
+            }
+            MappedByteBuffer toForce;
+            long forcedPosition;
+            synchronized ( this ) {
+                if ( region == null ) {
+                    // closed, so already forced
+                    return;
+                }
+                toForce = region;
+                forcedPosition = position;
+            }
+            toForce.force();
+            syncedPosition = forcedPosition;
+        }
+    }
+
+    synchronized long size() {
+        return position;
+    }
+
+    private void map( long start ) throws IOException {
+        map( start, regionSize );
+    }
+
+    private void map( long start, int size ) throws IOException {
+        region = channel.map( FileChannel.MapMode.READ_WRITE, start, size );
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        region.force();
+        syncedPosition = position;
+        region = null;
+        channel.close();
+        file.close();
+    }
+}
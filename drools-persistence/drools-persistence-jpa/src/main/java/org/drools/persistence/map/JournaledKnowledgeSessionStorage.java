@@ -0,0 +1,410 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.persistence.map;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.drools.persistence.api.PersistentSession;
+import org.drools.persistence.api.PersistentWorkItem;
+import org.drools.persistence.info.SessionChunks;
+import org.drools.persistence.info.SessionInfo;
+import org.drools.persistence.info.WorkItemInfo;
+
+/**
+ * A durable {@link KnowledgeSessionStorage} keeping its state in a local directory instead of a database.
+ * Every change of a session or work item, i.e. the state persisted at the end of each command, is appended
+ * to a memory mapped journal and made durable with a group commit before the command completes, so that
+ * its cost is a sequential write shared by the concurrent commands.
+ *
+ * The marshalled session is split in content defined chunks as done by the chunked storage of
+ * {@link SessionInfo}, and a command only journals the manifest of the session with the chunks it changed,
+ * i.e. the delta from the previous state of the session, instead of the whole marshalled session.
+ *
+ * When the journal grows past the configured threshold, the latest state of all the sessions and work items
+ * is written, with all their chunks, to a snapshot file and a new journal is started. At startup the state is
+ * recovered from the latest snapshot and the journal following it. As a record only adds the chunks listed in
+ * its manifest and drops the ones no longer listed, replaying a record already included in the snapshot is harmless.
+ *
+ * The storage doesn't support locking, so it can't be used with an environment configured with
+ * {@link org.kie.api.runtime.EnvironmentName#USE_PESSIMISTIC_LOCKING}.
+ */
+public class JournaledKnowledgeSessionStorage implements KnowledgeSessionStorage, Closeable {
+
+    public static final long DEFAULT_SNAPSHOT_THRESHOLD = 64L * 1024 * 1024;
+
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+
+    private static final int SNAPSHOT_MAGIC = 0x4B534E50;
+
+    private static final byte SESSION = 1;
+    private static final byte WORK_ITEM = 2;
+    private static final byte REMOVE_WORK_ITEM = 3;
+
+    private final File directory;
+    private final long snapshotThreshold;
+    private final int regionSize;
+
+    private final Map<Long, SessionInfo> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, SessionState> sessionStates = new ConcurrentHashMap<>();
+    private final Map<Long, WorkItemInfo> workItems = new ConcurrentHashMap<>();
+    private final AtomicLong sessionIds = new AtomicLong();
+    private final AtomicLong workItemIds = new AtomicLong();
+
+    private long generation;
+    private AppendOnlyJournal journal;
+
+    public JournaledKnowledgeSessionStorage( File directory ) throws IOException {
+        this( directory, DEFAULT_SNAPSHOT_THRESHOLD, AppendOnlyJournal.DEFAULT_REGION_SIZE );
+    }
+
+    public JournaledKnowledgeSessionStorage( File directory, long snapshotThreshold, int regionSize ) throws IOException {
+        this.directory = directory;
+        this.snapshotThreshold = snapshotThreshold;
+        this.regionSize = regionSize;
+        if ( !directory.isDirectory() && !directory.mkdirs() ) {
+            throw new IOException( "Unable to create directory " + directory );
+        }
+        recover();
+    }
+
+    private void recover() throws IOException {
+        File snapshot = new File( directory, SNAPSHOT_FILE );
+        if ( snapshot.exists() ) {
+            try (DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( snapshot ) ) )) {
+                if ( in.readInt() != SNAPSHOT_MAGIC ) {
+                    throw new IOException( snapshot + " is not a session storage snapshot" );
+                }
+                generation = in.readLong();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    byte[] record = new byte[in.readInt()];
+                    in.readFully( record );
+                    apply( record );
+                }
+            }
+        }
+
+        journal = AppendOnlyJournal.open( getJournalFile( generation ), regionSize, this::apply );
+
+        for (Map.Entry<Long, SessionState> entry : sessionStates.entrySet()) {
+            SessionInfo sessionInfo = new SessionInfo();
+            sessionInfo.setId( entry.getKey() );
+            sessionInfo.setData( entry.getValue().restore() );
+            sessions.put( entry.getKey(), sessionInfo );
+        }
+
+        // journals older than the snapshot are left by a crash during its creation
+        File[] files = directory.listFiles( ( dir, name ) -> name.startsWith( JOURNAL_PREFIX ) && name.endsWith( JOURNAL_SUFFIX ) );
+        if ( files != null ) {
+            for (File file : files) {
+                if ( !file.getName().equals( getJournalFile( generation ).getName() ) ) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private File getJournalFile( long generation ) {
+        return new File( directory, JOURNAL_PREFIX + generation + JOURNAL_SUFFIX );
+    }
+
+    public PersistentSession findSessionInfo( Long sessionId ) {
+        return sessions.get( sessionId );
+    }
+
+    public void saveOrUpdate( PersistentSession storedObject ) {
+        if ( !(storedObject instanceof SessionInfo) ) {
+            throw new IllegalArgumentException( "Unsupported session type " + storedObject.getClass().getName() );
+        }
+        SessionInfo sessionInfo = (SessionInfo) storedObject;
+        sessions.put( sessionInfo.getId(), sessionInfo );
+        write( sessionDeltaRecord( sessionInfo.getId(), sessionInfo.getData() ) );
+    }
+
+    public void saveOrUpdate( PersistentWorkItem workItem ) {
+        if ( !(workItem instanceof WorkItemInfo) ) {
+            throw new IllegalArgumentException( "Unsupported work item type " + workItem.getClass().getName() );
+        }
+        WorkItemInfo workItemInfo = (WorkItemInfo) workItem;
+        workItems.put( workItemInfo.getId(), workItemInfo );
+        write( workItemRecord( workItemInfo ) );
+    }
+
+    public void remove( PersistentWorkItem workItem ) {
+        workItems.remove( workItem.getId() );
+        write( record( REMOVE_WORK_ITEM, out -> out.writeLong( workItem.getId() ) ) );
+    }
+
+    public PersistentWorkItem findWorkItemInfo( Long id ) {
+        return workItems.get( id );
+    }
+
+    public Long getNextWorkItemId() {
+        return workItemIds.incrementAndGet();
+    }
+
+    public Long getNextStatefulKnowledgeSessionId() {
+        return sessionIds.incrementAndGet();
+    }
+
+    public Set<Long> getSessionIds() {
+        return Collections.unmodifiableSet( new HashSet<>( sessions.keySet() ) );
+    }
+
+    public void lock( PersistentSession session ) {
+        throw new UnsupportedOperationException( "Journaled persistence does not support locking." );
+    }
+
+    public void lock( PersistentWorkItem workItem ) {
+        throw new UnsupportedOperationException( "Journaled persistence does not support locking." );
+    }
+
+    private void write( byte[] record ) {
+        AppendOnlyJournal target;
+        long position;
+        try {
+            synchronized ( this ) {
+                target = journal;
+                position = target.append( record );
+            }
+            // outside of the lock, so that the records appended in the meanwhile are synced together
+            target.sync( position );
+            if ( position > snapshotThreshold ) {
+                snapshot();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * Writes the latest state of all the sessions and work items in a new snapshot and starts a new journal.
+     */
+    public synchronized void snapshot() throws IOException {
+        if ( journal.size() == 0 ) {
+            return;
+        }
+        long nextGeneration = generation + 1;
+        File tmp = new File( directory, SNAPSHOT_FILE + ".tmp" );
+        try (FileOutputStream fos = new FileOutputStream( tmp )) {
+            DataOutputStream out = new DataOutputStream( new BufferedOutputStream( fos ) );
+            out.writeInt( SNAPSHOT_MAGIC );
+            out.writeLong( nextGeneration );
+            out.writeInt( sessionStates.size() + workItems.size() );
+            for (Map.Entry<Long, SessionState> entry : sessionStates.entrySet()) {
+                SessionState state = entry.getValue();
+                synchronized ( state ) {
+                    writeSnapshotRecord( out, sessionRecord( entry.getKey(), state, Collections.emptySet() ) );
+                }
+            }
+            for (WorkItemInfo workItemInfo : workItems.values()) {
+                writeSnapshotRecord( out, workItemRecord( workItemInfo ) );
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        Files.move( tmp.toPath(), new File( directory, SNAPSHOT_FILE ).toPath(), StandardCopyOption.ATOMIC_MOVE );
+
+        AppendOnlyJournal previous = journal;
+        journal = AppendOnlyJournal.open( getJournalFile( nextGeneration ), regionSize, record -> { } );
+        previous.close();
+        getJournalFile( generation ).delete();
+        generation = nextGeneration;
+    }
+
+    private static void writeSnapshotRecord( DataOutputStream out, byte[] record ) throws IOException {
+        out.writeInt( record.length );
+        out.write( record );
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        journal.close();
+    }
+
+    private byte[] sessionDeltaRecord( Long sessionId, byte[] data ) {
+        SessionState state = sessionStates.computeIfAbsent( sessionId, id -> new SessionState() );
+        synchronized ( state ) {
+            Set<String> journaled = new HashSet<>( state.chunks.keySet() );
+            state.update( data );
+            return sessionRecord( sessionId, state, journaled );
+        }
+    }
+
+    /**
+     * A record with the manifest of the session and its chunks not included in the given already journaled ones
+     */
+    private static byte[] sessionRecord( Long sessionId, SessionState state, Set<String> journaled ) {
+        List<Map.Entry<String, byte[]>> added = state.chunks.entrySet().stream()
+                .filter( chunk -> !journaled.contains( chunk.getKey() ) )
+                .collect( Collectors.toList() );
+        return record( SESSION, out -> {
+            out.writeLong( sessionId );
+            writeBytes( out, state.manifest );
+            out.writeInt( added.size() );
+            for (Map.Entry<String, byte[]> chunk : added) {
+                out.writeUTF( chunk.getKey() );
+                writeBytes( out, chunk.getValue() );
+            }
+        } );
+    }
+
+    private static byte[] workItemRecord( WorkItemInfo workItemInfo ) {
+        return record( WORK_ITEM, out -> {
+            out.writeLong( workItemInfo.getId() );
+            out.writeBoolean( workItemInfo.getName() != null );
+            if ( workItemInfo.getName() != null ) {
+                out.writeUTF( workItemInfo.getName() );
+            }
+            out.writeLong( workItemInfo.getCreationDate() != null ? workItemInfo.getCreationDate().getTime() : -1 );
+            out.writeLong( workItemInfo.getProcessInstanceId() );
+            out.writeLong( workItemInfo.getState() );
+            writeBytes( out, workItemInfo.getWorkItemByteArray() );
+        } );
+    }
+
+    private void apply( byte[] record ) {
+        try {
+            DataInputStream in = new DataInputStream( new ByteArrayInputStream( record ) );
+            switch ( in.readByte() ) {
+                case SESSION: {
+                    long id = in.readLong();
+                    SessionState state = sessionStates.computeIfAbsent( id, k -> new SessionState() );
+                    byte[] manifest = readBytes( in );
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        state.chunks.put( in.readUTF(), readBytes( in ) );
+                    }
+                    state.replay( manifest );
+                    sessionIds.accumulateAndGet( id, Math::max );
+                    break;
+                }
+                case WORK_ITEM: {
+                    long id = in.readLong();
+                    String name = in.readBoolean() ? in.readUTF() : null;
+                    long creationTime = in.readLong();
+                    WorkItemInfo workItemInfo = new WorkItemInfo( id,
+                                                                  name,
+                                                                  creationTime >= 0 ? new Date( creationTime ) : null,
+                                                                  in.readLong(),
+                                                                  in.readLong(),
+                                                                  readBytes( in ) );
+                    workItems.put( id, workItemInfo );
+                    workItemIds.accumulateAndGet( id, Math::max );
+                    break;
+                }
+                case REMOVE_WORK_ITEM: {
+                    long id = in.readLong();
+                    workItems.remove( id );
+                    workItemIds.accumulateAndGet( id, Math::max );
+                    break;
+                }
+                default:
+                    throw new IllegalStateException( "Unknown record type in session storage journal" );
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * The latest journaled state of a session: the manifest of its marshalled state and its compressed chunks
+     */
+    private static class SessionState {
+
+        private final Map<String, byte[]> chunks = new HashMap<>();
+        private byte[] manifest;
+
+        private void update( byte[] data ) {
+            if ( data == null ) {
+                replay( null );
+            } else {
+                manifest = SessionChunks.split( data, chunks );
+            }
+        }
+
+        private void replay( byte[] manifest ) {
+            this.manifest = manifest;
+            if ( manifest == null ) {
+                chunks.clear();
+            } else {
+                SessionChunks.retain( manifest, chunks );
+            }
+        }
+
+        private byte[] restore() {
+            return manifest != null ? SessionChunks.join( manifest, chunks ) : null;
+        }
+    }
+
+    private interface RecordWriter {
+        void write( DataOutputStream out ) throws IOException;
+    }
+
+    private static byte[] record( byte type, RecordWriter writer ) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream( bytes )) {
+            out.writeByte( type );
+            writer.write( out );
+        } catch (IOException e) {
+            throw new UncheckedIOException( e );
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeBytes( DataOutputStream out, byte[] bytes ) throws IOException {
+        if ( bytes == null ) {
+            out.writeInt( -1 );
+        } else {
+            out.writeInt( bytes.length );
+            out.write( bytes );
+        }
+    }
+
+    private static byte[] readBytes( DataInputStream in ) throws IOException {
+        int length = in.readInt();
+        if ( length < 0 ) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully( bytes );
+        return bytes;
+    }
+}
@@ -0,0 +1,18 @@
+-- Table storing the compressed chunks of the sessions persisted with drools.persistence.session.chunked=true,
+-- referenced by the manifest stored in SessionInfo.rulesByteArray.
+--
+-- MIGRATION STEP: SessionInfo always maps this table, even when the chunked storage is disabled, so it must be
+-- created on every existing database when upgrading, unless the schema is generated or updated by the JPA
+-- provider. Without it a schema validation fails at startup, and the deletion of a SessionInfo fails too.
+
+create table SessionInfoChunk (
+    sessionId bigint not null,
+    chunkHash varchar(32) not null,
+    chunkData longblob,
+    primary key (sessionId, chunkHash)
+) ENGINE=InnoDB;
+
+alter table SessionInfoChunk
+    add constraint FK_SessionChunk_SessionInfo
+    foreign key (sessionId)
+    references SessionInfo (id);
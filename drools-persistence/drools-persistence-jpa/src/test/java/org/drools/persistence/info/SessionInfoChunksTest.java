@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.persistence.info;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SessionInfoChunksTest {
+
+    @Test
+    public void testOnlyChangedChunksAreReplaced() {
+        byte[] snapshot = new byte[4 * 1024 * 1024];
+        new Random( 42 ).nextBytes( snapshot );
+
+        SessionInfo sessionInfo = new SessionInfo();
+        sessionInfo.setChunkedStorage( true );
+        sessionInfo.setSnapshot( snapshot );
+        assertArrayEquals( snapshot, sessionInfo.getData() );
+
+        Map<String, byte[]> before = new HashMap<>( sessionInfo.getChunks() );
+        assertTrue( before.size() > 10 );
+
+        // insert a few bytes in the middle, shifting all the following ones
+        byte[] changed = new byte[snapshot.length + 3];
+        int middle = snapshot.length / 2;
+        System.arraycopy( snapshot, 0, changed, 0, middle );
+        changed[middle] = 1;
+        changed[middle + 1] = 2;
+        changed[middle + 2] = 3;
+        System.arraycopy( snapshot, middle, changed, middle + 3, snapshot.length - middle );
+
+        sessionInfo.setSnapshot( changed );
+        assertArrayEquals( changed, sessionInfo.getData() );
+
+        int added = 0;
+        for (Map.Entry<String, byte[]> entry : sessionInfo.getChunks().entrySet()) {
+            if ( before.containsKey( entry.getKey() ) ) {
+                // the unchanged chunks are kept as they are, so they are not written again
+                assertTrue( before.get( entry.getKey() ) == entry.getValue() );
+            } else {
+                added++;
+            }
+        }
+        // the chunk containing the change and at most the ones around it
+        assertTrue( "Too many chunks changed: " + added, added <= 3 );
+    }
+
+    @Test
+    public void testSwitchingStorageMode() {
+        byte[] snapshot = new byte[100 * 1024];
+        new Random( 7 ).nextBytes( snapshot );
+
+        SessionInfo sessionInfo = new SessionInfo();
+        sessionInfo.setChunkedStorage( true );
+        sessionInfo.setSnapshot( snapshot );
+        assertArrayEquals( snapshot, sessionInfo.getData() );
+
+        sessionInfo.setChunkedStorage( false );
+        sessionInfo.setSnapshot( snapshot );
+        assertArrayEquals( snapshot, sessionInfo.getData() );
+        assertTrue( sessionInfo.getChunks().isEmpty() );
+    }
+
+    @Test
+    public void testUnchunkedStorageDoesNotAccessTheChunks() throws Exception {
+        // emulates the lazy collection of an entity that was never stored in chunks, which must not be loaded
+        Map<?, ?> untouchable = (Map<?, ?>) Proxy.newProxyInstance( getClass().getClassLoader(), new Class<?>[] { Map.class }, ( proxy, method, args ) -> {
+            fail( "The chunks have been accessed by " + method.getName() );
+            return null;
+        } );
+        SessionInfo sessionInfo = new SessionInfo();
+        Field chunks = SessionInfo.class.getDeclaredField( "chunks" );
+        chunks.setAccessible( true );
+        chunks.set( sessionInfo, untouchable );
+
+        byte[] snapshot = new byte[1024];
+        new Random( 3 ).nextBytes( snapshot );
+        sessionInfo.setChunkedStorage( false );
+        sessionInfo.setSnapshot( snapshot );
+        sessionInfo.setSnapshot( snapshot );
+        assertArrayEquals( snapshot, sessionInfo.getData() );
+    }
+}
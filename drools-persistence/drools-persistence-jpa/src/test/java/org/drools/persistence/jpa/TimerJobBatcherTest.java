@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.persistence.jpa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.core.common.InternalWorkingMemory;
+import org.drools.core.time.JobContext;
+import org.drools.core.time.JobHandle;
+import org.drools.core.time.impl.DefaultJobHandle;
+import org.drools.core.time.impl.IntervalTrigger;
+import org.junit.Test;
+import org.kie.api.runtime.ExecutableRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TimerJobBatcherTest {
+
+    @Test
+    public void testJobsAreExecutedAtTheEndOfTheWindow() throws Exception {
+        CountDownLatch done = new CountDownLatch( 2 );
+        List<Integer> batchSizes = Collections.synchronizedList( new ArrayList<>() );
+
+        TimerJobBatcher batcher = new TimerJobBatcher( 100, jobs -> {
+            batchSizes.add( jobs.size() );
+            new BatchedTimerJobsCommand( jobs ).execute( null );
+        }, TimerJobBatcherTest::execute );
+
+        batcher.submit( new Date(), () -> { done.countDown(); } );
+        batcher.submit( new Date(), () -> { done.countDown(); } );
+
+        assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+        assertEquals( Collections.singletonList( 2 ), batchSizes );
+    }
+
+    @Test
+    public void testJobsFiredInTheSameWindowAreExecutedTogetherInFiringOrder() throws Exception {
+        int jobsCount = 100;
+        List<Integer> executed = new ArrayList<>();
+        List<Integer> batchSizes = new ArrayList<>();
+
+        TimerJobBatcher batcher = new TimerJobBatcher( 60_000, jobs -> {
+            batchSizes.add( jobs.size() );
+            new BatchedTimerJobsCommand( jobs ).execute( null );
+        }, TimerJobBatcherTest::execute );
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < jobsCount; i++) {
+            // the jobs are submitted in the reverse order of their firing time
+            int id = jobsCount - 1 - i;
+            batcher.submit( new Date( now + id ), () -> executed.add( id ) );
+        }
+        batcher.flush();
+
+        assertEquals( Collections.singletonList( jobsCount ), batchSizes );
+        for (int i = 0; i < jobsCount; i++) {
+            assertEquals( i, (int) executed.get( i ) );
+        }
+    }
+
+    @Test
+    public void testJobsOfAFailingBatchAreExecutedOneByOne() throws Exception {
+        List<String> committed = Collections.synchronizedList( new ArrayList<>() );
+        List<Integer> transactions = Collections.synchronizedList( new ArrayList<>() );
+
+        // emulates the transactions of the session runner: the jobs are committed only if all of them succeed
+        TimerJobBatcher batcher = new TimerJobBatcher( 60_000, jobs -> {
+            transactions.add( jobs.size() );
+            committed.addAll( executeInTransaction( jobs ) );
+        }, job -> {
+            transactions.add( 1 );
+            committed.addAll( executeInTransaction( Collections.singletonList( job ) ) );
+        } );
+
+        long now = System.currentTimeMillis();
+        batcher.submit( new Date( now ), () -> { record( "A" ); } );
+        batcher.submit( new Date( now + 1 ), () -> { throw new IllegalStateException( "failing job" ); } );
+        batcher.submit( new Date( now + 2 ), () -> { record( "C" ); } );
+        batcher.flush();
+
+        // the batch is rolled back, then the jobs sharing it with the failing one are committed on their own
+        assertEquals( Arrays.asList( 3, 1, 1, 1 ), transactions );
+        assertEquals( Arrays.asList( "A", "C" ), committed );
+
+        batcher.submit( new Date( now + 3 ), () -> { record( "D" ); } );
+        batcher.flush();
+        assertEquals( Arrays.asList( "A", "C", "D" ), committed );
+    }
+
+    @Test
+    public void testIntervalTimerOfAFailingBatchIsAdvancedAndRescheduledOnce() throws Exception {
+        List<String> committed = Collections.synchronizedList( new ArrayList<>() );
+        List<Date> scheduled = new ArrayList<>();
+
+        TimerJobBatcher batcher = new TimerJobBatcher( 60_000,
+                                                       jobs -> committed.addAll( executeInTransaction( jobs ) ),
+                                                       job -> committed.addAll( executeInTransaction( Collections.singletonList( job ) ) ) );
+
+        long now = System.currentTimeMillis();
+        IntervalTrigger trigger = new IntervalTrigger( now, null, null, -1, 0, 1000, null, null );
+        JpaTimerJobInstance interval = new JpaTimerJobInstance( ctx -> record( "interval" ),
+                                                                new TestJobContext(),
+                                                                trigger,
+                                                                new DefaultJobHandle( 1 ),
+                                                                instance -> scheduled.add( instance.getTrigger().hasNextFireTime() ) );
+
+        batcher.submit( trigger.hasNextFireTime(), interval );
+        batcher.submit( new Date( now + 1 ), () -> { throw new IllegalStateException( "failing job" ); } );
+        batcher.flush();
+
+        // only the execution is retried, while the trigger is advanced and the job rescheduled once
+        assertEquals( Collections.singletonList( "interval" ), committed );
+        assertEquals( Collections.singletonList( new Date( now + 1000 ) ), scheduled );
+        assertEquals( new Date( now + 1000 ), trigger.hasNextFireTime() );
+    }
+
+    @Test
+    public void testChangingTheWindowFlushesThePendingJobs() throws Exception {
+        List<String> executed = Collections.synchronizedList( new ArrayList<>() );
+        JpaTimeJobFactoryManager manager = new JpaTimeJobFactoryManager();
+        manager.setRunner( ExecutableRunner.create() );
+
+        manager.setCoalescingWindow( 60_000 );
+        manager.getTimerJobBatcher().submit( new Date(), () -> { executed.add( "A" ); } );
+        assertTrue( executed.isEmpty() );
+
+        manager.setCoalescingWindow( 0 );
+        assertEquals( Collections.singletonList( "A" ), executed );
+        assertNull( manager.getTimerJobBatcher() );
+    }
+
+    @Test
+    public void testCoalescingIsDisabledByDefault() {
+        JpaTimeJobFactoryManager manager = new JpaTimeJobFactoryManager();
+        assertNull( manager.getTimerJobBatcher() );
+
+        manager.setCoalescingWindow( 200 );
+        assertEquals( 200, manager.getTimerJobBatcher().getWindowMillis() );
+    }
+
+    private static class TestJobContext implements JobContext {
+
+        private JobHandle jobHandle;
+
+        @Override
+        public void setJobHandle( JobHandle jobHandle ) {
+            this.jobHandle = jobHandle;
+        }
+
+        @Override
+        public JobHandle getJobHandle() {
+            return jobHandle;
+        }
+
+        @Override
+        public InternalWorkingMemory getWorkingMemory() {
+            return null;
+        }
+    }
+
+    private static final ThreadLocal<List<String>> TRANSACTION = new ThreadLocal<>();
+
+    private static void record( String name ) {
+        TRANSACTION.get().add( name );
+    }
+
+    private static List<String> executeInTransaction( List<Callable<Void>> jobs ) {
+        TRANSACTION.set( new ArrayList<>() );
+        try {
+            new BatchedTimerJobsCommand( jobs ).execute( null );
+            return TRANSACTION.get();
+        } finally {
+            TRANSACTION.remove();
+        }
+    }
+
+    private static void execute( Callable<Void> job ) {
+        new BatchedTimerJobsCommand( Collections.singletonList( job ) ).execute( null );
+    }
+}
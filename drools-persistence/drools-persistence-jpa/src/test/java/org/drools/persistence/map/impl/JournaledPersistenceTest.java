@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.persistence.map.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.drools.core.impl.KnowledgeBaseFactory;
+import org.drools.persistence.map.EnvironmentBuilder;
+import org.drools.persistence.map.JournaledKnowledgeSessionStorage;
+import org.drools.persistence.map.KnowledgeSessionStorageEnvironmentBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kie.api.KieBase;
+import org.kie.api.KieServices;
+import org.kie.api.command.KieCommands;
+import org.kie.api.runtime.Environment;
+import org.kie.api.runtime.EnvironmentName;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.persistence.jpa.JPAKnowledgeService;
+
+public class JournaledPersistenceTest extends MapPersistenceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private JournaledKnowledgeSessionStorage storage;
+
+    @Before
+    public void createStorage() throws IOException {
+        directory = folder.newFolder();
+        storage = new JournaledKnowledgeSessionStorage( directory );
+    }
+
+    @After
+    public void closeStorage() throws IOException {
+        storage.close();
+    }
+
+    @Override
+    protected KieSession createSession( KieBase kbase ) {
+        return JPAKnowledgeService.newStatefulKnowledgeSession( kbase, null, createEnvironment() );
+    }
+
+    @Override
+    protected KieSession disposeAndReloadSession( KieSession ksession, KieBase kbase ) {
+        long sessionId = ksession.getIdentifier();
+        ksession.dispose();
+        // recover everything from the files, as after a restart
+        reopenStorage( JournaledKnowledgeSessionStorage.DEFAULT_SNAPSHOT_THRESHOLD );
+        return JPAKnowledgeService.loadStatefulKnowledgeSession( sessionId, kbase, null, createEnvironment() );
+    }
+
+    @Override
+    protected long getSavedSessionsCount() {
+        return storage.getSessionIds().size();
+    }
+
+    @Test
+    public void testRecoveryFromSnapshotAndJournal() throws IOException {
+        KieBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+        // a threshold small enough to take several snapshots
+        reopenStorage( 1024 );
+
+        KieSession ksession = createSession( kbase );
+        long sessionId = ksession.getIdentifier();
+        for (int i = 0; i < 100; i++) {
+            ksession.insert( new Buddy( "buddy" + i ) );
+        }
+        ksession.dispose();
+        Assert.assertTrue( new File( directory, "snapshot.bin" ).exists() );
+
+        reopenStorage( 1024 );
+        ksession = JPAKnowledgeService.loadStatefulKnowledgeSession( sessionId, kbase, null, createEnvironment() );
+        Assert.assertEquals( 100, ksession.getObjects().size() );
+        ksession.dispose();
+    }
+
+    @Test
+    public void testTornWriteIsDiscarded() throws IOException {
+        KieBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+        KieSession ksession = createSession( kbase );
+        long sessionId = ksession.getIdentifier();
+        ksession.insert( new Buddy( "john" ) );
+        ksession.dispose();
+        storage.close();
+
+        // simulate a crash in the middle of writing the next record
+        File journal = new File( directory, "journal-0.log" );
+        long end = findJournalEnd( journal );
+        try (RandomAccessFile file = new RandomAccessFile( journal, "rw" )) {
+            file.seek( end );
+            file.writeInt( 1000 );
+            file.writeInt( 12345 );
+            file.write( new byte[] { 1, 2, 3 } );
+        }
+
+        storage = new JournaledKnowledgeSessionStorage( directory );
+        ksession = JPAKnowledgeService.loadStatefulKnowledgeSession( sessionId, kbase, null, createEnvironment() );
+        Assert.assertEquals( 1, ksession.getObjects().size() );
+        ksession.insert( new Buddy( "mario" ) );
+        ksession.dispose();
+
+        reopenStorage( JournaledKnowledgeSessionStorage.DEFAULT_SNAPSHOT_THRESHOLD );
+        ksession = JPAKnowledgeService.loadStatefulKnowledgeSession( sessionId, kbase, null, createEnvironment() );
+        Assert.assertEquals( 2, ksession.getObjects().size() );
+        ksession.dispose();
+    }
+
+    @Test
+    public void testOnlyTheChangedChunksOfASessionAreJournaled() throws IOException {
+        KieBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+        KieSession ksession = createSession( kbase );
+        long sessionId = ksession.getIdentifier();
+        File journal = new File( directory, "journal-0.log" );
+
+        List<Object> buddies = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            buddies.add( new Buddy( "buddy" + i ) );
+        }
+        KieCommands commands = KieServices.Factory.get().getCommands();
+        long beforeInsert = findJournalEnd( journal );
+        ksession.execute( commands.newInsertElements( buddies ) );
+        long afterInsert = findJournalEnd( journal );
+        ksession.insert( new Buddy( "mario" ) );
+        long afterChange = findJournalEnd( journal );
+
+        long fullRecord = afterInsert - beforeInsert;
+        long deltaRecord = afterChange - afterInsert;
+        Assert.assertTrue( "The record of a small change (" + deltaRecord + " bytes) should be much smaller than the whole session (" + fullRecord + " bytes)",
+                           deltaRecord * 4 < fullRecord );
+
+        // the session is restored by replaying its deltas
+        ksession = disposeAndReloadSession( ksession, kbase );
+        Assert.assertEquals( sessionId, ksession.getIdentifier() );
+        Assert.assertEquals( 20001, ksession.getObjects().size() );
+        ksession.dispose();
+    }
+
+    @Test
+    public void testPessimisticLockingIsRejected() {
+        KieBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+        Environment env = createEnvironment();
+        env.set( EnvironmentName.USE_PESSIMISTIC_LOCKING, true );
+        try {
+            JPAKnowledgeService.newStatefulKnowledgeSession( kbase, null, env );
+            Assert.fail( "The journaled storage doesn't support pessimistic locking" );
+        } catch (RuntimeException e) {
+            Throwable cause = e;
+            while ( !(cause instanceof IllegalArgumentException) && cause.getCause() != null ) {
+                cause = cause.getCause();
+            }
+            Assert.assertTrue( cause instanceof IllegalArgumentException );
+            Assert.assertTrue( cause.getMessage().contains( "pessimistic locking" ) );
+        }
+    }
+
+    private static long findJournalEnd( File journal ) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile( journal, "r" )) {
+            long pos = 0;
+            while ( pos + 8 <= file.length() ) {
+                file.seek( pos );
+                int length = file.readInt();
+                if ( length <= 0 ) {
+                    break;
+                }
+                pos += 8 + length;
+            }
+            return pos;
+        }
+    }
+
+    private void reopenStorage( long snapshotThreshold ) {
+        try {
+            storage.close();
+            storage = new JournaledKnowledgeSessionStorage( directory, snapshotThreshold, 64 * 1024 );
+        } catch (IOException e) {
+            throw new RuntimeException( e );
+        }
+    }
+
+    private Environment createEnvironment() {
+        EnvironmentBuilder envBuilder = new KnowledgeSessionStorageEnvironmentBuilder( storage );
+        Environment env = KieServices.Factory.get().newEnvironment();
+        env.set( EnvironmentName.TRANSACTION_MANAGER,
+                 envBuilder.getTransactionManager() );
+        env.set( EnvironmentName.PERSISTENCE_CONTEXT_MANAGER,
+                 envBuilder.getPersistenceContextManager() );
+        return env;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.persistence.session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.drools.persistence.info.SessionInfo;
+import org.drools.persistence.util.DroolsPersistenceUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.KieBase;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.Environment;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.persistence.jpa.JPAKnowledgeService;
+import org.kie.internal.utils.KieHelper;
+
+import static org.drools.persistence.util.DroolsPersistenceUtil.DROOLS_PERSISTENCE_UNIT_NAME;
+import static org.junit.Assert.assertEquals;
+
+public class ChunkedSessionStorageTest {
+
+    private static final String DRL =
+            "package org.kie.test\n" +
+            "global java.util.List list\n" +
+            "rule Positive when\n" +
+            "    $i : Integer( intValue > 0 )\n" +
+            "then\n" +
+            "    list.add( $i );\n" +
+            "end\n";
+
+    private Map<String, Object> context;
+
+    @Before
+    public void setup() {
+        System.setProperty( SessionInfo.CHUNKED_STORAGE_PROPERTY, "true" );
+        context = DroolsPersistenceUtil.setupWithPoolingDataSource( DROOLS_PERSISTENCE_UNIT_NAME );
+    }
+
+    @After
+    public void cleanUp() {
+        System.clearProperty( SessionInfo.CHUNKED_STORAGE_PROPERTY );
+        DroolsPersistenceUtil.cleanUp( context );
+    }
+
+    @Test
+    public void testReloadChunkedSession() {
+        KieBase kbase = new KieHelper().addContent( DRL, ResourceType.DRL ).build();
+        Environment env = DroolsPersistenceUtil.createEnvironment( context );
+        KieSession ksession = JPAKnowledgeService.newStatefulKnowledgeSession( kbase, null, env );
+        long sessionId = ksession.getIdentifier();
+
+        for (int i = -50; i < 2000; i++) {
+            ksession.insert( i );
+        }
+        // one more command, rewriting only the chunks it changed
+        ksession.insert( 5000 );
+        ksession.dispose();
+
+        env = DroolsPersistenceUtil.createEnvironment( context );
+        KieSession reloaded = JPAKnowledgeService.loadStatefulKnowledgeSession( sessionId, kbase, null, env );
+        assertEquals( 2051, reloaded.getFactCount() );
+
+        List<Integer> list = new ArrayList<>();
+        reloaded.setGlobal( "list", list );
+        reloaded.fireAllRules();
+        assertEquals( 2000, list.size() );
+        reloaded.dispose();
+    }
+}
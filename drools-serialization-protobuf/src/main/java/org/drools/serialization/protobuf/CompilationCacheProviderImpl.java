@@ -15,16 +15,21 @@
 package org.drools.serialization.protobuf;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.util.Map;
 
 import com.google.protobuf.ExtensionRegistry;
 import org.kie.memorycompiler.resources.ResourceStore;
 import org.drools.compiler.kie.builder.impl.AbstractKieModule;
 import org.drools.compiler.kie.builder.impl.CompilationCacheProvider;
+import org.drools.compiler.kie.builder.impl.FileKieModule;
 import org.drools.compiler.kie.builder.impl.InternalKieModule;
 import org.drools.compiler.kie.builder.impl.InternalKieModule.CompilationCache;
+import org.drools.compiler.kie.builder.impl.KieBaseImage;
 import org.drools.compiler.kie.builder.impl.KieBuilderImpl;
 import org.drools.core.util.Drools;
+import org.drools.serialization.protobuf.kie.IndexedKieModuleCache;
 import org.drools.serialization.protobuf.kie.KieModuleCache.CompDataEntry;
 import org.drools.serialization.protobuf.kie.KieModuleCache.CompilationData;
 import org.drools.serialization.protobuf.kie.KieModuleCache.Header;
@@ -43,7 +48,25 @@ public class CompilationCacheProviderImpl implements CompilationCacheProvider {
         // Map< DIALECT, Map< RESOURCE, List<BYTECODE> > >
         CompilationCache cache = compilationCache.get(kbaseName);
         if (cache == null) {
-            byte[] fileContents = kieModule.getBytes( KieBuilderImpl.getCompilationCachePath(kieModule.getReleaseId(), kbaseName));
+            String cachePath = KieBuilderImpl.getCompilationCachePath(kieModule.getReleaseId(), kbaseName);
+            cache = getIndexedCompilationCache( kieModule, cachePath );
+            if (cache != null) {
+                compilationCache.put(kbaseName, cache);
+                return cache;
+            }
+            byte[] fileContents = kieModule.getBytes( cachePath );
+            if (fileContents != null && IndexedKieModuleCache.isIndexed( fileContents )) {
+                try {
+                    cache = toCompilationCache( IndexedKieModuleCache.open( fileContents ) );
+                } catch (RuntimeException e) {
+                    log.error("Unable to load compilation cache... ", e);
+                    return null;
+                }
+                if (cache != null) {
+                    compilationCache.put(kbaseName, cache);
+                }
+                return cache;
+            }
             if (fileContents != null) {
                 ExtensionRegistry registry = KieModuleCacheHelper.buildRegistry();
                 try {
@@ -75,8 +98,47 @@ public class CompilationCacheProviderImpl implements CompilationCacheProvider {
         return cache;
     }
 
+    private static CompilationCache getIndexedCompilationCache( AbstractKieModule kieModule, String cachePath ) {
+        if (!(kieModule instanceof FileKieModule)) {
+            return null;
+        }
+        // an exploded kjar, so the cache can be mapped instead of read
+        File cacheFile = new File( kieModule.getFile(), cachePath );
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        try {
+            IndexedKieModuleCache indexedCache = IndexedKieModuleCache.map( cacheFile );
+            return indexedCache != null ? toCompilationCache( indexedCache ) : null;
+        } catch (IOException | RuntimeException e) {
+            log.error("Unable to map compilation cache " + cacheFile, e);
+            return null;
+        }
+    }
+
+    private static CompilationCache toCompilationCache( IndexedKieModuleCache indexedCache ) {
+        if (!indexedCache.isCompatible()) {
+            log.warn("The compilation cache has been built with an incompatible version. " +
+                    "You should recompile your project in order to use it with current release.");
+            indexedCache.close();
+            return null;
+        }
+        return indexedCache.toCompilationCache();
+    }
+
     @Override
     public void writeKieModuleMetaInfo(InternalKieModule kModule, ResourceStore trgMfs) {
         new MarshallingKieMetaInfoBuilder( kModule ).writeKieModuleMetaInfo( trgMfs );
     }
+
+    @Override
+    public byte[] getKieBaseImage( AbstractKieModule kieModule, String kbaseName ) throws IOException, ClassNotFoundException {
+        byte[] fileContents = kieModule.getBytes( KieBaseImage.getKieBaseImagePath( kieModule.getReleaseId(), kbaseName ) );
+        if (fileContents == null) {
+            return null;
+        }
+        // throws an exception if the signature doesn't match the one expected by this environment
+        Header header = KieModuleCacheHelper.readFromStreamWithHeaderPreloaded( new ByteArrayInputStream( fileContents ), KieModuleCacheHelper.buildRegistry() );
+        return header.getPayload().toByteArray();
+    }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.serialization.protobuf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.drools.core.marshalling.impl.ActivationKey;
+import org.drools.serialization.protobuf.ProtobufMessages.NodeMemory.QueryElementNodeMemory.QueryContext;
+
+/**
+ * Merges a full snapshot of a session with the chain of the delta snapshots taken after it, keeping track
+ * of the snapshot each fact handle, dormant match and belief set has been read from, so that its objects
+ * can be unmarshalled with the strategies of that snapshot.
+ */
+class DeltaMerge {
+
+    // the fact handles and the equality keys of each entry point, sorted by handle id
+    private final Map<String, Map<Long, ProtobufMessages.FactHandle>> handles = new HashMap<>();
+    private final Map<String, Map<Long, ProtobufMessages.EqualityKey>> equalityKeys = new HashMap<>();
+    private final Map<ActivationKey, ProtobufMessages.Activation> matches = new LinkedHashMap<>();
+    private final Map<Integer, List<QueryContext>> queryContexts = new LinkedHashMap<>();
+
+    private final Map<Long, ProtobufMarshallerReaderContext> handleContexts = new HashMap<>();
+    private final Map<Long, ProtobufMarshallerReaderContext> beliefSetContexts = new HashMap<>();
+    private final Map<ActivationKey, ProtobufMarshallerReaderContext> matchContexts = new HashMap<>();
+
+    /**
+     * Adds a snapshot read with the given context. The changes are null for the full snapshot the chain starts from.
+     */
+    void add( ProtobufMessages.KnowledgeSession _session, ProtobufMarshallerReaderContext context, SessionChanges changes ) {
+        if ( changes != null ) {
+            removeTouched( changes );
+        }
+
+        ProtobufMessages.RuleData _ruleData = _session.getRuleData();
+        for ( ProtobufMessages.EntryPoint _ep : _ruleData.getEntryPointList() ) {
+            Map<Long, ProtobufMessages.FactHandle> epHandles = handles.computeIfAbsent( _ep.getEntryPointId(), k -> new TreeMap<>() );
+            for ( ProtobufMessages.FactHandle _handle : _ep.getHandleList() ) {
+                epHandles.put( _handle.getId(), _handle );
+                handleContexts.put( _handle.getId(), context );
+            }
+            Map<Long, ProtobufMessages.EqualityKey> epKeys = equalityKeys.computeIfAbsent( _ep.getEntryPointId(), k -> new TreeMap<>() );
+            for ( ProtobufMessages.EqualityKey _key : _ep.getTms().getKeyList() ) {
+                epKeys.put( _key.getHandleId(), _key );
+                beliefSetContexts.put( _key.getHandleId(), context );
+            }
+        }
+
+        for ( ProtobufMessages.Activation _match : _ruleData.getAgenda().getMatchList() ) {
+            ActivationKey key = getMatchKey( _match );
+            matches.put( key, _match );
+            matchContexts.put( key, context );
+        }
+
+        for ( ProtobufMessages.NodeMemory _memory : _ruleData.getNodeMemoryList() ) {
+            if ( _memory.getNodeType() == ProtobufMessages.NodeMemory.NodeType.QUERY_ELEMENT ) {
+                queryContexts.computeIfAbsent( _memory.getNodeId(), k -> new ArrayList<>() ).addAll( _memory.getQueryElement().getContextList() );
+            }
+        }
+    }
+
+    private void removeTouched( SessionChanges changes ) {
+        for ( Long id : changes.getDeletedHandles() ) {
+            handleContexts.remove( id );
+            for ( Map<Long, ProtobufMessages.FactHandle> epHandles : handles.values() ) {
+                epHandles.remove( id );
+            }
+        }
+
+        // the entries referring a touched handle are replaced by the ones of the delta, if still existing
+        for ( Map<Long, ProtobufMessages.EqualityKey> epKeys : equalityKeys.values() ) {
+            epKeys.values().removeIf( _key -> {
+                if ( changes.isTouched( _key ) ) {
+                    beliefSetContexts.remove( _key.getHandleId() );
+                    return true;
+                }
+                return false;
+            } );
+        }
+        matches.entrySet().removeIf( entry -> {
+            if ( changes.isTouched( entry.getValue() ) ) {
+                matchContexts.remove( entry.getKey() );
+                return true;
+            }
+            return false;
+        } );
+        for ( List<QueryContext> contexts : queryContexts.values() ) {
+            contexts.removeIf( changes::isTouched );
+        }
+    }
+
+    /**
+     * Builds the merged session out of the last snapshot of the chain, that has been read with the given context.
+     * Its agenda groups, rule network evaluators, timers and process data are the current ones, as they are
+     * always written in full.
+     */
+    ProtobufMessages.KnowledgeSession toSession( ProtobufMessages.KnowledgeSession _last, ProtobufMarshallerReaderContext context ) {
+        ProtobufMessages.KnowledgeSession.Builder _merged = _last.toBuilder();
+        ProtobufMessages.RuleData.Builder _ruleData = _merged.getRuleDataBuilder();
+
+        for (int i = 0; i < _ruleData.getEntryPointCount(); i++) {
+            ProtobufMessages.EntryPoint _ep = _ruleData.getEntryPoint( i );
+            ProtobufMessages.EntryPoint.Builder _epb = _ep.toBuilder()
+                    .clearHandle()
+                    .addAllHandle( handles.getOrDefault( _ep.getEntryPointId(), Collections.emptyMap() ).values() );
+            Map<Long, ProtobufMessages.EqualityKey> epKeys = equalityKeys.getOrDefault( _ep.getEntryPointId(), Collections.emptyMap() );
+            if ( epKeys.isEmpty() ) {
+                _epb.clearTms();
+            } else {
+                _epb.setTms( ProtobufMessages.TruthMaintenanceSystem.newBuilder().addAllKey( epKeys.values() ) );
+            }
+            _ruleData.setEntryPoint( i, _epb.build() );
+        }
+
+        _ruleData.getAgendaBuilder()
+                .clearMatch()
+                .addAllMatch( matches.values() );
+
+        List<ProtobufMessages.NodeMemory> _memories = new ArrayList<>();
+        for ( ProtobufMessages.NodeMemory _memory : _ruleData.getNodeMemoryList() ) {
+            if ( _memory.getNodeType() != ProtobufMessages.NodeMemory.NodeType.QUERY_ELEMENT ) {
+                _memories.add( _memory );
+            }
+        }
+        for ( Map.Entry<Integer, List<QueryContext>> entry : queryContexts.entrySet() ) {
+            if ( !entry.getValue().isEmpty() ) {
+                _memories.add( ProtobufMessages.NodeMemory.newBuilder()
+                                       .setNodeId( entry.getKey() )
+                                       .setNodeType( ProtobufMessages.NodeMemory.NodeType.QUERY_ELEMENT )
+                                       .setQueryElement( ProtobufMessages.NodeMemory.QueryElementNodeMemory.newBuilder().addAllContext( entry.getValue() ) )
+                                       .build() );
+            }
+        }
+        _ruleData.clearNodeMemory().addAllNodeMemory( _memories );
+
+        for ( Map.Entry<Long, ProtobufMarshallerReaderContext> entry : handleContexts.entrySet() ) {
+            if ( entry.getValue() != context ) {
+                context.setHandleObjectContext( entry.getKey(), entry.getValue() );
+            }
+        }
+        for ( Map.Entry<Long, ProtobufMarshallerReaderContext> entry : beliefSetContexts.entrySet() ) {
+            if ( entry.getValue() != context ) {
+                context.setBeliefSetObjectContext( entry.getKey(), entry.getValue() );
+            }
+        }
+        for ( Map.Entry<ActivationKey, ProtobufMessages.Activation> entry : matches.entrySet() ) {
+            ProtobufMarshallerReaderContext matchContext = matchContexts.get( entry.getKey() );
+            if ( matchContext != context ) {
+                context.setMatchObjectContext( entry.getValue(), matchContext );
+            }
+        }
+
+        return _merged.build();
+    }
+
+    private static ActivationKey getMatchKey( ProtobufMessages.Activation _match ) {
+        return PersisterHelper.createActivationKey( _match.getPackageName(), _match.getRuleName(), _match.getTuple() );
+    }
+}
@@ -149,6 +149,11 @@ public class PersisterHelper extends MarshallingHelper {
     
     public static void writeToStreamWithHeader( MarshallerWriteContext context,
                                                 Message payload ) throws IOException {
+        context.write( buildHeader( context, payload ).toByteArray() );
+    }
+
+    static ProtobufMessages.Header buildHeader( MarshallerWriteContext context,
+                                                Message payload ) throws IOException {
         ProtobufMessages.Header.Builder _header = ProtobufMessages.Header.newBuilder();
         _header.setVersion( ProtobufMessages.Version.newBuilder()
                                             .setVersionMajor( Drools.getMajorVersion() )
@@ -170,7 +175,7 @@ public class PersisterHelper extends MarshallingHelper {
         sign( _header, buff );
         _header.setPayload( ByteString.copyFrom( buff ) );
 
-        context.write( _header.build().toByteArray() );
+        return _header.build();
     }
 
     private static void writeRuntimeDefinedClasses( TraitFactory traitFactory, MarshallerWriteContext context, ProtobufMessages.Header.Builder _header) {
@@ -250,6 +255,17 @@ public class PersisterHelper extends MarshallingHelper {
         return loadStrategiesCheckSignature(context, _header);
     }
     
+    /**
+     * Reads a header of the given length, so that the stream can contain further data after it
+     */
+    static ProtobufMessages.Header readFromStreamWithHeader( MarshallerReaderContext context, int length, ExtensionRegistry registry ) throws IOException, ClassNotFoundException {
+        byte[] buff = new byte[length];
+        context.readFully( buff );
+        ProtobufMessages.Header _header = ProtobufMessages.Header.parseFrom( buff, registry );
+
+        return loadStrategiesCheckSignature(context, _header);
+    }
+
     /* Method that preloads the source stream into a byte array to bypass the message size limitations in Protobuf unmarshalling.
        (Protobuf does not enforce a message size limit when unmarshalling from a byte array)
     */
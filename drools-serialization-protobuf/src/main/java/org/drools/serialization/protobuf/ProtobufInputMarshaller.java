@@ -16,8 +16,10 @@
 
 package org.drools.serialization.protobuf;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -27,7 +29,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import com.google.protobuf.ExtensionRegistry;
@@ -57,6 +62,7 @@ import org.drools.core.marshalling.impl.ProcessMarshaller;
 import org.drools.core.marshalling.impl.ProcessMarshallerFactory;
 import org.drools.core.marshalling.impl.TupleKey;
 import org.drools.core.phreak.PhreakTimerNode.Scheduler;
+import org.drools.core.phreak.PropagationEntry;
 import org.drools.core.phreak.RuleAgendaItem;
 import org.drools.core.phreak.RuleExecutor;
 import org.drools.core.process.instance.WorkItem;
@@ -84,6 +90,7 @@ import org.kie.api.runtime.EnvironmentName;
 import org.kie.api.runtime.rule.AgendaFilter;
 import org.kie.api.runtime.rule.EntryPoint;
 import org.kie.api.runtime.rule.Match;
+import org.kie.internal.concurrent.ExecutorProviderFactory;
 
 /**
  * An input marshaller that uses protobuf. 
@@ -92,6 +99,10 @@ import org.kie.api.runtime.rule.Match;
 public class ProtobufInputMarshaller {
     // NOTE: all variables prefixed with _ (underscore) are protobuf structs
 
+    // the minimum number of fact handles in an entry point, or in a streamed chunk, for decoding their objects in parallel
+    static final int PARALLEL_UNMARSHALLING_THRESHOLD = 256;
+    private static final int UNMARSHALLING_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
     private static ProcessMarshaller processMarshaller = createProcessMarshaller();
 
     private static ProcessMarshaller createProcessMarshaller() {
@@ -149,8 +160,15 @@ public class ProtobufInputMarshaller {
                                                   Environment environment,
                                                   SessionConfiguration config,
                                                   KieSessionInitializer initializer) throws IOException, ClassNotFoundException {
+        return readSession( context, id, environment, config, initializer, loadAndParseSession( context ) );
+    }
 
-        ProtobufMessages.KnowledgeSession _session = loadAndParseSession( context );
+    public static ReadSessionResult readSession( ProtobufMarshallerReaderContext context,
+                                                  int id,
+                                                  Environment environment,
+                                                  SessionConfiguration config,
+                                                  KieSessionInitializer initializer,
+                                                  ProtobufMessages.KnowledgeSession _session) throws IOException, ClassNotFoundException {
 
         StatefulKnowledgeSessionImpl session = createAndInitializeSession( context,
                                                                            id,
@@ -203,7 +221,7 @@ public class ProtobufInputMarshaller {
         return session;
     }
 
-    private static ProtobufMessages.KnowledgeSession loadAndParseSession( MarshallerReaderContext context) throws IOException,
+    static ProtobufMessages.KnowledgeSession loadAndParseSession( MarshallerReaderContext context) throws IOException,
                                                                                                          ClassNotFoundException {
         ExtensionRegistry registry = PersisterHelper.buildRegistry( context, processMarshaller );
 
@@ -212,6 +230,18 @@ public class ProtobufInputMarshaller {
         return ProtobufMessages.KnowledgeSession.parseFrom( _header.getPayload(), registry );
     }
 
+    /**
+     * Reads a session written with its length, since further data follows it on the stream
+     */
+    static ProtobufMessages.KnowledgeSession loadAndParseSession( MarshallerReaderContext context, int length ) throws IOException,
+                                                                                                                     ClassNotFoundException {
+        ExtensionRegistry registry = PersisterHelper.buildRegistry( context, processMarshaller );
+
+        ProtobufMessages.Header _header = PersisterHelper.readFromStreamWithHeader( context, length, registry );
+
+        return ProtobufMessages.KnowledgeSession.parseFrom( _header.getPayload(), registry );
+    }
+
     public static StatefulKnowledgeSessionImpl readSession( ProtobufMessages.KnowledgeSession _session,
                                                             StatefulKnowledgeSessionImpl session,
                                                             InternalAgenda agenda,
@@ -242,6 +272,11 @@ public class ProtobufInputMarshaller {
             context.getHandles().put( session.getInitialFactHandle().getId(), session.getInitialFactHandle() );
         }
 
+        // the handles streamed after the session, if any, are all read upfront, since each chunk names its entry point
+        if ( context.getStreamedHandles() != null ) {
+            readStreamedFactHandles( context, pctxs );
+        }
+
         for ( ProtobufMessages.EntryPoint _ep : _session.getRuleData().getEntryPointList() ) {
             EntryPoint wmep = ((StatefulKnowledgeSessionImpl)context.getWorkingMemory()).getEntryPointMap().get(_ep.getEntryPointId());
             readFactHandles( context,
@@ -457,40 +492,173 @@ public class ProtobufInputMarshaller {
                                         ObjectStore objectStore,
                                         List<PropagationContext> pctxs) throws IOException,
                                                                           ClassNotFoundException {
+        EntryPoint entryPoint = ((StatefulKnowledgeSessionImpl)context.getWorkingMemory()).getEntryPointMap().get(_ep.getEntryPointId());
+        readFactHandles( context, entryPoint, objectStore, _ep.getHandleList(), pctxs );
+    }
+
+    private static void readFactHandles( ProtobufMarshallerReaderContext context,
+                                         EntryPoint entryPoint,
+                                         ObjectStore objectStore,
+                                         List<ProtobufMessages.FactHandle> _handles,
+                                         List<PropagationContext> pctxs) throws IOException,
+                                                                           ClassNotFoundException {
         InternalWorkingMemory wm = context.getWorkingMemory();
+        if ( context.isParallelUnmarshalling() && _handles.size() >= PARALLEL_UNMARSHALLING_THRESHOLD ) {
+            // decode all the objects at once and then propagate the handles as a single batch
+            Object[] objects = unmarshalHandleObjects( context, _handles );
+            // the pending propagations go first, so that the order of the insertions is preserved
+            wm.flushPropagations();
+            for ( int i = 0; i < objects.length; i++ ) {
+                ProtobufMessages.FactHandle _handle = _handles.get( i );
+                addFactHandle( context, wm, objectStore, pctxs, _handle,
+                               readFactHandle( context, entryPoint, _handle, objects[i] ), true );
+            }
+            wm.flushPropagations();
+        } else {
+            // load the handles
+            for ( ProtobufMessages.FactHandle _handle : _handles ) {
+                addFactHandle( context, wm, objectStore, pctxs, _handle,
+                               readFactHandle( context, entryPoint, _handle ), false );
+            }
+        }
+    }
 
-        EntryPoint entryPoint = ((StatefulKnowledgeSessionImpl)context.getWorkingMemory()).getEntryPointMap().get(_ep.getEntryPointId());
-        
-        // load the handles
-        for ( ProtobufMessages.FactHandle _handle : _ep.getHandleList() ) {
-            InternalFactHandle handle = readFactHandle( context,
-                                                        entryPoint,
-                                                        _handle );
-
-            context.getHandles().put( handle.getId(),
-                                 handle );
-
-            if ( !_handle.getIsJustified() ) {
-                // BeliefSystem handles the Object type 
-                if ( handle.getObject() != null ) {
-                    objectStore.addHandle( handle,
-                                           handle.getObject() );
+    private static void readStreamedFactHandles( ProtobufMarshallerReaderContext context,
+                                                 List<PropagationContext> pctxs) throws IOException,
+                                                                                   ClassNotFoundException {
+        StatefulKnowledgeSessionImpl wm = (StatefulKnowledgeSessionImpl) context.getWorkingMemory();
+        context.getStreamedHandles().readHandles( (entryPointId, _handles) -> {
+            WorkingMemoryEntryPoint entryPoint = wm.getEntryPointMap().get( entryPointId );
+            if ( entryPoint == null ) {
+                throw new IOException( "The streamed fact handles refer the unknown entry point " + entryPointId );
+            }
+            readFactHandles( context, entryPoint, entryPoint.getObjectStore(), _handles, pctxs );
+        } );
+    }
+
+    private static Object[] unmarshalHandleObjects( ProtobufMarshallerReaderContext context,
+                                                    List<ProtobufMessages.FactHandle> _handles ) throws IOException,
+                                                                                                        ClassNotFoundException {
+        Object[] objects = new Object[_handles.size()];
+        int sliceSize = (objects.length + UNMARSHALLING_PARALLELISM - 1) / UNMARSHALLING_PARALLELISM;
+        CompletableFuture<?>[] slices = new CompletableFuture<?>[(objects.length + sliceSize - 1) / sliceSize];
+        for ( int i = 0; i < slices.length; i++ ) {
+            int from = i * sliceSize;
+            int to = Math.min( from + sliceSize, objects.length );
+            slices[i] = CompletableFuture.runAsync( () -> unmarshalHandleObjects( context, _handles, objects, from, to ),
+                                                    UnmarshallingExecutorHolder.EXECUTOR );
+        }
+        try {
+            CompletableFuture.allOf( slices ).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() instanceof HandleObjectUnmarshallingException ? e.getCause().getCause() : e.getCause();
+            if ( cause instanceof ClassNotFoundException ) {
+                throw (ClassNotFoundException) cause;
+            }
+            if ( cause instanceof IOException ) {
+                throw (IOException) cause;
+            }
+            if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+        return objects;
+    }
+
+    private static void unmarshalHandleObjects( ProtobufMarshallerReaderContext context,
+                                                List<ProtobufMessages.FactHandle> _handles,
+                                                Object[] objects,
+                                                int from,
+                                                int to ) {
+        // the stream of the context isn't thread safe, so every slice is unmarshalled with its own one
+        try (ObjectInputStream stream = new HandleObjectInputStream( context.getKnowledgeBase().getRootClassLoader() )) {
+            for ( int i = from; i < to; i++ ) {
+                ProtobufMessages.FactHandle _handle = _handles.get( i );
+                if ( _handle.hasStrategyIndex() ) {
+                    objects[i] = context.unmarshalHandleObject( _handle, stream );
                 }
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new HandleObjectUnmarshallingException( e );
+        }
+    }
 
-                // add handle to object type node
-                assertHandleIntoOTN( context,
-                                     wm,
-                                     handle,
-                                     pctxs );
+    private static class UnmarshallingExecutorHolder {
+        private static final ExecutorService EXECUTOR = ExecutorProviderFactory.getExecutorProvider().getExecutor();
+    }
+
+    /**
+     * The stream passed to the strategies unmarshalling the objects of a slice of fact handles. It contains no data,
+     * since those strategies are required to decode each object out of its own bytes, but it resolves the classes
+     * with the class loader of the knowledge base, as the context of the session does.
+     */
+    private static class HandleObjectInputStream extends ObjectInputStream {
+
+        private static final byte[] EMPTY_STREAM = new byte[] {
+                (byte) (STREAM_MAGIC >>> 8), (byte) STREAM_MAGIC, (byte) (STREAM_VERSION >>> 8), (byte) STREAM_VERSION };
+
+        private final ClassLoader classLoader;
+
+        private HandleObjectInputStream( ClassLoader classLoader ) throws IOException {
+            super( new ByteArrayInputStream( EMPTY_STREAM ) );
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass( ObjectStreamClass desc ) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName( desc.getName(), false, classLoader );
+            } catch ( ClassNotFoundException ex ) {
+                return super.resolveClass( desc );
             }
         }
+    }
 
+    private static class HandleObjectUnmarshallingException extends RuntimeException {
+        private HandleObjectUnmarshallingException( Exception cause ) {
+            super( cause );
+        }
+    }
+
+    private static void addFactHandle( ProtobufMarshallerReaderContext context,
+                                       InternalWorkingMemory wm,
+                                       ObjectStore objectStore,
+                                       List<PropagationContext> pctxs,
+                                       ProtobufMessages.FactHandle _handle,
+                                       InternalFactHandle handle,
+                                       boolean batch ) {
+        context.getHandles().put( handle.getId(),
+                             handle );
+
+        if ( !_handle.getIsJustified() ) {
+            // BeliefSystem handles the Object type 
+            if ( handle.getObject() != null ) {
+                objectStore.addHandle( handle,
+                                       handle.getObject() );
+            }
+
+            // add handle to object type node
+            assertHandleIntoOTN( context,
+                                 wm,
+                                 handle,
+                                 pctxs,
+                                 batch );
+        }
     }
 
     private static void assertHandleIntoOTN( ProtobufMarshallerReaderContext context,
                                              InternalWorkingMemory wm,
                                              InternalFactHandle handle,
                                              List<PropagationContext> pctxs) {
+        assertHandleIntoOTN( context, wm, handle, pctxs, false );
+    }
+
+    private static void assertHandleIntoOTN( ProtobufMarshallerReaderContext context,
+                                             InternalWorkingMemory wm,
+                                             InternalFactHandle handle,
+                                             List<PropagationContext> pctxs,
+                                             boolean batch) {
         Object object = handle.getObject();
         WorkingMemoryEntryPoint ep = handle.getEntryPoint(wm);
         ObjectTypeConf typeConf = ep.getObjectTypeConfigurationRegistry().getOrCreateObjectTypeConf( ep.getEntryPoint(), object );
@@ -501,12 +669,20 @@ public class ProtobufInputMarshaller {
         // keeping this list for a later cleanup is necessary because of the lazy propagations that might occur
         pctxs.add( propagationContext );
 
-        ep.getEntryPointNode().assertObject( handle,
+        if ( batch ) {
+            // as in a session that isn't thread safe, the handle is propagated right away instead of enqueuing its
+            // insertion, while the propagations it causes are flushed at the end of the batch
+            PropagationEntry.Insert.execute( handle,
                                              propagationContext,
-                                             typeConf,
-                                             wm );
-
-        wm.flushPropagations();
+                                             wm,
+                                             typeConf );
+        } else {
+            ep.getEntryPointNode().assertObject( handle,
+                                                 propagationContext,
+                                                 typeConf,
+                                                 wm );
+            wm.flushPropagations();
+        }
     }
 
     private static void cleanReaderContexts(List<PropagationContext> pctxs) {
@@ -520,16 +696,16 @@ public class ProtobufInputMarshaller {
                                                      FactHandle _handle) throws IOException,
                                                                        ClassNotFoundException {
         Object object = null;
-        ObjectMarshallingStrategy strategy = null;
         if ( _handle.hasStrategyIndex() ) {
-            strategy = context.getUsedStrategies().get( _handle.getStrategyIndex() );
-            object = strategy.unmarshal( context.getStrategyContexts().get( strategy ),
-                                         context,
-                                         _handle.getObject().toByteArray(),
-                                         (context.getKnowledgeBase() == null) ? null : context.getKnowledgeBase().getRootClassLoader() );
+            object = context.unmarshalHandleObject( _handle );
         }
+        return readFactHandle( context, entryPoint, _handle, object );
+    }
 
-
+    private static InternalFactHandle readFactHandle( ProtobufMarshallerReaderContext context,
+                                                      EntryPoint entryPoint,
+                                                      FactHandle _handle,
+                                                      Object object ) {
         EntryPointId confEP;
         if ( entryPoint != null ) {
             confEP = ((NamedEntryPoint) entryPoint).getEntryPoint();
@@ -631,7 +807,7 @@ public class ProtobufInputMarshaller {
 
     }
 
-    private static void readBeliefSet( MarshallerReaderContext context,
+    private static void readBeliefSet( ProtobufMarshallerReaderContext context,
                                        TruthMaintenanceSystem tms,
                                        EqualityKey key,
                                        ProtobufMessages.EqualityKey _key) throws IOException,
@@ -639,28 +815,30 @@ public class ProtobufInputMarshaller {
         if( _key.hasBeliefSet() ) {
             ProtobufMessages.BeliefSet _beliefSet = _key.getBeliefSet();
             InternalFactHandle handle = (InternalFactHandle) context.getHandles().get( _key.getHandleId() );
+            // the objects of a belief set merged from a delta snapshot are unmarshalled with the strategies of that snapshot
+            ProtobufMarshallerReaderContext objectContext = context.getBeliefSetObjectContext( _key.getHandleId() );
             // phreak might serialize empty belief sets, so he have to handle it during deserialization 
             if( _beliefSet.getLogicalDependencyCount() > 0 ) {
                 for ( ProtobufMessages.LogicalDependency _logicalDependency : _beliefSet.getLogicalDependencyList() ) {
                     ProtobufMessages.Activation _activation = _logicalDependency.getActivation();
-                    ActivationKey activationKey = getActivationKey( context, _activation );
+                    ActivationKey activationKey = getActivationKey( objectContext, _activation );
                     Activation activation = (Activation) context.getFilter().getTuplesCache().get(activationKey);
 
                     Object object = null;
                     ObjectMarshallingStrategy strategy = null;
                     if ( _logicalDependency.hasObjectStrategyIndex() ) {
-                        strategy = context.getUsedStrategies().get( _logicalDependency.getObjectStrategyIndex() );
-                        object = strategy.unmarshal( context.getStrategyContexts().get( strategy ),
-                                                     ( ObjectInputStream ) context,
+                        strategy = objectContext.getUsedStrategies().get( _logicalDependency.getObjectStrategyIndex() );
+                        object = strategy.unmarshal( objectContext.getStrategyContexts().get( strategy ),
+                                                     objectContext,
                                                      _logicalDependency.getObject().toByteArray(),
                                                      (context.getKnowledgeBase() == null) ? null : context.getKnowledgeBase().getRootClassLoader() );
                     }
 
                     Object value = null;
                     if ( _logicalDependency.hasValueStrategyIndex() ) {
-                        strategy = context.getUsedStrategies().get( _logicalDependency.getValueStrategyIndex() );
-                        value = strategy.unmarshal( context.getStrategyContexts().get( strategy ),
-                                                    ( ObjectInputStream ) context,
+                        strategy = objectContext.getUsedStrategies().get( _logicalDependency.getValueStrategyIndex() );
+                        value = strategy.unmarshal( objectContext.getStrategyContexts().get( strategy ),
+                                                    objectContext,
                                                     _logicalDependency.getValue().toByteArray(),
                                                     (context.getKnowledgeBase() == null) ? null : context.getKnowledgeBase().getRootClassLoader() );
                     }
@@ -688,7 +866,7 @@ public class ProtobufInputMarshaller {
         for ( ProtobufMessages.Activation _activation : _dormant ) {
             ProtobufMessages.Tuple _tuple = _activation.getTuple();
             // this is a dormant activation
-            context.getFilter().addDormantActivation(getActivationKey( context, _activation ));
+            context.getFilter().addDormantActivation(getActivationKey( context.getMatchObjectContext( _activation ), _activation ));
         }
 
         for ( ProtobufMessages.Activation _activation : _rneas ) {
@@ -19,7 +19,9 @@ package org.drools.serialization.protobuf;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.drools.core.RuleBaseConfiguration;
@@ -64,6 +66,11 @@ public class ProtobufMarshaller
         this.initializer = initializer;
     }
 
+    public static final String PARALLEL_UNMARSHALLING_PROPERTY = "drools.marshalling.parallelUnmarshalling";
+
+    private static final int STREAMING_MAGIC = 0x53545245;
+    private static final int STREAMING_FORMAT_VERSION = 1;
+
     public static final Map<Integer, TimersInputMarshaller> TIMER_READERS = new HashMap<>();
     static {
         TIMER_READERS.put( ProtobufMessages.Timers.TimerType.BEHAVIOR_VALUE, new BehaviorJobContextTimerInputMarshaller() );
@@ -75,6 +82,7 @@ public class ProtobufMarshaller
     protected RuleBaseConfiguration               ruleBaseConfig;
     protected MarshallingConfiguration            marshallingConfig;
     protected ObjectMarshallingStrategyStore      strategyStore;
+    protected boolean                             parallelUnmarshalling = Boolean.getBoolean( PARALLEL_UNMARSHALLING_PROPERTY );
 
     public ProtobufMarshaller(KieBase kbase,
                               MarshallingConfiguration marshallingConfig) {
@@ -111,19 +119,150 @@ public class ProtobufMarshaller
                          final KieSession ksession,
                          final long clockTime) throws IOException {
         ((InternalWorkingMemory) ksession).flushPropagations();
-        ProtobufMarshallerWriteContext context = new ProtobufMarshallerWriteContext( stream,
-                                                                     (InternalKnowledgeBase) kbase,
-                                                                     (InternalWorkingMemory) ksession,
-                                                                     RuleBaseNodes.getNodeMap( (InternalKnowledgeBase) kbase ),
-                                                                     this.strategyStore,
-                                                                     this.marshallingConfig.isMarshallProcessInstances(),
-                                                                     this.marshallingConfig.isMarshallWorkItems(),
-                                                                     ksession.getEnvironment() );
+        ProtobufMarshallerWriteContext context = getMarshallerWriteContext( stream, ksession );
         context.setClockTime( clockTime );
         ProtobufOutputMarshaller.writeSession( context );
         context.close();
     }
 
+    /**
+     * Writes a full snapshot of the given session, that becomes the base of the following delta snapshots taken
+     * with {@link #marshallDelta(OutputStream, KieSession, SessionChangeJournal)}. The given journal is cleared
+     * while the session is locked for writing, so that no change made concurrently can be lost, and its
+     * changes are given back to it if the snapshot can't be written.
+     */
+    public void marshall(final OutputStream stream,
+                         final KieSession ksession,
+                         final SessionChangeJournal journal) throws IOException {
+        writeSession( stream, ksession, journal, false );
+    }
+
+    /**
+     * Writes a delta snapshot of the given session, containing only the fact handles inserted, updated or
+     * deleted since the previous (full or delta) snapshot as recorded by the given journal, that is reset
+     * while the session is locked for writing. Likewise only the dormant matches, the node memories and the
+     * truth maintenance entries referring a fact handle changed or matched in the meanwhile are written, while
+     * the agenda groups, the rule network evaluators, the timers and the process data are written in full.
+     *
+     * A session can be restored from a full snapshot and the chain of the deltas taken after it with
+     * {@link #unmarshall(InputStream, List, KieSessionConfiguration, Environment)}. The chain should be
+     * periodically compacted taking a new full snapshot with {@link #marshall(OutputStream, KieSession, SessionChangeJournal)}.
+     */
+    public void marshallDelta(final OutputStream stream,
+                              final KieSession ksession,
+                              final SessionChangeJournal journal) throws IOException {
+        writeSession( stream, ksession, journal, true );
+    }
+
+    private void writeSession(final OutputStream stream,
+                              final KieSession ksession,
+                              final SessionChangeJournal journal,
+                              final boolean delta) throws IOException {
+        ((InternalWorkingMemory) ksession).flushPropagations();
+        ProtobufMarshallerWriteContext context = getMarshallerWriteContext( stream, ksession );
+        context.setClockTime( ksession.getSessionClock().getCurrentTime() );
+        context.setChangeJournal( journal, delta );
+        try {
+            ProtobufOutputMarshaller.writeSession( context );
+            context.close();
+        } catch ( IOException | RuntimeException e ) {
+            // the swapped changes are not lost, so that a retry writes them
+            context.restoreChangeJournal();
+            throw e;
+        }
+    }
+
+    public void marshallStreaming(final OutputStream stream,
+                                  final KieSession ksession) throws IOException {
+        marshallStreaming( stream, ksession, StreamedFactHandles.DEFAULT_CHUNK_SIZE );
+    }
+
+    /**
+     * Writes the given session without building a single protobuf message containing all its facts, so that
+     * the memory needed to take the snapshot doesn't grow with the size of the working memory. The session is
+     * written without its fact handles, that are then streamed in chunks of the given size, each one with
+     * its own marshalling strategies contexts. All of them are written through the same marshalling stream,
+     * so the identity of an object shared by facts written in different chunks is preserved when the session
+     * is restored with {@link #unmarshallStreaming(InputStream, KieSessionConfiguration, Environment)}.
+     */
+    public void marshallStreaming(final OutputStream stream,
+                                  final KieSession ksession,
+                                  final int chunkSize) throws IOException {
+        ((InternalWorkingMemory) ksession).flushPropagations();
+
+        ProtobufMarshallerWriteContext context = getMarshallerWriteContext( stream, ksession );
+        context.writeInt( STREAMING_MAGIC );
+        context.writeInt( STREAMING_FORMAT_VERSION );
+
+        context.setClockTime( ksession.getSessionClock().getCurrentTime() );
+        context.setSkipFactHandles( true );
+        ProtobufOutputMarshaller.writeSessionWithLength( context );
+
+        StreamedFactHandles.write( context, chunkSize );
+        context.close();
+    }
+
+    public StatefulKnowledgeSession unmarshallStreaming( final InputStream stream,
+                                                         KieSessionConfiguration config,
+                                                         Environment environment) throws IOException, ClassNotFoundException {
+        if ( config == null ) {
+            config = KnowledgeBaseFactory.newKnowledgeSessionConfiguration();
+        }
+
+        if ( environment == null ) {
+            environment = KieServices.get().newEnvironment();
+        }
+
+        ProtobufMarshallerReaderContext context = getMarshallerReaderContext( stream, environment );
+        if ( context.readInt() != STREAMING_MAGIC || context.readInt() != STREAMING_FORMAT_VERSION ) {
+            throw new IOException( "The given stream doesn't contain a streamed snapshot of a session" );
+        }
+        ProtobufMessages.KnowledgeSession _session = ProtobufInputMarshaller.loadAndParseSession( context, context.readInt() );
+
+        StreamedFactHandles streamedHandles = StreamedFactHandles.read( context );
+        context.setStreamedHandles( streamedHandles );
+        int id = ((KnowledgeBaseImpl) this.kbase).nextWorkingMemoryCounter();
+        ReadSessionResult readSessionResult = ProtobufInputMarshaller.readSession( context,
+                                                                                   id,
+                                                                                   environment,
+                                                                                   (SessionConfiguration) config,
+                                                                                   initializer,
+                                                                                   _session );
+        context.close();
+        if ( !streamedHandles.isFullyRead() ) {
+            readSessionResult.getSession().dispose();
+            throw new IOException( "The streamed fact handles of the session have not been read" );
+        }
+        if ( ((SessionConfiguration) config).isKeepReference() ) {
+            ((KnowledgeBaseImpl) this.kbase).addStatefulSession(readSessionResult.getSession());
+        }
+        return readSessionResult.getSession();
+    }
+
+    private ProtobufMarshallerWriteContext getMarshallerWriteContext( final OutputStream stream, final KieSession ksession ) throws IOException {
+        return new ProtobufMarshallerWriteContext( stream,
+                                                   (InternalKnowledgeBase) kbase,
+                                                   (InternalWorkingMemory) ksession,
+                                                   RuleBaseNodes.getNodeMap( (InternalKnowledgeBase) kbase ),
+                                                   this.strategyStore,
+                                                   this.marshallingConfig.isMarshallProcessInstances(),
+                                                   this.marshallingConfig.isMarshallWorkItems(),
+                                                   ksession.getEnvironment() );
+    }
+
+    public boolean isParallelUnmarshalling() {
+        return parallelUnmarshalling;
+    }
+
+    /**
+     * Unmarshalls the objects of the facts of the restored sessions in parallel, on the executor of the engine, and
+     * propagates them into the network as a single batch per entry point or streamed chunk. This requires all the used
+     * strategies to be thread safe while unmarshalling and to decode each object out of its own bytes.
+     */
+    public void setParallelUnmarshalling( boolean parallelUnmarshalling ) {
+        this.parallelUnmarshalling = parallelUnmarshalling;
+    }
+
     public MarshallingConfiguration getMarshallingConfiguration() {
         return marshallingConfig;
     }
@@ -153,8 +292,58 @@ public class ProtobufMarshaller
         return readSessionResult;
     }
 
+    /**
+     * Restores a session from a full snapshot and the chain of the delta snapshots written after it
+     * with {@link #marshallDelta(OutputStream, KieSession, SessionChangeJournal)}, in the same order.
+     */
+    public StatefulKnowledgeSession unmarshall( final InputStream baseStream,
+                                                final List<InputStream> deltaStreams,
+                                                KieSessionConfiguration config,
+                                                Environment environment) throws IOException, ClassNotFoundException {
+        if ( config == null ) {
+            config = KnowledgeBaseFactory.newKnowledgeSessionConfiguration();
+        }
+
+        if ( environment == null ) {
+            environment = KieServices.get().newEnvironment();
+        }
+
+        List<ProtobufMarshallerReaderContext> contexts = new ArrayList<>();
+        DeltaMerge merge = new DeltaMerge();
+
+        ProtobufMarshallerReaderContext context = getMarshallerReaderContext( baseStream, environment );
+        contexts.add( context );
+        ProtobufMessages.KnowledgeSession _session = ProtobufInputMarshaller.loadAndParseSession( context );
+        merge.add( _session, context, null );
+
+        for (InputStream deltaStream : deltaStreams) {
+            context = getMarshallerReaderContext( deltaStream, environment );
+            contexts.add( context );
+            SessionChanges changes = SessionChanges.read( context );
+            _session = ProtobufInputMarshaller.loadAndParseSession( context );
+            merge.add( _session, context, changes );
+        }
+
+        ProtobufMessages.KnowledgeSession _merged = merge.toSession( _session, context );
+
+        int id = ((KnowledgeBaseImpl) this.kbase).nextWorkingMemoryCounter();
+        ReadSessionResult readSessionResult = ProtobufInputMarshaller.readSession( context,
+                                                                                   id,
+                                                                                   environment,
+                                                                                   (SessionConfiguration) config,
+                                                                                   initializer,
+                                                                                   _merged );
+        for (ProtobufMarshallerReaderContext c : contexts) {
+            c.close();
+        }
+        if ( ((SessionConfiguration) config).isKeepReference() ) {
+            ((KnowledgeBaseImpl) this.kbase).addStatefulSession(readSessionResult.getSession());
+        }
+        return readSessionResult.getSession();
+    }
+
     private ProtobufMarshallerReaderContext getMarshallerReaderContext( final InputStream inputStream, final Environment environment) throws IOException {
-        return new ProtobufMarshallerReaderContext(inputStream,
+        ProtobufMarshallerReaderContext context = new ProtobufMarshallerReaderContext(inputStream,
                                            (KnowledgeBaseImpl) kbase,
                                            RuleBaseNodes.getNodeMap((KnowledgeBaseImpl) kbase),
                                            this.strategyStore,
@@ -162,6 +351,8 @@ public class ProtobufMarshaller
                                            this.marshallingConfig.isMarshallProcessInstances(),
                                            this.marshallingConfig.isMarshallWorkItems(),
                                            environment);
+        context.setParallelUnmarshalling( parallelUnmarshalling );
+        return context;
     }
 
 }
@@ -29,6 +29,7 @@ import org.drools.core.common.InternalFactHandle;
 import org.drools.core.common.InternalWorkingMemory;
 import org.drools.core.common.QueryElementFactHandle;
 import org.drools.core.impl.InternalKnowledgeBase;
+import org.drools.core.marshalling.impl.ActivationKey;
 import org.drools.core.marshalling.impl.MarshallerReaderContext;
 import org.drools.core.marshalling.impl.MarshallingHelper;
 import org.drools.core.marshalling.impl.ObjectMarshallingStrategyStoreImpl;
@@ -86,6 +87,18 @@ public class ProtobufMarshallerReaderContext extends ObjectInputStream implement
 
     private Object                                                                 parameterObject;
     private ClassLoader                                                            classLoader;
+
+    // the contexts of the snapshots containing the objects of the fact handles, matches and belief sets not read from this one
+    private Map<Long, ProtobufMarshallerReaderContext>                             handleObjectContexts;
+    private Map<ActivationKey, ProtobufMarshallerReaderContext>                    matchObjectContexts;
+    private Map<Long, ProtobufMarshallerReaderContext>                             beliefSetObjectContexts;
+
+    // the fact handles streamed after the session and the strategies of the chunk of them being read
+    private StreamedFactHandles                                                    streamedHandles;
+    private Map<Integer, ObjectMarshallingStrategy>                                chunkStrategies;
+    private Map<ObjectMarshallingStrategy, ObjectMarshallingStrategy.Context>      chunkStrategyContexts;
+
+    private boolean                                                                parallelUnmarshalling;
     public Map<Integer, Map<TupleKey, Scheduler>>                                  timerNodeSchedulers;
 
     public ProtobufMarshallerReaderContext( InputStream stream,
@@ -190,6 +203,100 @@ public class ProtobufMarshallerReaderContext extends ObjectInputStream implement
         return null;
     }
 
+    public Object unmarshalHandleObject( ProtobufMessages.FactHandle _handle ) throws IOException, ClassNotFoundException {
+        return unmarshalHandleObject( _handle, chunkStrategies != null ? this : getHandleObjectContext( _handle.getId() ) );
+    }
+
+    /**
+     * Unmarshalls the object of the given fact handle passing the given stream to its strategy. The state of this
+     * context is only read, so the objects of different handles can be unmarshalled concurrently, as long as
+     * each thread uses its own stream.
+     */
+    Object unmarshalHandleObject( ProtobufMessages.FactHandle _handle, ObjectInputStream stream ) throws IOException, ClassNotFoundException {
+        ClassLoader classLoader = kBase == null ? null : kBase.getRootClassLoader();
+        if ( chunkStrategies != null ) {
+            ObjectMarshallingStrategy strategy = chunkStrategies.get( _handle.getStrategyIndex() );
+            return strategy.unmarshal( chunkStrategyContexts.get( strategy ), stream, _handle.getObject().toByteArray(), classLoader );
+        }
+        ProtobufMarshallerReaderContext objectContext = getHandleObjectContext( _handle.getId() );
+        ObjectMarshallingStrategy strategy = objectContext.getUsedStrategies().get( _handle.getStrategyIndex() );
+        return strategy.unmarshal( objectContext.getStrategyContexts().get( strategy ), stream, _handle.getObject().toByteArray(), classLoader );
+    }
+
+    public boolean isParallelUnmarshalling() {
+        return parallelUnmarshalling;
+    }
+
+    /**
+     * When enabled the objects of the fact handles of an entry point, or of a chunk of streamed handles, are
+     * unmarshalled in parallel, so all the strategies used by the session must be able to unmarshal different
+     * objects concurrently out of their own bytes.
+     */
+    public void setParallelUnmarshalling( boolean parallelUnmarshalling ) {
+        this.parallelUnmarshalling = parallelUnmarshalling;
+    }
+
+    public StreamedFactHandles getStreamedHandles() {
+        return streamedHandles;
+    }
+
+    public void setStreamedHandles( StreamedFactHandles streamedHandles ) {
+        this.streamedHandles = streamedHandles;
+    }
+
+    void setChunkStrategies( Map<Integer, ObjectMarshallingStrategy> strategies,
+                             Map<ObjectMarshallingStrategy, ObjectMarshallingStrategy.Context> contexts ) {
+        this.chunkStrategies = strategies;
+        this.chunkStrategyContexts = contexts;
+    }
+
+    /**
+     * @return the context able to unmarshall the object of the fact handle with the given id
+     */
+    public ProtobufMarshallerReaderContext getHandleObjectContext( long handleId ) {
+        ProtobufMarshallerReaderContext context = handleObjectContexts != null ? handleObjectContexts.get( handleId ) : null;
+        return context != null ? context : this;
+    }
+
+    public void setHandleObjectContext( long handleId, ProtobufMarshallerReaderContext context ) {
+        if ( handleObjectContexts == null ) {
+            handleObjectContexts = new HashMap<>();
+        }
+        handleObjectContexts.put( handleId, context );
+    }
+
+    /**
+     * @return the context able to unmarshall the objects of the tuple of the given dormant match
+     */
+    public ProtobufMarshallerReaderContext getMatchObjectContext( ProtobufMessages.Activation _activation ) {
+        ProtobufMarshallerReaderContext context = matchObjectContexts != null ?
+                matchObjectContexts.get( PersisterHelper.createActivationKey( _activation.getPackageName(), _activation.getRuleName(), _activation.getTuple() ) ) :
+                null;
+        return context != null ? context : this;
+    }
+
+    public void setMatchObjectContext( ProtobufMessages.Activation _activation, ProtobufMarshallerReaderContext context ) {
+        if ( matchObjectContexts == null ) {
+            matchObjectContexts = new HashMap<>();
+        }
+        matchObjectContexts.put( PersisterHelper.createActivationKey( _activation.getPackageName(), _activation.getRuleName(), _activation.getTuple() ), context );
+    }
+
+    /**
+     * @return the context able to unmarshall the objects of the belief set of the equality key with the given handle id
+     */
+    public ProtobufMarshallerReaderContext getBeliefSetObjectContext( long handleId ) {
+        ProtobufMarshallerReaderContext context = beliefSetObjectContexts != null ? beliefSetObjectContexts.get( handleId ) : null;
+        return context != null ? context : this;
+    }
+
+    public void setBeliefSetObjectContext( long handleId, ProtobufMarshallerReaderContext context ) {
+        if ( beliefSetObjectContexts == null ) {
+            beliefSetObjectContexts = new HashMap<>();
+        }
+        beliefSetObjectContexts.put( handleId, context );
+    }
+
     @Override
     public InternalWorkingMemory getWorkingMemory() {
         return wm;
@@ -65,6 +65,13 @@ public class ProtobufMarshallerWriteContext extends ObjectOutputStream implement
 
     private Object                                                                 parameterObject;
 
+    private boolean                                                                skipFactHandles;
+
+    private SessionChangeJournal                                                   changeJournal;
+    private boolean                                                                delta;
+    private SessionChanges                                                         changes;
+    private SessionChanges                                                         swappedChanges;
+
     public ProtobufMarshallerWriteContext( OutputStream stream,
                                            InternalKnowledgeBase kBase,
                                            InternalWorkingMemory wm,
@@ -137,6 +144,51 @@ public class ProtobufMarshallerWriteContext extends ObjectOutputStream implement
         return index;
     }
 
+    /**
+     * @return true if the session has to be written without its fact handles, since they are streamed after it
+     */
+    public boolean isSkipFactHandles() {
+        return skipFactHandles;
+    }
+
+    public void setSkipFactHandles( boolean skipFactHandles ) {
+        this.skipFactHandles = skipFactHandles;
+    }
+
+    /**
+     * Sets the journal to be reset while the session is locked for writing. If delta is true only the changes
+     * recorded by the journal are written, otherwise they are simply discarded since the whole session is written.
+     */
+    public void setChangeJournal( SessionChangeJournal changeJournal, boolean delta ) {
+        this.changeJournal = changeJournal;
+        this.delta = delta;
+    }
+
+    void swapChangeJournal() {
+        if ( changeJournal != null ) {
+            swappedChanges = changeJournal.swap();
+            changes = delta ? swappedChanges : null;
+        }
+    }
+
+    /**
+     * Gives back to the journal the changes swapped out of it when the snapshot could not be written
+     */
+    void restoreChangeJournal() {
+        if ( swappedChanges != null ) {
+            changeJournal.restore( swappedChanges );
+            swappedChanges = null;
+            changes = null;
+        }
+    }
+
+    /**
+     * @return the changes to be written in a delta snapshot, or null if the whole session has to be written
+     */
+    SessionChanges getChanges() {
+        return changes;
+    }
+
     @Override
     public InternalKnowledgeBase getKnowledgeBase() {
         return kBase;
@@ -119,10 +119,24 @@ public class ProtobufOutputMarshaller {
 //        System.out.println("=============================================================================");
 //        System.out.println(_session);
 
+        SessionChanges changes = context.getChanges();
+        if ( changes != null ) {
+            changes.write( context );
+        }
+
         PersisterHelper.writeToStreamWithHeader( context,
                                                  _session );
     }
 
+    /**
+     * Writes the session prefixed by its length, so that further data can follow it on the same stream
+     */
+    static void writeSessionWithLength( ProtobufMarshallerWriteContext context ) throws IOException {
+        ProtobufMessages.Header _header = PersisterHelper.buildHeader( context, serializeSession( context ) );
+        context.writeInt( _header.getSerializedSize() );
+        _header.writeTo( context );
+    }
+
     private static ProtobufMessages.KnowledgeSession serializeSession( MarshallerWriteContext context) throws IOException {
         StatefulKnowledgeSessionImpl wm = (StatefulKnowledgeSessionImpl) context.getWorkingMemory();
 
@@ -136,6 +150,11 @@ public class ProtobufOutputMarshaller {
 
             evaluateRuleActivations( wm );
 
+            if ( context instanceof ProtobufMarshallerWriteContext ) {
+                // the journal is swapped only now, so that the changes made while evaluating the network are recorded
+                ((ProtobufMarshallerWriteContext) context).swapChangeJournal();
+            }
+
             ProtobufMessages.RuleData.Builder _ruleData = ProtobufMessages.RuleData.newBuilder();
 
             long time = 0;
@@ -290,6 +309,7 @@ public class ProtobufOutputMarshaller {
                                      ProtobufMessages.RuleData.Builder _ksb) throws IOException {
         InternalWorkingMemory wm = context.getWorkingMemory();
         InternalAgenda agenda = wm.getAgenda();
+        SessionChanges changes = getChanges( context );
 
         ProtobufMessages.Agenda.Builder _ab = ProtobufMessages.Agenda.newBuilder();
 
@@ -332,7 +352,7 @@ public class ProtobufOutputMarshaller {
         org.drools.core.util.Iterator it = ActivationIterator.iterator( wm );
         List<org.drools.core.spi.Activation> dormant = new ArrayList<org.drools.core.spi.Activation>();
         for ( org.drools.core.spi.Activation item = (org.drools.core.spi.Activation) it.next(); item != null; item = (org.drools.core.spi.Activation) it.next() ) {
-            if ( !item.isQueued() ) {
+            if ( !item.isQueued() && ( changes == null || changes.isTouched( item ) ) ) {
                 dormant.add( item );
             }
         }
@@ -365,7 +385,7 @@ public class ProtobufOutputMarshaller {
                 ProtobufMessages.NodeMemory _node = null;
                 switch ( memory.getNodeType() ) {
                     case NodeTypeEnums.QueryElementNode: {
-                        _node = writeQueryElementNodeMemory( baseNode.getId(), memory, wm );
+                        _node = writeQueryElementNodeMemory( baseNode.getId(), memory, wm, getChanges( context ) );
                         break;
                     }
                 }
@@ -389,7 +409,8 @@ public class ProtobufOutputMarshaller {
 
     private static ProtobufMessages.NodeMemory writeQueryElementNodeMemory(final int nodeId,
                                                                            final Memory memory,
-                                                                           final InternalWorkingMemory wm) {
+                                                                           final InternalWorkingMemory wm,
+                                                                           final SessionChanges changes) {
         org.drools.core.util.Iterator<LeftTuple> it = LeftTupleIterator.iterator( wm, ((QueryElementNodeMemory) memory).getNode() );
 
         ProtobufMessages.NodeMemory.QueryElementNodeMemory.Builder _query = ProtobufMessages.NodeMemory.QueryElementNodeMemory.newBuilder();
@@ -416,7 +437,10 @@ public class ProtobufOutputMarshaller {
                     childLeftTuple = childLeftTuple.getHandleNext();
                 }
             }
-            _query.addContext( _context.build() );
+            ProtobufMessages.NodeMemory.QueryElementNodeMemory.QueryContext _queryContext = _context.build();
+            if ( changes == null || changes.isTouched( _queryContext ) ) {
+                _query.addContext( _queryContext );
+            }
         }
 
         return _query.getContextCount() > 0 ?
@@ -473,6 +497,7 @@ public class ProtobufOutputMarshaller {
                                                     ProtobufMessages.EntryPoint.Builder _epb) throws IOException {
         TruthMaintenanceSystem tms = ((NamedEntryPoint) wmep).getTruthMaintenanceSystem();
         ObjectHashMap justifiedMap = tms.getEqualityKeyMap();
+        SessionChanges changes = getChanges( context );
 
         if ( !justifiedMap.isEmpty() ) {
             EqualityKey[] keys = new EqualityKey[justifiedMap.size()];
@@ -490,6 +515,9 @@ public class ProtobufOutputMarshaller {
 
             // write the assert map of Equality keys
             for ( EqualityKey key : keys ) {
+                if ( changes != null && !changes.isTouched( key ) ) {
+                    continue;
+                }
                 ProtobufMessages.EqualityKey.Builder _key = ProtobufMessages.EqualityKey.newBuilder();
                 _key.setStatus( key.getStatus() );
                 _key.setHandleId( key.getFactHandle().getId() );
@@ -509,7 +537,9 @@ public class ProtobufOutputMarshaller {
                 _tms.addKey( _key.build() );
             }
 
-            _epb.setTms( _tms.build() );
+            if ( _tms.getKeyCount() > 0 || changes == null ) {
+                _epb.setTms( _tms.build() );
+            }
         }
     }
 
@@ -577,9 +607,16 @@ public class ProtobufOutputMarshaller {
                                           ProtobufMessages.EntryPoint.Builder _epb,
                                           ObjectStore objectStore) throws IOException {
         ObjectMarshallingStrategyStore objectMarshallingStrategyStore = context.getObjectMarshallingStrategyStore();
+        if ( context instanceof ProtobufMarshallerWriteContext && ((ProtobufMarshallerWriteContext) context).isSkipFactHandles() ) {
+            return;
+        }
+        SessionChanges changes = getChanges( context );
 
-        // Write out FactHandles
-        for ( InternalFactHandle handle : orderFacts( objectStore ) ) {
+        // Write out FactHandles, only the changed ones for a delta snapshot
+        Iterable<InternalFactHandle> handles = changes != null ?
+                changes.getChangedHandles( _epb.getEntryPointId() ) :
+                Arrays.asList( orderFacts( objectStore ) );
+        for ( InternalFactHandle handle : handles ) {
             ProtobufMessages.FactHandle _handle = writeFactHandle( context,
                                                                    objectMarshallingStrategyStore,
                                                                    handle );
@@ -587,9 +624,9 @@ public class ProtobufOutputMarshaller {
         }
     }
 
-    private static ProtobufMessages.FactHandle writeFactHandle( MarshallerWriteContext context,
-                                                                ObjectMarshallingStrategyStore objectMarshallingStrategyStore,
-                                                                InternalFactHandle handle) throws IOException {
+    static ProtobufMessages.FactHandle writeFactHandle( MarshallerWriteContext context,
+                                                        ObjectMarshallingStrategyStore objectMarshallingStrategyStore,
+                                                        InternalFactHandle handle) throws IOException {
         ProtobufMessages.FactHandle.Builder _handle = ProtobufMessages.FactHandle.newBuilder();
 
         _handle.setType( getHandleType( handle ) );
@@ -628,6 +665,10 @@ public class ProtobufOutputMarshaller {
         return _handle.build();
     }
 
+    private static SessionChanges getChanges( MarshallerWriteContext context ) {
+        return context instanceof ProtobufMarshallerWriteContext ? ((ProtobufMarshallerWriteContext) context).getChanges() : null;
+    }
+
     private static ProtobufMessages.FactHandle.HandleType getHandleType(InternalFactHandle handle) {
         if ( handle instanceof EventFactHandle ) {
             return ProtobufMessages.FactHandle.HandleType.EVENT;
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.serialization.protobuf;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.drools.core.common.InternalFactHandle;
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.event.rule.AgendaEventListener;
+import org.kie.api.event.rule.AgendaGroupPoppedEvent;
+import org.kie.api.event.rule.AgendaGroupPushedEvent;
+import org.kie.api.event.rule.BeforeMatchFiredEvent;
+import org.kie.api.event.rule.MatchCancelledEvent;
+import org.kie.api.event.rule.MatchCreatedEvent;
+import org.kie.api.event.rule.ObjectDeletedEvent;
+import org.kie.api.event.rule.ObjectInsertedEvent;
+import org.kie.api.event.rule.ObjectUpdatedEvent;
+import org.kie.api.event.rule.RuleFlowGroupActivatedEvent;
+import org.kie.api.event.rule.RuleFlowGroupDeactivatedEvent;
+import org.kie.api.event.rule.RuleRuntimeEventListener;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.FactHandle;
+import org.kie.api.runtime.rule.Match;
+import org.kie.internal.event.rule.RuleEventListener;
+import org.kie.internal.event.rule.RuleEventManager;
+
+/**
+ * Keeps track of the fact handles inserted, updated and deleted in a session since its last snapshot,
+ * so that {@link ProtobufMarshaller#marshallDelta} can write only them. It also records the fact handles
+ * of the matches created, fired, updated and deleted in the meanwhile, so that only the agenda matches,
+ * node memories and truth maintenance entries referring them are written as well.
+ *
+ * The journal relies on the session events, so a fact whose state is changed without notifying the
+ * engine is not considered as changed.
+ */
+public class SessionChangeJournal implements RuleRuntimeEventListener, AgendaEventListener, RuleEventListener {
+
+    private Map<Long, InternalFactHandle> changedHandles = new HashMap<>();
+    private Set<Long> deletedHandles = new HashSet<>();
+    private Set<Long> touchedHandles = new HashSet<>();
+
+    public static SessionChangeJournal attach( KieSession session ) {
+        SessionChangeJournal journal = new SessionChangeJournal();
+        session.addEventListener( (RuleRuntimeEventListener) journal );
+        session.addEventListener( (AgendaEventListener) journal );
+        ((RuleEventManager) session).addEventListener( (RuleEventListener) journal );
+        return journal;
+    }
+
+    public void detach( KieSession session ) {
+        session.removeEventListener( (RuleRuntimeEventListener) this );
+        session.removeEventListener( (AgendaEventListener) this );
+        ((RuleEventManager) session).removeEventListener( (RuleEventListener) this );
+    }
+
+    @Override
+    public synchronized void objectInserted( ObjectInsertedEvent event ) {
+        changed( event.getFactHandle() );
+    }
+
+    @Override
+    public synchronized void objectUpdated( ObjectUpdatedEvent event ) {
+        changed( event.getFactHandle() );
+    }
+
+    @Override
+    public synchronized void objectDeleted( ObjectDeletedEvent event ) {
+        long id = (( InternalFactHandle ) event.getFactHandle()).getId();
+        changedHandles.remove( id );
+        deletedHandles.add( id );
+        touchedHandles.add( id );
+    }
+
+    private void changed( FactHandle handle ) {
+        InternalFactHandle internalHandle = ( InternalFactHandle ) handle;
+        changedHandles.put( internalHandle.getId(), internalHandle );
+        deletedHandles.remove( internalHandle.getId() );
+        touchedHandles.add( internalHandle.getId() );
+    }
+
+    @Override
+    public synchronized void matchCreated( MatchCreatedEvent event ) {
+        touched( event.getMatch() );
+    }
+
+    @Override
+    public synchronized void matchCancelled( MatchCancelledEvent event ) {
+        touched( event.getMatch() );
+    }
+
+    @Override
+    public void beforeMatchFired( BeforeMatchFiredEvent event ) { }
+
+    @Override
+    public synchronized void afterMatchFired( AfterMatchFiredEvent event ) {
+        touched( event.getMatch() );
+    }
+
+    @Override
+    public void agendaGroupPopped( AgendaGroupPoppedEvent event ) { }
+
+    @Override
+    public void agendaGroupPushed( AgendaGroupPushedEvent event ) { }
+
+    @Override
+    public void beforeRuleFlowGroupActivated( RuleFlowGroupActivatedEvent event ) { }
+
+    @Override
+    public void afterRuleFlowGroupActivated( RuleFlowGroupActivatedEvent event ) { }
+
+    @Override
+    public void beforeRuleFlowGroupDeactivated( RuleFlowGroupDeactivatedEvent event ) { }
+
+    @Override
+    public void afterRuleFlowGroupDeactivated( RuleFlowGroupDeactivatedEvent event ) { }
+
+    @Override
+    public synchronized void onUpdateMatch( Match match ) {
+        touched( match );
+    }
+
+    @Override
+    public synchronized void onDeleteMatch( Match match ) {
+        // also notified for the matches already fired, whose logical insertions are removed
+        touched( match );
+    }
+
+    private void touched( Match match ) {
+        for (FactHandle handle : match.getFactHandles()) {
+            if ( handle != null ) {
+                touchedHandles.add( (( InternalFactHandle ) handle).getId() );
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return changedHandles.size() + deletedHandles.size();
+    }
+
+    /**
+     * Returns the changes recorded so far and starts recording the following ones.
+     */
+    synchronized SessionChanges swap() {
+        SessionChanges changes = new SessionChanges( changedHandles, deletedHandles, touchedHandles );
+        changedHandles = new HashMap<>();
+        deletedHandles = new HashSet<>();
+        touchedHandles = new HashSet<>();
+        return changes;
+    }
+
+    /**
+     * Gives back the changes returned by {@link #swap()} when the snapshot containing them could not be written,
+     * so that they are written by the next one. The changes recorded in the meanwhile take precedence over them.
+     */
+    synchronized void restore( SessionChanges changes ) {
+        changes.getChangedHandles().forEach( ( id, handle ) -> {
+            if ( !deletedHandles.contains( id ) ) {
+                changedHandles.putIfAbsent( id, handle );
+            }
+        } );
+        for (Long id : changes.getDeletedHandles()) {
+            if ( !changedHandles.containsKey( id ) ) {
+                deletedHandles.add( id );
+            }
+        }
+        touchedHandles.addAll( changes.getTouchedHandles() );
+    }
+
+    /**
+     * Forgets all the recorded changes. To be invoked after a full snapshot of the session has been taken.
+     */
+    public synchronized void clear() {
+        changedHandles.clear();
+        deletedHandles.clear();
+        touchedHandles.clear();
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.serialization.protobuf;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.drools.core.beliefsystem.BeliefSet;
+import org.drools.core.common.DefaultFactHandle;
+import org.drools.core.common.EqualityKey;
+import org.drools.core.common.InternalFactHandle;
+import org.drools.core.common.LogicalDependency;
+import org.drools.core.spi.Activation;
+import org.drools.core.spi.Tuple;
+import org.drools.core.util.FastIterator;
+import org.drools.core.util.LinkedListEntry;
+
+/**
+ * The changes of a session recorded by a {@link SessionChangeJournal} between two snapshots, as written
+ * in the header of a delta snapshot.
+ *
+ * A fact handle is touched when it has been inserted, updated or deleted, or when it is part of a match
+ * that has been created, fired, updated or cancelled. The agenda matches, the node memories and the
+ * truth maintenance entries that don't refer any touched handle are the same of the previous snapshot,
+ * so a delta contains only the ones referring a touched handle, that replace the former ones when merged.
+ */
+final class SessionChanges {
+
+    private static final int DELTA_MAGIC = 0x44454C54;
+    private static final int DELTA_FORMAT_VERSION = 1;
+
+    private final Map<Long, InternalFactHandle> changedHandles;
+    private final Set<Long> deletedHandles;
+    private final Set<Long> touchedHandles;
+
+    SessionChanges( Map<Long, InternalFactHandle> changedHandles, Set<Long> deletedHandles, Set<Long> touchedHandles ) {
+        this.changedHandles = changedHandles;
+        this.deletedHandles = deletedHandles;
+        this.touchedHandles = touchedHandles;
+    }
+
+    /**
+     * @return the fact handles of the given entry point inserted or updated since the previous snapshot, sorted by id
+     */
+    List<InternalFactHandle> getChangedHandles( String entryPointId ) {
+        List<InternalFactHandle> handles = new ArrayList<>();
+        for (InternalFactHandle handle : changedHandles.values()) {
+            if ( entryPointId.equals( handle.getEntryPointName() ) ) {
+                handles.add( handle );
+            }
+        }
+        handles.sort( ( h1, h2 ) -> Long.compare( h1.getId(), h2.getId() ) );
+        return handles;
+    }
+
+    Map<Long, InternalFactHandle> getChangedHandles() {
+        return Collections.unmodifiableMap( changedHandles );
+    }
+
+    Set<Long> getDeletedHandles() {
+        return Collections.unmodifiableSet( deletedHandles );
+    }
+
+    Set<Long> getTouchedHandles() {
+        return Collections.unmodifiableSet( touchedHandles );
+    }
+
+    boolean isTouched( long handleId ) {
+        return touchedHandles.contains( handleId );
+    }
+
+    boolean isTouched( Tuple tuple ) {
+        for (Tuple entry = tuple != null ? tuple.skipEmptyHandles() : null; entry != null; entry = entry.getParent()) {
+            if ( entry.getFactHandle() != null && isTouched( entry.getFactHandle().getId() ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isTouched( Activation activation ) {
+        return isTouched( activation.getTuple() ) ||
+               ( activation.getActivationFactHandle() != null && isTouched( activation.getActivationFactHandle().getId() ) );
+    }
+
+    boolean isTouched( EqualityKey key ) {
+        if ( isTouched( key.getFactHandle().getId() ) ) {
+            return true;
+        }
+        if ( key.size() > 1 ) {
+            FastIterator keyIter = key.fastIterator();
+            for ( DefaultFactHandle handle = key.getFirst().getNext(); handle != null; handle = (DefaultFactHandle) keyIter.next( handle ) ) {
+                if ( isTouched( handle.getId() ) ) {
+                    return true;
+                }
+            }
+        }
+        BeliefSet beliefSet = key.getBeliefSet();
+        if ( beliefSet != null ) {
+            FastIterator it = beliefSet.iterator();
+            for ( LinkedListEntry node = (LinkedListEntry) beliefSet.getFirst(); node != null; node = (LinkedListEntry) it.next( node ) ) {
+                if ( isTouched( ((LogicalDependency) node.getObject()).getJustifier() ) ) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    boolean isTouched( ProtobufMessages.Tuple _tuple ) {
+        for (long id : _tuple.getHandleIdList()) {
+            if ( isTouched( id ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isTouched( ProtobufMessages.Activation _activation ) {
+        return isTouched( _activation.getTuple() ) || ( _activation.hasHandleId() && isTouched( _activation.getHandleId() ) );
+    }
+
+    boolean isTouched( ProtobufMessages.EqualityKey _key ) {
+        if ( isTouched( _key.getHandleId() ) ) {
+            return true;
+        }
+        for (long id : _key.getOtherHandleList()) {
+            if ( isTouched( id ) ) {
+                return true;
+            }
+        }
+        for (ProtobufMessages.LogicalDependency _dependency : _key.getBeliefSet().getLogicalDependencyList()) {
+            if ( isTouched( _dependency.getActivation() ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isTouched( ProtobufMessages.NodeMemory.QueryElementNodeMemory.QueryContext _context ) {
+        if ( isTouched( _context.getTuple() ) || isTouched( _context.getHandle().getId() ) ) {
+            return true;
+        }
+        for (ProtobufMessages.FactHandle _result : _context.getResultList()) {
+            if ( isTouched( _result.getId() ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void write( ObjectOutput out ) throws IOException {
+        out.writeInt( DELTA_MAGIC );
+        out.writeInt( DELTA_FORMAT_VERSION );
+        writeIds( out, deletedHandles );
+        writeIds( out, touchedHandles );
+    }
+
+    /**
+     * Reads the header of a delta snapshot. The returned changes only know the ids of the deleted and touched handles.
+     */
+    static SessionChanges read( ObjectInput in ) throws IOException {
+        if ( in.readInt() != DELTA_MAGIC || in.readInt() != DELTA_FORMAT_VERSION ) {
+            throw new IOException( "The given stream doesn't contain a delta snapshot of a session" );
+        }
+        Set<Long> deletedHandles = readIds( in );
+        Set<Long> touchedHandles = readIds( in );
+        return new SessionChanges( Collections.emptyMap(), deletedHandles, touchedHandles );
+    }
+
+    private static void writeIds( ObjectOutput out, Set<Long> ids ) throws IOException {
+        out.writeInt( ids.size() );
+        for (long id : ids) {
+            out.writeLong( id );
+        }
+    }
+
+    private static Set<Long> readIds( ObjectInput in ) throws IOException {
+        int size = in.readInt();
+        Set<Long> ids = new HashSet<>( size * 2 );
+        for (int i = 0; i < size; i++) {
+            ids.add( in.readLong() );
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.serialization.protobuf;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.drools.core.common.InternalFactHandle;
+import org.drools.core.common.NamedEntryPoint;
+import org.drools.core.common.ObjectStore;
+import org.drools.core.impl.StatefulKnowledgeSessionImpl;
+import org.kie.api.marshalling.ObjectMarshallingStrategy;
+import org.kie.api.marshalling.ObjectMarshallingStrategy.Context;
+import org.kie.api.runtime.rule.EntryPoint;
+
+/**
+ * The fact handles of a session streamed after its skeleton, i.e. the usual session message written without
+ * fact handles. The handles of each entry point are written, in no particular order, in chunks of length
+ * delimited records, each one naming the entry point its handles belong to. Every chunk carries the contexts
+ * of the marshalling strategies used for its objects, so both the writer and the reader only need to keep
+ * a single chunk in memory.
+ *
+ * The whole snapshot is written through the same marshalling stream, so the state of the strategies contexts
+ * of a chunk can refer the objects already written by the former ones: an object referenced by facts in
+ * different chunks is written only once and its identity is preserved when the session is restored.
+ *
+ * <pre>
+ * chunk := true entryPointId strategyCount (id name hasData data?)* recordCount (recordLength FactHandle)*
+ * handles := chunk* false
+ * </pre>
+ */
+public class StreamedFactHandles {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    // the context of the whole snapshot, from which the chunks are read
+    private final ProtobufMarshallerReaderContext in;
+    private final Map<String, ObjectMarshallingStrategy> strategiesByName = new HashMap<>();
+    private boolean fullyRead;
+
+    private StreamedFactHandles( ProtobufMarshallerReaderContext in ) {
+        this.in = in;
+    }
+
+    static void write( ProtobufMarshallerWriteContext context, int chunkSize ) throws IOException {
+        StatefulKnowledgeSessionImpl wm = (StatefulKnowledgeSessionImpl) context.getWorkingMemory();
+        for ( EntryPoint wmep : wm.getWorkingMemoryEntryPoints().values() ) {
+            ObjectStore objectStore = (( NamedEntryPoint ) wmep).getObjectStore();
+            Iterator<InternalFactHandle> it = objectStore.iterateFactHandles();
+            List<ProtobufMessages.FactHandle> chunk = new ArrayList<>( chunkSize );
+            while ( it.hasNext() ) {
+                if ( chunk.isEmpty() ) {
+                    // every chunk has its own strategies index and contexts
+                    context.getUsedStrategies().clear();
+                    context.getStrategyContext().clear();
+                }
+                chunk.add( ProtobufOutputMarshaller.writeFactHandle( context, context.getObjectMarshallingStrategyStore(), it.next() ) );
+                if ( chunk.size() == chunkSize ) {
+                    writeChunk( context, wmep.getEntryPointId(), chunk );
+                    chunk.clear();
+                }
+            }
+            if ( !chunk.isEmpty() ) {
+                writeChunk( context, wmep.getEntryPointId(), chunk );
+            }
+        }
+        context.writeBoolean( false );
+        context.flush();
+    }
+
+    private static void writeChunk( ProtobufMarshallerWriteContext context, String entryPointId,
+                                    List<ProtobufMessages.FactHandle> chunk ) throws IOException {
+        context.writeBoolean( true );
+        context.writeUTF( entryPointId );
+
+        context.writeInt( context.getUsedStrategies().size() );
+        for ( Map.Entry<ObjectMarshallingStrategy, Integer> entry : context.getUsedStrategies().entrySet() ) {
+            context.writeInt( entry.getValue() );
+            context.writeUTF( entry.getKey().getName() );
+            Context ctx = context.getStrategyContext().get( entry.getKey() );
+            context.writeBoolean( ctx != null );
+            if ( ctx != null ) {
+                ctx.write( context );
+            }
+        }
+
+        context.writeInt( chunk.size() );
+        for ( ProtobufMessages.FactHandle _handle : chunk ) {
+            byte[] bytes = _handle.toByteArray();
+            context.writeInt( bytes.length );
+            context.write( bytes );
+        }
+    }
+
+    static StreamedFactHandles read( ProtobufMarshallerReaderContext context ) {
+        return new StreamedFactHandles( context );
+    }
+
+    /**
+     * Reads all the chunks, passing the fact handles of each of them to the given consumer together with the id
+     * of their entry point, with the strategies able to unmarshall their objects set in the reader context.
+     */
+    void readHandles( ChunkConsumer consumer ) throws IOException, ClassNotFoundException {
+        try {
+            while ( in.readBoolean() ) {
+                String entryPointId = in.readUTF();
+                readChunk( entryPointId, consumer );
+            }
+            fullyRead = true;
+        } finally {
+            in.setChunkStrategies( null, null );
+        }
+    }
+
+    /**
+     * @return true if all the chunks have been read
+     */
+    boolean isFullyRead() {
+        return fullyRead;
+    }
+
+    private void readChunk( String entryPointId, ChunkConsumer consumer ) throws IOException, ClassNotFoundException {
+        Map<Integer, ObjectMarshallingStrategy> strategies = new HashMap<>();
+        Map<ObjectMarshallingStrategy, Context> contexts = new HashMap<>();
+        int strategyCount = in.readInt();
+        for ( int i = 0; i < strategyCount; i++ ) {
+            int id = in.readInt();
+            ObjectMarshallingStrategy strategy = getStrategy( in.readUTF() );
+            Context ctx = strategy.createContext();
+            if ( in.readBoolean() ) {
+                ctx.read( in );
+            }
+            strategies.put( id, strategy );
+            contexts.put( strategy, ctx );
+        }
+        in.setChunkStrategies( strategies, contexts );
+
+        int recordCount = in.readInt();
+        List<ProtobufMessages.FactHandle> chunk = new ArrayList<>( recordCount );
+        for ( int i = 0; i < recordCount; i++ ) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully( bytes );
+            chunk.add( ProtobufMessages.FactHandle.parseFrom( bytes ) );
+        }
+        consumer.accept( entryPointId, chunk );
+    }
+
+    private ObjectMarshallingStrategy getStrategy( String name ) {
+        return strategiesByName.computeIfAbsent( name, n -> {
+            ObjectMarshallingStrategy strategy = in.getResolverStrategyFactory().getStrategyObject( n );
+            if ( strategy == null ) {
+                throw new IllegalStateException( "No strategy of type " + n + " available." );
+            }
+            return strategy;
+        } );
+    }
+
+    interface ChunkConsumer {
+        void accept( String entryPointId, List<ProtobufMessages.FactHandle> _handles ) throws IOException, ClassNotFoundException;
+    }
+}
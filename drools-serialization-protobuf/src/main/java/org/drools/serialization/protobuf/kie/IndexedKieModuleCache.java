@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.serialization.protobuf.kie;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+import org.drools.compiler.kie.builder.impl.InternalKieModule.CompilationCache;
+import org.drools.core.util.Drools;
+import org.drools.core.util.KeyStoreHelper;
+import org.drools.serialization.protobuf.kie.KieModuleCache.CompDataEntry;
+import org.drools.serialization.protobuf.kie.KieModuleCache.CompilationData;
+import org.drools.serialization.protobuf.kie.KieModuleCache.KModuleCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An alternative layout of the compilation cache of a KieBase, where the bytecode of all the classes follows
+ * an index of their names, offsets and lengths. Opening it only decodes the index, so that it can be memory
+ * mapped from the kjar exploded on the file system, and the bytecode of a class is copied out of it only when
+ * the class is first requested.
+ *
+ * The layout is: magic, major, minor and revision version, entries count, then for each entry its dialect,
+ * class name, offset and length, followed by the bytecode of all the entries. The offsets are relative to the
+ * end of the index. As this layout can't be checked without reading it all, signed caches keep the protobuf one, and
+ * an environment configured for signed serialized objects refuses to read it.
+ *
+ * A memory mapped cache is unmapped as soon as the bytecode of all its entries has been loaded, or when it is closed:
+ * the entries requested after that are read from the file.
+ */
+public class IndexedKieModuleCache implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger( IndexedKieModuleCache.class );
+
+    private static final int MAGIC = 0x4B434931;
+
+    private final File file;
+    private ByteBuffer buffer;
+    private final int versionMajor;
+    private final int versionMinor;
+    private final int versionRevision;
+
+    private BitSet unloadedEntries;
+
+    private IndexedKieModuleCache( ByteBuffer buffer, File file ) {
+        this.buffer = buffer;
+        this.file = file;
+        this.versionMajor = buffer.getInt( 4 );
+        this.versionMinor = buffer.getInt( 8 );
+        this.versionRevision = buffer.getInt( 12 );
+    }
+
+    public static boolean isIndexed( byte[] bytes ) {
+        return bytes != null && bytes.length >= 4 && isIndexed( ByteBuffer.wrap( bytes ) );
+    }
+
+    private static boolean isIndexed( ByteBuffer buffer ) {
+        return buffer.remaining() >= 4 && buffer.getInt( buffer.position() ) == MAGIC;
+    }
+
+    public static IndexedKieModuleCache open( byte[] bytes ) {
+        checkSignature();
+        return new IndexedKieModuleCache( ByteBuffer.wrap( bytes ), null );
+    }
+
+    /**
+     * Memory maps the given file, returning null if it doesn't contain an indexed cache.
+     */
+    public static IndexedKieModuleCache map( File file ) throws IOException {
+        try (FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ )) {
+            // the mapping stays valid after the channel is closed
+            ByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+            if ( !isIndexed( buffer ) ) {
+                unmap( buffer );
+                return null;
+            }
+            checkSignature();
+            return new IndexedKieModuleCache( buffer, file );
+        }
+    }
+
+    /**
+     * The indexed layout has no signature, so it can't be trusted by an environment expecting signed objects.
+     */
+    private static void checkSignature() {
+        if ( new KeyStoreHelper().isSigned() ) {
+            throw new RuntimeException( "This environment is configured to work with signed serialized objects, " +
+                                        "but the given compilation cache is unsigned. Deserialization aborted." );
+        }
+    }
+
+    public boolean isCompatible() {
+        return Drools.isCompatible( versionMajor, versionMinor, versionRevision );
+    }
+
+    /**
+     * Decodes the index into a cache whose entries load their bytecode from this one when requested.
+     */
+    public synchronized CompilationCache toCompilationCache() {
+        if ( buffer == null ) {
+            throw new IllegalStateException( "The compilation cache has been already closed" );
+        }
+        ByteBuffer index = buffer.duplicate();
+        index.position( 16 );
+        int count = index.getInt();
+        String[] dialects = new String[count];
+        String[] classNames = new String[count];
+        int[] offsets = new int[count];
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            dialects[i] = readString( index );
+            classNames[i] = readString( index );
+            offsets[i] = index.getInt();
+            lengths[i] = index.getInt();
+        }
+        int dataStart = index.position();
+
+        CompilationCache cache = new CompilationCache();
+        unloadedEntries = new BitSet( count );
+        unloadedEntries.set( 0, count );
+        for (int i = 0; i < count; i++) {
+            int entry = i;
+            int start = dataStart + offsets[i];
+            int length = lengths[i];
+            cache.addEntry( dialects[i], classNames[i], () -> load( entry, start, length ) );
+        }
+        if ( count == 0 ) {
+            close();
+        }
+        return cache;
+    }
+
+    public synchronized boolean isMapped() {
+        return buffer != null && file != null;
+    }
+
+    private synchronized byte[] load( int entry, int start, int length ) {
+        byte[] bytecode = new byte[length];
+        if ( buffer != null ) {
+            ByteBuffer data = buffer.duplicate();
+            data.position( start );
+            data.get( bytecode );
+            unloadedEntries.clear( entry );
+            if ( unloadedEntries.isEmpty() && file != null ) {
+                // all the bytecode has been copied out, so the mapping is no longer needed
+                release();
+            }
+            return bytecode;
+        }
+        try (FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ )) {
+            ByteBuffer data = ByteBuffer.wrap( bytecode );
+            while ( data.hasRemaining() ) {
+                if ( channel.read( data, start + data.position() ) < 0 ) {
+                    throw new EOFException( "Unexpected end of compilation cache " + file );
+                }
+            }
+            return bytecode;
+        } catch (IOException e) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if ( file != null ) {
+            release();
+        }
+    }
+
+    private void release() {
+        if ( buffer != null ) {
+            ByteBuffer mapped = buffer;
+            buffer = null;
+            unmap( mapped );
+        }
+    }
+
+    /**
+     * Unmaps the given buffer without waiting for it to be garbage collected, when the JVM allows it.
+     */
+    private static void unmap( ByteBuffer buffer ) {
+        try {
+            Class<?> unsafeClass = Class.forName( "sun.misc.Unsafe" );
+            Field theUnsafe = unsafeClass.getDeclaredField( "theUnsafe" );
+            theUnsafe.setAccessible( true );
+            unsafeClass.getMethod( "invokeCleaner", ByteBuffer.class ).invoke( theUnsafe.get( null ), buffer );
+        } catch (NoSuchMethodException e) {
+            // before java 9 the cleaner can only be reached through the buffer itself
+            try {
+                Method cleanerMethod = buffer.getClass().getMethod( "cleaner" );
+                cleanerMethod.setAccessible( true );
+                Object cleaner = cleanerMethod.invoke( buffer );
+                cleaner.getClass().getMethod( "clean" ).invoke( cleaner );
+            } catch (ReflectiveOperationException | RuntimeException e1) {
+                log.debug( "Unable to unmap the compilation cache, it will be unmapped when garbage collected", e1 );
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug( "Unable to unmap the compilation cache, it will be unmapped when garbage collected", e );
+        }
+    }
+
+    public static void write( OutputStream stream, KModuleCache kModuleCache ) throws IOException {
+        DataOutputStream out = new DataOutputStream( stream );
+        out.writeInt( MAGIC );
+        out.writeInt( Drools.getMajorVersion() );
+        out.writeInt( Drools.getMinorVersion() );
+        out.writeInt( Drools.getRevisionVersion() );
+
+        int count = 0;
+        for (CompilationData _data : kModuleCache.getCompilationDataList()) {
+            count += _data.getEntryCount();
+        }
+        out.writeInt( count );
+
+        int offset = 0;
+        for (CompilationData _data : kModuleCache.getCompilationDataList()) {
+            for (CompDataEntry _entry : _data.getEntryList()) {
+                writeString( out, _data.getDialect() );
+                writeString( out, _entry.getId() );
+                out.writeInt( offset );
+                out.writeInt( _entry.getData().size() );
+                offset += _entry.getData().size();
+            }
+        }
+        for (CompilationData _data : kModuleCache.getCompilationDataList()) {
+            for (CompDataEntry _entry : _data.getEntryList()) {
+                _entry.getData().writeTo( out );
+            }
+        }
+        out.flush();
+    }
+
+    private static void writeString( DataOutputStream out, String value ) throws IOException {
+        byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+
+    private static String readString( ByteBuffer buffer ) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+}
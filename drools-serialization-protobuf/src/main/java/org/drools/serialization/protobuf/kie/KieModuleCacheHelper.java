@@ -34,6 +34,11 @@ public class KieModuleCacheHelper {
     
     public static void writeToStreamWithHeader( OutputStream stream,
                                                 Message payload ) throws IOException {
+        writeToStreamWithHeader( stream, payload.toByteArray() );
+    }
+
+    public static void writeToStreamWithHeader( OutputStream stream,
+                                                byte[] buff ) throws IOException {
         KieModuleCache.Header.Builder _header = KieModuleCache.Header.newBuilder();
         // need to automate this version numbering somehow
         _header.setVersion( KieModuleCache.Version.newBuilder()
@@ -42,7 +47,6 @@ public class KieModuleCacheHelper {
                             .setVersionRevision( Drools.getRevisionVersion() )
                             .build() );
         
-        byte[] buff = payload.toByteArray();
         sign( _header, buff );
         _header.setPayload( ByteString.copyFrom( buff ) );
 
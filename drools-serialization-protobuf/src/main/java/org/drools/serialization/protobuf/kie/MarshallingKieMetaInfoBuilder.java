@@ -34,6 +34,7 @@ import org.drools.core.rule.JavaDialectRuntimeData;
 import org.drools.core.rule.KieModuleMetaInfo;
 import org.drools.core.rule.TypeDeclaration;
 import org.drools.core.rule.TypeMetaInfo;
+import org.drools.core.util.KeyStoreHelper;
 import org.kie.api.builder.model.KieModuleModel;
 import org.kie.api.definition.KiePackage;
 import org.kie.api.definition.rule.Rule;
@@ -124,11 +125,22 @@ public class MarshallingKieMetaInfoBuilder extends KieMetaInfoBuilder {
         }
     }
 
+    @Override
+    protected void writeKieBaseImage(String path, byte[] image, ResourceStore trgMfs) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        KieModuleCacheHelper.writeToStreamWithHeader( out, image );
+        trgMfs.write( path, out.toByteArray(), true );
+    }
+
     private void writeCompilationDataToTrg(KieModuleCache.KModuleCache _kmoduleCache,
                                            String kieBaseName, ResourceStore trgMfs) {
         try {
             ByteArrayOutputStream out = new ByteArrayOutputStream();
-            KieModuleCacheHelper.writeToStreamWithHeader( out, _kmoduleCache );
+            if ( new KeyStoreHelper().isSigned() ) {
+                KieModuleCacheHelper.writeToStreamWithHeader( out, _kmoduleCache );
+            } else {
+                IndexedKieModuleCache.write( out, _kmoduleCache );
+            }
             String compilatonDataPath = "META-INF/" + kieBaseName.replace( '.', '/' ) + "/kbase.cache";
             trgMfs.write( compilatonDataPath, out.toByteArray(), true );
         } catch ( IOException e ) {
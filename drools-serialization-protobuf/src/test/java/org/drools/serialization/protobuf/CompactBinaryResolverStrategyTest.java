@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.serialization.protobuf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InvalidClassException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.drools.core.marshalling.impl.ClassObjectMarshallingStrategyAcceptor;
+import org.drools.core.marshalling.impl.CompactBinaryResolverStrategy;
+import org.drools.core.marshalling.impl.JavaSerializableResolverStrategy;
+import org.junit.Test;
+import org.kie.api.KieBase;
+import org.kie.api.io.ResourceType;
+import org.kie.api.marshalling.Marshaller;
+import org.kie.api.marshalling.ObjectMarshallingStrategy;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.marshalling.MarshallerFactory;
+import org.kie.internal.utils.KieHelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompactBinaryResolverStrategyTest {
+
+    public enum Unit { CELSIUS, FAHRENHEIT }
+
+    public static class Sensor {
+        private String id;
+
+        public Sensor() { }
+
+        public Sensor( String id ) {
+            this.id = id;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId( String id ) {
+            this.id = id;
+        }
+    }
+
+    // deliberately not Serializable
+    public static class Reading {
+        private Sensor sensor;
+        private int value;
+        private double ratio;
+        private Long timestamp;
+        private BigDecimal cost;
+        private Date date;
+        private Unit unit;
+        private String note;
+
+        public Reading() { }
+
+        public Reading( Sensor sensor, int value ) {
+            this.sensor = sensor;
+            this.value = value;
+            this.ratio = value / 3.0;
+            this.timestamp = 1000L * value;
+            this.cost = new BigDecimal( value ).movePointLeft( 2 );
+            this.date = new Date( timestamp );
+            this.unit = value % 2 == 0 ? Unit.CELSIUS : Unit.FAHRENHEIT;
+        }
+
+        public Sensor getSensor() { return sensor; }
+        public void setSensor( Sensor sensor ) { this.sensor = sensor; }
+        public int getValue() { return value; }
+        public void setValue( int value ) { this.value = value; }
+        public double getRatio() { return ratio; }
+        public void setRatio( double ratio ) { this.ratio = ratio; }
+        public Long getTimestamp() { return timestamp; }
+        public void setTimestamp( Long timestamp ) { this.timestamp = timestamp; }
+        public BigDecimal getCost() { return cost; }
+        public void setCost( BigDecimal cost ) { this.cost = cost; }
+        public Date getDate() { return date; }
+        public void setDate( Date date ) { this.date = date; }
+        public Unit getUnit() { return unit; }
+        public void setUnit( Unit unit ) { this.unit = unit; }
+        public String getNote() { return note; }
+        public void setNote( String note ) { this.note = note; }
+    }
+
+    public static class Point implements Serializable {
+        private int x;
+        private int y;
+        private String label;
+
+        public Point() { }
+
+        public Point( int x, int y, String label ) {
+            this.x = x;
+            this.y = y;
+            this.label = label;
+        }
+
+        public int getX() { return x; }
+        public void setX( int x ) { this.x = x; }
+        public int getY() { return y; }
+        public void setY( int y ) { this.y = y; }
+        public String getLabel() { return label; }
+        public void setLabel( String label ) { this.label = label; }
+    }
+
+    @Test
+    public void testRoundTripOfNotSerializableFacts() throws Exception {
+        String drl =
+                "import " + Reading.class.getCanonicalName() + "\n" +
+                "rule High when\n" +
+                "    Reading( value > 10, sensor.id == \"s1\" )\n" +
+                "then\n" +
+                "end\n";
+
+        KieBase kbase = new KieHelper().addContent( drl, ResourceType.DRL ).build();
+        for (boolean compress : new boolean[] { false, true }) {
+            ObjectMarshallingStrategy strategy = new CompactBinaryResolverStrategy( compress, Reading.class, Sensor.class );
+            Marshaller marshaller = MarshallerFactory.newMarshaller( kbase, new ObjectMarshallingStrategy[] { strategy } );
+
+            KieSession ksession = kbase.newKieSession();
+            for (int i = 0; i < 20; i++) {
+                ksession.insert( new Reading( new Sensor( i % 2 == 0 ? "s1" : "s2" ), i ) );
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            marshaller.marshall( out, ksession );
+            ksession.dispose();
+
+            KieSession restored = marshaller.unmarshall( new ByteArrayInputStream( out.toByteArray() ) );
+            assertEquals( 20, restored.getFactCount() );
+            assertEquals( 4, restored.fireAllRules() );
+
+            Reading reading = (Reading) restored.getObjects( o -> (( Reading ) o).getValue() == 15 ).iterator().next();
+            assertEquals( "s2", reading.getSensor().getId() );
+            assertEquals( 5.0, reading.getRatio(), 0.0 );
+            assertEquals( Long.valueOf( 15000L ), reading.getTimestamp() );
+            assertEquals( new BigDecimal( "0.15" ), reading.getCost() );
+            assertEquals( new Date( 15000L ), reading.getDate() );
+            assertEquals( Unit.FAHRENHEIT, reading.getUnit() );
+            assertNull( reading.getNote() );
+            restored.dispose();
+        }
+    }
+
+    @Test
+    public void testSmallerThanJavaSerialization() throws Exception {
+        ObjectMarshallingStrategy compact = new CompactBinaryResolverStrategy( Point.class );
+        ObjectMarshallingStrategy java = new JavaSerializableResolverStrategy( ClassObjectMarshallingStrategyAcceptor.DEFAULT );
+
+        Point point = new Point( -3, 42, "p" );
+        byte[] compactBytes = compact.marshal( null, null, point );
+        byte[] javaBytes = java.marshal( null, null, point );
+
+        Point restored = (Point) compact.unmarshal( null, null, compactBytes, getClass().getClassLoader() );
+        assertEquals( -3, restored.getX() );
+        assertEquals( 42, restored.getY() );
+        assertEquals( "p", restored.getLabel() );
+
+        // no class descriptor: class id + schema fingerprint + 2 single byte ints + tagged 1 char string, plus the compression flag
+        assertEquals( 11, compactBytes.length );
+        assertTrue( javaBytes.length > 10 * compactBytes.length );
+    }
+
+    public static class Node {
+        private String name;
+        private Node next;
+        private Sensor left;
+        private Sensor right;
+
+        public Node() { }
+
+        public Node( String name ) {
+            this.name = name;
+        }
+
+        public String getName() { return name; }
+        public void setName( String name ) { this.name = name; }
+        public Node getNext() { return next; }
+        public void setNext( Node next ) { this.next = next; }
+        public Sensor getLeft() { return left; }
+        public void setLeft( Sensor left ) { this.left = left; }
+        public Sensor getRight() { return right; }
+        public void setRight( Sensor right ) { this.right = right; }
+    }
+
+    @Test
+    public void testRoundTripOfCyclesAndSharedReferences() throws Exception {
+        ObjectMarshallingStrategy strategy = new CompactBinaryResolverStrategy( Node.class, Sensor.class );
+
+        Sensor shared = new Sensor( "shared" );
+        Node first = new Node( "first" );
+        Node second = new Node( "second" );
+        first.setNext( second );
+        second.setNext( first );
+        first.setLeft( shared );
+        first.setRight( shared );
+        second.setLeft( shared );
+        second.setRight( new Sensor( "other" ) );
+
+        Node restored = (Node) strategy.unmarshal( null, null, strategy.marshal( null, null, first ), getClass().getClassLoader() );
+        assertEquals( "first", restored.getName() );
+        assertEquals( "second", restored.getNext().getName() );
+        assertSame( restored, restored.getNext().getNext() );
+
+        assertEquals( "shared", restored.getLeft().getId() );
+        assertSame( restored.getLeft(), restored.getRight() );
+        assertSame( restored.getLeft(), restored.getNext().getLeft() );
+        assertEquals( "other", restored.getNext().getRight().getId() );
+        assertNotSame( restored.getLeft(), restored.getNext().getRight() );
+
+        Node self = new Node( "self" );
+        self.setNext( self );
+        Node restoredSelf = (Node) strategy.unmarshal( null, null, strategy.marshal( null, null, self ), getClass().getClassLoader() );
+        assertSame( restoredSelf, restoredSelf.getNext() );
+    }
+
+    public static class Labelled {
+        private String label;
+
+        public String getLabel() { return label; }
+        public void setLabel( String label ) { this.label = label; }
+
+        public String getUpperCaseLabel() {
+            return label == null ? null : label.toUpperCase();
+        }
+    }
+
+    @Test
+    public void testPropertyWithoutSetterIsRejected() throws Exception {
+        ObjectMarshallingStrategy strategy = new CompactBinaryResolverStrategy( Labelled.class );
+        try {
+            strategy.marshal( null, null, new Labelled() );
+            fail( "A property without a setter can't be restored" );
+        } catch (IllegalArgumentException e) {
+            assertTrue( e.getMessage().contains( "upperCaseLabel" ) );
+        }
+    }
+
+    @Test
+    public void testSchemaMismatchIsRejected() throws Exception {
+        ObjectMarshallingStrategy writer = new CompactBinaryResolverStrategy( Point.class, Sensor.class );
+        ObjectMarshallingStrategy reader = new CompactBinaryResolverStrategy( Sensor.class, Point.class );
+
+        byte[] bytes = writer.marshal( null, null, new Point( 1, 2, "p" ) );
+        try {
+            reader.unmarshal( null, null, bytes, getClass().getClassLoader() );
+            fail( "A stream written with different registrations can't be read" );
+        } catch (InvalidClassException e) {
+            assertTrue( e.getMessage().contains( Sensor.class.getName() ) );
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.serialization.protobuf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.drools.mvel.compiler.Person;
+import org.junit.Test;
+import org.kie.api.KieBase;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.FactHandle;
+import org.kie.internal.marshalling.MarshallerFactory;
+import org.kie.internal.utils.KieHelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DeltaSnapshotTest {
+
+    private static final String DRL =
+            "import " + Person.class.getCanonicalName() + "\n" +
+            "rule Adult when\n" +
+            "    Person( age >= 18 )\n" +
+            "then\n" +
+            "end\n";
+
+    @Test
+    public void testRestoreFromBaseAndDeltas() throws Exception {
+        KieBase kbase = new KieHelper().addContent( DRL, ResourceType.DRL ).build();
+        ProtobufMarshaller marshaller = (ProtobufMarshaller) MarshallerFactory.newMarshaller( kbase );
+
+        KieSession ksession = kbase.newKieSession();
+        SessionChangeJournal journal = SessionChangeJournal.attach( ksession );
+
+        FactHandle markFH = ksession.insert( new Person( "Mark", 40 ) );
+        Person edson = new Person( "Edson", 10 );
+        FactHandle edsonFH = ksession.insert( edson );
+        assertEquals( 1, ksession.fireAllRules() );
+
+        byte[] base = marshall( out -> marshaller.marshall( out, ksession, journal ) );
+        assertEquals( 0, journal.size() );
+
+        ksession.insert( new Person( "Mario", 20 ) );
+        edson.setAge( 25 );
+        ksession.update( edsonFH, edson );
+        ksession.delete( markFH );
+        assertEquals( 3, journal.size() );
+
+        byte[] delta1 = marshall( out -> marshaller.marshallDelta( out, ksession, journal ) );
+        assertEquals( 0, journal.size() );
+
+        assertEquals( 2, ksession.fireAllRules() );
+        ksession.insert( new Person( "Luca", 50 ) );
+
+        byte[] delta2 = marshall( out -> marshaller.marshallDelta( out, ksession, journal ) );
+        ksession.dispose();
+
+        KieSession restored1 = marshaller.unmarshall( new ByteArrayInputStream( base ),
+                                                      Collections.singletonList( new ByteArrayInputStream( delta1 ) ),
+                                                      null, null );
+        assertEquals( Arrays.asList( "Edson", "Mario" ), getNames( restored1 ) );
+        assertEquals( 2, restored1.fireAllRules() );
+        restored1.dispose();
+
+        KieSession restored2 = marshaller.unmarshall( new ByteArrayInputStream( base ),
+                                                      Arrays.<InputStream>asList( new ByteArrayInputStream( delta1 ), new ByteArrayInputStream( delta2 ) ),
+                                                      null, null );
+        assertEquals( Arrays.asList( "Edson", "Luca", "Mario" ), getNames( restored2 ) );
+        // only the activation for Luca was still pending
+        assertEquals( 1, restored2.fireAllRules() );
+        restored2.dispose();
+    }
+
+    @Test
+    public void testDeltaOnlyContainsTheChangedMatches() throws Exception {
+        KieBase kbase = new KieHelper().addContent( DRL, ResourceType.DRL ).build();
+        ProtobufMarshaller marshaller = (ProtobufMarshaller) MarshallerFactory.newMarshaller( kbase );
+
+        KieSession ksession = kbase.newKieSession();
+        SessionChangeJournal journal = SessionChangeJournal.attach( ksession );
+
+        List<FactHandle> handles = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            handles.add( ksession.insert( new Person( "Person" + i, 30 ) ) );
+        }
+        assertEquals( 1000, ksession.fireAllRules() );
+
+        byte[] base = marshall( out -> marshaller.marshall( out, ksession, journal ) );
+
+        Person changed = (Person) ksession.getObject( handles.get( 0 ) );
+        changed.setAge( 31 );
+        ksession.update( handles.get( 0 ), changed );
+        assertEquals( 1, ksession.fireAllRules() );
+
+        byte[] delta = marshall( out -> marshaller.marshallDelta( out, ksession, journal ) );
+        ksession.dispose();
+
+        // neither the handles nor the dormant matches of the other facts are written again
+        assertTrue( delta.length * 20 < base.length );
+
+        KieSession restored = marshaller.unmarshall( new ByteArrayInputStream( base ),
+                                                     Collections.singletonList( new ByteArrayInputStream( delta ) ),
+                                                     null, null );
+        assertEquals( 1000, restored.getFactCount() );
+        // all the matches already fired, including the one of the updated fact, are still dormant
+        assertEquals( 0, restored.fireAllRules() );
+        restored.dispose();
+    }
+
+    @Test
+    public void testMergeOfTheLogicalInsertions() throws Exception {
+        String drl =
+                "import " + Person.class.getCanonicalName() + "\n" +
+                "rule Adult when\n" +
+                "    Person( age >= 18, $name : name )\n" +
+                "then\n" +
+                "    insertLogical( \"adult \" + $name );\n" +
+                "end\n";
+        KieBase kbase = new KieHelper().addContent( drl, ResourceType.DRL ).build();
+        ProtobufMarshaller marshaller = (ProtobufMarshaller) MarshallerFactory.newMarshaller( kbase );
+
+        KieSession ksession = kbase.newKieSession();
+        SessionChangeJournal journal = SessionChangeJournal.attach( ksession );
+
+        Person mark = new Person( "Mark", 40 );
+        FactHandle markFH = ksession.insert( mark );
+        Person edson = new Person( "Edson", 10 );
+        FactHandle edsonFH = ksession.insert( edson );
+        ksession.insert( new Person( "Luca", 50 ) );
+        assertEquals( 2, ksession.fireAllRules() );
+
+        byte[] base = marshall( out -> marshaller.marshall( out, ksession, journal ) );
+
+        mark.setAge( 10 );
+        ksession.update( markFH, mark );
+        edson.setAge( 25 );
+        ksession.update( edsonFH, edson );
+        assertEquals( 1, ksession.fireAllRules() );
+
+        byte[] delta = marshall( out -> marshaller.marshallDelta( out, ksession, journal ) );
+        ksession.dispose();
+
+        KieSession restored = marshaller.unmarshall( new ByteArrayInputStream( base ),
+                                                     Collections.singletonList( new ByteArrayInputStream( delta ) ),
+                                                     null, null );
+        // the belief of Luca comes from the base snapshot, the ones of Mark and Edson from the delta
+        assertEquals( Arrays.asList( "Edson", "Luca", "Mark", "adult Edson", "adult Luca" ), getNames( restored ) );
+        assertEquals( 0, restored.fireAllRules() );
+
+        // the restored justifications are still tracked
+        Person restoredLuca = (Person) restored.getObjects( o -> o instanceof Person && (( Person ) o).getName().equals( "Luca" ) ).iterator().next();
+        restoredLuca.setAge( 10 );
+        restored.update( restored.getFactHandle( restoredLuca ), restoredLuca );
+        restored.fireAllRules();
+        assertEquals( Arrays.asList( "Edson", "Luca", "Mark", "adult Edson" ), getNames( restored ) );
+        restored.dispose();
+    }
+
+    @Test
+    public void testRetryOfAFailedDelta() throws Exception {
+        KieBase kbase = new KieHelper().addContent( DRL, ResourceType.DRL ).build();
+        ProtobufMarshaller marshaller = (ProtobufMarshaller) MarshallerFactory.newMarshaller( kbase );
+
+        KieSession ksession = kbase.newKieSession();
+        SessionChangeJournal journal = SessionChangeJournal.attach( ksession );
+
+        FactHandle markFH = ksession.insert( new Person( "Mark", 40 ) );
+        ksession.insert( new Person( "Edson", 10 ) );
+        byte[] base = marshall( out -> marshaller.marshall( out, ksession, journal ) );
+
+        ksession.insert( new Person( "Mario", 20 ) );
+        ksession.delete( markFH );
+        assertEquals( 2, journal.size() );
+
+        try {
+            marshaller.marshallDelta( new ByteArrayOutputStream() {
+                @Override
+                public void close() throws IOException {
+                    throw new IOException( "disk full" );
+                }
+            }, ksession, journal );
+            fail( "The delta should not have been written" );
+        } catch (IOException e) {
+            // expected
+        }
+        // the changes of the failed delta are still recorded, together with the ones made after it
+        assertEquals( 2, journal.size() );
+        ksession.insert( new Person( "Luca", 50 ) );
+        assertEquals( 3, journal.size() );
+
+        byte[] delta = marshall( out -> marshaller.marshallDelta( out, ksession, journal ) );
+        assertEquals( 0, journal.size() );
+        ksession.dispose();
+
+        KieSession restored = marshaller.unmarshall( new ByteArrayInputStream( base ),
+                                                     Collections.singletonList( new ByteArrayInputStream( delta ) ),
+                                                     null, null );
+        assertEquals( Arrays.asList( "Edson", "Luca", "Mario" ), getNames( restored ) );
+        assertEquals( 2, restored.fireAllRules() );
+        restored.dispose();
+    }
+
+    private static List<String> getNames( KieSession ksession ) {
+        List<String> names = new ArrayList<>();
+        for (Object o : ksession.getObjects()) {
+            names.add( o instanceof Person ? (( Person ) o).getName() : o.toString() );
+        }
+        Collections.sort( names );
+        return names;
+    }
+
+    private interface SnapshotWriter {
+        void write( ByteArrayOutputStream out ) throws Exception;
+    }
+
+    private static byte[] marshall( SnapshotWriter writer ) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write( out );
+        return out.toByteArray();
+    }
+}
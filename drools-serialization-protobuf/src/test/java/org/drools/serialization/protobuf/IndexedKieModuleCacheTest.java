@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.serialization.protobuf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import com.google.protobuf.ByteString;
+import org.drools.compiler.kie.builder.impl.InternalKieModule.CompilationCache;
+import org.drools.compiler.kie.builder.impl.InternalKieModule.CompilationCacheEntry;
+import org.drools.core.util.KeyStoreConstants;
+import org.drools.serialization.protobuf.kie.IndexedKieModuleCache;
+import org.drools.serialization.protobuf.kie.KieModuleCache;
+import org.drools.serialization.protobuf.kie.KieModuleCacheHelper;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IndexedKieModuleCacheTest {
+
+    @Test
+    public void testReadIndexedCache() throws Exception {
+        byte[] bytes = writeCache();
+        assertTrue( IndexedKieModuleCache.isIndexed( bytes ) );
+
+        IndexedKieModuleCache indexedCache = IndexedKieModuleCache.open( bytes );
+        assertTrue( indexedCache.isCompatible() );
+        assertCacheContent( indexedCache.toCompilationCache() );
+    }
+
+    @Test
+    public void testMapIndexedCache() throws Exception {
+        File file = File.createTempFile( "kbase", ".cache" );
+        file.deleteOnExit();
+        Files.write( file.toPath(), writeCache() );
+
+        assertCacheContent( IndexedKieModuleCache.map( file ).toCompilationCache() );
+    }
+
+    @Test
+    public void testMappingIsReleasedWhenAllEntriesAreLoaded() throws Exception {
+        File file = File.createTempFile( "kbase", ".cache" );
+        file.deleteOnExit();
+        Files.write( file.toPath(), writeCache() );
+
+        IndexedKieModuleCache indexedCache = IndexedKieModuleCache.map( file );
+        CompilationCache cache = indexedCache.toCompilationCache();
+        assertTrue( indexedCache.isMapped() );
+
+        // loads all the entries, then reads them again from the file
+        assertCacheContent( cache );
+        assertFalse( indexedCache.isMapped() );
+        assertCacheContent( cache );
+    }
+
+    @Test
+    public void testMappingIsReleasedWhenClosed() throws Exception {
+        File file = File.createTempFile( "kbase", ".cache" );
+        file.deleteOnExit();
+        Files.write( file.toPath(), writeCache() );
+
+        IndexedKieModuleCache indexedCache = IndexedKieModuleCache.map( file );
+        CompilationCache cache = indexedCache.toCompilationCache();
+        indexedCache.close();
+        assertFalse( indexedCache.isMapped() );
+        assertCacheContent( cache );
+    }
+
+    @Test
+    public void testUnsignedIndexedCacheIsRejectedWhenSigned() throws Exception {
+        byte[] bytes = writeCache();
+        File file = File.createTempFile( "kbase", ".cache" );
+        file.deleteOnExit();
+        Files.write( file.toPath(), bytes );
+
+        System.setProperty( KeyStoreConstants.PROP_SIGN, "true" );
+        try {
+            try {
+                IndexedKieModuleCache.open( bytes );
+                fail( "An unsigned cache must not be read when signed serialized objects are required" );
+            } catch (RuntimeException e) {
+                assertTrue( e.getMessage().contains( "unsigned" ) );
+            }
+            try {
+                IndexedKieModuleCache.map( file );
+                fail( "An unsigned cache must not be read when signed serialized objects are required" );
+            } catch (RuntimeException e) {
+                assertTrue( e.getMessage().contains( "unsigned" ) );
+            }
+        } finally {
+            System.clearProperty( KeyStoreConstants.PROP_SIGN );
+        }
+    }
+
+    @Test
+    public void testSerializeLazyCache() throws Exception {
+        CompilationCache cache = IndexedKieModuleCache.open( writeCache() ).toCompilationCache();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream( bytes )) {
+            out.writeObject( cache );
+        }
+        try (ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) )) {
+            assertCacheContent( (CompilationCache) in.readObject() );
+        }
+    }
+
+    @Test
+    public void testProtobufCacheIsNotIndexed() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        KieModuleCacheHelper.writeToStreamWithHeader( out, createKModuleCache() );
+        assertFalse( IndexedKieModuleCache.isIndexed( out.toByteArray() ) );
+    }
+
+    private static byte[] writeCache() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IndexedKieModuleCache.write( out, createKModuleCache() );
+        return out.toByteArray();
+    }
+
+    private static KieModuleCache.KModuleCache createKModuleCache() {
+        return KieModuleCache.KModuleCache.newBuilder()
+                .addCompilationData( KieModuleCache.CompilationData.newBuilder()
+                                             .setDialect( "java" )
+                                             .addEntry( entry( "org/test/Rule1.class", new byte[] {1, 2, 3} ) )
+                                             .addEntry( entry( "org/test/Rule1$Inner.class", new byte[] {4, 5} ) )
+                                             .addEntry( entry( "org/test/Rule2.class", new byte[] {6} ) ) )
+                .build();
+    }
+
+    private static KieModuleCache.CompDataEntry entry( String id, byte[] data ) {
+        return KieModuleCache.CompDataEntry.newBuilder().setId( id ).setData( ByteString.copyFrom( data ) ).build();
+    }
+
+    private static void assertCacheContent( CompilationCache cache ) {
+        Map<String, List<CompilationCacheEntry>> javaCache = cache.getCacheForDialect( "java" );
+        assertEquals( 2, javaCache.size() );
+
+        List<CompilationCacheEntry> rule1 = javaCache.get( "org/test/Rule1.class" );
+        assertEquals( 2, rule1.size() );
+        assertEquals( "org/test/Rule1.class", rule1.get( 0 ).className );
+        assertArrayEquals( new byte[] {1, 2, 3}, rule1.get( 0 ).getBytecode() );
+        assertEquals( "org/test/Rule1$Inner.class", rule1.get( 1 ).className );
+        assertArrayEquals( new byte[] {4, 5}, rule1.get( 1 ).getBytecode() );
+
+        assertArrayEquals( new byte[] {6}, javaCache.get( "org/test/Rule2.class" ).get( 0 ).getBytecode() );
+    }
+}
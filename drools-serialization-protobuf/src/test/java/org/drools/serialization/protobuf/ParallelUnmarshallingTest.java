@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.serialization.protobuf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.drools.core.marshalling.impl.ClassObjectMarshallingStrategyAcceptor;
+import org.drools.core.marshalling.impl.JavaSerializableResolverStrategy;
+import org.drools.mvel.compiler.Person;
+import org.drools.core.common.InternalFactHandle;
+import org.junit.Test;
+import org.kie.api.KieBase;
+import org.kie.api.io.ResourceType;
+import org.kie.api.marshalling.ObjectMarshallingStrategy;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.FactHandle;
+import org.kie.internal.marshalling.MarshallerFactory;
+import org.kie.internal.utils.KieHelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelUnmarshallingTest {
+
+    private static final String DRL =
+            "import " + Person.class.getCanonicalName() + "\n" +
+            "global java.util.List list\n" +
+            "rule SameAge when\n" +
+            "    $p1 : Person( age >= 18 )\n" +
+            "    $p2 : Person( this != $p1, age == $p1.age )\n" +
+            "then\n" +
+            "    list.add( $p1.getName() );\n" +
+            "end\n";
+
+    @Test
+    public void testParallelUnmarshalling() throws Exception {
+        KieBase kbase = new KieHelper().addContent( DRL, ResourceType.DRL ).build();
+        ObjectMarshallingStrategy strategy = new JavaSerializableResolverStrategy( ClassObjectMarshallingStrategyAcceptor.DEFAULT );
+        ProtobufMarshaller marshaller = (ProtobufMarshaller) MarshallerFactory.newMarshaller( kbase, new ObjectMarshallingStrategy[] { strategy } );
+        marshaller.setParallelUnmarshalling( true );
+
+        int factsNr = ProtobufInputMarshaller.PARALLEL_UNMARSHALLING_THRESHOLD * 2;
+        KieSession ksession = kbase.newKieSession();
+        for (int i = 0; i < factsNr; i++) {
+            // every adult has exactly one other person of the same age
+            ksession.insert( new Person( "Person" + i, i / 2 ) );
+        }
+        int adults = factsNr - 36;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshall( out, ksession );
+        ksession.dispose();
+
+        KieSession restored = marshaller.unmarshall( new ByteArrayInputStream( out.toByteArray() ) );
+        List<String> list = new ArrayList<>();
+        restored.setGlobal( "list", list );
+        assertEquals( factsNr, restored.getFactCount() );
+        assertEquals( adults, restored.fireAllRules() );
+        assertTrue( list.contains( "Person" + (factsNr - 1) ) );
+        restored.dispose();
+    }
+
+    @Test
+    public void testParallelAndSerialRestoreTheSameSession() throws Exception {
+        KieBase kbase = new KieHelper().addContent( DRL, ResourceType.DRL ).build();
+        ProtobufMarshaller marshaller = newMarshaller( kbase, false );
+        KieSession ksession = newSessionPartiallyFired( kbase );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshall( out, ksession );
+        ksession.dispose();
+
+        KieSession serial = marshaller.unmarshall( new ByteArrayInputStream( out.toByteArray() ) );
+        KieSession parallel = newMarshaller( kbase, true ).unmarshall( new ByteArrayInputStream( out.toByteArray() ) );
+        assertSameState( serial, parallel );
+    }
+
+    @Test
+    public void testParallelAndSerialRestoreTheSameStreamedSession() throws Exception {
+        KieBase kbase = new KieHelper().addContent( DRL, ResourceType.DRL ).build();
+        ProtobufMarshaller marshaller = newMarshaller( kbase, false );
+        KieSession ksession = newSessionPartiallyFired( kbase );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshallStreaming( out, ksession, ProtobufInputMarshaller.PARALLEL_UNMARSHALLING_THRESHOLD );
+        ksession.dispose();
+
+        KieSession serial = marshaller.unmarshallStreaming( new ByteArrayInputStream( out.toByteArray() ), null, null );
+        KieSession parallel = newMarshaller( kbase, true ).unmarshallStreaming( new ByteArrayInputStream( out.toByteArray() ), null, null );
+        assertSameState( serial, parallel );
+    }
+
+    private static ProtobufMarshaller newMarshaller( KieBase kbase, boolean parallel ) {
+        ObjectMarshallingStrategy strategy = new JavaSerializableResolverStrategy( ClassObjectMarshallingStrategyAcceptor.DEFAULT );
+        ProtobufMarshaller marshaller = (ProtobufMarshaller) MarshallerFactory.newMarshaller( kbase, new ObjectMarshallingStrategy[] { strategy } );
+        marshaller.setParallelUnmarshalling( parallel );
+        return marshaller;
+    }
+
+    private static KieSession newSessionPartiallyFired( KieBase kbase ) {
+        KieSession ksession = kbase.newKieSession();
+        ksession.setGlobal( "list", new ArrayList<>() );
+        for (int i = 0; i < ProtobufInputMarshaller.PARALLEL_UNMARSHALLING_THRESHOLD * 3; i++) {
+            ksession.insert( new Person( "Person" + i, i / 2 ) );
+        }
+        // leaves some matches on the agenda, so that it has to be restored as well
+        ksession.fireAllRules( 100 );
+        return ksession;
+    }
+
+    private static void assertSameState( KieSession serial, KieSession parallel ) {
+        assertEquals( getFacts( serial ), getFacts( parallel ) );
+
+        List<String> serialList = new ArrayList<>();
+        serial.setGlobal( "list", serialList );
+        List<String> parallelList = new ArrayList<>();
+        parallel.setGlobal( "list", parallelList );
+        assertEquals( serial.fireAllRules(), parallel.fireAllRules() );
+        Collections.sort( serialList );
+        Collections.sort( parallelList );
+        assertEquals( serialList, parallelList );
+
+        serial.dispose();
+        parallel.dispose();
+    }
+
+    private static Map<Long, String> getFacts( KieSession ksession ) {
+        Map<Long, String> facts = new TreeMap<>();
+        for (FactHandle handle : ksession.getFactHandles()) {
+            InternalFactHandle internalHandle = (InternalFactHandle) handle;
+            Person person = (Person) internalHandle.getObject();
+            facts.put( internalHandle.getId(), internalHandle.getRecency() + ":" + person.getName() + ":" + person.getAge() );
+        }
+        return facts;
+    }
+}
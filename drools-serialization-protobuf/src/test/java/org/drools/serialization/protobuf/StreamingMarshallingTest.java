@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.serialization.protobuf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.drools.mvel.compiler.Address;
+import org.drools.mvel.compiler.Person;
+import org.junit.Test;
+import org.kie.api.KieBase;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.marshalling.MarshallerFactory;
+import org.kie.internal.utils.KieHelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class StreamingMarshallingTest {
+
+    private static final String DRL =
+            "import " + Person.class.getCanonicalName() + "\n" +
+            "rule Adult when\n" +
+            "    Person( age >= 18 )\n" +
+            "then\n" +
+            "end\n" +
+            "rule AdultInStream when\n" +
+            "    Person( age >= 18 ) from entry-point \"people\"\n" +
+            "then\n" +
+            "end\n";
+
+    @Test
+    public void testStreamingRoundTrip() throws Exception {
+        KieBase kbase = new KieHelper().addContent( DRL, ResourceType.DRL ).build();
+        ProtobufMarshaller marshaller = (ProtobufMarshaller) MarshallerFactory.newMarshaller( kbase );
+
+        KieSession ksession = kbase.newKieSession();
+        for (int i = 0; i < 25; i++) {
+            ksession.insert( new Person( "Person" + i, i ) );
+        }
+        for (int i = 0; i < 10; i++) {
+            ksession.getEntryPoint( "people" ).insert( new Person( "Streamed" + i, 10 + i ) );
+        }
+        // only the activations of the first 5 adults have been fired before taking the snapshot
+        assertEquals( 5, ksession.fireAllRules( 5 ) );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // a chunk size not dividing the number of facts, to also have a partial chunk
+        marshaller.marshallStreaming( out, ksession, 4 );
+        ksession.dispose();
+
+        KieSession restored = marshaller.unmarshallStreaming( new ByteArrayInputStream( out.toByteArray() ), null, null );
+        assertEquals( 25, restored.getFactCount() );
+        assertEquals( 10, restored.getEntryPoint( "people" ).getFactCount() );
+        assertEquals( 7 + 2 - 5, restored.fireAllRules() );
+        restored.dispose();
+    }
+
+    @Test
+    public void testIdentityOfObjectsSharedAcrossChunks() throws Exception {
+        KieBase kbase = new KieHelper().addContent( DRL, ResourceType.DRL ).build();
+        ProtobufMarshaller marshaller = (ProtobufMarshaller) MarshallerFactory.newMarshaller( kbase );
+
+        KieSession ksession = kbase.newKieSession();
+        Address address = new Address( "Main street" );
+        for (int i = 0; i < 10; i++) {
+            Person person = new Person( "Person" + i, i );
+            person.setAddress( address );
+            ksession.insert( person );
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshallStreaming( out, ksession, 3 );
+        ksession.dispose();
+
+        KieSession restored = marshaller.unmarshallStreaming( new ByteArrayInputStream( out.toByteArray() ), null, null );
+        assertEquals( 10, restored.getFactCount() );
+        Address restoredAddress = null;
+        for (Object o : restored.getObjects()) {
+            if ( restoredAddress == null ) {
+                restoredAddress = (( Person ) o).getAddress();
+            }
+            assertSame( restoredAddress, (( Person ) o).getAddress() );
+        }
+        restored.dispose();
+    }
+}
@@ -105,12 +105,15 @@ public class Package extends AttributedDRLElement
     }
 
     public void renderDRL( final DRLOutput out) {
-        if ( name != null) {
-            out.writeLine("package " + name.replace(' ', '_') + ";");
-        }
-        if ( ruleUnit != null) {
-            out.writeLine("unit " + ruleUnit + ";");
-        }
+        renderHeaderDRL(out);
+        renderDRL(rules, out);
+    }
+
+    /**
+     * Renders everything but the rules of this package.
+     */
+    public void renderHeaderDRL( final DRLOutput out) {
+        renderPackageDeclarationDRL(out);
         if ( dialect != null) {
             out.writeLine("dialect \"" + dialect + "\"");
         }
@@ -124,10 +127,26 @@ public class Package extends AttributedDRLElement
 
         // attributes
         super.renderDRL(out);
+    }
 
+    /**
+     * Renders the given rules of this package preceded only by the package and unit declarations, so that they can be
+     * parsed separately from the header of the package.
+     */
+    public void renderRulesDRL( final List<Rule> rules, final DRLOutput out) {
+        renderPackageDeclarationDRL(out);
         renderDRL(rules, out);
     }
 
+    private void renderPackageDeclarationDRL( final DRLOutput out) {
+        if ( name != null) {
+            out.writeLine("package " + name.replace(' ', '_') + ";");
+        }
+        if ( ruleUnit != null) {
+            out.writeLine("unit " + ruleUnit + ";");
+        }
+    }
+
     private void renderDRL(final List<? extends DRLJavaEmitter> list,
                            final DRLOutput out) {
         for (DRLJavaEmitter emitter : list) {
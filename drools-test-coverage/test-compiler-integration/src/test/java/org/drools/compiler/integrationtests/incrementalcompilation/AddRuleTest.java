@@ -173,6 +173,62 @@ public class AddRuleTest {
         assertEquals("x", list.get(1));
     }
 
+    @Test
+    public void testAddPackageWithRulesSharingNodesWithEachOtherAndWithExistingOnes() {
+        final String existing = "package org.drools.compiler.test\n" +
+                "import " + Person.class.getCanonicalName() + ";\n" +
+                "rule R0 when\n" +
+                "   $p : Person( age > 18 )\n" +
+                "   String( this == $p.name )\n" +
+                "then\n" +
+                "end\n";
+
+        final StringBuilder added = new StringBuilder("package org.drools.compiler.test\n" +
+                "import " + Person.class.getCanonicalName() + ";\n");
+        // rules not sharing any node with the existing ones
+        for (int i = 1; i <= 10; i++) {
+            added.append("rule R" + i + " when\n" +
+                    "   Person( name == \"Mark\", age > " + i + " )\n" +
+                    "then\n" +
+                    "end\n");
+        }
+        // a rule sharing the nodes of a rule added in the same package
+        added.append("rule R11 when\n" +
+                "   Person( name == \"Mark\", age > 1 )\n" +
+                "   String( this == \"x\" )\n" +
+                "then\n" +
+                "end\n");
+        // a rule sharing the nodes of an existing rule
+        added.append("rule R12 when\n" +
+                "   $p : Person( age > 18 )\n" +
+                "   String( this == $p.name )\n" +
+                "   Integer()\n" +
+                "then\n" +
+                "end\n");
+
+        final KieServices kieServices = KieServices.get();
+        final ReleaseId releaseId = kieServices.newReleaseId("org.kie", "test-add-package-with-rules-sharing-nodes", "1.0");
+        KieUtil.getKieModuleFromDrls(releaseId, kieBaseTestConfiguration, existing);
+        final KieContainer kieContainer = kieServices.newKieContainer(releaseId);
+
+        final InternalKnowledgeBase kbase = (InternalKnowledgeBase) kieContainer.getKieBase();
+        final KieSession ksession = kbase.newKieSession();
+
+        ksession.insert(new Person("Mark", 40));
+        ksession.insert("Mark");
+        ksession.insert("x");
+        ksession.insert(5);
+        assertEquals(1, ksession.fireAllRules());
+
+        kbase.addPackages(TestUtil.createKnowledgeBuilder(null, added.toString()).getKnowledgePackages());
+        assertEquals(12, ksession.fireAllRules());
+
+        // R1 to R4 and R11
+        ksession.insert(new Person("Mark", 5));
+        assertEquals(5, ksession.fireAllRules());
+        ksession.dispose();
+    }
+
     public static class RuleTime {
         public Date getTime() {
             return new Date();
@@ -39,6 +39,7 @@ import org.drools.core.definitions.rule.impl.RuleImpl;
 import org.drools.core.event.DefaultAgendaEventListener;
 import org.drools.core.impl.InternalKnowledgeBase;
 import org.drools.core.impl.KnowledgeBaseImpl;
+import org.drools.core.phreak.AddRemoveRule;
 import org.drools.core.reteoo.EntryPointNode;
 import org.drools.core.reteoo.ObjectTypeNode;
 import org.drools.core.reteoo.Rete;
@@ -4902,6 +4903,66 @@ public class IncrementalCompilationTest {
         }
     }
 
+    @Test
+    public void testUpdateToVersionPatchingManySessionsInParallel() {
+        final String header = "package org.drools.compiler\n" +
+                "import " + Message.class.getCanonicalName() + ";\n" +
+                "import " + Person.class.getCanonicalName() + ";\n";
+
+        final String drl1 = header +
+                "rule R1 when\n" +
+                "   $m : Message()\n" +
+                "   Person( name == $m.message )\n" +
+                "then\n" +
+                "end\n";
+
+        final String drl2 = drl1 +
+                "rule R2 when\n" +
+                "   $m : Message()\n" +
+                "   Person( name == $m.message, age > 30 )\n" +
+                "then\n" +
+                "end\n";
+
+        System.setProperty(AddRemoveRule.PARALLEL_SESSIONS_UPDATE_THRESHOLD_PROPERTY, "2");
+        try {
+            final KieServices ks = KieServices.Factory.get();
+
+            final ReleaseId releaseId1 = ks.newReleaseId("org.kie", "test-parallel-sessions-update", "1.0.0");
+            KieUtil.getKieModuleFromDrls(releaseId1, kieBaseTestConfiguration, drl1);
+            final KieContainer kc = ks.newKieContainer(releaseId1);
+
+            final List<KieSession> ksessions = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                final KieSession ksession = kc.newKieSession();
+                ksession.insert(new Message("Mario" + i));
+                ksession.insert(new Person("Mario" + i, 40));
+                assertEquals(1, ksession.fireAllRules());
+                ksessions.add(ksession);
+            }
+
+            // R2 is added to all the sessions and matches the facts already inserted
+            final ReleaseId releaseId2 = ks.newReleaseId("org.kie", "test-parallel-sessions-update", "1.1.0");
+            KieUtil.getKieModuleFromDrls(releaseId2, kieBaseTestConfiguration, drl2);
+            kc.updateToVersion(releaseId2);
+            for (final KieSession ksession : ksessions) {
+                assertEquals(1, ksession.fireAllRules());
+            }
+
+            // R2 is removed from all the sessions, while R1 keeps on working
+            final ReleaseId releaseId3 = ks.newReleaseId("org.kie", "test-parallel-sessions-update", "1.2.0");
+            KieUtil.getKieModuleFromDrls(releaseId3, kieBaseTestConfiguration, drl1);
+            kc.updateToVersion(releaseId3);
+            for (int i = 0; i < ksessions.size(); i++) {
+                final KieSession ksession = ksessions.get(i);
+                ksession.insert(new Person("Mario" + i, 50));
+                assertEquals(1, ksession.fireAllRules());
+                ksession.dispose();
+            }
+        } finally {
+            System.clearProperty(AddRemoveRule.PARALLEL_SESSIONS_UPDATE_THRESHOLD_PROPERTY);
+        }
+    }
+
     private String getTestRuleForFireUntilHaltSlow(final int i) {
         return "package org.drools.compiler\n" +
                 "import " + Message.class.getCanonicalName() + ";\n" +
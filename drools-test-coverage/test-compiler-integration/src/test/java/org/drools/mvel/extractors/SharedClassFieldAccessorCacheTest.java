@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.mvel.extractors;
+
+import org.drools.core.RuleBaseConfiguration;
+import org.drools.core.base.ClassFieldAccessorCache;
+import org.drools.core.base.ClassFieldAccessorStore;
+import org.drools.core.base.ClassFieldReader;
+import org.drools.core.base.ClassObjectType;
+import org.drools.core.impl.KnowledgeBaseImpl;
+import org.drools.core.util.asm.TestBean;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SharedClassFieldAccessorCacheTest {
+
+    @Test
+    public void testSharedAccessorsAreReusedAcrossCaches() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        ClassFieldAccessorCache cache1 = new ClassFieldAccessorCache( classLoader, true );
+        ClassFieldAccessorCache cache2 = new ClassFieldAccessorCache( classLoader, true );
+        ClassFieldReader reader1 = createStore( cache1 ).getReader( TestBean.class, "something" );
+        ClassFieldReader reader2 = createStore( cache2 ).getReader( TestBean.class, "something" );
+
+        assertNotSame( reader1, reader2 );
+        assertSame( cache1.getReadAcessor( reader1 ), cache2.getReadAcessor( reader2 ) );
+
+        TestBean bean = new TestBean();
+        bean.setSomething( "yes" );
+        assertEquals( "yes", reader1.getValue( null, bean ) );
+        assertEquals( "yes", reader2.getValue( null, bean ) );
+    }
+
+    @Test
+    public void testAccessorsAreNotSharedByDefault() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        ClassFieldAccessorCache cache1 = new ClassFieldAccessorCache( classLoader );
+        ClassFieldAccessorCache cache2 = new ClassFieldAccessorCache( classLoader, true );
+        ClassFieldReader reader = new ClassFieldReader( TestBean.class.getName(), "something" );
+
+        assertNotSame( cache1.getReadAcessor( reader ), cache2.getReadAcessor( reader ) );
+    }
+
+    @Test
+    public void testClassObjectTypesAreNotShared() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        ClassObjectType type1 = new ClassFieldAccessorCache( classLoader, true ).getClassObjectType( new ClassObjectType( TestBean.class ), false );
+        ClassObjectType type2 = new ClassFieldAccessorCache( classLoader, true ).getClassObjectType( new ClassObjectType( TestBean.class ), false );
+
+        assertNotSame( type1, type2 );
+    }
+
+    @Test
+    public void testKieBaseConfiguration() {
+        RuleBaseConfiguration conf = new RuleBaseConfiguration();
+        conf.setProperty( RuleBaseConfiguration.SHARE_ACCESSORS_PROPERTY, "true" );
+        assertEquals( "true", conf.getProperty( RuleBaseConfiguration.SHARE_ACCESSORS_PROPERTY ) );
+
+        KnowledgeBaseImpl kBase = new KnowledgeBaseImpl( "shared", conf );
+        assertTrue( kBase.getClassFieldAccessorCache().isShareAccessors() );
+    }
+
+    private ClassFieldAccessorStore createStore( ClassFieldAccessorCache cache ) {
+        ClassFieldAccessorStore store = new ClassFieldAccessorStore();
+        store.setClassFieldAccessorCache( cache );
+        store.setEagerWire( true );
+        return store;
+    }
+}
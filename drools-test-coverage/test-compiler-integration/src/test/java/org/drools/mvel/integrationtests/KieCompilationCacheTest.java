@@ -20,6 +20,7 @@ import java.util.Collection;
 import org.drools.compiler.compiler.io.File;
 import org.drools.compiler.compiler.io.memory.MemoryFileSystem;
 import org.drools.compiler.kie.builder.impl.InternalKieModule;
+import org.drools.compiler.kie.builder.impl.KieBaseImage;
 import org.drools.compiler.kie.builder.impl.KieBuilderImpl;
 import org.drools.mvel.compiler.Message;
 import org.drools.testcoverage.common.util.KieBaseTestConfiguration;
@@ -45,6 +46,7 @@ import org.kie.api.runtime.KieSession;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 /**
  * This is a sample class to launch a rule.
@@ -214,6 +216,53 @@ public class KieCompilationCacheTest {
         assertEquals( 1, ksession.fireAllRules() );
     }
 
+    @Test
+    public void testKieBaseImage() throws Exception {
+        String drl = "package org.pkg1\n" +
+                "import " + Message.class.getCanonicalName() + "\n" +
+                "rule R1 when\n" +
+                "   $m : Message( message == \"Hello World\" )\n" +
+                "then\n" +
+                "end\n";
+
+        KieServices ks = KieServices.Factory.get();
+
+        ReleaseId releaseId = ks.newReleaseId("org.kie", "kbase-image", "1.0");
+
+        KieModuleModel kproj = createKieProjectWithPackagesAnd2KieBases(ks);
+        kproj.setConfigurationProperty(KieBaseImage.KIE_BASE_IMAGE_PROPERTY, "true");
+
+        KieFileSystem kfs = ks.newKieFileSystem()
+                .generateAndWritePomXML(releaseId)
+                .write("src/main/resources/KBase1/org/pkg1/r1.drl", drl)
+                .writeKModuleXML(kproj.toXML());
+        KieUtil.getKieBuilderFromKieFileSystem(kieBaseTestConfiguration, kfs, true);
+
+        InternalKieModule kieModule = (InternalKieModule) ks.getRepository().getKieModule( releaseId );
+        byte[] jar = kieModule.getBytes();
+
+        if (!kieBaseTestConfiguration.isExecutableModel()) {
+            MemoryFileSystem mfs = MemoryFileSystem.readFromJar( jar );
+            assertNotNull( mfs.getFile( KieBaseImage.getKieBaseImagePath( releaseId, "KBase2") ) );
+        }
+
+        Resource jarRes = ks.getResources().newByteArrayResource( jar );
+        KieModule km = ks.getRepository().addKieModule( jarRes );
+
+        KieSession ksession = ks.newKieContainer( km.getReleaseId() ).newKieSession("KSession1");
+        ksession.insert(new Message("Hello World"));
+        assertEquals( 1, ksession.fireAllRules() );
+
+        ksession = ks.newKieContainer( km.getReleaseId() ).newKieSession("KSession1");
+        ksession.insert(new Message("Hi Universe"));
+        assertEquals( 0, ksession.fireAllRules() );
+
+        if (!kieBaseTestConfiguration.isExecutableModel()) {
+            // the KieBase has been restored from its image, so its packages have never been built
+            assertNull( ((InternalKieModule) km).getKnowledgePackagesForKieBase("KBase2") );
+        }
+    }
+
     private KieModuleModel createKieProjectWithPackagesAnd2KieBases(KieServices ks) {
         KieModuleModel kproj = ks.newKieModuleModel();
 
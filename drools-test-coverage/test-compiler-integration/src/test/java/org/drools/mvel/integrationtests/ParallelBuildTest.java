@@ -16,19 +16,36 @@
 
 package org.drools.mvel.integrationtests;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.drools.testcoverage.common.util.KieBaseTestConfiguration;
+import org.drools.testcoverage.common.util.KieSessionTestConfiguration;
 import org.drools.testcoverage.common.util.KieUtil;
 import org.drools.testcoverage.common.util.TestParametersUtil;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
+import org.kie.api.KieServices;
 import org.kie.api.builder.KieBuilder;
 import org.kie.api.builder.Message;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.builder.CompositeKnowledgeBuilder;
+import org.kie.internal.builder.KnowledgeBuilder;
+import org.kie.internal.builder.KnowledgeBuilderConfiguration;
+import org.kie.internal.builder.KnowledgeBuilderError;
+import org.kie.internal.builder.KnowledgeBuilderFactory;
+import org.kie.internal.builder.conf.ParallelRulesBuildThresholdOption;
+import org.kie.internal.io.ResourceFactory;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 @RunWith(Parameterized.class)
@@ -80,4 +97,78 @@ public class ParallelBuildTest {
         assertTrue(errors.toString(), errors.isEmpty());
     }
 
+    @Test
+    public void testParallelResourcesParsing() {
+        List<String> drls = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            drls.add("package org.test.p" + (i % 3) + "\n" +
+                     "rule R" + i + " when\n" +
+                     ( i % 5 == 0 ? "  String( \n" : "  String()\n" ) +
+                     "then end\n");
+        }
+
+        List<String> parallelErrors = buildErrors(drls, 0);
+        List<String> sequentialErrors = buildErrors(drls, -1);
+        assertEquals(4, parallelErrors.stream().map(e -> e.substring(0, e.indexOf(':'))).distinct().count());
+        assertEquals(sequentialErrors, parallelErrors);
+    }
+
+    @Test
+    public void testParallelIncrementalBuildAcrossPackages() {
+        Map<String, String> kieModuleConfigurationProperties = new HashMap<>();
+        kieModuleConfigurationProperties.put(ParallelRulesBuildThresholdOption.PROPERTY_NAME, "0");
+
+        KieServices ks = KieServices.Factory.get();
+        ReleaseId releaseId1 = ks.newReleaseId("org.kie", "test-parallel-incremental", "1.0.0");
+        ReleaseId releaseId2 = ks.newReleaseId("org.kie", "test-parallel-incremental", "2.0.0");
+        KieUtil.getKieModuleFromDrls(releaseId1, kieBaseTestConfiguration, KieSessionTestConfiguration.STATEFUL_REALTIME,
+                                     kieModuleConfigurationProperties, packagesDrls("v1"));
+        KieUtil.getKieModuleFromDrls(releaseId2, kieBaseTestConfiguration, KieSessionTestConfiguration.STATEFUL_REALTIME,
+                                     kieModuleConfigurationProperties, packagesDrls("v2"));
+
+        KieContainer kieContainer = ks.newKieContainer(releaseId1);
+        assertTrue(kieContainer.updateToVersion(releaseId2).getMessages(Message.Level.ERROR).isEmpty());
+
+        KieSession ksession = kieContainer.newKieSession();
+        try {
+            List<String> list = new ArrayList<>();
+            ksession.setGlobal("list", list);
+            ksession.insert("test");
+            assertEquals(12, ksession.fireAllRules());
+            assertTrue(list.toString(), list.stream().allMatch(s -> s.startsWith("v2")));
+        } finally {
+            ksession.dispose();
+        }
+    }
+
+    private static String[] packagesDrls(String version) {
+        String[] drls = new String[3];
+        for (int p = 0; p < drls.length; p++) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("package org.test.p" + p + "\n");
+            sb.append("global java.util.List list\n");
+            for (int i = 0; i < 4; i++) {
+                sb.append("rule R" + i + " when String() then list.add(\"" + version + ":p" + p + ".R" + i + "\"); end\n");
+            }
+            drls[p] = sb.toString();
+        }
+        return drls;
+    }
+
+    private List<String> buildErrors(List<String> drls, int parallelRulesBuildThreshold) {
+        KnowledgeBuilderConfiguration conf = KnowledgeBuilderFactory.newKnowledgeBuilderConfiguration();
+        conf.setOption(ParallelRulesBuildThresholdOption.get(parallelRulesBuildThreshold));
+        KnowledgeBuilder kbuilder = KnowledgeBuilderFactory.newKnowledgeBuilder(conf);
+        CompositeKnowledgeBuilder batch = kbuilder.batch().type(ResourceType.DRL);
+        for (int i = 0; i < drls.size(); i++) {
+            batch.add(ResourceFactory.newByteArrayResource(drls.get(i).getBytes()).setSourcePath("rule" + i + ".drl"));
+        }
+        batch.build();
+
+        List<String> errors = new ArrayList<>();
+        for (KnowledgeBuilderError error : kbuilder.getErrors()) {
+            errors.add(error.getResource().getSourcePath() + ": " + error.getMessage());
+        }
+        return errors;
+    }
 }
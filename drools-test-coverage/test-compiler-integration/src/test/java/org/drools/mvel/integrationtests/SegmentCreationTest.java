@@ -18,6 +18,7 @@ package org.drools.mvel.integrationtests;
 import java.util.Collection;
 import java.util.List;
 
+import org.drools.core.SessionConfiguration;
 import org.drools.core.base.ClassObjectType;
 import org.drools.core.common.InternalWorkingMemory;
 import org.drools.core.impl.KnowledgeBaseImpl;
@@ -27,6 +28,7 @@ import org.drools.core.reteoo.InitialFactImpl;
 import org.drools.core.reteoo.JoinNode;
 import org.drools.core.reteoo.LeftInputAdapterNode;
 import org.drools.core.reteoo.LeftInputAdapterNode.LiaNodeMemory;
+import org.drools.core.reteoo.LeftTupleSink;
 import org.drools.core.reteoo.LeftTupleSource;
 import org.drools.core.reteoo.NotNode;
 import org.drools.core.reteoo.ObjectTypeNode;
@@ -41,10 +43,13 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.kie.api.KieBase;
+import org.kie.api.KieServices;
+import org.kie.api.runtime.KieSessionConfiguration;
 import org.kie.api.runtime.rule.FactHandle;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -499,6 +504,35 @@ public class SegmentCreationTest {
         assertTrue( pmemr3.isRuleLinked() );
     }
 
+    @Test
+    public void testSegmentWarmUp() throws Exception {
+        KieBase kbase = buildKnowledgeBase( "   A() \n",
+                                            "   A() B() \n" );
+
+        KieSessionConfiguration conf = KieServices.Factory.get().newKieSessionConfiguration();
+        conf.setProperty( SessionConfiguration.SEGMENT_WARM_UP_PROPERTY, "rule1" );
+        InternalWorkingMemory wm = (InternalWorkingMemory) kbase.newKieSession( conf, null );
+
+        ObjectTypeNode aotn = getObjectTypeNode(kbase, LinkingTest.A.class );
+        LeftInputAdapterNode liaNode = (LeftInputAdapterNode) aotn.getObjectSinkPropagator().getSinks()[0];
+        JoinNode bNode = null;
+        for ( LeftTupleSink sink : liaNode.getSinkPropagator().getSinks() ) {
+            if ( sink instanceof JoinNode ) {
+                bNode = (JoinNode) sink;
+            }
+        }
+
+        // the segments of rule1 are created together with the session, before any propagation
+        assertNotNull( wm.getNodeMemory( liaNode ).getSegmentMemory() );
+        BetaMemory bMem = (BetaMemory) wm.getNodeMemory( bNode );
+        assertNotNull( bMem.getSegmentMemory() );
+        assertEquals( bNode, bMem.getSegmentMemory().getRootNode() );
+
+        wm.insert( new LinkingTest.A() );
+        wm.insert( new LinkingTest.B() );
+        assertEquals( 2, wm.fireAllRules() );
+    }
+
     private KieBase buildKnowledgeBase(String... rules) {
         String str = "";
         str += "package org.kie \n";
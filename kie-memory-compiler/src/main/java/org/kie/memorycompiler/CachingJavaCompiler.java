@@ -0,0 +1,458 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.memorycompiler;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.kie.memorycompiler.resources.ResourceReader;
+import org.kie.memorycompiler.resources.ResourceStore;
+
+/**
+ * A JavaCompiler storing the classes it compiles in a local directory, where they are addressed by a hash of
+ * everything that can affect them, so that the sources that didn't change since a previous build, even in another
+ * JVM, are not compiled again.
+ *
+ * The key of a source is the hash of its content, of the content of all the sources of the same compilation it
+ * references directly or transitively, of the compiler and its settings and of the classpath, i.e. the classes
+ * stored in the project class loaders (declared types, functions, java classes of the kjar) and the names, sizes
+ * and last modification times of the jars and of the files contained in the directories. The classpath is hashed
+ * only once per compiler, that is created for each build, while the classes of the project class loaders are
+ * tracked at every compilation, as they can be added by the former ones.
+ *
+ * The cache is enabled by setting the system property {@link #CACHE_DIR_PROPERTY} to the directory to be used.
+ */
+public class CachingJavaCompiler implements JavaCompiler {
+
+    public static final String CACHE_DIR_PROPERTY = "drools.compilationCacheDir";
+
+    private static final Pattern PACKAGE_PATTERN = Pattern.compile( "^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE );
+    private static final Pattern IDENTIFIER_PATTERN = Pattern.compile( "[A-Za-z_$][A-Za-z0-9_$]*" );
+
+    private final JavaCompiler delegate;
+    private final File cacheDir;
+    private JavaCompilerSettings javaCompilerSettings;
+
+    private final Map<File, String> classpathHashes = new ConcurrentHashMap<>();
+    // the hashes of the classes of the project class loaders, weakly referencing their bytecode
+    private final Map<byte[], byte[]> bytecodeHashes = Collections.synchronizedMap( new WeakHashMap<>() );
+
+    public CachingJavaCompiler( JavaCompiler delegate, File cacheDir ) {
+        this.delegate = delegate;
+        this.cacheDir = cacheDir;
+    }
+
+    public static JavaCompiler wrapIfEnabled( JavaCompiler compiler ) {
+        String cacheDir = System.getProperty( CACHE_DIR_PROPERTY );
+        return cacheDir == null || cacheDir.trim().isEmpty() ? compiler : new CachingJavaCompiler( compiler, new File( cacheDir.trim() ) );
+    }
+
+    public File getCacheDir() {
+        return cacheDir;
+    }
+
+    @Override
+    public void setSourceFolder( String sourceFolder ) {
+        delegate.setSourceFolder( sourceFolder );
+    }
+
+    @Override
+    public JavaCompilerSettings createDefaultSettings() {
+        return delegate.createDefaultSettings();
+    }
+
+    @Override
+    public void setJavaCompilerSettings( JavaCompilerSettings javaCompilerSettings ) {
+        this.javaCompilerSettings = javaCompilerSettings;
+        delegate.setJavaCompilerSettings( javaCompilerSettings );
+    }
+
+    @Override
+    public CompilationResult compile( String[] pResourcePaths, ResourceReader pReader, ResourceStore pStore ) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = this.getClass().getClassLoader();
+        }
+        return compile( pResourcePaths, pReader, pStore, classLoader, createDefaultSettings() );
+    }
+
+    @Override
+    public CompilationResult compile( String[] pResourcePaths, ResourceReader pReader, ResourceStore pStore, ClassLoader pClassLoader ) {
+        return compile( pResourcePaths, pReader, pStore, pClassLoader, javaCompilerSettings != null ? javaCompilerSettings : createDefaultSettings() );
+    }
+
+    @Override
+    public CompilationResult compile( String[] pResourcePaths, ResourceReader pReader, ResourceStore pStore, ClassLoader pClassLoader, JavaCompilerSettings pSettings ) {
+        SourceGraph graph = new SourceGraph( pResourcePaths, pReader );
+        String environment = hashEnvironment( pClassLoader, pSettings );
+
+        Map<String, String> keys = new HashMap<>();
+        Map<String, Map<String, byte[]>> hits = new HashMap<>();
+        Set<String> misses = new LinkedHashSet<>();
+        for (String path : pResourcePaths) {
+            String key = graph.key( path, environment );
+            keys.put( path, key );
+            Map<String, byte[]> classes = load( key );
+            if (classes != null) {
+                hits.put( path, classes );
+            } else {
+                misses.add( path );
+            }
+        }
+
+        // the sources referenced by the ones to be compiled have to be compiled with them, even if they are cached
+        Set<String> toBeCompiled = new LinkedHashSet<>( misses );
+        for (String miss : misses) {
+            toBeCompiled.addAll( graph.dependencies( miss ) );
+        }
+
+        for (Map.Entry<String, Map<String, byte[]>> hit : hits.entrySet()) {
+            if (!toBeCompiled.contains( hit.getKey() )) {
+                hit.getValue().forEach( pStore::write );
+            }
+        }
+        if (toBeCompiled.isEmpty()) {
+            return new CompilationResult( new CompilationProblem[0] );
+        }
+
+        RecordingResourceStore recordingStore = new RecordingResourceStore( pStore );
+        CompilationResult result = delegate.compile( toBeCompiled.toArray( new String[toBeCompiled.size()] ), pReader, recordingStore, pClassLoader, pSettings );
+        if (result.getErrors().length == 0) {
+            Map<String, Map<String, byte[]>> classesBySource = graph.groupBySource( recordingStore.written );
+            if (classesBySource != null) {
+                for (String miss : misses) {
+                    Map<String, byte[]> classes = classesBySource.get( miss );
+                    if (classes != null) {
+                        save( keys.get( miss ), classes );
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private String hashEnvironment( ClassLoader classLoader, JavaCompilerSettings settings ) {
+        MessageDigest digest = newDigest();
+        update( digest, delegate.getClass().getName() );
+        update( digest, System.getProperty( "java.version" ) );
+        update( digest, settings.getSourceVersion() );
+        update( digest, settings.getTargetVersion() );
+        update( digest, settings.getSourceEncoding() );
+        update( digest, String.valueOf( settings.isDebug() ) );
+        update( digest, String.valueOf( settings.getOptions() ) );
+        if (settings.getClasspathLocations() != null) {
+            for (File classpath : settings.getClasspathLocations()) {
+                updateWithFile( digest, classpath );
+            }
+        }
+
+        for (ClassLoader cl = classLoader; cl != null; cl = cl.getParent()) {
+            if (cl instanceof StoreClassLoader) {
+                Map<String, byte[]> store = ( (StoreClassLoader) cl ).getStore();
+                if (store != null) {
+                    for (Map.Entry<String, byte[]> entry : new TreeMap<>( store ).entrySet()) {
+                        update( digest, entry.getKey() );
+                        digest.update( bytecodeHashes.computeIfAbsent( entry.getValue(), bytecode -> newDigest().digest( bytecode ) ) );
+                    }
+                }
+            }
+            if (cl instanceof URLClassLoader) {
+                for (URL url : ( (URLClassLoader) cl ).getURLs()) {
+                    updateWithUrl( digest, url );
+                }
+            }
+        }
+        String classpath = System.getProperty( "java.class.path" );
+        if (classpath != null) {
+            for (String entry : classpath.split( File.pathSeparator )) {
+                updateWithFile( digest, new File( entry ) );
+            }
+        }
+        return toHex( digest.digest() );
+    }
+
+    private void updateWithUrl( MessageDigest digest, URL url ) {
+        if ("file".equals( url.getProtocol() )) {
+            try {
+                updateWithFile( digest, new File( url.toURI() ) );
+                return;
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // fall back to the url
+            }
+        }
+        update( digest, url.toString() );
+    }
+
+    private void updateWithFile( MessageDigest digest, File file ) {
+        update( digest, classpathHashes.computeIfAbsent( file.getAbsoluteFile(), CachingJavaCompiler::hashClasspathEntry ) );
+    }
+
+    private static String hashClasspathEntry( File file ) {
+        MessageDigest digest = newDigest();
+        update( digest, file.getPath() );
+        if (file.isFile()) {
+            update( digest, file.length() + ":" + file.lastModified() );
+        } else if (file.isDirectory()) {
+            Path root = file.toPath();
+            try (Stream<Path> paths = Files.walk( root )) {
+                paths.filter( Files::isRegularFile ).sorted().forEach( path -> {
+                    File entry = path.toFile();
+                    update( digest, root.relativize( path ).toString() );
+                    update( digest, entry.length() + ":" + entry.lastModified() );
+                } );
+            } catch (IOException | UncheckedIOException e) {
+                // the classes compiled against a directory that can't be read are never served from the cache
+                update( digest, UUID.randomUUID().toString() );
+            }
+        }
+        return toHex( digest.digest() );
+    }
+
+    private File getCacheFile( String key ) {
+        return new File( new File( cacheDir, key.substring( 0, 2 ) ), key );
+    }
+
+    private Map<String, byte[]> load( String key ) {
+        File file = getCacheFile( key );
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream( Files.newInputStream( file.toPath() ) )) {
+            int count = in.readInt();
+            Map<String, byte[]> classes = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                byte[] bytecode = new byte[in.readInt()];
+                in.readFully( bytecode );
+                classes.put( name, bytecode );
+            }
+            return classes;
+        } catch (IOException e) {
+            // a corrupted or truncated entry is just compiled again
+            return null;
+        }
+    }
+
+    private void save( String key, Map<String, byte[]> classes ) {
+        File file = getCacheFile( key );
+        try {
+            Files.createDirectories( file.getParentFile().toPath() );
+            File tmp = File.createTempFile( key, ".tmp", file.getParentFile() );
+            try (DataOutputStream out = new DataOutputStream( Files.newOutputStream( tmp.toPath() ) )) {
+                out.writeInt( classes.size() );
+                for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                    out.writeUTF( entry.getKey() );
+                    out.writeInt( entry.getValue().length );
+                    out.write( entry.getValue() );
+                }
+            }
+            // entries are never modified, so concurrent builds writing the same one are harmless
+            Files.move( tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        } catch (IOException e) {
+            // the cache is only an optimization, the compiled classes have been already stored
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance( "SHA-256" );
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static void update( MessageDigest digest, String value ) {
+        digest.update( String.valueOf( value ).getBytes( StandardCharsets.UTF_8 ) );
+        digest.update( (byte) 0 );
+    }
+
+    private static String toHex( byte[] bytes ) {
+        StringBuilder sb = new StringBuilder( bytes.length * 2 );
+        for (byte b : bytes) {
+            sb.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The sources of a compilation, with the references among them found by matching their identifiers against the
+     * names of the classes defined by the other sources.
+     */
+    private static class SourceGraph {
+
+        private final Map<String, String> hashes = new HashMap<>();
+        private final Map<String, String> classNames = new HashMap<>();
+        private final Map<String, Set<String>> references = new HashMap<>();
+
+        SourceGraph( String[] paths, ResourceReader reader ) {
+            Map<String, List<String>> pathsBySimpleName = new HashMap<>();
+            Map<String, String> sources = new HashMap<>();
+            for (String path : paths) {
+                byte[] bytes = reader.getBytes( path );
+                String source = bytes != null ? new String( bytes, StandardCharsets.UTF_8 ) : "";
+                sources.put( path, source );
+
+                MessageDigest digest = newDigest();
+                update( digest, source );
+                hashes.put( path, toHex( digest.digest() ) );
+
+                String simpleName = simpleName( path );
+                Matcher pkg = PACKAGE_PATTERN.matcher( source );
+                classNames.put( path, pkg.find() ? pkg.group( 1 ).replace( '.', '/' ) + "/" + simpleName : simpleName );
+                pathsBySimpleName.computeIfAbsent( simpleName, k -> new ArrayList<>() ).add( path );
+            }
+
+            for (String path : paths) {
+                Set<String> refs = new HashSet<>();
+                Matcher identifiers = IDENTIFIER_PATTERN.matcher( sources.get( path ) );
+                while (identifiers.find()) {
+                    List<String> referenced = pathsBySimpleName.get( identifiers.group() );
+                    if (referenced != null) {
+                        refs.addAll( referenced );
+                    }
+                }
+                refs.remove( path );
+                references.put( path, refs );
+            }
+        }
+
+        private static String simpleName( String path ) {
+            String name = path.substring( path.lastIndexOf( '/' ) + 1 );
+            return name.endsWith( ".java" ) ? name.substring( 0, name.length() - ".java".length() ) : name;
+        }
+
+        Set<String> dependencies( String path ) {
+            Set<String> visited = new TreeSet<>();
+            Deque<String> toVisit = new ArrayDeque<>( references.getOrDefault( path, Collections.emptySet() ) );
+            while (!toVisit.isEmpty()) {
+                String next = toVisit.pop();
+                if (!next.equals( path ) && visited.add( next )) {
+                    toVisit.addAll( references.get( next ) );
+                }
+            }
+            return visited;
+        }
+
+        String key( String path, String environment ) {
+            MessageDigest digest = newDigest();
+            update( digest, environment );
+            update( digest, classNames.get( path ) );
+            update( digest, hashes.get( path ) );
+            for (String dependency : dependencies( path )) {
+                update( digest, classNames.get( dependency ) );
+                update( digest, hashes.get( dependency ) );
+            }
+            return toHex( digest.digest() );
+        }
+
+        /**
+         * Groups the compiled classes by the source defining them, i.e. the one with the same name of the class or
+         * of its outermost class. Returns null if any class can't be attributed, for instance a secondary top level
+         * class, since the sources producing it couldn't then be restored from the cache.
+         */
+        Map<String, Map<String, byte[]>> groupBySource( Map<String, byte[]> compiled ) {
+            Map<String, String> pathsByClassName = new HashMap<>();
+            classNames.forEach( (path, className) -> pathsByClassName.put( className, path ) );
+
+            Map<String, Map<String, byte[]>> classesBySource = new HashMap<>();
+            for (Map.Entry<String, byte[]> entry : compiled.entrySet()) {
+                String className = entry.getKey().endsWith( ".class" ) ?
+                        entry.getKey().substring( 0, entry.getKey().length() - ".class".length() ) :
+                        entry.getKey();
+                String path = pathsByClassName.get( className );
+                for (int i = className.lastIndexOf( '$' ); path == null && i > 0; i = className.lastIndexOf( '$', i - 1 )) {
+                    path = pathsByClassName.get( className.substring( 0, i ) );
+                }
+                if (path == null) {
+                    return null;
+                }
+                classesBySource.computeIfAbsent( path, k -> new LinkedHashMap<>() ).put( entry.getKey(), entry.getValue() );
+            }
+            return classesBySource;
+        }
+    }
+
+    private static class RecordingResourceStore implements ResourceStore {
+
+        private final ResourceStore delegate;
+        private final Map<String, byte[]> written = new LinkedHashMap<>();
+
+        RecordingResourceStore( ResourceStore delegate ) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write( String pResourceName, byte[] pResourceData ) {
+            record( pResourceName, pResourceData );
+            delegate.write( pResourceName, pResourceData );
+        }
+
+        @Override
+        public void write( String pResourceName, byte[] pResourceData, boolean createFolder ) {
+            record( pResourceName, pResourceData );
+            delegate.write( pResourceName, pResourceData, createFolder );
+        }
+
+        private void record( String pResourceName, byte[] pResourceData ) {
+            synchronized (written) {
+                written.put( pResourceName, pResourceData );
+            }
+        }
+
+        @Override
+        public byte[] read( String pResourceName ) {
+            return delegate.read( pResourceName );
+        }
+
+        @Override
+        public void remove( String pResourceName ) {
+            synchronized (written) {
+                written.remove( pResourceName );
+            }
+            delegate.remove( pResourceName );
+        }
+    }
+}
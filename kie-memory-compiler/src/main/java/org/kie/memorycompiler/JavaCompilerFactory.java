@@ -33,7 +33,7 @@ public class JavaCompilerFactory {
         JavaCompiler compiler = createCompiler( compilerType ).orElseThrow( () -> new RuntimeException("Instance of " + compilerType + " compiler cannot be created!") );
         compiler.setJavaCompilerSettings( createSettings( compiler, lngLevel ) );
         compiler.setSourceFolder(sourceFolder);
-        return compiler;
+        return CachingJavaCompiler.wrapIfEnabled( compiler );
     }
 
     private static JavaCompilerSettings createSettings( JavaCompiler compiler, String lngLevel ) {
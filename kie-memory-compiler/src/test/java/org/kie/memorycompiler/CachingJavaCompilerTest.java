@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2021. Red Hat, Inc. and/or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.memorycompiler;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kie.memorycompiler.jdknative.NativeJavaCompiler;
+import org.kie.memorycompiler.resources.MemoryResourceReader;
+import org.kie.memorycompiler.resources.MemoryResourceStore;
+import org.kie.memorycompiler.resources.ResourceReader;
+import org.kie.memorycompiler.resources.ResourceStore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class CachingJavaCompilerTest {
+
+    private static final String SOURCE_A =
+            "package org.test;\n" +
+            "public class A {\n" +
+            "    public static int value() { return %d; }\n" +
+            "    public static class Inner { }\n" +
+            "}";
+
+    private static final String SOURCE_B =
+            "package org.test;\n" +
+            "public class B {\n" +
+            "    public int value() { return A.value() + %d; }\n" +
+            "}";
+
+    private static final String SOURCE_C =
+            "package org.test;\n" +
+            "public class C { }";
+
+    @Rule
+    public TemporaryFolder cacheDir = new TemporaryFolder();
+
+    @Rule
+    public TemporaryFolder classpathDir = new TemporaryFolder();
+
+    @Test
+    public void testUnchangedSourcesAreNotCompiledAgain() throws Exception {
+        List<String> compiled = new ArrayList<>();
+        JavaCompiler compiler = new CachingJavaCompiler( new RecordingJavaCompiler( compiled ), cacheDir.getRoot() );
+
+        MemoryResourceStore store = compile( compiler, 1, 1 );
+        assertEquals( Arrays.asList( "org/test/A.java", "org/test/B.java", "org/test/C.java" ), compiled );
+        assertNotNull( store.read( "org/test/A$Inner.class" ) );
+
+        compiled.clear();
+        MemoryResourceStore cachedStore = compile( compiler, 1, 1 );
+        assertTrue( compiled.isEmpty() );
+        assertEquals( store.getResources().keySet(), cachedStore.getResources().keySet() );
+        for (String className : store.getResources().keySet()) {
+            assertArrayEquals( store.read( className ), cachedStore.read( className ) );
+        }
+    }
+
+    @Test
+    public void testChangedSourceIsCompiledWithItsDependencies() throws Exception {
+        List<String> compiled = new ArrayList<>();
+        JavaCompiler compiler = new CachingJavaCompiler( new RecordingJavaCompiler( compiled ), cacheDir.getRoot() );
+        compile( compiler, 1, 1 );
+
+        // B changed: A is compiled with it as B references it, C is restored from the cache
+        compiled.clear();
+        compile( compiler, 1, 2 );
+        assertEquals( Arrays.asList( "org/test/B.java", "org/test/A.java" ), compiled );
+
+        // A changed: B depends on it, so it has to be compiled again too
+        compiled.clear();
+        compile( compiler, 2, 2 );
+        assertEquals( Arrays.asList( "org/test/A.java", "org/test/B.java" ), compiled );
+    }
+
+    @Test
+    public void testChangedClasspathDirectoryInvalidatesTheCache() throws Exception {
+        List<String> compiled = new ArrayList<>();
+        ClassLoader classLoader = new URLClassLoader( new URL[] { classpathDir.getRoot().toURI().toURL() },
+                                                      CachingJavaCompilerTest.class.getClassLoader() );
+        File library = new File( classpathDir.newFolder( "org", "lib" ), "Lib.class" );
+        Files.write( library.toPath(), new byte[] { 1 } );
+
+        compile( new CachingJavaCompiler( new RecordingJavaCompiler( compiled ), cacheDir.getRoot() ), classLoader, 1, 1 );
+        assertEquals( 3, compiled.size() );
+
+        compiled.clear();
+        compile( new CachingJavaCompiler( new RecordingJavaCompiler( compiled ), cacheDir.getRoot() ), classLoader, 1, 1 );
+        assertTrue( compiled.isEmpty() );
+
+        // a class of the directory changed, so a following build can't reuse what has been compiled against it
+        Files.write( library.toPath(), new byte[] { 1, 2 } );
+        compiled.clear();
+        compile( new CachingJavaCompiler( new RecordingJavaCompiler( compiled ), cacheDir.getRoot() ), classLoader, 1, 1 );
+        assertEquals( 3, compiled.size() );
+    }
+
+    private static MemoryResourceStore compile( JavaCompiler compiler, int a, int b ) {
+        return compile( compiler, CachingJavaCompilerTest.class.getClassLoader(), a, b );
+    }
+
+    private static MemoryResourceStore compile( JavaCompiler compiler, ClassLoader classLoader, int a, int b ) {
+        MemoryResourceReader reader = new MemoryResourceReader();
+        reader.add( "org/test/A.java", String.format( SOURCE_A, a ).getBytes() );
+        reader.add( "org/test/B.java", String.format( SOURCE_B, b ).getBytes() );
+        reader.add( "org/test/C.java", SOURCE_C.getBytes() );
+
+        MemoryResourceStore store = new MemoryResourceStore();
+        CompilationResult result = compiler.compile( new String[] { "org/test/A.java", "org/test/B.java", "org/test/C.java" },
+                                                     reader, store, classLoader );
+        assertEquals( 0, result.getErrors().length );
+        return store;
+    }
+
+    private static class RecordingJavaCompiler extends NativeJavaCompiler {
+
+        private final List<String> compiled;
+
+        RecordingJavaCompiler( List<String> compiled ) {
+            this.compiled = compiled;
+        }
+
+        @Override
+        public CompilationResult compile( String[] pResourcePaths, ResourceReader pReader, ResourceStore pStore,
+                                          ClassLoader pClassLoader, JavaCompilerSettings pSettings ) {
+            compiled.addAll( Arrays.asList( pResourcePaths ) );
+            return super.compile( pResourcePaths, pReader, pStore, pClassLoader, pSettings );
+        }
+    }
+}